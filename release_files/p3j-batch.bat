@@ -0,0 +1 @@
+java -Djava.awt.headless=true -cp *;./libs/* p3j.simulation.HeadlessRunner %*
\ No newline at end of file
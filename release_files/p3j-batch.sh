@@ -0,0 +1,2 @@
+#!/bin/bash
+java -Djava.awt.headless=true -cp *:./libs/* p3j.simulation.HeadlessRunner "$@"
@@ -27,7 +27,6 @@ import org.jamesii.SimSystem;
 import org.jamesii.core.data.DBConnectionData;
 
 import p3j.database.hibernate.P3MDatabase;
-import p3j.gui.P3J;
 import p3j.gui.misc.P3JConfigFile;
 import p3j.misc.Misc;
 import p3j.misc.gui.GUI;
@@ -61,6 +60,12 @@ public final class DatabaseFactory {
   /** Connection data to be used. */
   private static DBConnectionData dbConnData = Misc.DEFAULT_DB_CONN;
 
+  /**
+   * The configuration to be used (set by the application, null if the
+   * defaults shall be used).
+   */
+  private static P3JConfigFile configFile;
+
   /**
    * Get database interface.
    * 
@@ -68,11 +73,20 @@ public final class DatabaseFactory {
    */
   public static IP3MDatabase getDatabaseSingleton() {
     if (sqlDatabase == null) {
-      sqlDatabase = createDatabase(P3J.getInstance().getConfigFile());
+      sqlDatabase = createDatabase(getConfigFile());
     }
     return sqlDatabase;
   }
 
+  /**
+   * Creates a new Database object, using the current configuration.
+   * 
+   * @return the newly created database interface object
+   */
+  public static IP3MDatabase createDatabase() {
+    return createDatabase(getConfigFile());
+  }
+
   /**
    * Creates a new Database object.
    * 
@@ -155,7 +169,32 @@ public final class DatabaseFactory {
    */
   public static IP3MDatabase createDatabase(String hibernateConfigFile) {
     P3MDatabase.setHibernateConfigFile(hibernateConfigFile);
-    return createDatabase(P3J.getInstance().getConfigFile());
+    return createDatabase(getConfigFile());
+  }
+
+  /**
+   * Gets the configuration. If none has been set, a configuration with default
+   * values is created.
+   * 
+   * @return the configuration
+   */
+  public static synchronized P3JConfigFile getConfigFile() {
+    if (configFile == null) {
+      configFile = new P3JConfigFile();
+      configFile.setDefaults();
+    }
+    return configFile;
+  }
+
+  /**
+   * Sets the configuration. Does not change the DB connection data, see
+   * {@link DatabaseFactory#setDbConnData(DBConnectionData)}.
+   * 
+   * @param configFile
+   *          the new configuration
+   */
+  public static synchronized void setConfigFile(P3JConfigFile configFile) {
+    DatabaseFactory.configFile = configFile;
   }
 
   /**
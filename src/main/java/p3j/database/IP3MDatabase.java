@@ -376,6 +376,17 @@ public interface IP3MDatabase {
    */
   void saveTrialResults(ResultsOfTrial resultOfTrial);
 
+  /**
+   * Updates the multiplicity of stored trial results, i.e. the number of
+   * trials they represent (see {@link ResultsOfTrial#getMultiplicity()}).
+   * 
+   * @param trialID
+   *          the ID of the trial results
+   * @param multiplicity
+   *          the new multiplicity
+   */
+  void updateTrialMultiplicity(int trialID, int multiplicity);
+
   /**
    * Retrieves all results for the given projection. Take care:
    * 
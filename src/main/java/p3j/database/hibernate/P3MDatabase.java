@@ -18,6 +18,7 @@ package p3j.database.hibernate;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Level;
 
@@ -34,6 +35,7 @@ import org.jamesii.core.util.StopWatch;
 
 import p3j.database.IP3MDatabase;
 import p3j.database.IProjectionResultsIterator;
+import p3j.experiment.results.BasicResults;
 import p3j.experiment.results.ResultsOfTrial;
 import p3j.gui.misc.P3JConfigFile;
 import p3j.misc.IProgressObserver;
@@ -504,6 +506,22 @@ public class P3MDatabase implements IP3MDatabase {
         "Time for result storage in database:" + sw.elapsedMilliseconds());
   }
 
+  @Override
+  public synchronized void updateTrialMultiplicity(int trialID,
+      int multiplicity) {
+    if (resultStorageSession == null) {
+      resultStorageSession = sessionFactory.openSession();
+    }
+    Transaction resultStorageTransaction = resultStorageSession
+        .beginTransaction();
+    resultStorageSession
+        .createQuery(
+            "update ResultsOfTrial set multiplicity = :multiplicity where ID = :id")
+        .setInteger("multiplicity", multiplicity).setInteger("id", trialID)
+        .executeUpdate();
+    resultStorageTransaction.commit();
+  }
+
   @Override
   public List<ResultsOfTrial> getAllResults(ProjectionModel projection) {
     List<ResultsOfTrial> results = Misc.autoCast(session
@@ -515,7 +533,32 @@ public class P3MDatabase implements IP3MDatabase {
 
   @Override
   public void deleteResult(ResultsOfTrial resultOfTrial) {
-    delete(resultOfTrial);
+    List<BasicResults> subPopResults = new ArrayList<>(
+        resultOfTrial.getSubPopulationResults());
+    Transaction t = session.beginTransaction();
+    session.delete(resultOfTrial);
+    deleteUnreferencedResults();
+    t.commit();
+    for (BasicResults subPopResult : subPopResults) {
+      session.evict(subPopResult);
+    }
+    dbChanged();
+  }
+
+  /**
+   * Deletes those sub-population results that are not referenced by any trial
+   * anymore, with a single statement. Sub-population results may be shared by
+   * several trials (see {@link p3j.simulation.SubPopulationResultCache}), so
+   * they are not deleted together with a trial. Needs to be called within a
+   * transaction, the deleted results need to be evicted from the session
+   * afterwards.
+   */
+  private void deleteUnreferencedResults() {
+    session.flush();
+    session
+        .createSQLQuery(
+            "delete from results_basic where not exists (select 1 from results_subpops subpops where subpops.result_id = results_basic.ID)")
+        .executeUpdate();
   }
 
   @Override
@@ -527,8 +570,10 @@ public class P3MDatabase implements IP3MDatabase {
       observer.addWaypoints(results.size());
     }
 
+    List<BasicResults> subPopResults = new ArrayList<>();
     while (!results.isEmpty()) {
       ResultsOfTrial result = results.remove(results.size() - 1);
+      subPopResults.addAll(result.getSubPopulationResults());
       Transaction t = session.beginTransaction();
       session.delete(result);
       t.commit();
@@ -541,6 +586,14 @@ public class P3MDatabase implements IP3MDatabase {
         }
       }
     }
+
+    // The sub-population results of all deleted trials are deleted at once
+    Transaction t = session.beginTransaction();
+    deleteUnreferencedResults();
+    t.commit();
+    for (BasicResults subPopResult : subPopResults) {
+      session.evict(subPopResult);
+    }
     dbChanged();
   }
 
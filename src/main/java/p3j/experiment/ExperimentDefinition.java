@@ -34,7 +34,10 @@ public class ExperimentDefinition {
 	/** The ID of this experiment. */
 	private int id;
 
-	/** The random seed to be used. */
+	/**
+	 * The random seed to be used. The random number streams of all trials are
+	 * derived from it (see {@link p3j.simulation.TrialStreams}).
+	 */
 	private long randSeed;
 
 	/** ID of the user who conducted the experiment. */
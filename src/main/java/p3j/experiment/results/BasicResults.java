@@ -15,13 +15,16 @@
  */
 package p3j.experiment.results;
 
+import java.util.Arrays;
+
 import p3j.misc.math.Matrix2D;
 
 /**
  * Represents the fundamental set of results calculated by the system.
  * 
  * Only the end and mean populations are considered as final results and will
- * per persisted (NOT the survival probabilities!).
+ * per persisted (NOT the survival probabilities!). If an {@link OutputPlan} is
+ * set, only the parts of these results selected by the plan are persisted.
  * 
  * Created on July 04, 2006
  * 
@@ -65,7 +68,9 @@ public class BasicResults {
 
   /**
    * Year-by-year age-specific male survival probability in the first half of
-   * the year.
+   * the year. This and the other survival probabilities are not stored in the
+   * database, and they are null if the results have been calculated by
+   * {@link p3j.simulation.CalculationEngine#FUSED_SWEEP}.
    */
   private Matrix2D p1m;
 
@@ -87,6 +92,29 @@ public class BasicResults {
    */
   private Matrix2D p2f;
 
+  /** The plan that defines which results shall be stored, may be null. */
+  private OutputPlan outputPlan;
+
+  /**
+   * The layout of the stored results, see
+   * {@link OutputPlan#getLayout(int, int)}. Null if the stored results are
+   * complete.
+   */
+  private String outputLayout;
+
+  /**
+   * The stored (and possibly reduced) results, per
+   * {@link OutputPlan.Variable}.
+   */
+  private final Matrix2D[] storedResults = new Matrix2D[OutputPlan.Variable
+      .values().length];
+
+  /**
+   * Flags whether the stored results of a variable have been reduced or loaded
+   * from the database.
+   */
+  private final boolean[] stored = new boolean[storedResults.length];
+
   /**
    * Default constructor.
    * 
@@ -122,6 +150,9 @@ public class BasicResults {
   }
 
   public Matrix2D getEndXm() {
+    if (endXm == null) {
+      endXm = expand(OutputPlan.Variable.END_X_M);
+    }
     return endXm;
   }
 
@@ -130,6 +161,9 @@ public class BasicResults {
   }
 
   public Matrix2D getEndXf() {
+    if (endXf == null) {
+      endXf = expand(OutputPlan.Variable.END_X_F);
+    }
     return endXf;
   }
 
@@ -138,6 +172,9 @@ public class BasicResults {
   }
 
   public Matrix2D getMeanXm() {
+    if (meanXm == null) {
+      meanXm = expand(OutputPlan.Variable.MEAN_X_M);
+    }
     return meanXm;
   }
 
@@ -146,6 +183,9 @@ public class BasicResults {
   }
 
   public Matrix2D getMeanXf() {
+    if (meanXf == null) {
+      meanXf = expand(OutputPlan.Variable.MEAN_X_F);
+    }
     return meanXf;
   }
 
@@ -209,4 +249,132 @@ public class BasicResults {
     this.generation = generation;
   }
 
+  /**
+   * Sets the output plan. Has no effect on the results in memory, which are
+   * still complete, but on the results that will be persisted.
+   * 
+   * @param plan
+   *          the output plan (null if all results shall be stored)
+   */
+  public void setOutputPlan(OutputPlan plan) {
+    if (plan == null ? outputPlan == null : plan.equals(outputPlan)) {
+      return;
+    }
+    getEndXm();
+    getEndXf();
+    getMeanXm();
+    getMeanXf();
+    outputPlan = plan;
+    outputLayout = null;
+    Arrays.fill(storedResults, null);
+    Arrays.fill(stored, false);
+  }
+
+  public String getOutputLayout() {
+    if (outputPlan != null) {
+      return outputPlan.getLayout(getEndXm().rows(), getEndXm().columns());
+    }
+    return outputLayout;
+  }
+
+  public void setOutputLayout(String outputLayout) {
+    this.outputLayout = outputLayout;
+  }
+
+  /**
+   * Checks whether the results have been loaded in a reduced form, i.e. some
+   * of their values are {@link Double#NaN} because the {@link OutputPlan} did
+   * not store them.
+   * 
+   * @return true, if the results are reduced
+   */
+  public boolean isReduced() {
+    return !OutputPlan.isComplete(outputLayout);
+  }
+
+  public Matrix2D getStoredEndXm() {
+    return getStored(OutputPlan.Variable.END_X_M, endXm);
+  }
+
+  public void setStoredEndXm(Matrix2D storedEndXm) {
+    setStored(OutputPlan.Variable.END_X_M, storedEndXm);
+    endXm = null;
+  }
+
+  public Matrix2D getStoredEndXf() {
+    return getStored(OutputPlan.Variable.END_X_F, endXf);
+  }
+
+  public void setStoredEndXf(Matrix2D storedEndXf) {
+    setStored(OutputPlan.Variable.END_X_F, storedEndXf);
+    endXf = null;
+  }
+
+  public Matrix2D getStoredMeanXm() {
+    return getStored(OutputPlan.Variable.MEAN_X_M, meanXm);
+  }
+
+  public void setStoredMeanXm(Matrix2D storedMeanXm) {
+    setStored(OutputPlan.Variable.MEAN_X_M, storedMeanXm);
+    meanXm = null;
+  }
+
+  public Matrix2D getStoredMeanXf() {
+    return getStored(OutputPlan.Variable.MEAN_X_F, meanXf);
+  }
+
+  public void setStoredMeanXf(Matrix2D storedMeanXf) {
+    setStored(OutputPlan.Variable.MEAN_X_F, storedMeanXf);
+    meanXf = null;
+  }
+
+  /**
+   * Gets the results of a variable as they are stored.
+   * 
+   * @param variable
+   *          the variable
+   * @param results
+   *          the full results of the variable
+   * @return the stored results
+   */
+  private Matrix2D getStored(OutputPlan.Variable variable, Matrix2D results) {
+    int index = variable.ordinal();
+    if (!stored[index]) {
+      if (outputPlan == null) {
+        return results;
+      }
+      storedResults[index] = outputPlan.reduce(results, variable);
+      stored[index] = true;
+    }
+    return storedResults[index];
+  }
+
+  /**
+   * Sets the stored results of a variable, as loaded from the database.
+   * 
+   * @param variable
+   *          the variable
+   * @param results
+   *          the stored results
+   */
+  private void setStored(OutputPlan.Variable variable, Matrix2D results) {
+    storedResults[variable.ordinal()] = results;
+    stored[variable.ordinal()] = true;
+  }
+
+  /**
+   * Expands the stored results of a variable, if these have been reduced.
+   * 
+   * @param variable
+   *          the variable
+   * @return the full results of the variable
+   */
+  private Matrix2D expand(OutputPlan.Variable variable) {
+    Matrix2D results = storedResults[variable.ordinal()];
+    if (outputLayout == null || !stored[variable.ordinal()]) {
+      return results;
+    }
+    return OutputPlan.expand(outputLayout, results);
+  }
+
 }
@@ -59,6 +59,20 @@ public class ExecutionSummary {
   /** Stores the results per sub-population. */
   private Map<SubPopulation, List<BasicResults>> results = new HashMap<>();
 
+  /**
+   * The index of the trial within its experiment, -1 if unknown (see
+   * {@link p3j.simulation.TrialStreams}).
+   */
+  private long trialIndex = -1;
+
+  /**
+   * Flag that determines whether the trial repeats an earlier trial with the
+   * same deterministic assignments. Its results are then not calculated again,
+   * but counted by the multiplicity of the earlier trial (see
+   * {@link p3j.simulation.RepeatedTrialRegistry}).
+   */
+  private boolean repetition;
+
   /**
    * Instantiates a new execution summary.
    * 
@@ -106,6 +120,22 @@ public class ExecutionSummary {
     }
   }
 
+  public long getTrialIndex() {
+    return trialIndex;
+  }
+
+  public void setTrialIndex(long trialIndex) {
+    this.trialIndex = trialIndex;
+  }
+
+  public boolean isRepetition() {
+    return repetition;
+  }
+
+  public void setRepetition(boolean repetition) {
+    this.repetition = repetition;
+  }
+
   public Map<ParameterInstance, ParameterAssignment> getParamAssignments() {
     return paramAssignments;
   }
@@ -127,6 +157,11 @@ public class ExecutionSummary {
     jumpOffParameters.put(jumpOffPopulation, jumpOffParams);
   }
 
+  public JumpOffParameters getJumpOffParameters(
+      SubPopulation jumpOffPopulation) {
+    return jumpOffParameters.get(jumpOffPopulation);
+  }
+
   public void addResults(SubPopulation jumpOffPopulation, int generation,
       BasicResults popResults) {
     List<BasicResults> resultList = results.get(jumpOffPopulation);
@@ -146,6 +181,10 @@ public class ExecutionSummary {
     inFlowParameters.put(subPopulation, parameters);
   }
 
+  public InFlowParameters getInFlowParameters(SubPopulation subPopulation) {
+    return inFlowParameters.get(subPopulation);
+  }
+
   public BasicParameters getParameters(SubPopulation subPopulation,
       int generation) {
     if (!subPopulation.isConsistingOfDescendantGenerations())
@@ -178,6 +217,11 @@ public class ExecutionSummary {
     paramList.add(parameters);
   }
 
+  public InFlowDescendantParameters getDescendantParameters(
+      SubPopulation subPopulation, int generation) {
+    return inFlowDescParameters.get(subPopulation).get(generation - 1);
+  }
+
   public BasicResults getResults(SubPopulation subPopulation, int generation) {
     return results.get(subPopulation).get(generation);
   }
@@ -0,0 +1,499 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.experiment.results;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import p3j.misc.math.Matrix2D;
+
+/**
+ * Declares which parts of the {@link BasicResults} of a run shall be stored,
+ * so that large experiments do not need to persist (and later re-load) data
+ * nobody is interested in. A plan selects the result variables, an age range,
+ * and a step between the stored years (the jump-off year and the last year of
+ * the projection are always kept).
+ * 
+ * Plans are specified by strings like
+ * <code>variables=end_x_m,end_x_f;ages=0-100;yearStep=5;report=false</code>,
+ * all entries are optional. Plans are immutable. The calculation itself still works on
+ * the full matrices, as the mean populations of one generation are required
+ * to calculate the next one; only the stored results are reduced, see
+ * {@link BasicResults#setOutputPlan(OutputPlan)}. When reduced results are
+ * loaded again, all values that have not been stored are
+ * {@link Double#NaN}. Such results can still be exported trial by trial, but
+ * not be aggregated, see {@link OutputPlan#isComplete(String)}. As the reports
+ * (see {@link ResultAggregation#getSelectorsForReport()}) aggregate all
+ * variables over all ages and years, a plan that drops any of them has to
+ * declare <code>report=false</code>; otherwise, it is rejected before the run
+ * (see {@link OutputPlan#parseForRun(String, int)}).
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class OutputPlan {
+
+  /** The separator of the plan entries. */
+  static final String ENTRY_SEPARATOR = ";";
+
+  /** The separator of a key and its value. */
+  static final String VALUE_SEPARATOR = "=";
+
+  /** The separator of the list elements. */
+  static final String LIST_SEPARATOR = ",";
+
+  /** The separator of the lower and upper age. */
+  static final String RANGE_SEPARATOR = "-";
+
+  /** The separator between the dimensions of the full results. */
+  static final String SHAPE_SEPARATOR = "x";
+
+  /** The key for the variables. */
+  static final String KEY_VARIABLES = "variables";
+
+  /** The key for the ages. */
+  static final String KEY_AGES = "ages";
+
+  /** The key for the year step. */
+  static final String KEY_YEAR_STEP = "yearStep";
+
+  /** The key for the flag whether the results shall be used for reports. */
+  static final String KEY_REPORT = "report";
+
+  /**
+   * The result variables of the {@link BasicResults}. The suffixes are the
+   * same as those used by {@link ResultAggregation}.
+   */
+  public enum Variable {
+
+    /** The male end population. */
+    END_X_M("end_x_m"),
+
+    /** The female end population. */
+    END_X_F("end_x_f"),
+
+    /** The male mean population. */
+    MEAN_X_M("mean_x_m"),
+
+    /** The female mean population. */
+    MEAN_X_F("mean_x_f");
+
+    /** The suffix. */
+    private final String suffix;
+
+    /**
+     * Instantiates a new variable.
+     * 
+     * @param varSuffix
+     *          the suffix of the variable
+     */
+    Variable(String varSuffix) {
+      suffix = varSuffix;
+    }
+
+    public String getSuffix() {
+      return suffix;
+    }
+
+    /**
+     * Gets the variable with the given suffix.
+     * 
+     * @param suffix
+     *          the suffix
+     * @return the variable
+     */
+    public static Variable forSuffix(String suffix) {
+      for (Variable variable : values()) {
+        if (variable.suffix.equals(suffix)) {
+          return variable;
+        }
+      }
+      throw new IllegalArgumentException("Unknown result variable '" + suffix
+          + "', use one of " + Arrays.toString(values()));
+    }
+
+    @Override
+    public String toString() {
+      return suffix;
+    }
+  }
+
+  /** The variables to be stored. */
+  private final Set<Variable> variables;
+
+  /** The lowest age to be stored. */
+  private final int minAge;
+
+  /** The highest age to be stored. */
+  private final int maxAge;
+
+  /** The step between the years to be stored. */
+  private final int yearStep;
+
+  /** Flag whether the stored results shall be aggregated to reports. */
+  private final boolean forReports;
+
+  /**
+   * Instantiates a new output plan, for results that shall be aggregated to
+   * reports.
+   * 
+   * @param retainedVariables
+   *          the variables to be stored
+   * @param lowestAge
+   *          the lowest age to be stored
+   * @param highestAge
+   *          the highest age to be stored (results with fewer age classes are
+   *          stored up to their maximum age)
+   * @param step
+   *          the step between the years to be stored
+   */
+  public OutputPlan(Set<Variable> retainedVariables, int lowestAge,
+      int highestAge, int step) {
+    this(retainedVariables, lowestAge, highestAge, step, true);
+  }
+
+  /**
+   * Instantiates a new output plan.
+   * 
+   * @param retainedVariables
+   *          the variables to be stored
+   * @param lowestAge
+   *          the lowest age to be stored
+   * @param highestAge
+   *          the highest age to be stored (results with fewer age classes are
+   *          stored up to their maximum age)
+   * @param step
+   *          the step between the years to be stored
+   * @param reports
+   *          flag whether the stored results shall be aggregated to reports
+   */
+  public OutputPlan(Set<Variable> retainedVariables, int lowestAge,
+      int highestAge, int step, boolean reports) {
+    if (lowestAge < 0 || highestAge < lowestAge || step < 1) {
+      throw new IllegalArgumentException("Invalid output plan: ages "
+          + lowestAge + RANGE_SEPARATOR + highestAge + ", year step " + step);
+    }
+    variables = retainedVariables.isEmpty() ? EnumSet.noneOf(Variable.class)
+        : EnumSet.copyOf(retainedVariables);
+    minAge = lowestAge;
+    maxAge = highestAge;
+    yearStep = step;
+    forReports = reports;
+  }
+
+  /**
+   * Parses an output plan.
+   * 
+   * @param spec
+   *          the specification of the plan
+   * @return the output plan, null if the specification is empty (i.e., all
+   *         results shall be stored)
+   */
+  public static OutputPlan parse(String spec) {
+    if (spec == null || spec.trim().isEmpty()) {
+      return null;
+    }
+    Set<Variable> variables = EnumSet.allOf(Variable.class);
+    int minAge = 0;
+    int maxAge = Integer.MAX_VALUE;
+    int yearStep = 1;
+    boolean reports = true;
+    for (String entry : spec.split(ENTRY_SEPARATOR)) {
+      if (entry.trim().isEmpty()) {
+        continue;
+      }
+      String[] keyValue = entry.split(VALUE_SEPARATOR, 2);
+      if (keyValue.length != 2) {
+        throw new IllegalArgumentException("Output plan entry '" + entry
+            + "' is not of the form key" + VALUE_SEPARATOR + "value");
+      }
+      String key = keyValue[0].trim();
+      String value = keyValue[1].trim();
+      try {
+        switch (key) {
+        case KEY_VARIABLES:
+          variables = EnumSet.noneOf(Variable.class);
+          for (String suffix : value.split(LIST_SEPARATOR)) {
+            if (!suffix.trim().isEmpty()) {
+              variables.add(Variable.forSuffix(suffix.trim()));
+            }
+          }
+          break;
+        case KEY_AGES:
+          String[] ages = value.split(RANGE_SEPARATOR, 2);
+          minAge = Integer.parseInt(ages[0].trim());
+          maxAge = ages.length == 1 ? minAge
+              : ages[1].trim().isEmpty() ? Integer.MAX_VALUE : Integer
+                  .parseInt(ages[1].trim());
+          break;
+        case KEY_YEAR_STEP:
+          yearStep = Integer.parseInt(value);
+          break;
+        case KEY_REPORT:
+          if (!value.equals(Boolean.TRUE.toString())
+              && !value.equals(Boolean.FALSE.toString())) {
+            throw new IllegalArgumentException("Output plan entry '" + entry
+                + "' has to be true or false");
+          }
+          reports = Boolean.parseBoolean(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown output plan entry '"
+              + key + "', use " + KEY_VARIABLES + ", " + KEY_AGES + ", "
+              + KEY_YEAR_STEP + ", or " + KEY_REPORT);
+        }
+      } catch (NumberFormatException ex) {
+        throw new IllegalArgumentException("Invalid number in output plan entry '"
+            + entry + "'", ex);
+      }
+    }
+    return new OutputPlan(variables, minAge, maxAge, yearStep, reports);
+  }
+
+  /**
+   * Parses the output plan of a run, and checks that the results it stores can
+   * be aggregated to reports, see {@link OutputPlan#checkReports(int)}.
+   * 
+   * @param spec
+   *          the specification of the plan
+   * @param maximumAge
+   *          the maximum age of the projection, negative if unknown
+   * @return the output plan, null if the specification is empty
+   * @throws IllegalArgumentException
+   *           if the plan is invalid, or conflicts with the reports
+   */
+  public static OutputPlan parseForRun(String spec, int maximumAge) {
+    OutputPlan plan = parse(spec);
+    if (plan != null) {
+      plan.checkReports(maximumAge);
+    }
+    return plan;
+  }
+
+  /**
+   * Checks that the plan stores everything the reports and aggregated exports
+   * of {@link ResultExport} need, i.e. all variables for all ages and years,
+   * unless the plan declares that its results are not used for reports.
+   * 
+   * @param maximumAge
+   *          the maximum age of the projection, negative if unknown (then the
+   *          highest stored age is not checked)
+   * @throws IllegalArgumentException
+   *           if the plan drops results that are needed for reports
+   */
+  public void checkReports(int maximumAge) {
+    if (!forReports) {
+      return;
+    }
+    List<String> dropped = new ArrayList<>();
+    for (Variable variable : Variable.values()) {
+      if (!retains(variable)) {
+        dropped.add(variable.getSuffix());
+      }
+    }
+    if (minAge > 0 || maximumAge >= 0 && maxAge < maximumAge) {
+      dropped.add("ages outside of " + minAge + RANGE_SEPARATOR + maxAge);
+    }
+    if (yearStep > 1) {
+      dropped.add("years between the steps of " + yearStep);
+    }
+    if (!dropped.isEmpty()) {
+      throw new IllegalArgumentException("The output plan '" + this
+          + "' drops results needed for reports and aggregated exports: "
+          + dropped + ". Add '" + KEY_REPORT + VALUE_SEPARATOR + "false' to "
+          + "the plan to store them anyway, for the export of single trials.");
+    }
+  }
+
+  /**
+   * Checks whether a variable is stored.
+   * 
+   * @param variable
+   *          the variable
+   * @return true, if the variable is stored
+   */
+  public boolean retains(Variable variable) {
+    return variables.contains(variable);
+  }
+
+  /**
+   * Gets the years to be stored.
+   * 
+   * @param numOfYears
+   *          the overall number of years
+   * @return the indices of the years to be stored, in ascending order
+   */
+  public int[] getRetainedYears(int numOfYears) {
+    int lastYear = numOfYears - 1;
+    int numOfRetainedYears = lastYear / yearStep + 1
+        + (lastYear % yearStep == 0 ? 0 : 1);
+    int[] years = new int[Math.max(0, numOfRetainedYears)];
+    for (int i = 0; i < years.length; i++) {
+      years[i] = Math.min(i * yearStep, lastYear);
+    }
+    return years;
+  }
+
+  /**
+   * Reduces a matrix of results to the stored ages and years.
+   * 
+   * @param fullResults
+   *          the full results, age-by-year
+   * @param variable
+   *          the variable the results belong to
+   * @return the reduced results, null if the variable is not stored
+   */
+  public Matrix2D reduce(Matrix2D fullResults, Variable variable) {
+    if (fullResults == null || !retains(variable)) {
+      return null;
+    }
+    int[] years = getRetainedYears(fullResults.columns());
+    int lastAge = Math.min(maxAge, fullResults.rows() - 1);
+    int numOfAges = Math.max(0, lastAge - minAge + 1);
+    Matrix2D reduced = new Matrix2D(numOfAges, years.length);
+    for (int age = 0; age < numOfAges; age++) {
+      for (int year = 0; year < years.length; year++) {
+        reduced.setQuick(age, year,
+            fullResults.getQuick(minAge + age, years[year]));
+      }
+    }
+    return reduced;
+  }
+
+  /**
+   * Gets the layout of the stored results, i.e. the plan and the dimensions of
+   * the full results.
+   * 
+   * @param numOfAges
+   *          the number of age classes of the full results
+   * @param numOfYears
+   *          the number of years of the full results
+   * @return the layout, to be passed to
+   *         {@link OutputPlan#expand(String, Matrix2D)}
+   */
+  public String getLayout(int numOfAges, int numOfYears) {
+    return numOfAges + SHAPE_SEPARATOR + numOfYears + ENTRY_SEPARATOR
+        + toString();
+  }
+
+  /**
+   * Checks whether the stored results of a layout are complete, i.e. whether
+   * the plan has not dropped any variable, age, or year. Aggregations (sums
+   * over ages, quantiles over trials, etc.) are only meaningful for complete
+   * results, as the dropped values are {@link Double#NaN}.
+   * 
+   * @param layout
+   *          the layout of the stored results, see
+   *          {@link OutputPlan#getLayout(int, int)} (may be null, if the
+   *          results have not been reduced)
+   * @return true, if all results have been stored
+   */
+  public static boolean isComplete(String layout) {
+    if (layout == null) {
+      return true;
+    }
+    String[] shapeAndPlan = layout.split(ENTRY_SEPARATOR, 2);
+    String[] shape = shapeAndPlan[0].split(SHAPE_SEPARATOR);
+    OutputPlan plan = parse(shapeAndPlan.length > 1 ? shapeAndPlan[1] : "");
+    if (plan == null) {
+      return true;
+    }
+    int numOfYears = Integer.parseInt(shape[1]);
+    return plan.variables.containsAll(EnumSet.allOf(Variable.class))
+        && plan.minAge == 0
+        && plan.maxAge >= Integer.parseInt(shape[0]) - 1
+        && plan.getRetainedYears(numOfYears).length == numOfYears;
+  }
+
+  /**
+   * Expands stored results to the dimensions of the full results.
+   * 
+   * @param layout
+   *          the layout of the stored results, see
+   *          {@link OutputPlan#getLayout(int, int)}
+   * @param storedResults
+   *          the stored results (may be null, if the variable has not been
+   *          stored)
+   * @return the full results, all values that have not been stored are
+   *         {@link Double#NaN}
+   */
+  public static Matrix2D expand(String layout, Matrix2D storedResults) {
+    String[] shapeAndPlan = layout.split(ENTRY_SEPARATOR, 2);
+    String[] shape = shapeAndPlan[0].split(SHAPE_SEPARATOR);
+    OutputPlan plan = parse(shapeAndPlan.length > 1 ? shapeAndPlan[1] : "");
+    Matrix2D fullResults = new Matrix2D(Integer.parseInt(shape[0]),
+        Integer.parseInt(shape[1]));
+    if (plan == null) {
+      fullResults.assign(storedResults);
+      return fullResults;
+    }
+    fullResults.assign(Double.NaN);
+    if (storedResults == null) {
+      return fullResults;
+    }
+    int[] years = plan.getRetainedYears(fullResults.columns());
+    for (int age = 0; age < storedResults.rows(); age++) {
+      for (int year = 0; year < years.length; year++) {
+        fullResults.setQuick(plan.minAge + age, years[year],
+            storedResults.getQuick(age, year));
+      }
+    }
+    return fullResults;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder spec = new StringBuilder();
+    spec.append(KEY_VARIABLES).append(VALUE_SEPARATOR);
+    String separator = "";
+    for (Variable variable : variables) {
+      spec.append(separator).append(variable.getSuffix());
+      separator = LIST_SEPARATOR;
+    }
+    spec.append(ENTRY_SEPARATOR).append(KEY_AGES).append(VALUE_SEPARATOR)
+        .append(minAge).append(RANGE_SEPARATOR);
+    if (maxAge != Integer.MAX_VALUE) {
+      spec.append(maxAge);
+    }
+    spec.append(ENTRY_SEPARATOR).append(KEY_YEAR_STEP).append(VALUE_SEPARATOR)
+        .append(yearStep);
+    if (!forReports) {
+      spec.append(ENTRY_SEPARATOR).append(KEY_REPORT).append(VALUE_SEPARATOR)
+          .append(forReports);
+    }
+    return spec.toString();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof OutputPlan)) {
+      return false;
+    }
+    OutputPlan other = (OutputPlan) o;
+    return variables.equals(other.variables) && minAge == other.minAge
+        && maxAge == other.maxAge && yearStep == other.yearStep
+        && forReports == other.forReports;
+  }
+
+  @Override
+  public int hashCode() {
+    return toString().hashCode();
+  }
+}
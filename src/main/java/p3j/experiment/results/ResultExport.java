@@ -39,7 +39,6 @@ import org.jamesii.core.util.misc.Triple;
 import p3j.database.DatabaseFactory;
 import p3j.database.IProjectionResultsIterator;
 import p3j.experiment.results.filters.IResultFilter;
-import p3j.gui.P3J;
 import p3j.misc.IProgressObserver;
 import p3j.misc.gui.GUI;
 import p3j.misc.math.Matrix2D;
@@ -85,7 +84,10 @@ public class ResultExport {
   /** The number of years to be projected. */
   private final int numOfYears;
 
-  /** The number of trials. */
+  /**
+   * The number of trials, i.e. the sum of the multiplicities of all stored
+   * results.
+   */
   private final int numOfTrials;
 
   /** The target directory. */
@@ -141,8 +143,23 @@ public class ResultExport {
 
     // Store the number overall number of years and trials
     numOfYears = projectionModel.getYears();
-    numOfTrials = DatabaseFactory.getDatabaseSingleton()
-        .getAllResults(projection).size();
+    numOfTrials = countTrials(DatabaseFactory.getDatabaseSingleton()
+        .getAllResults(projection));
+  }
+
+  /**
+   * Counts the trials represented by the given results.
+   * 
+   * @param results
+   *          the results
+   * @return the sum of their multiplicities
+   */
+  static int countTrials(List<ResultsOfTrial> results) {
+    int trials = 0;
+    for (ResultsOfTrial result : results) {
+      trials += result.getMultiplicity();
+    }
+    return trials;
   }
 
   /**
@@ -154,8 +171,7 @@ public class ResultExport {
   public void exportAllResults() throws IOException {
     File dataDirectory = initializeSubDirectory("data");
     exportData(dataDirectory);
-    GUI.printMessage(P3J.getInstance(), "Results Export Finished",
-        "Results export is finished.");
+    GUI.printMessage("Results Export Finished", "Results export is finished.");
   }
 
   /**
@@ -175,7 +191,7 @@ public class ResultExport {
             .getSelectorsForAggregatedDataExport(), progress);
     if (progress.isCancelled())
       return;
-    GUI.printMessage(P3J.getInstance(), "Aggregated Results Export Finished",
+    GUI.printMessage("Aggregated Results Export Finished",
         "Aggregated results export is finished.");
   }
 
@@ -202,7 +218,7 @@ public class ResultExport {
     Map<String, Object> aggregationInfoMap = aggregateData(aggregatedDirectory,
         selectors, progress);
     if (aggregationInfoMap.isEmpty()) {
-      GUI.printMessage(P3J.getInstance(), "No results to report",
+      GUI.printMessage("No results to report",
           "No results could be reported, as none matched you filter.");
       return;
     }
@@ -213,7 +229,6 @@ public class ResultExport {
     progress.incrementProgress("Creating Sweave file...");
     createSweaveFile(aggregationInfoMap);
     GUI.printMessage(
-        P3J.getInstance(),
         "Report Generation Finished",
         "Result report generation is finished. Now run \"Sweave('report.Rtex')\" in R, then use LaTeX to process the 'report.tex' file.'");
   }
@@ -350,7 +365,10 @@ public class ResultExport {
 
   /**
    * Analyzes and filters results. Applies all selectors to the results that are
-   * not filtered.
+   * not filtered. Results that represent several trials are considered as often
+   * as their multiplicity, so that all aggregations are weighted accordingly.
+   * Results stored under a reduced {@link OutputPlan} cannot be aggregated, as
+   * the dropped values would turn the aggregates into {@link Double#NaN}.
    * 
    * @param projection
    *          the projection
@@ -397,21 +415,31 @@ public class ResultExport {
         result = resultsIterator.getNextResult();
         continue;
       }
+      if (result.hasReducedResults()) {
+        throw new IllegalStateException("Results with ID " + result.getID()
+            + " have been stored under an output plan that dropped some "
+            + "variables, ages, or years, so they cannot be aggregated. "
+            + "Export them trial by trial, or re-run the projection with an "
+            + "empty output plan.");
+      }
       publishInfo(progress, "Analyzing trial #" + (trialCount + 1));
+      int[] encodedAssumptions;
       try {
-        trialAssumptions.add(new Triple<Integer, Double, int[]>(trialCount,
-            result.getAssignmentProbability(), assumptionEncoder.encode(result
-                .getAssignment())));
+        encodedAssumptions = assumptionEncoder.encode(result.getAssignment());
       } catch (RuntimeException ex) {
         GUI.printErrorMessage("Encoding trial failed.", ex);
         result = resultsIterator.getNextResult();
         continue;
       }
 
-      for (IAggregationSelector selector : selectors) {
-        selector.consider(trialCount, result);
+      for (int i = 0; i < result.getMultiplicity(); i++) {
+        trialAssumptions.add(new Triple<Integer, Double, int[]>(trialCount,
+            result.getAssignmentProbability(), encodedAssumptions));
+        for (IAggregationSelector selector : selectors) {
+          selector.consider(trialCount, result);
+        }
+        trialCount++;
       }
-      trialCount++;
 
       result = resultsIterator.getNextResult();
     }
@@ -656,6 +684,7 @@ public class ResultExport {
         + File.separatorChar + "assumptions.txt");
     fw.append("Assumption probability: \t" + results.getAssignmentProbability()
         + "\n");
+    fw.append("Multiplicity: \t" + results.getMultiplicity() + "\n");
     fw.append("Numerical encoding: \t"
         + Strings.dispArray(assumptionEncoder.encode(results.getAssignment()))
         + "\n");
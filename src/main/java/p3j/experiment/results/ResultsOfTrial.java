@@ -69,6 +69,14 @@ public class ResultsOfTrial implements Serializable {
    */
   private double setCombinationProbability;
 
+  /**
+   * The number of trials that have been calculated with the same
+   * deterministic assignment, and that are represented by these results (see
+   * {@link p3j.simulation.RepeatedTrialRegistry}). May be null for results
+   * stored before multiplicities were introduced, which means 1.
+   */
+  private Integer multiplicity = 1;
+
   /**
    * Empty constructor (for Bean compatibility).
    */
@@ -186,6 +194,20 @@ public class ResultsOfTrial implements Serializable {
     this.setCombinationProbability = setCombinationProbability;
   }
 
+  /**
+   * Gets the multiplicity, i.e. the number of trials represented by these
+   * results. Aggregations should weight the results accordingly.
+   * 
+   * @return the multiplicity
+   */
+  public int getMultiplicity() {
+    return multiplicity == null ? 1 : multiplicity;
+  }
+
+  public void setMultiplicity(int multiplicity) {
+    this.multiplicity = multiplicity;
+  }
+
   public List<BasicResults> getSubPopulationResults() {
     return subPopulationResults;
   }
@@ -209,4 +231,18 @@ public class ResultsOfTrial implements Serializable {
     return subPopResults;
   }
 
+  /**
+   * Checks whether any of the sub-population results have been stored in a
+   * reduced form.
+   * 
+   * @return true, if some results are reduced
+   * @see BasicResults#isReduced()
+   */
+  public boolean hasReducedResults() {
+    for (BasicResults subPopResult : subPopulationResults)
+      if (subPopResult.isReduced())
+        return true;
+    return false;
+  }
+
 }
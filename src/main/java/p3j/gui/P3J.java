@@ -26,7 +26,6 @@ import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.net.URI;
 import java.util.List;
 import java.util.Locale;
 import java.util.logging.Level;
@@ -51,13 +50,8 @@ import org.jamesii.SimSystem;
 import org.jamesii.core.experiments.BaseExperiment;
 import org.jamesii.core.experiments.RunInformation;
 import org.jamesii.core.experiments.instrumentation.computation.plugintype.ComputationInstrumenterFactory;
-import org.jamesii.core.experiments.taskrunner.parallel.ParallelComputationTaskRunnerFactory;
-import org.jamesii.core.experiments.taskrunner.plugintype.TaskRunnerFactory;
-import org.jamesii.core.experiments.tasks.stoppolicy.plugintype.ComputationTaskStopPolicyFactory;
 import org.jamesii.core.parameters.ParameterBlock;
 import org.jamesii.core.parameters.ParameterizedFactory;
-import org.jamesii.core.processor.plugintype.ProcessorFactory;
-import org.jamesii.core.simulationrun.stoppolicy.SimTimeStopFactory;
 import org.jamesii.gui.application.SplashScreen;
 import org.jamesii.gui.application.resource.IconManager;
 import org.jamesii.gui.experiment.ExperimentExecutorThreadPool;
@@ -83,10 +77,9 @@ import p3j.misc.Misc;
 import p3j.misc.Serializer;
 import p3j.misc.gui.GUI;
 import p3j.pppm.ProjectionModel;
-import p3j.pppm.readerwriter.database.PPPModelDatabaseReaderFactory;
-import p3j.simulation.ExecutionMode;
-import p3j.simulation.PPPMProcessorFactory;
-import p3j.simulation.assignments.plugintype.ParamAssignmentGenFactory;
+import p3j.simulation.ExperimentConfigurator;
+import p3j.simulation.MortalityBaselineCache;
+import p3j.simulation.calculation.deterministic.SurvivalProbabilityCache;
 
 import com.jgoodies.looks.HeaderStyle;
 import com.jgoodies.looks.LookUtils;
@@ -563,6 +556,7 @@ public final class P3J extends JFrame {
     this.getContentPane().add(toolBar, BorderLayout.NORTH);
     this.getContentPane().add(desktop, BorderLayout.CENTER);
 
+    DatabaseFactory.setConfigFile(getConfigFile());
     DatabaseFactory.setDbConnData(getConfigFile().getDBConnectionData());
     currentProjection = null;
     dbOverviewPanel = new DatabaseOverviewPanel(contentPanel);
@@ -748,10 +742,23 @@ public final class P3J extends JFrame {
    * Executed to run a calculation.
    */
   protected void startExperiment() {
-    BaseExperiment baseExperiment = new BaseExperiment();
-    configureModelLocation(baseExperiment);
-    configureSimulator(baseExperiment);
-    configureMultiThreading(baseExperiment);
+    SurvivalProbabilityCache.clear();
+    MortalityBaselineCache.clear();
+    ExperimentConfigurator configurator = new ExperimentConfigurator(
+        getConfigFile());
+    BaseExperiment baseExperiment;
+    try {
+      baseExperiment = configurator.createExperiment(
+          DatabaseFactory.getDbConnData(), currentProjection.getID());
+    } catch (Exception ex) {
+      GUI.printErrorMessage(this, "Could not configure model location",
+          "Configuration of model reader failed.", ex);
+      return;
+    }
+    baseExperiment
+        .setComputationInstrumenterFactory(new ParameterizedFactory<ComputationInstrumenterFactory>(
+            new ExecProgressInstrFactory(), new ParameterBlock(configurator
+                .getNumOfTrials(), ExecProgressInstrFactory.NUM_OF_TRIALS)));
     ExperimentExecutorThreadPool.getInstance().getExecutor()
         .execute(new ExperimentThread(baseExperiment) {
           @Override
@@ -767,72 +774,6 @@ public final class P3J extends JFrame {
         });
   }
 
-  /**
-   * Configures the given experiment for multi-threading.
-   * 
-   * @param baseExperiment
-   *          the experiment to be configured
-   */
-  private void configureMultiThreading(BaseExperiment baseExperiment) {
-    int numOfTrials = (Integer) getConfigFile().get(Misc.PREF_NUM_TRIALS);
-    int numOfThreads = (Integer) getConfigFile().get(
-        Misc.PREF_NUM_PARALLEL_THREADS);
-    double stopTime = Math.ceil((double) numOfTrials / numOfThreads);
-
-    baseExperiment.setRepeatRuns(numOfThreads);
-    baseExperiment
-        .setComputationTaskStopPolicyFactory(new ParameterizedFactory<ComputationTaskStopPolicyFactory>(
-            new SimTimeStopFactory(), new ParameterBlock(stopTime,
-                SimTimeStopFactory.SIMEND)));
-    baseExperiment
-        .setComputationInstrumenterFactory(new ParameterizedFactory<ComputationInstrumenterFactory>(
-            new ExecProgressInstrFactory(), new ParameterBlock(numOfTrials,
-                ExecProgressInstrFactory.NUM_OF_TRIALS)));
-
-    if (numOfThreads > 1) {
-      baseExperiment
-          .setTaskRunnerFactory(new ParameterizedFactory<TaskRunnerFactory>(
-              new ParallelComputationTaskRunnerFactory(), new ParameterBlock(
-                  numOfThreads, ParallelComputationTaskRunnerFactory.NUM_CORES)));
-    }
-  }
-
-  /**
-   * Configures experiment to use PPPM simulator.
-   * 
-   * @param baseExperiment
-   *          the experiment to be configured
-   */
-  private void configureSimulator(BaseExperiment baseExperiment) {
-    ParameterBlock processorParameters = baseExperiment
-        .getParameters()
-        .getParameterBlock()
-        .addSubBlock(ProcessorFactory.class.getName(),
-            PPPMProcessorFactory.class.getName());
-    processorParameters.addSubBl(ParamAssignmentGenFactory.class.getName(),
-        ((ExecutionMode) getConfigFile().get(Misc.PREF_EXECUTION_MODE))
-            .getFactoryName());
-  }
-
-  /**
-   * Configures experiment regarding model location.
-   * 
-   * @param baseExperiment
-   *          the experiment to be configured
-   */
-  private void configureModelLocation(BaseExperiment baseExperiment) {
-    try {
-      baseExperiment.setModelLocation(new URI(
-          PPPModelDatabaseReaderFactory.DEFAULT_URI));
-      baseExperiment.setModelRWParameters(PPPModelDatabaseReaderFactory
-          .createReaderParams(DatabaseFactory.getDbConnData(),
-              currentProjection.getID()));
-    } catch (Exception ex) {
-      GUI.printErrorMessage(this, "Could not configure model location",
-          "Configuration of model reader failed.", ex);
-    }
-  }
-
   /**
    * Main function.
    * 
@@ -25,18 +25,22 @@ import java.util.List;
 
 import javax.swing.AbstractButton;
 import javax.swing.ButtonGroup;
+import javax.swing.JCheckBox;
 import javax.swing.JButton;
 import javax.swing.JDialog;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 import javax.swing.JTextField;
 
+import p3j.experiment.results.OutputPlan;
 import p3j.gui.P3J;
 import p3j.gui.misc.P3JConfigFile;
 import p3j.gui.panels.PropertiesShowPanelFactory;
 import p3j.misc.Misc;
 import p3j.misc.gui.GUI;
+import p3j.simulation.CalculationEngine;
 import p3j.simulation.ExecutionMode;
+import p3j.simulation.VarianceReduction;
 
 /**
  * Simple dialog to show the execution preferences.
@@ -53,7 +57,7 @@ public class ExecutionPreferencesDialog extends JDialog {
   public static final int DIALOG_WIDTH = 600;
 
   /** Height of the dialog. */
-  public static final int DIALOG_HEIGHT = 200;
+  public static final int DIALOG_HEIGHT = 385;
 
   /** The width of the key column in the form. */
   private static final int FORM_KEY_WIDTH = 200;
@@ -61,6 +65,12 @@ public class ExecutionPreferencesDialog extends JDialog {
   /** The width of the value column in the form. */
   private static final int FORM_VALUE_WIDTH = 100;
 
+  /**
+   * The label for the number of parallel threads, see
+   * {@link Misc#PREF_NUM_PARALLEL_THREADS}.
+   */
+  private static final String PARALLEL_THREADS_LABEL = "Parallel Threads";
+
   /** The content panel. */
   private final JPanel contentPanel;
 
@@ -70,12 +80,33 @@ public class ExecutionPreferencesDialog extends JDialog {
   /** The field for the number of parallel threads. */
   private final JTextField numOfParallelThreads = new JTextField();
 
+  /** The field for the number of trials per batch. */
+  private final JTextField batchSize = new JTextField();
+
+  /** The field for the number of threads per trial. */
+  private final JTextField numOfSubPopThreads = new JTextField();
+
+  /** The field for the output plan. */
+  private final JTextField outputPlan = new JTextField();
+
+  /** The field for the seed of an experiment. */
+  private final JTextField randomSeed = new JTextField();
+
+  /** The check box for merging repeated deterministic trials. */
+  private final JCheckBox mergeRepeatedTrials = new JCheckBox();
+
   /** The p3j configuration file. */
   private final P3JConfigFile p3jConfiguration;
 
   /** The execution mode button group. */
   private final ButtonGroup execModeButtonGroup = new ButtonGroup();
 
+  /** The calculation engine button group. */
+  private final ButtonGroup calcEngineButtonGroup = new ButtonGroup();
+
+  /** The variance reduction button group. */
+  private final ButtonGroup varReductionButtonGroup = new ButtonGroup();
+
   /** The apply button. */
   private final JButton apply = new JButton("Apply");
   {
@@ -102,6 +133,11 @@ public class ExecutionPreferencesDialog extends JDialog {
 
         numOfTrials.setText("" + Misc.DEFAULT_NUM_TRIALS);
         numOfParallelThreads.setText("" + Misc.DEFAULT_NUM_PARALLEL_THREADS);
+        batchSize.setText("" + Misc.DEFAULT_BATCH_SIZE);
+        numOfSubPopThreads.setText("" + Misc.DEFAULT_NUM_SUBPOP_THREADS);
+        outputPlan.setText(Misc.DEFAULT_OUTPUT_PLAN);
+        randomSeed.setText("" + Misc.DEFAULT_RANDOM_SEED);
+        mergeRepeatedTrials.setSelected(Misc.DEFAULT_MERGE_REPEATED_TRIALS);
 
         ExecutionMode defaultMode = Misc.DEFAULT_EXEC_MODE;
         Enumeration<AbstractButton> execModeButtons = execModeButtonGroup
@@ -113,6 +149,10 @@ public class ExecutionPreferencesDialog extends JDialog {
             break;
           }
         }
+        selectButton(calcEngineButtonGroup,
+            Misc.DEFAULT_CALCULATION_ENGINE.toString());
+        selectButton(varReductionButtonGroup,
+            Misc.DEFAULT_VARIANCE_REDUCTION.toString());
         contentPanel.repaint();
       }
     });
@@ -145,9 +185,37 @@ public class ExecutionPreferencesDialog extends JDialog {
 
     numOfParallelThreads.setText(""
         + p3jConfiguration.get(Misc.PREF_NUM_PARALLEL_THREADS));
-    pspf.app(Misc.PREF_NUM_PARALLEL_THREADS + ":", numOfParallelThreads);
+    pspf.app(PARALLEL_THREADS_LABEL + ":", numOfParallelThreads);
+
+    batchSize.setText(""
+        + p3jConfiguration.getProperty(Misc.PREF_BATCH_SIZE,
+            Misc.DEFAULT_BATCH_SIZE));
+    pspf.app(Misc.PREF_BATCH_SIZE + ":", batchSize);
+
+    numOfSubPopThreads.setText(""
+        + p3jConfiguration.getProperty(Misc.PREF_NUM_SUBPOP_THREADS,
+            Misc.DEFAULT_NUM_SUBPOP_THREADS));
+    pspf.app(Misc.PREF_NUM_SUBPOP_THREADS + ":", numOfSubPopThreads);
+
+    outputPlan.setText(p3jConfiguration.getProperty(Misc.PREF_OUTPUT_PLAN,
+        Misc.DEFAULT_OUTPUT_PLAN));
+    pspf.app(Misc.PREF_OUTPUT_PLAN + ":", outputPlan);
+
+    randomSeed.setText(""
+        + p3jConfiguration.getProperty(Misc.PREF_RANDOM_SEED,
+            Misc.DEFAULT_RANDOM_SEED));
+    pspf.app(Misc.PREF_RANDOM_SEED + ":", randomSeed);
+
+    mergeRepeatedTrials.setSelected(p3jConfiguration.getProperty(
+        Misc.PREF_MERGE_REPEATED_TRIALS, Misc.DEFAULT_MERGE_REPEATED_TRIALS));
+    pspf.app(Misc.PREF_MERGE_REPEATED_TRIALS + ":", mergeRepeatedTrials);
 
     pspf.app(Misc.PREF_EXECUTION_MODE + ":", createExecutionModePanel());
+    pspf.app(Misc.PREF_CALCULATION_ENGINE + ":", createCalcEnginePanel());
+    pspf.app(Misc.PREF_VARIANCE_REDUCTION + ":",
+        createButtonPanel(VarianceReduction.values(), p3jConfiguration
+            .getProperty(Misc.PREF_VARIANCE_REDUCTION,
+                Misc.DEFAULT_VARIANCE_REDUCTION), varReductionButtonGroup));
     contentPanel = pspf.constructPanel();
     this.getContentPane().add(contentPanel);
   }
@@ -173,6 +241,79 @@ public class ExecutionPreferencesDialog extends JDialog {
     return execModePanel;
   }
 
+  /**
+   * Create the panel to select a calculation engine.
+   * 
+   * @return the calculation engine panel
+   */
+  private JPanel createCalcEnginePanel() {
+    return createButtonPanel(CalculationEngine.values(),
+        p3jConfiguration.getProperty(Misc.PREF_CALCULATION_ENGINE,
+            Misc.DEFAULT_CALCULATION_ENGINE), calcEngineButtonGroup);
+  }
+
+  /**
+   * Create a panel to select one of the given options.
+   * 
+   * @param options
+   *          the options
+   * @param currentOption
+   *          the option to be selected
+   * @param buttonGroup
+   *          the button group to which the buttons shall be added
+   * @return the panel
+   */
+  private static JPanel createButtonPanel(Object[] options,
+      Object currentOption, ButtonGroup buttonGroup) {
+    JPanel buttonPanel = new JPanel();
+    for (Object option : options) {
+      JRadioButton button = new JRadioButton(option.toString());
+      buttonPanel.add(button);
+      buttonGroup.add(button);
+      if (option == currentOption) {
+        button.setSelected(true);
+      }
+    }
+    return buttonPanel;
+  }
+
+  /**
+   * Selects the button with the given text.
+   * 
+   * @param buttonGroup
+   *          the button group
+   * @param text
+   *          the text of the button to be selected
+   */
+  private static void selectButton(ButtonGroup buttonGroup, String text) {
+    Enumeration<AbstractButton> buttonElements = buttonGroup.getElements();
+    while (buttonElements.hasMoreElements()) {
+      AbstractButton button = buttonElements.nextElement();
+      if (button.getText().equals(text)) {
+        button.setSelected(true);
+        break;
+      }
+    }
+  }
+
+  /**
+   * Gets the text of the selected button.
+   * 
+   * @param buttonGroup
+   *          the button group
+   * @return the text of the selected button, null if none is selected
+   */
+  private static String getSelectedText(ButtonGroup buttonGroup) {
+    Enumeration<AbstractButton> buttonElements = buttonGroup.getElements();
+    while (buttonElements.hasMoreElements()) {
+      AbstractButton button = buttonElements.nextElement();
+      if (button.isSelected()) {
+        return button.getText();
+      }
+    }
+    return null;
+  }
+
   /**
    * The application of the new preferences.
    */
@@ -203,6 +344,13 @@ public class ExecutionPreferencesDialog extends JDialog {
         Integer numTrials = Integer.parseInt(numOfTrials.getText());
         Integer numParallelThreads = Integer.parseInt(numOfParallelThreads
             .getText());
+        Integer trialsPerBatch = Math.max(1,
+            Integer.parseInt(batchSize.getText()));
+        Integer subPopThreads = Math.max(1,
+            Integer.parseInt(numOfSubPopThreads.getText()));
+        String plan = outputPlan.getText().trim();
+        OutputPlan.parseForRun(plan, -1);
+        Long seed = Long.parseLong(randomSeed.getText().trim());
 
         Enumeration<AbstractButton> execModeButtons = execModeButtonGroup
             .getElements();
@@ -215,6 +363,13 @@ public class ExecutionPreferencesDialog extends JDialog {
           }
         }
 
+        String calcEngineText = getSelectedText(calcEngineButtonGroup);
+        CalculationEngine calcEngine = calcEngineText == null ? Misc.DEFAULT_CALCULATION_ENGINE
+            : CalculationEngine.forString(calcEngineText);
+        String varReductionText = getSelectedText(varReductionButtonGroup);
+        VarianceReduction varReduction = varReductionText == null ? Misc.DEFAULT_VARIANCE_REDUCTION
+            : VarianceReduction.forString(varReductionText);
+
         // Increase number of trials in case they are not a multiple of the
         // number of threads
         if (numTrials % numParallelThreads != 0)
@@ -224,6 +379,14 @@ public class ExecutionPreferencesDialog extends JDialog {
         p3jConfiguration
             .put(Misc.PREF_NUM_PARALLEL_THREADS, numParallelThreads);
         p3jConfiguration.put(Misc.PREF_EXECUTION_MODE, execMode);
+        p3jConfiguration.put(Misc.PREF_CALCULATION_ENGINE, calcEngine);
+        p3jConfiguration.put(Misc.PREF_BATCH_SIZE, trialsPerBatch);
+        p3jConfiguration.put(Misc.PREF_NUM_SUBPOP_THREADS, subPopThreads);
+        p3jConfiguration.put(Misc.PREF_OUTPUT_PLAN, plan);
+        p3jConfiguration.put(Misc.PREF_RANDOM_SEED, seed);
+        p3jConfiguration.put(Misc.PREF_VARIANCE_REDUCTION, varReduction);
+        p3jConfiguration.put(Misc.PREF_MERGE_REPEATED_TRIALS,
+            mergeRepeatedTrials.isSelected());
         setVisible(false);
       } catch (Exception ex) {
         GUI.printErrorMessage(owner, "Error applying new settings.",
@@ -41,6 +41,13 @@ public class P3JConfigFile extends ConfFile {
     put(Misc.PREF_NUM_TRIALS, Misc.DEFAULT_NUM_TRIALS);
     put(Misc.PREF_NUM_PARALLEL_THREADS, Misc.DEFAULT_NUM_PARALLEL_THREADS);
     put(Misc.PREF_EXECUTION_MODE, Misc.DEFAULT_EXEC_MODE);
+    put(Misc.PREF_CALCULATION_ENGINE, Misc.DEFAULT_CALCULATION_ENGINE);
+    put(Misc.PREF_BATCH_SIZE, Misc.DEFAULT_BATCH_SIZE);
+    put(Misc.PREF_NUM_SUBPOP_THREADS, Misc.DEFAULT_NUM_SUBPOP_THREADS);
+    put(Misc.PREF_OUTPUT_PLAN, Misc.DEFAULT_OUTPUT_PLAN);
+    put(Misc.PREF_RANDOM_SEED, Misc.DEFAULT_RANDOM_SEED);
+    put(Misc.PREF_VARIANCE_REDUCTION, Misc.DEFAULT_VARIANCE_REDUCTION);
+    put(Misc.PREF_MERGE_REPEATED_TRIALS, Misc.DEFAULT_MERGE_REPEATED_TRIALS);
   }
 
   /**
@@ -39,7 +39,9 @@ import org.jamesii.core.data.DBConnectionData;
 import org.w3c.dom.Document;
 
 import p3j.database.DatabaseType;
+import p3j.simulation.CalculationEngine;
 import p3j.simulation.ExecutionMode;
+import p3j.simulation.VarianceReduction;
 
 import com.mysql.jdbc.Driver;
 
@@ -77,6 +79,13 @@ public final class Misc {
   /** The default execution mode. */
   public static final ExecutionMode DEFAULT_EXEC_MODE = ExecutionMode.MONTE_CARLO;
 
+  /**
+   * The default calculation engine. The faster engines have to be chosen
+   * explicitly, see {@link #PREF_CALCULATION_ENGINE} (the fused engine does not
+   * provide the survival probabilities).
+   */
+  public static final CalculationEngine DEFAULT_CALCULATION_ENGINE = CalculationEngine.MATRIX;
+
   /** The default location of the hibernate configuration file. */
   public static final String DEFAULT_HIBERNATE_CONFIG_FILE = "conf/hibernate.cfg.xml";
 
@@ -89,6 +98,33 @@ public final class Misc {
   /** The default number of parallel threads. */
   public static final int DEFAULT_NUM_PARALLEL_THREADS = 1;
 
+  /** The default number of trials that are calculated together. */
+  public static final int DEFAULT_BATCH_SIZE = 1;
+
+  /** The default number of threads per trial. */
+  public static final int DEFAULT_NUM_SUBPOP_THREADS = 1;
+
+  /**
+   * The default output plan, empty as all results are stored (see
+   * {@link p3j.experiment.results.OutputPlan}).
+   */
+  public static final String DEFAULT_OUTPUT_PLAN = "";
+
+  /**
+   * The default seed of an experiment, 0 means that a new seed is drawn for
+   * each experiment (see {@link p3j.simulation.TrialStreams}).
+   */
+  public static final long DEFAULT_RANDOM_SEED = 0;
+
+  /** The default variance reduction technique. */
+  public static final VarianceReduction DEFAULT_VARIANCE_REDUCTION = VarianceReduction.NONE;
+
+  /**
+   * By default, repeated deterministic trials are calculated and stored again
+   * (see {@link p3j.simulation.RepeatedTrialRegistry}).
+   */
+  public static final boolean DEFAULT_MERGE_REPEATED_TRIALS = false;
+
   /**
    * The maximal number of sub-node elements to be shown in the panel. Limit
    * this improves GUI performance when selecting large aggregates, such as the
@@ -113,12 +149,36 @@ public final class Misc {
   /** The key for the number of trials. */
   public static final String PREF_NUM_TRIALS = "Number of Trials (multiples of Parallel Threads only)";
 
-  /** The key for the number of parallel threads. */
+  /**
+   * The key for the number of parallel threads. It is kept for existing
+   * configuration files, although all execution modes may be parallelized.
+   */
   public static final String PREF_NUM_PARALLEL_THREADS = "Parallel Threads (Monte-Carlo only)";
 
   /** The key for the execution mode. */
   public static final String PREF_EXECUTION_MODE = "Execution Mode";
 
+  /** The key for the calculation engine. */
+  public static final String PREF_CALCULATION_ENGINE = "Calculation Engine";
+
+  /** The key for the number of trials that are calculated together. */
+  public static final String PREF_BATCH_SIZE = "Trials per Batch";
+
+  /** The key for the number of threads per trial. */
+  public static final String PREF_NUM_SUBPOP_THREADS = "Threads per Trial (Sub-Populations)";
+
+  /** The key for the output plan. */
+  public static final String PREF_OUTPUT_PLAN = "Output Plan (empty: store all results)";
+
+  /** The key for the seed of an experiment. */
+  public static final String PREF_RANDOM_SEED = "Random Seed (0: new seed per run)";
+
+  /** The key for the variance reduction technique. */
+  public static final String PREF_VARIANCE_REDUCTION = "Variance Reduction (Monte-Carlo only)";
+
+  /** The key for merging repeated deterministic trials. */
+  public static final String PREF_MERGE_REPEATED_TRIALS = "Merge Repeated Deterministic Trials";
+
   // Default database configuration
 
   /** The URL prefix for MySQL URLs. */
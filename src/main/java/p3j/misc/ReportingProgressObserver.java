@@ -0,0 +1,91 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc;
+
+import java.util.logging.Level;
+
+import org.jamesii.SimSystem;
+
+/**
+ * Progress observer that reports the progress via {@link SimSystem#report}
+ * instead of displaying it. Used when running head-less, e.g. from the command
+ * line.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ */
+public class ReportingProgressObserver implements IProgressObserver {
+
+  /** The name of the observed process. */
+  private final String processName;
+
+  /** The overall number of waypoints. */
+  private int numOfWaypoints;
+
+  /** The current waypoint. */
+  private int currentWaypoint;
+
+  /**
+   * Instantiates a new reporting progress observer.
+   * 
+   * @param processName
+   *          the process name
+   * @param numOfWaypoints
+   *          the number of waypoints
+   */
+  public ReportingProgressObserver(String processName, int numOfWaypoints) {
+    this.processName = processName;
+    this.numOfWaypoints = numOfWaypoints;
+  }
+
+  @Override
+  public synchronized void addWaypoints(int additionalWayPoints) {
+    numOfWaypoints += additionalWayPoints;
+  }
+
+  @Override
+  public synchronized void incrementProgress(String status) {
+    updateProgress(currentWaypoint + 1, status);
+  }
+
+  @Override
+  public synchronized void updateProgress(int waypoint, String status) {
+    currentWaypoint = waypoint;
+    SimSystem.report(Level.FINE, processName + " (" + currentWaypoint + "/"
+        + numOfWaypoints + "): " + status);
+  }
+
+  @Override
+  public synchronized int getCurrentWaypoint() {
+    return currentWaypoint;
+  }
+
+  @Override
+  public void taskFinished() {
+    SimSystem.report(Level.INFO, processName + ": done.");
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return false;
+  }
+
+  @Override
+  public void taskCanceled() {
+    SimSystem.report(Level.WARNING, processName + ": cancelled.");
+  }
+
+}
@@ -43,7 +43,6 @@ import org.jamesii.core.util.misc.Strings;
 import p3j.database.IP3MDatabase;
 import p3j.gui.P3J;
 import p3j.gui.dialogs.ShowWarningAfterProjectionLoadingDialog;
-import p3j.gui.dialogs.execstatus.SimpleProgressDialog;
 import p3j.misc.gui.GUI;
 import p3j.pppm.ProjectionModel;
 import p3j.pppm.SubPopulation;
@@ -246,9 +245,8 @@ public class Serializer {
   private ProjectionModel copyProjection(ProjectionModel original) {
     ProjectionModel copy = new ProjectionModel();
 
-    IProgressObserver progress = SimpleProgressDialog.showDialog(
-        P3J.getInstance(), "Saving projection '" + original.getName() + "'",
-        "", 6, false);
+    IProgressObserver progress = GUI.showProgress("Saving projection '"
+        + original.getName() + "'", "", 6, false);
     progress.incrementProgress("General properties...");
     copySimpleFields(original, copy);
     progress.incrementProgress("Parameter instances...");
@@ -549,8 +547,7 @@ public class Serializer {
       database.saveProjection(newProjection);
 
       if (!warnings.isEmpty())
-        new ShowWarningAfterProjectionLoadingDialog(P3J.getInstance(), warnings)
-            .setVisible(true);
+        showWarnings(warnings);
     } catch (Exception ex) {
       GUI.printErrorMessage("Loading the projection failed", ex);
     }
@@ -558,6 +555,23 @@ public class Serializer {
     return newProjection;
   }
 
+  /**
+   * Shows the warnings that occurred while loading a projection. When running
+   * head-less, the warnings are only reported.
+   * 
+   * @param warnings
+   *          the warnings
+   */
+  private void showWarnings(List<String> warnings) {
+    if (GUI.isHeadless()) {
+      for (String warning : warnings)
+        SimSystem.report(Level.WARNING, warning);
+      return;
+    }
+    new ShowWarningAfterProjectionLoadingDialog(P3J.getInstance(), warnings)
+        .setVisible(true);
+  }
+
   /**
    * Matches loaded parameter instances to those stored in the database.
    * 
@@ -702,10 +716,9 @@ public class Serializer {
       Map<SetType, SetType> setTypes, IP3MDatabase database) {
 
     int numAssignments = loadedProjection.countNumberOfParameterAssignments();
-    IProgressObserver progress = SimpleProgressDialog.showDialog(
-        P3J.getInstance(), "Loading projection '" + loadedProjection.getName()
-            + "'", "Loading " + numAssignments + " parameter assignments:",
-        numAssignments, false);
+    IProgressObserver progress = GUI.showProgress("Loading projection '"
+        + loadedProjection.getName() + "'", "Loading " + numAssignments
+        + " parameter assignments:", numAssignments, false);
 
     for (SetType loadedSetType : loadedProjection.getAllSetTypes()) {
       SetType newSetType = setTypes.get(loadedSetType);
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Registry for objects that have to be shared by all processors of an
+ * experiment. JAMES II deep-copies the parameters of each run (via
+ * serialization), so an object in the parameter block would otherwise be
+ * duplicated per run. Shared objects therefore register themselves under a
+ * serializable key and resolve their copies to the registered instance (see
+ * {@link java.io.Serializable} and readResolve).
+ * 
+ * Instances are only referenced weakly: an entry is dropped as soon as the
+ * registered instance, usually held by the experiment's parameter block, has
+ * been garbage-collected, i.e., after the experiment is finished.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ */
+public final class SharedInstanceRegistry {
+
+  /** The registered instances. */
+  private static final Map<UUID, WeakReference<Object>> INSTANCES = new HashMap<>();
+
+  /**
+   * Instantiates a new shared instance registry. Should not be used.
+   */
+  private SharedInstanceRegistry() {
+  }
+
+  /**
+   * Registers an instance.
+   * 
+   * @param instance
+   *          the instance to be shared
+   * @return the key under which the instance is registered
+   */
+  public static synchronized UUID register(Object instance) {
+    removeCollected();
+    UUID key = UUID.randomUUID();
+    INSTANCES.put(key, new WeakReference<Object>(instance));
+    return key;
+  }
+
+  /**
+   * Resolves a (deserialized) copy to the instance registered under the given
+   * key. If there is none, e.g. because the copy has been deserialized in
+   * another VM, the copy is registered instead, so that all further copies
+   * resolve to it.
+   * 
+   * @param key
+   *          the key of the instance
+   * @param copy
+   *          the copy
+   * @param <T>
+   *          the type of the instance
+   * @return the registered instance
+   */
+  @SuppressWarnings("unchecked")
+  public static synchronized <T> T resolve(UUID key, T copy) {
+    WeakReference<Object> reference = INSTANCES.get(key);
+    Object instance = reference == null ? null : reference.get();
+    if (instance != null) {
+      return (T) instance;
+    }
+    INSTANCES.put(key, new WeakReference<Object>(copy));
+    return copy;
+  }
+
+  /**
+   * Removes the entries of instances that have been garbage-collected.
+   */
+  private static void removeCollected() {
+    Iterator<WeakReference<Object>> references = INSTANCES.values()
+        .iterator();
+    while (references.hasNext()) {
+      if (references.next().get() == null) {
+        references.remove();
+      }
+    }
+  }
+}
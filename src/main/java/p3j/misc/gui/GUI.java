@@ -18,6 +18,7 @@ package p3j.misc.gui;
 import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Font;
+import java.awt.GraphicsEnvironment;
 import java.awt.Toolkit;
 import java.awt.Window;
 import java.util.List;
@@ -39,6 +40,9 @@ import org.jamesii.SimSystem;
 import org.jamesii.gui.utils.BasicUtilities;
 
 import p3j.gui.P3J;
+import p3j.gui.dialogs.execstatus.SimpleProgressDialog;
+import p3j.misc.IProgressObserver;
+import p3j.misc.ReportingProgressObserver;
 
 import com.jgoodies.forms.layout.CellConstraints;
 
@@ -125,12 +129,13 @@ public final class GUI {
   }
 
   /**
-   * Checks the headless mode.
+   * Checks the headless mode. This is also the case if the environment does
+   * not support a display at all.
    * 
    * @return true if currently running head-less
    */
   public static boolean isHeadless() {
-    return GUI.headless;
+    return GUI.headless || GraphicsEnvironment.isHeadless();
   }
 
   /**
@@ -182,10 +187,30 @@ public final class GUI {
    */
   public static void printErrorMessage(String title, Throwable throwable) {
     SimSystem.report(Level.SEVERE, title, throwable);
+    if (isHeadless()) {
+      return;
+    }
     printErrorMessage(P3J.getInstance(), title, throwable.getMessage(),
         throwable);
   }
 
+  /**
+   * Prints an error message with the P3J main window as parent instance. When
+   * running head-less, the message is only reported.
+   * 
+   * @param title
+   *          the title of the error dialog
+   * @param message
+   *          the message to be displayed
+   */
+  public static void printErrorMessage(String title, Object message) {
+    if (isHeadless()) {
+      SimSystem.report(Level.SEVERE, title + ": " + message);
+      return;
+    }
+    printErrorMessage(P3J.getInstance(), title, message);
+  }
+
   /**
    * Creates a button with an icon.
    * 
@@ -267,6 +292,47 @@ public final class GUI {
         JOptionPane.INFORMATION_MESSAGE);
   }
 
+  /**
+   * Prints a message with the P3J main window as parent instance. When running
+   * head-less, the message is only reported.
+   * 
+   * @param title
+   *          the title of the dialog
+   * @param message
+   *          the message to be displayed
+   */
+  public static void printMessage(String title, Object message) {
+    if (isHeadless()) {
+      SimSystem.report(Level.INFO, title + ": " + message);
+      return;
+    }
+    printMessage(P3J.getInstance(), title, message);
+  }
+
+  /**
+   * Shows the progress of a task in a dialog with the P3J main window as
+   * parent instance. When running head-less, the progress is only reported.
+   * 
+   * @param processName
+   *          the process name
+   * @param detailedDescription
+   *          the detailed description
+   * @param numOfWaypoints
+   *          the number of waypoints to be shown
+   * @param cancellationAllowed
+   *          the flag to allow cancellation
+   * @return the progress observer
+   */
+  public static IProgressObserver showProgress(String processName,
+      String detailedDescription, int numOfWaypoints,
+      boolean cancellationAllowed) {
+    if (isHeadless()) {
+      return new ReportingProgressObserver(processName, numOfWaypoints);
+    }
+    return SimpleProgressDialog.showDialog(P3J.getInstance(), processName,
+        detailedDescription, numOfWaypoints, cancellationAllowed);
+  }
+
   /**
    * Prints a question message.
    * 
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.jamesii.core.math.random.generators.IRandom;
+
+import p3j.pppm.IStochasticOccurrence;
+
+/**
+ * Alias table to choose one of several objects with given probabilities in
+ * constant time (A. J. Walker, 1977, constructed as described by M. D. Vose,
+ * 1991). Each draw uses a single uniformly distributed random number. The
+ * table is immutable.
+ * 
+ * @param <V>
+ *          the type of the objects
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class AliasTable<V> {
+
+  /** The objects to choose from. */
+  private final List<V> objects;
+
+  /** The probability to keep the object of a column, instead of its alias. */
+  private final double[] keepProbabilities;
+
+  /** The alias of each column. */
+  private final int[] aliases;
+
+  /**
+   * Instantiates a new alias table. Negative weights are treated as zero, if
+   * all weights are zero all objects are equally probable.
+   * 
+   * @param objectList
+   *          the objects to choose from
+   * @param weights
+   *          the (not necessarily normalized) weights of the objects
+   */
+  public AliasTable(List<V> objectList, double[] weights) {
+    int size = objectList.size();
+    if (size == 0 || weights.length != size) {
+      throw new IllegalArgumentException("Need the same positive number of "
+          + "objects and weights, got " + size + " and " + weights.length);
+    }
+    objects = Collections.unmodifiableList(new ArrayList<>(objectList));
+    keepProbabilities = new double[size];
+    aliases = new int[size];
+
+    double weightSum = 0;
+    for (double weight : weights) {
+      weightSum += Math.max(0, weight);
+    }
+    double[] scaled = new double[size];
+    for (int i = 0; i < size; i++) {
+      scaled[i] = weightSum > 0 ? Math.max(0, weights[i]) * size / weightSum
+          : 1;
+    }
+
+    int[] small = new int[size];
+    int[] large = new int[size];
+    int numSmall = 0;
+    int numLarge = 0;
+    for (int i = 0; i < size; i++) {
+      if (scaled[i] < 1) {
+        small[numSmall++] = i;
+      } else {
+        large[numLarge++] = i;
+      }
+    }
+    while (numSmall > 0 && numLarge > 0) {
+      int less = small[--numSmall];
+      int more = large[--numLarge];
+      keepProbabilities[less] = scaled[less];
+      aliases[less] = more;
+      scaled[more] = (scaled[more] + scaled[less]) - 1;
+      if (scaled[more] < 1) {
+        small[numSmall++] = more;
+      } else {
+        large[numLarge++] = more;
+      }
+    }
+
+    // The remaining columns are full (up to rounding errors)
+    while (numLarge > 0) {
+      int column = large[--numLarge];
+      keepProbabilities[column] = 1;
+      aliases[column] = column;
+    }
+    while (numSmall > 0) {
+      int column = small[--numSmall];
+      keepProbabilities[column] = 1;
+      aliases[column] = column;
+    }
+  }
+
+  /**
+   * Creates an alias table for objects with a probability of occurrence. The
+   * objects are sorted first, so that the result of a draw does not depend on
+   * the iteration order of the collection.
+   * 
+   * @param <V>
+   *          the type of the objects
+   * @param objects
+   *          the objects to choose from
+   * @param order
+   *          the order of the objects
+   * @return the alias table
+   */
+  public static <V extends IStochasticOccurrence> AliasTable<V> create(
+      Collection<V> objects, Comparator<? super V> order) {
+    List<V> sortedObjects = new ArrayList<>(objects);
+    Collections.sort(sortedObjects, order);
+    double[] weights = new double[sortedObjects.size()];
+    for (int i = 0; i < weights.length; i++) {
+      weights[i] = sortedObjects.get(i).getProbability();
+    }
+    return new AliasTable<>(sortedObjects, weights);
+  }
+
+  /**
+   * Chooses an object.
+   * 
+   * @param u
+   *          a uniformly distributed random number from [0, 1)
+   * @return the chosen object
+   */
+  public V choose(double u) {
+    return objects.get(chooseIndex(u));
+  }
+
+  /**
+   * Chooses an object.
+   * 
+   * @param random
+   *          the random number generator
+   * @return the chosen object
+   */
+  public V choose(IRandom random) {
+    return choose(random.nextDouble());
+  }
+
+  /**
+   * Chooses the index of an object.
+   * 
+   * @param u
+   *          a uniformly distributed random number from [0, 1)
+   * @return the index of the chosen object
+   */
+  public int chooseIndex(double u) {
+    double scaled = u * keepProbabilities.length;
+    int column = Math.min((int) scaled, keepProbabilities.length - 1);
+    return scaled - column < keepProbabilities[column] ? column
+        : aliases[column];
+  }
+
+  /**
+   * Gets the objects, in the order of their indices.
+   * 
+   * @return the objects
+   */
+  public List<V> getObjects() {
+    return objects;
+  }
+
+  public int size() {
+    return objects.size();
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+import java.io.Serializable;
+
+import org.jamesii.core.math.random.generators.IRandom;
+import org.jamesii.core.math.random.generators.RNGInfo;
+
+/**
+ * Antithetic view on a random number generator: uniformly distributed values u
+ * are mirrored to 1 - u, integers are mirrored within their range, and the
+ * bits of long values are complemented. A trial that uses this view on a
+ * generator that is seeded like the generator of its partner trial is
+ * negatively correlated with its partner, which reduces the variance of
+ * estimates that average both.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class AntitheticRandom implements IRandom {
+
+  /** Serialization ID. */
+  private static final long serialVersionUID = -2196446620853520468L;
+
+  /** The underlying generator. */
+  private final IRandom base;
+
+  /**
+   * Instantiates a new antithetic generator.
+   * 
+   * @param baseRandom
+   *          the underlying generator
+   */
+  public AntitheticRandom(IRandom baseRandom) {
+    base = baseRandom;
+  }
+
+  /**
+   * Mirrors a uniformly distributed value from [0, 1) so that it remains in
+   * [0, 1).
+   * 
+   * @param u
+   *          the value
+   * @return the mirrored value
+   */
+  static double mirror(double u) {
+    return u == 0 ? 0 : 1 - u;
+  }
+
+  @Override
+  public void setSeed(Serializable seed) {
+    base.setSeed(seed);
+  }
+
+  @Override
+  public Serializable getSeed() {
+    return base.getSeed();
+  }
+
+  @Override
+  public long next() {
+    return ~base.next();
+  }
+
+  @Override
+  public int nextInt() {
+    return ~base.nextInt();
+  }
+
+  @Override
+  public int nextInt(int n) {
+    return n - 1 - base.nextInt(n);
+  }
+
+  @Override
+  public long nextLong() {
+    return ~base.nextLong();
+  }
+
+  @Override
+  public long nextLong(long n) {
+    return n - 1 - base.nextLong(n);
+  }
+
+  @Override
+  public boolean nextBoolean() {
+    return !base.nextBoolean();
+  }
+
+  @Override
+  public float nextFloat() {
+    float u = base.nextFloat();
+    return u == 0 ? 0 : 1 - u;
+  }
+
+  @Override
+  public double nextDouble() {
+    return mirror(base.nextDouble());
+  }
+
+  @Override
+  public RNGInfo getInfo() {
+    return base.getInfo();
+  }
+}
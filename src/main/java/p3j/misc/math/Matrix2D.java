@@ -98,6 +98,62 @@ public class Matrix2D extends DenseDoubleMatrix2D {
     super(rows, columns);
   }
 
+  /**
+   * Constructor that wraps the given values, no copy is made.
+   * 
+   * @param rows
+   *          number of rows
+   * @param columns
+   *          number of columns
+   * @param values
+   *          the values in row-major order, see {@link #getRowMajorElements()}
+   */
+  public Matrix2D(int rows, int columns, double[] values) {
+    super(rows, columns, checkLength(values, rows * columns), 0, 0, columns, 1);
+    isNoView = true;
+  }
+
+  /**
+   * Constructor that wraps a strided part of the given values as a view, no
+   * copy is made. The value at (row, column) is stored at index offset + row *
+   * rowStride + column * columnStride. Views are serialized as compact copies.
+   * 
+   * @param rows
+   *          number of rows
+   * @param columns
+   *          number of columns
+   * @param values
+   *          the values
+   * @param offset
+   *          the index of the value at (0, 0)
+   * @param rowStride
+   *          the distance between the values of subsequent rows
+   * @param columnStride
+   *          the distance between the values of subsequent columns
+   */
+  public Matrix2D(int rows, int columns, double[] values, int offset,
+      int rowStride, int columnStride) {
+    super(rows, columns, values, offset, 0, rowStride, columnStride);
+  }
+
+  /**
+   * Checks whether the given values have the expected length.
+   * 
+   * @param values
+   *          the values
+   * @param expectedLength
+   *          the expected length
+   * @return the values
+   */
+  private static double[] checkLength(double[] values, int expectedLength) {
+    if (values.length != expectedLength) {
+      throw new IllegalArgumentException("Matrix operation error: Can't use "
+          + values.length + " values for matrix with " + expectedLength
+          + " elements");
+    }
+    return values;
+  }
+
   /**
    * Assigns column values.
    * 
@@ -159,6 +215,45 @@ public class Matrix2D extends DenseDoubleMatrix2D {
     }
   }
 
+  /**
+   * Gives direct access to the values of the matrix in row-major order, i.e.
+   * the value at (row, column) is stored at index row * columns() + column. If
+   * this matrix is a view (and hence not backed by a compact array), a compact
+   * copy is returned. The returned array must not be modified.
+   * 
+   * @return the values of the matrix, in row-major order
+   */
+  public double[] getRowMajorElements() {
+    if (!isView() && rowZero == 0 && columnZero == 0 && columnStride == 1
+        && rowStride == columns) {
+      return elements;
+    }
+    double[] values = new double[rows * columns];
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < columns; col++) {
+        values[row * columns + col] = getQuick(row, col);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Replaces views by compact copies when the matrix is serialized, so that
+   * the values they do not cover are not stored as well.
+   * 
+   * @return the object to be serialized
+   */
+  protected Object writeReplace() {
+    if (!isView() && rowZero == 0 && columnZero == 0 && columnStride == 1
+        && rowStride == columns) {
+      return this;
+    }
+    Matrix2D compact = new Matrix2D(rows, columns, getRowMajorElements());
+    compact.setRowLabel(rowLabel);
+    compact.setColumnLabel(columnLabel);
+    return compact;
+  }
+
   @Override
   public Matrix2D copy() {
     return new Matrix2D(this.getContent().toArray(), this.getRowLabel(),
@@ -20,7 +20,6 @@ import java.util.List;
 
 import org.jamesii.core.math.random.generators.IRandom;
 
-import p3j.gui.P3J;
 import p3j.misc.Misc;
 import p3j.misc.errors.GeneratorError;
 import p3j.misc.errors.ProbabilityError;
@@ -79,7 +78,7 @@ public final class RandomNumberChecks {
 	    String name, Collection<V> objects, List<GeneratorError> errors) {
 
 		if (objects == null || objects.size() == 0) {
-			GUI.printErrorMessage(P3J.getInstance(), "Missing parameter assignment",
+			GUI.printErrorMessage("Missing parameter assignment",
 			    "No assumptions are defined for parameter: " + name);
 			throw new IllegalArgumentException(
 			    "There are no assignments for variable '" + name + "'!");
@@ -112,6 +111,33 @@ public final class RandomNumberChecks {
 
 	}
 
+	/**
+	 * Checks the probability sum of the given objects, without changing any
+	 * probabilities. Objects with zero probability sum are meant to be chosen
+	 * uniformly, all others proportionally to their probabilities.
+	 * 
+	 * @param <V>
+	 *          type of entity that shall be chosen by chance
+	 * @param name
+	 *          name of the objects to be checked (for generation of a suitable
+	 *          error messages)
+	 * @param objects
+	 *          the collection of objects to be checked (must not be empty)
+	 * @param errors
+	 *          list of error messages (to be filled if something goes wrong)
+	 */
+	public <V extends IStochasticOccurrence> void checkProbabilitySum(
+	    String name, Collection<V> objects, List<GeneratorError> errors) {
+		final double probSum = getProbSum(objects);
+		if (Misc.numEqual(probSum, 0)) {
+			errors.add(new ProbabilityError(true, PROB_SUM + name
+			    + " is zero. Probabilities will be distributed equally."));
+		} else if (!Misc.numEqual(probSum, 1.0)) {
+			errors.add(new ProbabilityError(false, PROB_SUM + name
+			    + " does not equal 100%. Probabilities will be normalized accordingly."));
+		}
+	}
+
 	/**
 	 * Choose random object if the sum of all probabilities is 100.
 	 * 
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+/**
+ * A pseudo-random permutation of {0, ..., size - 1} that can be evaluated for
+ * single elements, without storing the permutation. It is a balanced Feistel
+ * network on the smallest domain of 2^(2k) elements that contains all
+ * elements, elements outside of the permuted range are mapped again until they
+ * are inside it (cycle walking).
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class RandomPermutation {
+
+  /** The number of rounds of the Feistel network. */
+  static final int NUM_OF_ROUNDS = 4;
+
+  /** The number of elements. */
+  private final long size;
+
+  /** The number of bits of each half of an element. */
+  private final int halfBits;
+
+  /** The mask for one half of an element. */
+  private final long halfMask;
+
+  /** The keys of the rounds. */
+  private final long[] roundKeys = new long[NUM_OF_ROUNDS];
+
+  /**
+   * Instantiates a new permutation.
+   * 
+   * @param numOfElements
+   *          the number of elements
+   * @param seed
+   *          the seed of the permutation
+   */
+  public RandomPermutation(long numOfElements, long seed) {
+    if (numOfElements < 1 || numOfElements > 1L << 62) {
+      throw new IllegalArgumentException("Invalid number of elements: "
+          + numOfElements);
+    }
+    size = numOfElements;
+    int bits = Long.SIZE - Long.numberOfLeadingZeros(numOfElements - 1);
+    halfBits = Math.max(1, (bits + 1) / 2);
+    halfMask = (1L << halfBits) - 1;
+    for (int round = 0; round < NUM_OF_ROUNDS; round++) {
+      roundKeys[round] = SplitMixRandom.getStreamElement(seed, round);
+    }
+  }
+
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Gets the image of an element.
+   * 
+   * @param index
+   *          the element, in [0, size)
+   * @return the image of the element, in [0, size)
+   */
+  public long get(long index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " not in [0, "
+          + size + ")");
+    }
+    long value = index;
+    do {
+      value = encrypt(value);
+    } while (value >= size);
+    return value;
+  }
+
+  /**
+   * Permutes an element of the full domain of the Feistel network.
+   * 
+   * @param value
+   *          the element
+   * @return the image of the element
+   */
+  private long encrypt(long value) {
+    long left = value >>> halfBits;
+    long right = value & halfMask;
+    for (long key : roundKeys) {
+      long newRight = left ^ (SplitMixRandom.mix64(right ^ key) & halfMask);
+      left = right;
+      right = newRight;
+    }
+    return (left << halfBits) | right;
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+import cern.colt.function.DoubleDoubleFunction;
+import cern.colt.function.DoubleFunction;
+import cern.colt.matrix.DoubleMatrix2D;
+
+/**
+ * Read-only {@link Matrix2D} holding the values of a base matrix, each row of
+ * which is scaled by a factor: the value at (row, column) is base(row, column)
+ * * factor(row). This is used to represent deviated parameters (where each year
+ * is scaled by an error term) without allocating a new matrix per trial.
+ * 
+ * The scaled values are calculated whenever new factors are set, into an array
+ * that is owned by this matrix and re-used when it is recycled via
+ * {@link #setRowFactors(double[])}. Hence, all ways to read the matrix (views
+ * such as {@link #viewColumn(int)}, operations that access its values directly,
+ * serialization) see the scaled values. Changes of the base matrix only become
+ * visible when factors are set again.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class RowScaledMatrix2D extends Matrix2D {
+
+  /** Serialization ID. */
+  private static final long serialVersionUID = -2730574429216335151L;
+
+  /** Error message for write access. */
+  static final String ERR_MSG_READ_ONLY = "Matrix operation error: row-scaled views are read-only";
+
+  /** The base matrix. */
+  private final Matrix2D base;
+
+  /** The factor for each row. */
+  private double[] rowFactors;
+
+  /**
+   * Instantiates a new row-scaled view.
+   * 
+   * @param baseMatrix
+   *          the base matrix
+   * @param factors
+   *          the factor for each row (the array is not copied)
+   */
+  public RowScaledMatrix2D(Matrix2D baseMatrix, double[] factors) {
+    super(baseMatrix.rows(), baseMatrix.columns(), new double[baseMatrix
+        .rows() * baseMatrix.columns()]);
+    base = baseMatrix;
+    setRowFactors(factors);
+    setRowLabel(baseMatrix.getRowLabel());
+    setColumnLabel(baseMatrix.getColumnLabel());
+  }
+
+  /**
+   * Sets new row factors and calculates the scaled values, so that the matrix
+   * can be recycled.
+   * 
+   * @param factors
+   *          the factor for each row (the array is not copied)
+   */
+  public final void setRowFactors(double[] factors) {
+    if (factors.length != rows()) {
+      throw new IllegalArgumentException("Matrix operation error: Can't use "
+          + factors.length + " row factors for matrix with " + rows()
+          + " rows");
+    }
+    rowFactors = factors;
+    int columns = columns();
+    double[] values = base.getRowMajorElements();
+    for (int row = 0; row < factors.length; row++) {
+      double factor = factors[row];
+      for (int index = row * columns; index < (row + 1) * columns; index++) {
+        elements[index] = values[index] * factor;
+      }
+    }
+  }
+
+  /**
+   * Gets the row factors. The array may be re-used for the next factors, which
+   * then need to be set via {@link #setRowFactors(double[])}; changing it has
+   * no effect before.
+   * 
+   * @return the row factors
+   */
+  public double[] getRowFactors() {
+    return rowFactors;
+  }
+
+  /**
+   * Checks whether this matrix scales the given matrix.
+   * 
+   * @param matrix
+   *          the matrix
+   * @return true, if the matrix is the base matrix
+   */
+  public boolean isViewOf(Matrix2D matrix) {
+    return base == matrix;
+  }
+
+  /**
+   * Replaces this matrix by a plain copy of its (scaled) values when
+   * serialized, so that neither the base matrix nor the factors are stored.
+   * 
+   * @return the copy to be serialized
+   */
+  @Override
+  protected Object writeReplace() {
+    Matrix2D copy = new Matrix2D(rows(), columns(), getRowMajorElements()
+        .clone());
+    copy.setRowLabel(getRowLabel());
+    copy.setColumnLabel(getColumnLabel());
+    return copy;
+  }
+
+  @Override
+  public void setQuick(int row, int column, double value) {
+    throw new UnsupportedOperationException(ERR_MSG_READ_ONLY);
+  }
+
+  @Override
+  public DoubleMatrix2D assign(double value) {
+    throw new UnsupportedOperationException(ERR_MSG_READ_ONLY);
+  }
+
+  @Override
+  public DoubleMatrix2D assign(double[][] values) {
+    throw new UnsupportedOperationException(ERR_MSG_READ_ONLY);
+  }
+
+  @Override
+  public DoubleMatrix2D assign(DoubleFunction function) {
+    throw new UnsupportedOperationException(ERR_MSG_READ_ONLY);
+  }
+
+  @Override
+  public DoubleMatrix2D assign(DoubleMatrix2D source) {
+    throw new UnsupportedOperationException(ERR_MSG_READ_ONLY);
+  }
+
+  @Override
+  public DoubleMatrix2D assign(DoubleMatrix2D y, DoubleDoubleFunction function) {
+    throw new UnsupportedOperationException(ERR_MSG_READ_ONLY);
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Scrambled Sobol sequence, a low-discrepancy sequence for quasi-Monte-Carlo
+ * sampling (I. M. Sobol, 1967). The primitive polynomials of each dimension
+ * are enumerated by increasing degree, the initial direction numbers are drawn
+ * at random (odd and below 2^k, as required). The first dimension is the van
+ * der Corput sequence. Each dimension is scrambled by a random digital shift,
+ * which preserves the stratification properties of the sequence.
+ * 
+ * Points are calculated directly from their index (via its Gray code), so that
+ * they can be requested in any order, e.g. by concurrent trials.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class SobolSequence {
+
+  /** The maximal number of supported dimensions. */
+  public static final int MAX_DIMENSIONS = 1024;
+
+  /** The number of bits per coordinate. */
+  static final int BITS = 32;
+
+  /** The number of distinct points, the sequence repeats afterwards. */
+  public static final long NUM_OF_POINTS = 1L << BITS;
+
+  /** Scale factor to map coordinates to [0, 1). */
+  private static final double COORDINATE_UNIT = 1.0 / NUM_OF_POINTS;
+
+  /** The seed to draw the initial direction numbers. */
+  private static final long DIRECTION_SEED = 0x5EED50B01L;
+
+  /** The direction numbers, per dimension and bit. */
+  private static final long[][] DIRECTIONS = createDirectionNumbers();
+
+  /** The number of dimensions. */
+  private final int dimensions;
+
+  /** The digital shifts of the dimensions. */
+  private final long[] shifts;
+
+  /**
+   * Instantiates a new sequence.
+   * 
+   * @param numOfDimensions
+   *          the number of dimensions
+   * @param scrambleSeed
+   *          the seed for the scrambling
+   */
+  public SobolSequence(int numOfDimensions, long scrambleSeed) {
+    if (numOfDimensions < 1 || numOfDimensions > MAX_DIMENSIONS) {
+      throw new IllegalArgumentException("Number of dimensions must be in [1, "
+          + MAX_DIMENSIONS + "], but is " + numOfDimensions);
+    }
+    dimensions = numOfDimensions;
+    shifts = new long[dimensions];
+    SplitMixRandom random = new SplitMixRandom(scrambleSeed);
+    for (int dim = 0; dim < dimensions; dim++) {
+      shifts[dim] = random.nextLong() >>> (Long.SIZE - BITS);
+    }
+  }
+
+  public int getDimensions() {
+    return dimensions;
+  }
+
+  /**
+   * Calculates a point of the sequence.
+   * 
+   * @param index
+   *          the index of the point (only the lower 32 bits are considered)
+   * @param point
+   *          the array to store the coordinates in, its length has to be at
+   *          least the number of dimensions
+   */
+  public void getPoint(long index, double[] point) {
+    getPoint(index, point, 0, dimensions);
+  }
+
+  /**
+   * Calculates some coordinates of a point of the sequence.
+   * 
+   * @param index
+   *          the index of the point (only the lower 32 bits are considered)
+   * @param point
+   *          the array to store the coordinates in, at the indices of their
+   *          dimensions
+   * @param from
+   *          the first dimension to be calculated
+   * @param to
+   *          the dimension after the last dimension to be calculated, at most
+   *          the number of dimensions
+   */
+  public void getPoint(long index, double[] point, int from, int to) {
+    long gray = (index ^ (index >>> 1)) & (NUM_OF_POINTS - 1);
+    for (int dim = from; dim < to; dim++) {
+      long[] directions = DIRECTIONS[dim];
+      long coordinate = shifts[dim];
+      long bits = gray;
+      for (int bit = 0; bits != 0; bit++, bits >>>= 1) {
+        if ((bits & 1) != 0) {
+          coordinate ^= directions[bit];
+        }
+      }
+      point[dim] = coordinate * COORDINATE_UNIT;
+    }
+  }
+
+  /**
+   * Creates the direction numbers of all dimensions.
+   * 
+   * @return the direction numbers, per dimension and bit
+   */
+  private static long[][] createDirectionNumbers() {
+    long[][] directions = new long[MAX_DIMENSIONS][BITS];
+    for (int bit = 0; bit < BITS; bit++) {
+      directions[0][bit] = 1L << (BITS - 1 - bit);
+    }
+
+    SplitMixRandom random = new SplitMixRandom(DIRECTION_SEED);
+    List<Long> polynomials = findPrimitivePolynomials(MAX_DIMENSIONS - 1);
+    for (int dim = 1; dim < MAX_DIMENSIONS; dim++) {
+      long polynomial = polynomials.get(dim - 1);
+      int degree = Long.SIZE - 1 - Long.numberOfLeadingZeros(polynomial);
+      long[] m = new long[BITS];
+      for (int k = 0; k < Math.min(degree, BITS); k++) {
+        m[k] = (random.nextLong() & ((1L << (k + 1)) - 1)) | 1;
+      }
+      for (int k = degree; k < BITS; k++) {
+        long value = m[k - degree] ^ (m[k - degree] << degree);
+        for (int i = 1; i < degree; i++) {
+          if (((polynomial >>> (degree - i)) & 1) != 0) {
+            value ^= m[k - i] << i;
+          }
+        }
+        m[k] = value;
+      }
+      for (int k = 0; k < BITS; k++) {
+        directions[dim][k] = m[k] << (BITS - 1 - k);
+      }
+    }
+    return directions;
+  }
+
+  /**
+   * Finds primitive polynomials over GF(2), by increasing degree. Bit i of a
+   * polynomial represents the coefficient of x^i.
+   * 
+   * @param number
+   *          the number of polynomials to be found
+   * @return the polynomials
+   */
+  static List<Long> findPrimitivePolynomials(int number) {
+    List<Long> polynomials = new ArrayList<>(number);
+    for (int degree = 1; polynomials.size() < number; degree++) {
+      List<Long> factors = getPrimeFactors((1L << degree) - 1);
+      for (long inner = 0; inner < (1L << (degree - 1))
+          && polynomials.size() < number; inner++) {
+        long polynomial = (1L << degree) | (inner << 1) | 1;
+        if (isPrimitive(polynomial, degree, factors)) {
+          polynomials.add(polynomial);
+        }
+      }
+    }
+    return polynomials;
+  }
+
+  /**
+   * Checks whether a polynomial is primitive, i.e. whether x has the maximal
+   * order 2^degree - 1 modulo the polynomial.
+   * 
+   * @param polynomial
+   *          the polynomial
+   * @param degree
+   *          the degree of the polynomial
+   * @param factors
+   *          the prime factors of 2^degree - 1
+   * @return true, if the polynomial is primitive
+   */
+  private static boolean isPrimitive(long polynomial, int degree,
+      List<Long> factors) {
+    long order = (1L << degree) - 1;
+    long x = reduce(2, polynomial, degree);
+    if (powMod(x, order, polynomial, degree) != 1) {
+      return false;
+    }
+    for (long factor : factors) {
+      if (factor != order && powMod(x, order / factor, polynomial, degree) == 1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Reduces a polynomial of at most the given degree modulo another one of
+   * that degree.
+   * 
+   * @param value
+   *          the polynomial to be reduced
+   * @param polynomial
+   *          the modulus
+   * @param degree
+   *          the degree of the modulus
+   * @return the reduced polynomial
+   */
+  private static long reduce(long value, long polynomial, int degree) {
+    return ((value >>> degree) & 1) != 0 ? value ^ polynomial : value;
+  }
+
+  /**
+   * Multiplies two polynomials modulo another one.
+   * 
+   * @param a
+   *          the first factor (reduced)
+   * @param b
+   *          the second factor (reduced)
+   * @param polynomial
+   *          the modulus
+   * @param degree
+   *          the degree of the modulus
+   * @return the product
+   */
+  private static long mulMod(long a, long b, long polynomial, int degree) {
+    long result = 0;
+    long factor = a;
+    for (long bits = b; bits != 0; bits >>>= 1) {
+      if ((bits & 1) != 0) {
+        result ^= factor;
+      }
+      factor = reduce(factor << 1, polynomial, degree);
+    }
+    return result;
+  }
+
+  /**
+   * Raises a polynomial to a power modulo another one.
+   * 
+   * @param base
+   *          the base (reduced)
+   * @param exponent
+   *          the exponent
+   * @param polynomial
+   *          the modulus
+   * @param degree
+   *          the degree of the modulus
+   * @return the power
+   */
+  private static long powMod(long base, long exponent, long polynomial,
+      int degree) {
+    long result = 1;
+    long square = base;
+    for (long bits = exponent; bits != 0; bits >>>= 1) {
+      if ((bits & 1) != 0) {
+        result = mulMod(result, square, polynomial, degree);
+      }
+      square = mulMod(square, square, polynomial, degree);
+    }
+    return result;
+  }
+
+  /**
+   * Gets the distinct prime factors of a number.
+   * 
+   * @param number
+   *          the number
+   * @return the distinct prime factors
+   */
+  private static List<Long> getPrimeFactors(long number) {
+    List<Long> factors = new ArrayList<>();
+    long rest = number;
+    for (long factor = 2; factor * factor <= rest; factor++) {
+      if (rest % factor == 0) {
+        factors.add(factor);
+        while (rest % factor == 0) {
+          rest /= factor;
+        }
+      }
+    }
+    if (rest > 1) {
+      factors.add(rest);
+    }
+    return factors;
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+import java.io.Serializable;
+
+import org.jamesii.core.math.random.generators.IRandom;
+import org.jamesii.core.math.random.generators.RNGInfo;
+import org.jamesii.core.math.random.generators.RNGPeriod;
+
+/**
+ * The SplitMix64 pseudo-random number generator (G. L. Steele, D. Lea, and C.
+ * H. Flood, 2014, as used by java.util.SplittableRandom), as a JAMES II
+ * {@link IRandom}. Its state is a simple counter, so the n-th value of a
+ * stream can be calculated directly, see
+ * {@link #getStreamElement(long, long)}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class SplitMixRandom implements IRandom {
+
+  /** Serialization ID. */
+  private static final long serialVersionUID = 5148339626302640813L;
+
+  /** The golden gamma, the increment of the state. */
+  static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  /** Scale factor to map 53 bits to [0, 1). */
+  static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+  /** Scale factor to map 24 bits to [0, 1). */
+  static final float FLOAT_UNIT = 1.0f / (1 << 24);
+
+  /** The information on the generator. */
+  private static final RNGInfo RNG_INFO = new RNGInfo("SplitMix64",
+      "SplitMix", new RNGPeriod(1, 2, 64), 64, 64, RNGInfo.UsableBits.UPPER,
+      64, RNGInfo.UsableBits.UPPER);
+
+  /** The initial seed. */
+  private long initialSeed;
+
+  /** The state. */
+  private long state;
+
+  /**
+   * Instantiates a new generator.
+   * 
+   * @param seed
+   *          the seed
+   */
+  public SplitMixRandom(long seed) {
+    initialSeed = seed;
+    state = seed;
+  }
+
+  /**
+   * Mixes the bits of a state to create a random value.
+   * 
+   * @param z
+   *          the state
+   * @return the random value
+   */
+  static long mix64(long z) {
+    long mixed = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+    return mixed ^ (mixed >>> 31);
+  }
+
+  /**
+   * Calculates an element of a stream directly, i.e. the value that would be
+   * returned by the (index + 1)-th call of {@link #nextLong()} of a generator
+   * with the given seed.
+   * 
+   * @param seed
+   *          the seed of the stream
+   * @param index
+   *          the index of the element
+   * @return the element of the stream
+   */
+  public static long getStreamElement(long seed, long index) {
+    return mix64(seed + (index + 1) * GOLDEN_GAMMA);
+  }
+
+  @Override
+  public void setSeed(Serializable seed) {
+    initialSeed = ((Number) seed).longValue();
+    state = initialSeed;
+  }
+
+  @Override
+  public Serializable getSeed() {
+    return initialSeed;
+  }
+
+  @Override
+  public long nextLong() {
+    state += GOLDEN_GAMMA;
+    return mix64(state);
+  }
+
+  @Override
+  public long next() {
+    return nextLong();
+  }
+
+  @Override
+  public int nextInt() {
+    return (int) (nextLong() >>> 32);
+  }
+
+  @Override
+  public int nextInt(int n) {
+    return (int) nextLong(n);
+  }
+
+  @Override
+  public long nextLong(long n) {
+    if (n <= 0) {
+      throw new IllegalArgumentException("Bound must be positive: " + n);
+    }
+    long bits;
+    long value;
+    do {
+      bits = nextLong() >>> 1;
+      value = bits % n;
+    } while (bits - value + (n - 1) < 0);
+    return value;
+  }
+
+  @Override
+  public boolean nextBoolean() {
+    return nextLong() < 0;
+  }
+
+  @Override
+  public float nextFloat() {
+    return (nextLong() >>> 40) * FLOAT_UNIT;
+  }
+
+  @Override
+  public double nextDouble() {
+    return (nextLong() >>> 11) * DOUBLE_UNIT;
+  }
+
+  @Override
+  public RNGInfo getInfo() {
+    return RNG_INFO;
+  }
+}
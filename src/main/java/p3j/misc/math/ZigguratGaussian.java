@@ -0,0 +1,213 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+/**
+ * Fast generator for normally distributed random numbers, to be used by a
+ * single thread. It implements the ziggurat method (G. Marsaglia and W. W.
+ * Tsang, 2000, in the variant by J. A. Doornik, 2005) on top of the SplitMix64
+ * pseudo-random number generator (see {@link SplitMixRandom}).
+ * 
+ * Generators for other threads can be derived by {@link #split()}, so that
+ * each worker has an independent stream that is still determined by a single
+ * seed. An antithetic generator yields the negated values of a regular
+ * generator with the same seed (see {@link #setAntithetic(boolean)}).
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class ZigguratGaussian {
+
+  /** The number of layers of the ziggurat. */
+  static final int NUM_LAYERS = 128;
+
+  /** The start of the right tail. */
+  static final double TAIL_START = 3.442619855899;
+
+  /** The area of each layer. */
+  static final double LAYER_AREA = 9.91256303526217e-3;
+
+  /** The right borders of the layers. */
+  private static final double[] LAYER_X = new double[NUM_LAYERS + 1];
+
+  /** The ratios of the right borders of subsequent layers. */
+  private static final double[] LAYER_RATIO = new double[NUM_LAYERS];
+
+  static {
+    double f = Math.exp(-0.5 * TAIL_START * TAIL_START);
+    LAYER_X[0] = LAYER_AREA / f;
+    LAYER_X[1] = TAIL_START;
+    LAYER_X[NUM_LAYERS] = 0;
+    for (int i = 2; i < NUM_LAYERS; i++) {
+      LAYER_X[i] = Math.sqrt(-2 * Math.log(LAYER_AREA / LAYER_X[i - 1] + f));
+      f = Math.exp(-0.5 * LAYER_X[i] * LAYER_X[i]);
+    }
+    for (int i = 0; i < NUM_LAYERS; i++) {
+      LAYER_RATIO[i] = LAYER_X[i + 1] / LAYER_X[i];
+    }
+  }
+
+  /** The state of the SplitMix64 generator. */
+  private long state;
+
+  /** Flag to signal that the normally distributed values shall be negated. */
+  private boolean antithetic;
+
+  /**
+   * Instantiates a new generator.
+   * 
+   * @param seed
+   *          the seed
+   */
+  public ZigguratGaussian(long seed) {
+    setSeed(seed);
+  }
+
+  /**
+   * Re-seeds the generator.
+   * 
+   * @param seed
+   *          the seed
+   */
+  public void setSeed(long seed) {
+    state = seed;
+  }
+
+  /**
+   * Sets whether this generator shall be antithetic, i.e. negate all normally
+   * distributed values. The uniformly distributed values are not affected.
+   * 
+   * @param negate
+   *          true, if the normally distributed values shall be negated
+   */
+  public void setAntithetic(boolean negate) {
+    antithetic = negate;
+  }
+
+  public boolean isAntithetic() {
+    return antithetic;
+  }
+
+  /**
+   * Creates a new generator with an independent stream, its seed is drawn from
+   * this generator.
+   * 
+   * @return the new generator
+   */
+  public ZigguratGaussian split() {
+    return new ZigguratGaussian(nextLong());
+  }
+
+  /**
+   * Generates the next uniformly distributed long value (SplitMix64).
+   * 
+   * @return the next long value
+   */
+  public long nextLong() {
+    state += SplitMixRandom.GOLDEN_GAMMA;
+    return SplitMixRandom.mix64(state);
+  }
+
+  /**
+   * Generates the next uniformly distributed value in [0, 1).
+   * 
+   * @return the next double value
+   */
+  public double nextDouble() {
+    return (nextLong() >>> 11) * SplitMixRandom.DOUBLE_UNIT;
+  }
+
+  /**
+   * Generates the next standard normally distributed value.
+   * 
+   * @return the next value
+   */
+  public double nextGaussian() {
+    return antithetic ? -nextStandardGaussian() : nextStandardGaussian();
+  }
+
+  /**
+   * Generates the next standard normally distributed value, regardless of
+   * whether the generator is antithetic.
+   * 
+   * @return the next value
+   */
+  private double nextStandardGaussian() {
+    while (true) {
+      long bits = nextLong();
+      int layer = (int) bits & (NUM_LAYERS - 1);
+      double u = 2 * ((bits >>> 11) * SplitMixRandom.DOUBLE_UNIT) - 1;
+
+      // Inside the rectangle of the layer (the common case)
+      if (Math.abs(u) < LAYER_RATIO[layer]) {
+        return u * LAYER_X[layer];
+      }
+      if (layer == 0) {
+        return nextTail(u < 0);
+      }
+
+      // Wedge between the rectangle and the density
+      double x = u * LAYER_X[layer];
+      double f0 = Math.exp(-0.5 * (LAYER_X[layer] * LAYER_X[layer] - x * x));
+      double f1 = Math.exp(-0.5
+          * (LAYER_X[layer + 1] * LAYER_X[layer + 1] - x * x));
+      if (f1 + nextDouble() * (f0 - f1) < 1.0) {
+        return x;
+      }
+    }
+  }
+
+  /**
+   * Generates a value from the tail of the distribution (beyond
+   * {@link #TAIL_START}).
+   * 
+   * @param negative
+   *          true, if the value shall be from the negative tail
+   * @return the value
+   */
+  private double nextTail(boolean negative) {
+    double x;
+    double y;
+    do {
+      x = Math.log(1 - nextDouble()) / TAIL_START;
+      y = Math.log(1 - nextDouble());
+    } while (-2 * y < x * x);
+    return negative ? x - TAIL_START : TAIL_START - x;
+  }
+
+  /**
+   * Fills a range of an array with normally distributed values.
+   * 
+   * @param values
+   *          the array to be filled
+   * @param from
+   *          the first index to be filled
+   * @param to
+   *          the index after the last index to be filled
+   * @param mean
+   *          the mean of the distribution
+   * @param stdDev
+   *          the standard deviation of the distribution
+   */
+  public void nextGaussians(double[] values, int from, int to, double mean,
+      double stdDev) {
+    double scale = antithetic ? -stdDev : stdDev;
+    for (int i = from; i < to; i++) {
+      values[i] = mean + scale * nextStandardGaussian();
+    }
+  }
+}
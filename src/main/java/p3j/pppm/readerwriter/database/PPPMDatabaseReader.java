@@ -24,9 +24,9 @@ import org.jamesii.core.data.model.IModelReader;
 import org.jamesii.core.model.IModel;
 import org.jamesii.core.model.symbolic.ISymbolicModel;
 
+import p3j.database.DatabaseFactory;
 import p3j.database.IP3MDatabase;
 import p3j.database.hibernate.P3MDatabase;
-import p3j.gui.P3J;
 import p3j.misc.gui.GUI;
 import p3j.pppm.ProjectionModel;
 import p3j.pppm.SymbolicProjectionModel;
@@ -66,7 +66,7 @@ public class PPPMDatabaseReader implements IModelReader {
 
     try {
       IP3MDatabase sqlDatabase = new P3MDatabase();
-      sqlDatabase.init(connData, P3J.getInstance().getConfigFile());
+      sqlDatabase.init(connData, DatabaseFactory.getConfigFile());
       try {
         sqlDatabase.open();
         model = sqlDatabase.getProjectionByID(projID);
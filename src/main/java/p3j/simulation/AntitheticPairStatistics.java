@@ -0,0 +1,154 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estimates the variance reduction achieved by antithetic pairs of trials, for
+ * some key aggregates of the trial results. The estimate is the ratio between
+ * the variance of the mean of 2n independent trials and the variance of the
+ * mean of n antithetic pairs, i.e. the factor by which the number of
+ * independent trials would have to be increased to reach the same accuracy.
+ * Thread-safe.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class AntitheticPairStatistics {
+
+  /** The names of the aggregates. */
+  private final String[] aggregateNames;
+
+  /** The aggregates of trials whose partner has not been recorded yet. */
+  private final Map<Long, double[]> unpairedTrials = new HashMap<>();
+
+  /** The number of complete pairs. */
+  private long numOfPairs;
+
+  /** The running means of the aggregates per trial. */
+  private final double[] trialMeans;
+
+  /** The running sums of squared deviations of the aggregates per trial. */
+  private final double[] trialSquares;
+
+  /** The running means of the aggregates per pair (averaged). */
+  private final double[] pairMeans;
+
+  /** The running sums of squared deviations of the aggregates per pair. */
+  private final double[] pairSquares;
+
+  /**
+   * Instantiates new statistics.
+   * 
+   * @param names
+   *          the names of the aggregates to be recorded
+   */
+  public AntitheticPairStatistics(String... names) {
+    aggregateNames = names.clone();
+    trialMeans = new double[names.length];
+    trialSquares = new double[names.length];
+    pairMeans = new double[names.length];
+    pairSquares = new double[names.length];
+  }
+
+  /**
+   * Records the aggregates of a trial. Trials 2i and 2i+1 form a pair.
+   * 
+   * @param trial
+   *          the index of the trial
+   * @param aggregates
+   *          the aggregates of the trial results
+   */
+  public synchronized void addTrial(long trial, double[] aggregates) {
+    if (aggregates.length != aggregateNames.length) {
+      throw new IllegalArgumentException("Expected "
+          + aggregateNames.length + " aggregates, got " + aggregates.length);
+    }
+    double[] partner = unpairedTrials.remove(trial / 2);
+    if (partner == null) {
+      unpairedTrials.put(trial / 2, aggregates.clone());
+      return;
+    }
+
+    numOfPairs++;
+    for (int i = 0; i < aggregates.length; i++) {
+      addTrialValue(i, partner[i], 2 * numOfPairs - 1);
+      addTrialValue(i, aggregates[i], 2 * numOfPairs);
+      double pairMean = (partner[i] + aggregates[i]) / 2;
+      double delta = pairMean - pairMeans[i];
+      pairMeans[i] += delta / numOfPairs;
+      pairSquares[i] += delta * (pairMean - pairMeans[i]);
+    }
+  }
+
+  /**
+   * Adds the value of an aggregate of a single trial (Welford's algorithm).
+   * 
+   * @param aggregate
+   *          the index of the aggregate
+   * @param value
+   *          the value
+   * @param count
+   *          the number of values recorded so far, including this one
+   */
+  private void addTrialValue(int aggregate, double value, long count) {
+    double delta = value - trialMeans[aggregate];
+    trialMeans[aggregate] += delta / count;
+    trialSquares[aggregate] += delta * (value - trialMeans[aggregate]);
+  }
+
+  public synchronized long getNumOfPairs() {
+    return numOfPairs;
+  }
+
+  /**
+   * Gets the estimated variance reduction factor for an aggregate. Values
+   * above one mean that the antithetic pairs are more accurate than the same
+   * number of independent trials.
+   * 
+   * @param aggregate
+   *          the index of the aggregate
+   * @return the variance reduction factor, NaN if there are less than two
+   *         pairs or the pair means do not vary
+   */
+  public synchronized double getVarianceReductionFactor(int aggregate) {
+    if (numOfPairs < 2 || pairSquares[aggregate] == 0) {
+      return Double.NaN;
+    }
+    double trialVariance = trialSquares[aggregate] / (2 * numOfPairs - 1);
+    double pairVariance = pairSquares[aggregate] / (numOfPairs - 1);
+    return trialVariance / (2 * pairVariance);
+  }
+
+  /**
+   * Creates a summary of the estimated variance reduction for all aggregates.
+   * 
+   * @return the summary
+   */
+  public synchronized String getSummary() {
+    StringBuilder summary = new StringBuilder("Antithetic pairs: "
+        + numOfPairs + ", estimated variance reduction factors:");
+    for (int i = 0; i < aggregateNames.length; i++) {
+      summary.append(' ').append(aggregateNames[i]).append(": ")
+          .append(String.format("%.2f", getVarianceReductionFactor(i)));
+      summary.append(i < aggregateNames.length - 1 ? "," : "");
+    }
+    return summary.toString();
+  }
+}
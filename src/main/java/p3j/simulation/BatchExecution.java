@@ -0,0 +1,475 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.jamesii.core.util.misc.Pair;
+
+import p3j.database.IP3MDatabase;
+import p3j.experiment.results.BasicResults;
+import p3j.experiment.results.ExecutionSummary;
+import p3j.misc.errors.GeneratorError;
+import p3j.misc.gui.GUI;
+import p3j.pppm.IProjectionModel;
+import p3j.pppm.SubPopulation;
+import p3j.simulation.assignments.plugintype.IParamAssignmentGenerator;
+import p3j.simulation.calculation.deterministic.AbstractBatchPopulation;
+import p3j.simulation.calculation.deterministic.BatchInFlowDescendantPopulation;
+import p3j.simulation.calculation.deterministic.BatchInFlowPopulation;
+import p3j.simulation.calculation.deterministic.BatchJumpOffPopulation;
+import p3j.simulation.calculation.deterministic.parameters.BasicParameters;
+import p3j.simulation.calculation.deterministic.parameters.InFlowDescendantParameters;
+import p3j.simulation.calculation.deterministic.parameters.InFlowParameters;
+import p3j.simulation.calculation.deterministic.parameters.JumpOffParameters;
+
+/**
+ * Executes several trials of the PPPM together. First, the variable
+ * assignments and parameters of all trials are set up one after the other (as
+ * by subsequent {@link SingleExecution} instances, so that the same random
+ * numbers are used), then each sub-population is calculated for all trials at
+ * once, by the batch calculations in
+ * {@link p3j.simulation.calculation.deterministic}.
+ * 
+ * As for a {@link SingleExecution}, the results of sub-populations may be
+ * looked up in a {@link SubPopulationResultCache} (only the remaining trials
+ * are calculated), and independent sub-populations may be calculated
+ * concurrently. The executions that set up the trials are recycled by
+ * subsequent batches. Trials that fail are reported and skipped: if a trial
+ * cannot be set up, only this trial is skipped; if the calculation fails, all
+ * trials calculated in the batch are skipped, as are the trials of the batch
+ * that have been counted as their repetitions (see
+ * {@link RepeatedTrialRegistry#discard(RepeatedTrialRegistry.Signature)}).
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class BatchExecution {
+
+  /** The projection setup, contains all input data. */
+  private final IProjectionModel projection;
+
+  /** The database to store results in. */
+  private final IP3MDatabase database;
+
+  /** The settings of the execution, shared with the single executions. */
+  private final ExecutionSettings settings;
+
+  /** The cache for the results of sub-populations, may be null. */
+  private final SubPopulationResultCache resultCache;
+
+  /** The parameter slots of the projection, shared by all trials. */
+  private final ParameterSlots parameterSlots;
+
+  /** The registry to merge repeated deterministic trials, may be null. */
+  private final RepeatedTrialRegistry repeatedTrials;
+
+  /** The executions to set up the trials, one per trial of a batch. */
+  private final List<SingleExecution> executionPool = new ArrayList<>();
+
+  /**
+   * Default constructor. The batch uses the same settings as the
+   * {@link SingleExecution} instances of the processor, and allows to merge
+   * repeated deterministic trials. These are removed from the batch before it
+   * is calculated.
+   * 
+   * @param proj
+   *          the projection containing all input data
+   * @param dataBase
+   *          the database to store results in
+   * @param executionSettings
+   *          the settings of the execution
+   * @param subPopResultCache
+   *          the cache to look up the results of sub-populations whose inputs
+   *          have already been calculated (may be null)
+   * @param registry
+   *          the registry of deterministic trials (may be null)
+   */
+  public BatchExecution(IProjectionModel proj, IP3MDatabase dataBase,
+      ExecutionSettings executionSettings,
+      SubPopulationResultCache subPopResultCache,
+      RepeatedTrialRegistry registry) {
+    projection = proj;
+    database = dataBase;
+    settings = executionSettings;
+    resultCache = subPopResultCache;
+    parameterSlots = new ParameterSlots(proj);
+    repeatedTrials = registry;
+  }
+
+  /**
+   * Sets up and executes the given number of variable assignments for the
+   * PPPM.
+   * 
+   * @param generator
+   *          the assignment generator to be used
+   * @param numOfTrials
+   *          the number of trials to be calculated
+   * @return execution summary and error log from the
+   *         {@link IParamAssignmentGenerator}, one per trial; as for
+   *         {@link SingleExecution#execute(IParamAssignmentGenerator)}, the
+   *         element is null if the trial failed (the error has been reported
+   *         then)
+   */
+  public List<Pair<ExecutionSummary, List<GeneratorError>>> execute(
+      IParamAssignmentGenerator generator, int numOfTrials) {
+
+    List<Pair<ExecutionSummary, List<GeneratorError>>> result = new ArrayList<>(
+        numOfTrials);
+    List<SingleExecution> executions = new ArrayList<>(numOfTrials);
+    List<ExecutionSummary> summaries = new ArrayList<>(numOfTrials);
+    for (int i = 0; i < numOfTrials; i++) {
+      SingleExecution execution = getExecution(i);
+      try {
+        Pair<ExecutionSummary, List<GeneratorError>> setup = execution
+            .setup(generator);
+        result.add(setup);
+        if (!execution.countRepetition(setup.getFirstValue())) {
+          executions.add(execution);
+          summaries.add(setup.getFirstValue());
+        }
+      } catch (Throwable t) {
+        GUI.printErrorMessage("Execution failed", t);
+        result.add(null);
+      }
+    }
+    if (summaries.isEmpty()) {
+      return result;
+    }
+
+    try {
+      if (settings.getSubPopThreads() > 1 && getNumOfSubPopulations() > 1)
+        calculateConcurrently(executions, summaries);
+      else
+        calculate(executions, summaries);
+    } catch (Throwable t) {
+      GUI.printErrorMessage("Execution failed", t);
+      discard(executions, result);
+      return result;
+    }
+
+    List<SingleExecution> failed = new ArrayList<>();
+    for (int i = 0; i < summaries.size(); i++) {
+      try {
+        executions.get(i).storeResultsToDB(summaries.get(i));
+      } catch (Throwable t) {
+        GUI.printErrorMessage("Execution failed", t);
+        failed.add(executions.get(i));
+      }
+    }
+    discard(failed, result);
+    return result;
+  }
+
+  /**
+   * Discards failed trials: they are removed from the registry of repeated
+   * trials, and their results are set to null, as are the results of the
+   * trials of the batch that have been counted as their repetitions.
+   * 
+   * @param failedExecutions
+   *          the executions of the failed trials
+   * @param result
+   *          the execution summaries and error logs of the batch, in the order
+   *          of the execution pool
+   */
+  private void discard(List<SingleExecution> failedExecutions,
+      List<Pair<ExecutionSummary, List<GeneratorError>>> result) {
+    if (failedExecutions.isEmpty()) {
+      return;
+    }
+    Set<RepeatedTrialRegistry.Signature> signatures = new HashSet<>();
+    for (SingleExecution execution : failedExecutions) {
+      execution.discardTrial();
+      if (execution.getSignature() != null) {
+        signatures.add(execution.getSignature());
+      }
+    }
+    for (int i = 0; i < result.size(); i++) {
+      Pair<ExecutionSummary, List<GeneratorError>> trial = result.get(i);
+      if (trial == null) {
+        continue;
+      }
+      SingleExecution execution = executionPool.get(i);
+      if (failedExecutions.contains(execution)
+          || (trial.getFirstValue().isRepetition() && signatures
+              .contains(execution.getSignature()))) {
+        result.set(i, null);
+      }
+    }
+  }
+
+  /**
+   * Gets the execution for the trial with the given position in the batch.
+   * 
+   * @param position
+   *          the position of the trial in the batch
+   * @return the execution
+   */
+  private SingleExecution getExecution(int position) {
+    while (executionPool.size() <= position) {
+      executionPool.add(new SingleExecution(projection, database, settings,
+          resultCache, parameterSlots, repeatedTrials));
+    }
+    return executionPool.get(position);
+  }
+
+  /**
+   * Gets the number of sub-populations that can be calculated independently.
+   * 
+   * @return the number of jump-off and in-flow populations
+   */
+  private int getNumOfSubPopulations() {
+    return projection.getSubPopulationModel().getJumpOffPopulations().size()
+        + projection.getSubPopulationModel().getInFlowPopulations().size();
+  }
+
+  /**
+   * Calculates all sub-populations for all trials, one after the other.
+   * 
+   * @param executions
+   *          the executions of the trials
+   * @param summaries
+   *          the execution summaries of the trials
+   */
+  void calculate(List<SingleExecution> executions,
+      List<ExecutionSummary> summaries) {
+    for (SubPopulation jumpOffPopulation : projection.getSubPopulationModel()
+        .getJumpOffPopulations()) {
+      addResults(summaries, jumpOffPopulation, Collections
+          .singletonList(calculateJumpOffPopulation(executions, summaries,
+              jumpOffPopulation)));
+    }
+    for (SubPopulation inFlowPopulation : projection.getSubPopulationModel()
+        .getInFlowPopulations()) {
+      addResults(summaries, inFlowPopulation,
+          calculateInFlowPopulation(executions, summaries, inFlowPopulation));
+    }
+  }
+
+  /**
+   * Calculates all sub-populations for all trials concurrently, see
+   * {@link SingleExecution#calculateConcurrently(ExecutionSummary)}. The
+   * results are added to the execution summaries after all calculations are
+   * finished.
+   * 
+   * @param executions
+   *          the executions of the trials
+   * @param summaries
+   *          the execution summaries of the trials
+   * @throws Exception
+   *           if a calculation failed
+   */
+  void calculateConcurrently(final List<SingleExecution> executions,
+      final List<ExecutionSummary> summaries) throws Exception {
+    List<Callable<List<List<BasicResults>>>> tasks = new ArrayList<>();
+    List<SubPopulation> subPopulations = new ArrayList<>();
+    for (final SubPopulation jumpOffPopulation : projection
+        .getSubPopulationModel().getJumpOffPopulations()) {
+      subPopulations.add(jumpOffPopulation);
+      tasks.add(new Callable<List<List<BasicResults>>>() {
+        @Override
+        public List<List<BasicResults>> call() {
+          return Collections.singletonList(calculateJumpOffPopulation(
+              executions, summaries, jumpOffPopulation));
+        }
+      });
+    }
+    for (final SubPopulation inFlowPopulation : projection
+        .getSubPopulationModel().getInFlowPopulations()) {
+      subPopulations.add(inFlowPopulation);
+      tasks.add(new Callable<List<List<BasicResults>>>() {
+        @Override
+        public List<List<BasicResults>> call() {
+          return calculateInFlowPopulation(executions, summaries,
+              inFlowPopulation);
+        }
+      });
+    }
+
+    List<Future<List<List<BasicResults>>>> results = SingleExecution.getPool(
+        settings.getSubPopThreads()).invokeAll(tasks);
+    for (int i = 0; i < results.size(); i++) {
+      addResults(summaries, subPopulations.get(i), results.get(i).get());
+    }
+  }
+
+  /**
+   * Calculates a jump-off population for all trials.
+   * 
+   * @param executions
+   *          the executions of the trials
+   * @param summaries
+   *          the execution summaries of the trials
+   * @param subPopulation
+   *          the sub-population
+   * @return the results, one per trial
+   */
+  List<BasicResults> calculateJumpOffPopulation(
+      List<SingleExecution> executions, List<ExecutionSummary> summaries,
+      SubPopulation subPopulation) {
+    List<BasicResults> results = getCachedResults(executions, subPopulation, 0);
+    List<JumpOffParameters> parameters = new ArrayList<>(summaries.size());
+    for (int i = 0; i < summaries.size(); i++) {
+      if (results.get(i) == null) {
+        parameters.add(summaries.get(i).getJumpOffParameters(subPopulation));
+      }
+    }
+    calculateMissingResults(executions, subPopulation, 0, results,
+        new BatchJumpOffPopulation(), parameters);
+    return results;
+  }
+
+  /**
+   * Calculates all generations of an in-flow population for all trials.
+   * 
+   * @param executions
+   *          the executions of the trials
+   * @param summaries
+   *          the execution summaries of the trials
+   * @param subPopulation
+   *          the sub-population
+   * @return the results, per generation and trial
+   */
+  List<List<BasicResults>> calculateInFlowPopulation(
+      List<SingleExecution> executions, List<ExecutionSummary> summaries,
+      SubPopulation subPopulation) {
+    List<List<BasicResults>> results = new ArrayList<>();
+    List<BasicResults> firstGeneration = getCachedResults(executions,
+        subPopulation, 0);
+    List<InFlowParameters> parameters = new ArrayList<>(summaries.size());
+    for (int i = 0; i < summaries.size(); i++) {
+      if (firstGeneration.get(i) == null) {
+        parameters.add(summaries.get(i).getInFlowParameters(subPopulation));
+      }
+    }
+    calculateMissingResults(executions, subPopulation, 0, firstGeneration,
+        new BatchInFlowPopulation(), parameters);
+    results.add(firstGeneration);
+
+    if (!subPopulation.isConsistingOfDescendantGenerations())
+      return results;
+
+    for (int generation = 1; generation < projection.getGenerations(); generation++) {
+      List<BasicResults> previousGeneration = results.get(generation - 1);
+      List<BasicResults> generationResults = getCachedResults(executions,
+          subPopulation, generation);
+      List<InFlowDescendantParameters> descendantParameters = new ArrayList<>(
+          summaries.size());
+      for (int i = 0; i < summaries.size(); i++) {
+        if (generationResults.get(i) == null) {
+          InFlowDescendantParameters trialParameters = summaries.get(i)
+              .getDescendantParameters(subPopulation, generation);
+          trialParameters.setOldMeanXf(previousGeneration.get(i).getMeanXf());
+          descendantParameters.add(trialParameters);
+        }
+      }
+      calculateMissingResults(executions, subPopulation, generation,
+          generationResults, new BatchInFlowDescendantPopulation(),
+          descendantParameters);
+      results.add(generationResults);
+    }
+    return results;
+  }
+
+  /**
+   * Looks up the cached results of a sub-population and generation for all
+   * trials.
+   * 
+   * @param executions
+   *          the executions of the trials
+   * @param subPopulation
+   *          the sub-population
+   * @param generation
+   *          the generation
+   * @return the cached results, one per trial (null if there are none)
+   */
+  private static List<BasicResults> getCachedResults(
+      List<SingleExecution> executions, SubPopulation subPopulation,
+      int generation) {
+    List<BasicResults> results = new ArrayList<>(executions.size());
+    for (SingleExecution execution : executions) {
+      results.add(execution.getCachedResults(subPopulation, generation));
+    }
+    return results;
+  }
+
+  /**
+   * Calculates the results of the trials for which no results have been
+   * cached, and caches them.
+   * 
+   * @param executions
+   *          the executions of the trials
+   * @param subPopulation
+   *          the sub-population
+   * @param generation
+   *          the generation
+   * @param results
+   *          the results, one per trial (null if missing); will be completed
+   * @param calculation
+   *          the batch calculation
+   * @param parameters
+   *          the parameters of the trials with missing results, in the same
+   *          order
+   * @param <P>
+   *          the type of the parameters
+   */
+  private static <P extends BasicParameters> void calculateMissingResults(
+      List<SingleExecution> executions, SubPopulation subPopulation,
+      int generation, List<BasicResults> results,
+      AbstractBatchPopulation<P> calculation, List<P> parameters) {
+    if (parameters.isEmpty()) {
+      return;
+    }
+    List<BasicResults> calculated = calculation.calculatePopulations(
+        subPopulation.getName(), generation, parameters);
+    int next = 0;
+    for (int i = 0; i < results.size(); i++) {
+      if (results.get(i) == null) {
+        BasicResults trialResults = calculated.get(next++);
+        results.set(i, trialResults);
+        executions.get(i).cacheResults(subPopulation, generation,
+            trialResults);
+      }
+    }
+  }
+
+  /**
+   * Adds the results of a batch calculation to the execution summaries.
+   * 
+   * @param summaries
+   *          the execution summaries of the trials
+   * @param subPopulation
+   *          the sub-population
+   * @param results
+   *          the results, per generation and trial
+   */
+  private static void addResults(List<ExecutionSummary> summaries,
+      SubPopulation subPopulation, List<List<BasicResults>> results) {
+    for (int generation = 0; generation < results.size(); generation++) {
+      for (int i = 0; i < summaries.size(); i++) {
+        summaries.get(i).addResults(subPopulation, generation,
+            results.get(generation).get(i));
+      }
+    }
+  }
+}
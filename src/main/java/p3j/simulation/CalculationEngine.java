@@ -0,0 +1,145 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import p3j.experiment.results.BasicResults;
+import p3j.simulation.calculation.deterministic.AbstractPopulation;
+import p3j.simulation.calculation.deterministic.FlatArrayInFlowDescendantPopulation;
+import p3j.simulation.calculation.deterministic.FlatArrayInFlowPopulation;
+import p3j.simulation.calculation.deterministic.FlatArrayJumpOffPopulation;
+import p3j.simulation.calculation.deterministic.FusedSweepInFlowDescendantPopulation;
+import p3j.simulation.calculation.deterministic.FusedSweepInFlowPopulation;
+import p3j.simulation.calculation.deterministic.FusedSweepJumpOffPopulation;
+import p3j.simulation.calculation.deterministic.InFlowDescendantPopulation;
+import p3j.simulation.calculation.deterministic.InFlowPopulation;
+import p3j.simulation.calculation.deterministic.JumpOffPopulation;
+import p3j.simulation.calculation.deterministic.parameters.InFlowDescendantParameters;
+import p3j.simulation.calculation.deterministic.parameters.InFlowParameters;
+import p3j.simulation.calculation.deterministic.parameters.JumpOffParameters;
+
+/**
+ * Enumeration of the available implementations of the deterministic population
+ * calculations. All engines yield the same results.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public enum CalculationEngine {
+
+	/** Calculate on {@link p3j.misc.math.Matrix2D} instances. */
+	MATRIX,
+
+	/** Calculate on primitive arrays. */
+	FLAT_ARRAY,
+
+	/**
+	 * Calculate on primitive arrays, survival probabilities are calculated year
+	 * by year and are not part of the results.
+	 */
+	FUSED_SWEEP;
+
+	/** The string representation of the matrix-based engine. */
+	public static final String DESC_MATRIX = "Matrix";
+
+	/** The string representation of the array-based engine. */
+	public static final String DESC_FLAT_ARRAY = "Flat Array";
+
+	/** The string representation of the fused engine. */
+	public static final String DESC_FUSED_SWEEP = "Fused Sweep";
+
+	@Override
+	public String toString() {
+		switch (this) {
+		case MATRIX:
+			return DESC_MATRIX;
+		case FLAT_ARRAY:
+			return DESC_FLAT_ARRAY;
+		case FUSED_SWEEP:
+			return DESC_FUSED_SWEEP;
+		default:
+			return "unknown";
+		}
+	}
+
+	/**
+	 * Gets the calculation engine associated with the given text.
+	 * 
+	 * @param text
+	 *          the text (retrievable via toString())
+	 * @return the calculation engine associated with the given text, null if none
+	 *         was found
+	 */
+	public static CalculationEngine forString(String text) {
+		if (text.equals(DESC_MATRIX)) {
+			return MATRIX;
+		} else if (text.equals(DESC_FLAT_ARRAY)) {
+			return FLAT_ARRAY;
+		} else if (text.equals(DESC_FUSED_SWEEP)) {
+			return FUSED_SWEEP;
+		}
+		return null;
+	}
+
+	/**
+	 * Creates the calculation for jump-off populations.
+	 * 
+	 * @return the calculation for jump-off populations
+	 */
+	public AbstractPopulation<JumpOffParameters, BasicResults> createJumpOffPopulation() {
+		switch (this) {
+		case FLAT_ARRAY:
+			return new FlatArrayJumpOffPopulation();
+		case FUSED_SWEEP:
+			return new FusedSweepJumpOffPopulation();
+		default:
+			return new JumpOffPopulation();
+		}
+	}
+
+	/**
+	 * Creates the calculation for the first generation of in-flow populations.
+	 * 
+	 * @return the calculation for in-flow populations
+	 */
+	public AbstractPopulation<InFlowParameters, BasicResults> createInFlowPopulation() {
+		switch (this) {
+		case FLAT_ARRAY:
+			return new FlatArrayInFlowPopulation();
+		case FUSED_SWEEP:
+			return new FusedSweepInFlowPopulation();
+		default:
+			return new InFlowPopulation();
+		}
+	}
+
+	/**
+	 * Creates the calculation for the descendant generations of in-flow
+	 * populations.
+	 * 
+	 * @return the calculation for descendant populations
+	 */
+	public AbstractPopulation<InFlowDescendantParameters, BasicResults> createInFlowDescendantPopulation() {
+		switch (this) {
+		case FLAT_ARRAY:
+			return new FlatArrayInFlowDescendantPopulation();
+		case FUSED_SWEEP:
+			return new FusedSweepInFlowDescendantPopulation();
+		default:
+			return new InFlowDescendantPopulation();
+		}
+	}
+}
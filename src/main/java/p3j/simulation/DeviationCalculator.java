@@ -15,11 +15,12 @@
  */
 package p3j.simulation;
 
-import org.jamesii.core.math.random.distributions.NormalDistribution;
 import org.jamesii.core.math.random.generators.IRandom;
 
 import p3j.misc.Misc;
 import p3j.misc.math.Matrix2D;
+import p3j.misc.math.RowScaledMatrix2D;
+import p3j.misc.math.ZigguratGaussian;
 import p3j.pppm.parameters.ParameterAssignment;
 import p3j.pppm.parameters.ParameterType;
 import p3j.simulation.calculation.deterministic.Constants;
@@ -32,9 +33,18 @@ import p3j.simulation.calculation.deterministic.Constants;
  * 
  * Otherwise, a normal distribution with mean 1.0 and standard deviation as
  * prescribed by the {@link ParameterAssignment} is chosen. It is used to
- * calculate an error for each year of the projection horizon. The error term is
- * then multiplied by the data of each corresponding years.
+ * calculate an error for each year of the projection horizon (sampled by a
+ * {@link ZigguratGaussian}, unless the standard normally distributed errors
+ * are given, e.g. by a quasi-random sequence). The error term is
+ * then multiplied by the data of each corresponding years. The result is a
+ * {@link RowScaledMatrix2D}, which keeps a reference to the original data so
+ * that it can be recycled (except for mortality data, which needs to be
+ * transformed first).
  * 
+ * The deviated values can be written to a buffer that is recycled between
+ * trials, see
+ * {@link DeviationCalculator#calculateAssignmentDeviation(ParameterAssignment, ZigguratGaussian, double[], Matrix2D)}
+ * .
  * 
  * @see ParameterAssignment
  * @see SingleExecution
@@ -63,6 +73,32 @@ final class DeviationCalculator {
    */
   static Matrix2D calculateAssignmentDeviation(ParameterAssignment assignment,
       IRandom random) {
+    return calculateAssignmentDeviation(assignment,
+        new ZigguratGaussian(random.nextLong()), null, null);
+  }
+
+  /**
+   * Calculates the (internal) deviation of the given assignment, and writes it
+   * to the given buffer if possible. See class documentation for details.
+   * 
+   * @param assignment
+   *          the parameter assignment
+   * @param gaussian
+   *          the generator of the normally distributed errors
+   * @param standardErrors
+   *          the standard normally distributed errors to be used instead of
+   *          those from the generator, one per year after the jump-off year
+   *          (may be null or cover fewer years)
+   * @param buffer
+   *          the matrix to which the deviated values shall be written, may be
+   *          null; a new matrix is created if it does not have the dimensions
+   *          of the assignment's matrix
+   * @return the deviated matrix values, ready to be used for calculation (the
+   *         original values if there is no deviation, the buffer or a newly
+   *         created matrix otherwise)
+   */
+  static Matrix2D calculateAssignmentDeviation(ParameterAssignment assignment,
+      ZigguratGaussian gaussian, double[] standardErrors, Matrix2D buffer) {
 
     Matrix2D originalValues = assignment.getMatrixValue();
     double deviation = assignment.getDeviation();
@@ -77,78 +113,70 @@ final class DeviationCalculator {
     // TODO: This should be replaced by checking against an enumeration.
     if (assignment.getParamInstance().getParameter().getName()
         .contains(ParameterType.SURVIVORS_AGE_X)) {
-      deviatedValues = mortalityDeviation(random, originalValues, deviation);
+      deviatedValues = mortalityDeviation(gaussian, standardErrors,
+          assignment, deviation, getBuffer(buffer, originalValues));
     } else {
-      deviatedValues = stochasticDeviation(random, originalValues, deviation);
+      deviatedValues = stochasticDeviation(gaussian, standardErrors,
+          originalValues, deviation, buffer);
     }
 
     return deviatedValues;
   }
 
   /**
-   * Calculating the deviation for mortality parameters needs an extra
-   * conversion step. The data is transformed to logarithmic mortality
-   * probabilities, and than reverse-transformed after the deviations are
-   * applied.
+   * Gets the buffer to which the deviated values shall be written.
    * 
-   * @param random
-   *          the random number generator
+   * @param buffer
+   *          the buffer, may be null
    * @param originalValues
    *          the original values
-   * @param deviation
-   *          the deviation
-   * 
-   * @return the matrix containing the deviated values
-   */
-  private static Matrix2D mortalityDeviation(IRandom random,
-      Matrix2D originalValues, double deviation) {
-    Matrix2D lnQx = transformMortalityMatrix(originalValues);
-    Matrix2D deviatedValues = stochasticDeviation(random, lnQx, deviation);
-    return reverseTransformation(deviatedValues);
-  }
-
-  /**
-   * Transforms mortality matrix from amounts of surviving people (L_x) to
-   * natural logarithms of mortality probabilities.
-   * 
-   * @param originalValues
-   *          the original L_x values
-   * 
-   * @return the transformed ln(Q_x)
+   * @return the buffer, or a new matrix if the buffer cannot be used
    */
-  private static Matrix2D transformMortalityMatrix(Matrix2D originalValues) {
-
-    Matrix2D lnQx = new Matrix2D(originalValues.rows(),
-        originalValues.columns());
-
-    for (int year = 0; year < originalValues.rows(); year++) {
-      for (int age = 0; age < originalValues.columns() - 1; age++) {
-        double survProb = originalValues.getQuick(year, age + 1)
-            / originalValues.getQuick(year, age);
-        lnQx.setQuick(year, age, Math.log(1 - survProb));
-      }
+  private static Matrix2D getBuffer(Matrix2D buffer, Matrix2D originalValues) {
+    if (buffer != null && buffer != originalValues
+        && !(buffer instanceof RowScaledMatrix2D)
+        && buffer.rows() == originalValues.rows()
+        && buffer.columns() == originalValues.columns()) {
+      return buffer;
     }
-    return lnQx;
+    return new Matrix2D(originalValues.rows(), originalValues.columns());
   }
 
   /**
-   * Reverts the transformation.
+   * Calculating the deviation for mortality parameters needs an extra
+   * conversion step. The data is transformed to logarithmic mortality
+   * probabilities (which are cached by {@link MortalityBaselineCache}), and
+   * than reverse-transformed while the deviations are applied.
    * 
-   * @param deviatedLnQx
-   *          the deviated ln(Q_x)
+   * @param gaussian
+   *          the generator of the normally distributed errors
+   * @param standardErrors
+   *          the given standard normally distributed errors, may be null
+   * @param assignment
+   *          the mortality assignment
+   * @param deviation
+   *          the deviation
+   * @param deviatedLx
+   *          the matrix to be filled with the resulting L_x values
    * 
-   * @return the resulting L_x matrix
+   * @return the matrix containing the deviated values
    */
-  private static Matrix2D reverseTransformation(Matrix2D deviatedLnQx) {
-
-    Matrix2D deviatedLx = new Matrix2D(deviatedLnQx.rows(),
-        deviatedLnQx.columns());
-
-    for (int year = 0; year < deviatedLnQx.rows(); year++) {
-      deviatedLx.setQuick(year, 0, Constants.BASELINE_AMOUNT_MORT_MATRICES);
-      for (int age = 1; age < deviatedLnQx.columns(); age++) {
-        double survProb = (1 - Math.exp(deviatedLnQx.getQuick(year, age - 1)));
-        double remainingPop = deviatedLx.getQuick(year, age - 1) * survProb;
+  private static Matrix2D mortalityDeviation(ZigguratGaussian gaussian,
+      double[] standardErrors, ParameterAssignment assignment,
+      double deviation, Matrix2D deviatedLx) {
+    double[] lnQx = MortalityBaselineCache.getLnQx(assignment);
+    int years = deviatedLx.rows();
+    int ages = deviatedLx.columns();
+    double[] errors = new double[years];
+    generateErrors(gaussian, standardErrors, deviation, errors);
+
+    for (int year = 0; year < years; year++) {
+      int offset = year * ages;
+      double remainingPop = Constants.BASELINE_AMOUNT_MORT_MATRICES;
+      deviatedLx.setQuick(year, 0, remainingPop);
+      for (int age = 1; age < ages; age++) {
+        double survProb = 1 - Math.exp(lnQx[offset + age - 1] * errors[year]);
+        remainingPop *= survProb;
         deviatedLx.setQuick(year, age, remainingPop);
       }
     }
@@ -157,64 +185,65 @@ final class DeviationCalculator {
 
   /**
    * Carries out a simple stochastic transformation, the extent of which is
-   * determined by the deviation.
+   * determined by the deviation. The original values are scaled into a
+   * {@link RowScaledMatrix2D}, which is recycled if possible.
    * 
-   * @param random
-   *          the random number generator
+   * @param gaussian
+   *          the generator of the normally distributed errors
+   * @param standardErrors
+   *          the given standard normally distributed errors, may be null
    * @param originalValues
    *          the original values
    * @param deviation
    *          the deviation
+   * @param buffer
+   *          the view to be recycled, may be null
    * 
    * @return the matrix containing the deviating values
    */
-  private static Matrix2D stochasticDeviation(IRandom random,
-      Matrix2D originalValues, double deviation) {
-    Matrix2D deviatedValues = originalValues.copy();
-    double[] errors = generateErrors(random, deviation, deviatedValues.rows());
-    applyErrors(deviatedValues, errors);
-    return deviatedValues;
+  private static Matrix2D stochasticDeviation(ZigguratGaussian gaussian,
+      double[] standardErrors, Matrix2D originalValues, double deviation,
+      Matrix2D buffer) {
+    if (buffer instanceof RowScaledMatrix2D
+        && ((RowScaledMatrix2D) buffer).isViewOf(originalValues)) {
+      RowScaledMatrix2D view = (RowScaledMatrix2D) buffer;
+      double[] errors = view.getRowFactors();
+      generateErrors(gaussian, standardErrors, deviation, errors);
+      view.setRowFactors(errors);
+      return view;
+    }
+    double[] errors = new double[originalValues.rows()];
+    generateErrors(gaussian, standardErrors, deviation, errors);
+    return new RowScaledMatrix2D(originalValues, errors);
   }
 
   /**
-   * Generates the array containing the errors. Its first element contain '1',
-   * as no deviation is expected in the jump-off year.
+   * Generates the errors, a random walk of normally distributed factors. The
+   * first element contains '1', as no deviation is expected in the jump-off
+   * year. The factors are derived from the given standard normally distributed
+   * errors, as far as available, all others are drawn in one batch.
    * 
-   * @param random
-   *          the random number generator to be used
+   * @param gaussian
+   *          the generator of the normally distributed errors
+   * @param standardErrors
+   *          the given standard normally distributed errors, may be null
    * @param deviation
    *          the standard deviation
-   * @param years
-   *          the number of years, i.e. thje size of the returned array
-   * 
-   * @return the double[]
-   */
-  private static double[] generateErrors(IRandom random, double deviation,
-      int years) {
-    double[] errors = new double[years];
-    NormalDistribution normDist = new NormalDistribution(random, 1, deviation);
-    errors[0] = 1.;
-    for (int i = 1; i < years; i++) {
-      errors[i] = errors[i - 1]
-          * Math.max(Misc.EPSILON, normDist.getRandomNumber());
-    }
-    return errors;
-  }
-
-  /**
-   * Applies errors to matrix.
-   * 
-   * @param deviatedValues
-   *          the deviated values
    * @param errors
-   *          the errors
+   *          the array to be filled with the errors, one per year
    */
-  private static void applyErrors(Matrix2D deviatedValues, double[] errors) {
-    for (int year = 1; year < deviatedValues.rows(); year++) {
-      for (int age = 0; age < deviatedValues.columns(); age++) {
-        deviatedValues.setQuick(year, age, deviatedValues.getQuick(year, age)
-            * errors[year]);
-      }
+  private static void generateErrors(ZigguratGaussian gaussian,
+      double[] standardErrors, double deviation, double[] errors) {
+    int given = standardErrors == null ? 0 : Math.min(standardErrors.length,
+        errors.length - 1);
+    double scale = gaussian.isAntithetic() ? -deviation : deviation;
+    for (int i = 0; i < given; i++) {
+      errors[i + 1] = 1 + scale * standardErrors[i];
+    }
+    gaussian.nextGaussians(errors, given + 1, errors.length, 1, deviation);
+    errors[0] = 1.;
+    for (int i = 1; i < errors.length; i++) {
+      errors[i] = errors[i - 1] * Math.max(Misc.EPSILON, errors[i]);
     }
   }
 }
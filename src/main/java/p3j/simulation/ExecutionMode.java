@@ -16,7 +16,9 @@
 package p3j.simulation;
 
 import p3j.simulation.assignments.exhaustive.ExhaustiveParamAssignmentGenFactory;
+import p3j.simulation.assignments.quasirandom.QuasiRandomParamAssignmentGenFactory;
 import p3j.simulation.assignments.random.RandomParamAssignmentGenFactory;
+import p3j.simulation.assignments.stratified.LatinHypercubeParamAssignmentGenFactory;
 
 /**
  * Simple enumeration to easily summarise all execution modes.
@@ -31,7 +33,16 @@ public enum ExecutionMode {
 	MONTE_CARLO,
 
 	/** Draw parameter instances in highest-overall-probability order. */
-	EXHAUSTIVE;
+	EXHAUSTIVE,
+
+	/** Draw parameter instances by a scrambled low-discrepancy sequence. */
+	QUASI_MONTE_CARLO,
+
+	/**
+	 * Draw parameter instances by Latin hypercube sampling, i.e. in proportion
+	 * to their probabilities.
+	 */
+	LATIN_HYPERCUBE;
 
 	/** The string representation of the monte-carlo method. */
 	public static final String DESC_MONTE_CARLO = "Monte-Carlo";
@@ -39,6 +50,12 @@ public enum ExecutionMode {
 	/** The string representation of the exhaustive method. */
 	public static final String DESC_EXHAUSTIVE = "Exhaustive";
 
+	/** The string representation of the quasi-monte-carlo method. */
+	public static final String DESC_QUASI_MONTE_CARLO = "Quasi-Monte-Carlo";
+
+	/** The string representation of the latin hypercube method. */
+	public static final String DESC_LATIN_HYPERCUBE = "Latin Hypercube";
+
 	@Override
 	public String toString() {
 		switch (this) {
@@ -46,6 +63,10 @@ public enum ExecutionMode {
 			return DESC_MONTE_CARLO;
 		case EXHAUSTIVE:
 			return DESC_EXHAUSTIVE;
+		case QUASI_MONTE_CARLO:
+			return DESC_QUASI_MONTE_CARLO;
+		case LATIN_HYPERCUBE:
+			return DESC_LATIN_HYPERCUBE;
 		default:
 			return "unknown";
 		}
@@ -64,6 +85,10 @@ public enum ExecutionMode {
 			return EXHAUSTIVE;
 		} else if (text.equals(DESC_MONTE_CARLO)) {
 			return MONTE_CARLO;
+		} else if (text.equals(DESC_QUASI_MONTE_CARLO)) {
+			return QUASI_MONTE_CARLO;
+		} else if (text.equals(DESC_LATIN_HYPERCUBE)) {
+			return LATIN_HYPERCUBE;
 		}
 		return null;
 	}
@@ -80,6 +105,10 @@ public enum ExecutionMode {
 			return RandomParamAssignmentGenFactory.class.getName();
 		case EXHAUSTIVE:
 			return ExhaustiveParamAssignmentGenFactory.class.getName();
+		case QUASI_MONTE_CARLO:
+			return QuasiRandomParamAssignmentGenFactory.class.getName();
+		case LATIN_HYPERCUBE:
+			return LatinHypercubeParamAssignmentGenFactory.class.getName();
 		default:
 			return "";
 		}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import p3j.experiment.results.OutputPlan;
+import p3j.misc.Misc;
+
+/**
+ * The settings of a {@link PPPMProcessor} and the {@link SingleExecution} and
+ * {@link BatchExecution} instances it uses. The settings are created once per
+ * processor, by the {@link PPPMProcessorFactory}, and are immutable.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class ExecutionSettings {
+
+  /** The default settings, as used by the default constructors. */
+  public static final ExecutionSettings DEFAULT = new ExecutionSettings(
+      Misc.DEFAULT_CALCULATION_ENGINE, Misc.DEFAULT_BATCH_SIZE,
+      Integer.MAX_VALUE, Misc.DEFAULT_NUM_SUBPOP_THREADS, null, null,
+      Misc.DEFAULT_MERGE_REPEATED_TRIALS);
+
+  /** The engine for the deterministic calculations. */
+  private final CalculationEngine engine;
+
+  /** The number of trials to be calculated together. */
+  private final int batchSize;
+
+  /** The maximal number of trials to be calculated. */
+  private final int maxCalculations;
+
+  /** The number of threads to calculate the sub-populations of a trial. */
+  private final int subPopThreads;
+
+  /** The plan which results shall be stored, null if all are stored. */
+  private final OutputPlan outputPlan;
+
+  /** The random number streams of the trials, null if not reproducible. */
+  private final TrialStreams trialStreams;
+
+  /** The flag to merge repeated deterministic trials. */
+  private final boolean mergeRepeatedTrials;
+
+  /**
+   * Instantiates new execution settings.
+   * 
+   * @param calcEngine
+   *          the engine for the deterministic calculations (of single trials)
+   * @param trialsPerBatch
+   *          the number of trials to be calculated together
+   * @param maxCalcs
+   *          the maximal number of trials to be calculated, batches are
+   *          truncated accordingly
+   * @param numOfSubPopThreads
+   *          the number of threads to calculate the sub-populations of a
+   *          single trial
+   * @param plan
+   *          the plan which results shall be stored (null if all results
+   *          shall be stored)
+   * @param streams
+   *          the random number streams of the trials, shared by all
+   *          processors of the experiment (null if the trials shall not be
+   *          reproducible)
+   * @param mergeRepeated
+   *          flag to determine whether trials that repeat the deterministic
+   *          assignments of an earlier trial shall only be counted, see
+   *          {@link RepeatedTrialRegistry}
+   */
+  public ExecutionSettings(CalculationEngine calcEngine, int trialsPerBatch,
+      int maxCalcs, int numOfSubPopThreads, OutputPlan plan,
+      TrialStreams streams, boolean mergeRepeated) {
+    engine = calcEngine;
+    batchSize = Math.max(1, trialsPerBatch);
+    maxCalculations = maxCalcs;
+    subPopThreads = numOfSubPopThreads;
+    outputPlan = plan;
+    trialStreams = streams;
+    mergeRepeatedTrials = mergeRepeated;
+  }
+
+  public CalculationEngine getEngine() {
+    return engine;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public int getMaxCalculations() {
+    return maxCalculations;
+  }
+
+  public int getSubPopThreads() {
+    return subPopThreads;
+  }
+
+  public OutputPlan getOutputPlan() {
+    return outputPlan;
+  }
+
+  public TrialStreams getTrialStreams() {
+    return trialStreams;
+  }
+
+  public boolean isMergeRepeatedTrials() {
+    return mergeRepeatedTrials;
+  }
+}
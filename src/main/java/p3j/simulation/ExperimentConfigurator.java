@@ -0,0 +1,253 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.logging.Level;
+
+import org.jamesii.SimSystem;
+import org.jamesii.core.data.DBConnectionData;
+import org.jamesii.core.experiments.BaseExperiment;
+import org.jamesii.core.experiments.taskrunner.parallel.ParallelComputationTaskRunnerFactory;
+import org.jamesii.core.experiments.taskrunner.plugintype.TaskRunnerFactory;
+import org.jamesii.core.experiments.tasks.stoppolicy.plugintype.ComputationTaskStopPolicyFactory;
+import org.jamesii.core.parameters.ParameterBlock;
+import org.jamesii.core.parameters.ParameterizedFactory;
+import org.jamesii.core.processor.plugintype.ProcessorFactory;
+import org.jamesii.core.simulationrun.stoppolicy.SimTimeStopFactory;
+
+import p3j.experiment.ExperimentDefinition;
+import p3j.experiment.results.OutputPlan;
+import p3j.gui.misc.P3JConfigFile;
+import p3j.misc.Misc;
+import p3j.pppm.readerwriter.database.PPPModelDatabaseReaderFactory;
+import p3j.simulation.assignments.exhaustive.ExhaustiveParamAssignmentGenFactory;
+import p3j.simulation.assignments.exhaustive.ExhaustiveSimParameters;
+import p3j.simulation.assignments.exhaustive.SharedExhaustiveEnumeration;
+import p3j.simulation.assignments.plugintype.ParamAssignmentGenFactory;
+
+/**
+ * Configures experiments that execute a projection, as defined by the
+ * execution preferences in a {@link P3JConfigFile}. Does not depend on the
+ * user interface, so that the same set-up is used by the GUI and the
+ * command-line.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ */
+public class ExperimentConfigurator {
+
+  /** The configuration to be used. */
+  private final P3JConfigFile configFile;
+
+  /**
+   * Instantiates a new experiment configurator.
+   * 
+   * @param configFile
+   *          the configuration that defines the execution preferences
+   */
+  public ExperimentConfigurator(P3JConfigFile configFile) {
+    this.configFile = configFile;
+  }
+
+  /**
+   * Creates an experiment to execute the given projection.
+   * 
+   * @param connData
+   *          the connection data of the database that stores the projection
+   * @param projectionID
+   *          the ID of the projection
+   * @return the experiment
+   * @throws URISyntaxException
+   *           if the model location could not be configured
+   */
+  public BaseExperiment createExperiment(DBConnectionData connData,
+      int projectionID) throws URISyntaxException {
+    ExperimentDefinition definition = new ExperimentDefinition();
+    definition.setRandSeed(configFile.getProperty(Misc.PREF_RANDOM_SEED,
+        Misc.DEFAULT_RANDOM_SEED));
+    return createExperiment(connData, projectionID, definition);
+  }
+
+  /**
+   * Creates an experiment to execute the given projection, with the random
+   * seed of the given definition. If the definition has no seed (i.e.,
+   * {@link Misc#DEFAULT_RANDOM_SEED}), a new seed is drawn and stored in the
+   * definition, so that the experiment can be repeated.
+   * 
+   * @param connData
+   *          the connection data of the database that stores the projection
+   * @param projectionID
+   *          the ID of the projection
+   * @param definition
+   *          the definition of the experiment
+   * @return the experiment
+   * @throws URISyntaxException
+   *           if the model location could not be configured
+   */
+  public BaseExperiment createExperiment(DBConnectionData connData,
+      int projectionID, ExperimentDefinition definition)
+      throws URISyntaxException {
+    BaseExperiment baseExperiment = new BaseExperiment();
+    configureModelLocation(baseExperiment, connData, projectionID);
+    configureSimulator(baseExperiment, getExperimentSeed(definition));
+    configureMultiThreading(baseExperiment);
+    return baseExperiment;
+  }
+
+  /**
+   * Configures experiment regarding model location.
+   * 
+   * @param baseExperiment
+   *          the experiment to be configured
+   * @param connData
+   *          the connection data of the database
+   * @param projectionID
+   *          the ID of the projection
+   * @throws URISyntaxException
+   *           if the model location is invalid
+   */
+  private void configureModelLocation(BaseExperiment baseExperiment,
+      DBConnectionData connData, int projectionID) throws URISyntaxException {
+    baseExperiment.setModelLocation(new URI(
+        PPPModelDatabaseReaderFactory.DEFAULT_URI));
+    baseExperiment.setModelRWParameters(PPPModelDatabaseReaderFactory
+        .createReaderParams(connData, projectionID));
+  }
+
+  /**
+   * Configures the given experiment for multi-threading.
+   * 
+   * @param baseExperiment
+   *          the experiment to be configured
+   */
+  private void configureMultiThreading(BaseExperiment baseExperiment) {
+    int numOfThreads = getNumOfThreads();
+    double stopTime = getTrialsPerThread();
+
+    baseExperiment.setRepeatRuns(numOfThreads);
+    baseExperiment
+        .setComputationTaskStopPolicyFactory(new ParameterizedFactory<ComputationTaskStopPolicyFactory>(
+            new SimTimeStopFactory(), new ParameterBlock(stopTime,
+                SimTimeStopFactory.SIMEND)));
+
+    if (numOfThreads > 1) {
+      baseExperiment
+          .setTaskRunnerFactory(new ParameterizedFactory<TaskRunnerFactory>(
+              new ParallelComputationTaskRunnerFactory(), new ParameterBlock(
+                  numOfThreads, ParallelComputationTaskRunnerFactory.NUM_CORES)));
+    }
+  }
+
+  /**
+   * Configures experiment to use PPPM simulator. The random number streams of
+   * all trials are derived from the seed of the experiment.
+   * 
+   * @param baseExperiment
+   *          the experiment to be configured
+   * @param seed
+   *          the seed of the experiment
+   */
+  private void configureSimulator(BaseExperiment baseExperiment, long seed) {
+    ParameterBlock processorParameters = baseExperiment
+        .getParameters()
+        .getParameterBlock()
+        .addSubBlock(ProcessorFactory.class.getName(),
+            PPPMProcessorFactory.class.getName());
+    ExecutionMode mode = (ExecutionMode) configFile
+        .get(Misc.PREF_EXECUTION_MODE);
+    ParameterBlock generatorParameters = processorParameters
+        .addSubBlock(ParamAssignmentGenFactory.class.getName(),
+            mode.getFactoryName())
+        .addSubBl(ParamAssignmentGenFactory.SEED, seed)
+        .addSubBl(ParamAssignmentGenFactory.NUM_OF_TRIALS, getNumOfTrials());
+    if (mode == ExecutionMode.EXHAUSTIVE && getNumOfThreads() > 1) {
+      generatorParameters.addSubBl(
+          ExhaustiveParamAssignmentGenFactory.SHARED_ENUMERATION,
+          new SharedExhaustiveEnumeration(new ExhaustiveSimParameters()));
+    }
+    processorParameters.addSubBl(PPPMProcessorFactory.CALCULATION_ENGINE,
+        configFile.getProperty(Misc.PREF_CALCULATION_ENGINE,
+            Misc.DEFAULT_CALCULATION_ENGINE));
+    processorParameters.addSubBl(PPPMProcessorFactory.BATCH_SIZE,
+        configFile.getProperty(Misc.PREF_BATCH_SIZE, Misc.DEFAULT_BATCH_SIZE));
+    processorParameters.addSubBl(PPPMProcessorFactory.MAX_CALCULATIONS,
+        getTrialsPerThread());
+    processorParameters.addSubBl(PPPMProcessorFactory.SUBPOP_THREADS,
+        configFile.getProperty(Misc.PREF_NUM_SUBPOP_THREADS,
+            Misc.DEFAULT_NUM_SUBPOP_THREADS));
+    String outputPlan = configFile.getProperty(Misc.PREF_OUTPUT_PLAN,
+        Misc.DEFAULT_OUTPUT_PLAN);
+    OutputPlan.parseForRun(outputPlan, -1);
+    processorParameters.addSubBl(PPPMProcessorFactory.OUTPUT_PLAN,
+        outputPlan);
+    boolean antithetic = configFile.getProperty(Misc.PREF_VARIANCE_REDUCTION,
+        Misc.DEFAULT_VARIANCE_REDUCTION) == VarianceReduction.ANTITHETIC;
+    processorParameters.addSubBl(PPPMProcessorFactory.TRIAL_STREAMS,
+        new TrialStreams(seed, antithetic));
+    processorParameters.addSubBl(PPPMProcessorFactory.MERGE_REPEATED_TRIALS,
+        configFile.getProperty(Misc.PREF_MERGE_REPEATED_TRIALS,
+            Misc.DEFAULT_MERGE_REPEATED_TRIALS));
+  }
+
+  /**
+   * Gets the seed of the experiment from its definition. If none is defined, a
+   * new seed is drawn, stored in the definition, and reported, so that the
+   * experiment can be reproduced.
+   * 
+   * @param definition
+   *          the definition of the experiment
+   * @return the seed of the experiment
+   */
+  private static long getExperimentSeed(ExperimentDefinition definition) {
+    long seed = definition.getRandSeed();
+    if (seed == Misc.DEFAULT_RANDOM_SEED) {
+      seed = SimSystem.getRNGGenerator().getNextRNG().nextLong();
+      definition.setRandSeed(seed);
+    }
+    SimSystem.report(Level.INFO, "Random seed of the experiment: " + seed);
+    return seed;
+  }
+
+  /**
+   * Gets the overall number of trials.
+   * 
+   * @return the number of trials
+   */
+  public int getNumOfTrials() {
+    return (Integer) configFile.get(Misc.PREF_NUM_TRIALS);
+  }
+
+  /**
+   * Gets the number of parallel threads.
+   * 
+   * @return the number of threads
+   */
+  public int getNumOfThreads() {
+    return (Integer) configFile.get(Misc.PREF_NUM_PARALLEL_THREADS);
+  }
+
+  /**
+   * Gets the number of trials to be calculated by each thread.
+   * 
+   * @return the number of trials per thread
+   */
+  public int getTrialsPerThread() {
+    return (int) Math.ceil((double) getNumOfTrials() / getNumOfThreads());
+  }
+
+}
@@ -0,0 +1,486 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+import org.jamesii.SimSystem;
+
+import p3j.database.DatabaseFactory;
+import p3j.database.DatabaseType;
+import p3j.database.IP3MDatabase;
+import p3j.experiment.results.ResultExport;
+import p3j.experiment.results.filters.IncludeAllResultFilter;
+import p3j.gui.misc.P3JConfigFile;
+import p3j.misc.Misc;
+import p3j.misc.ReportingProgressObserver;
+import p3j.misc.Serializer;
+import p3j.misc.gui.GUI;
+import p3j.pppm.ProjectionModel;
+import p3j.simulation.calculation.deterministic.SurvivalProbabilityCache;
+
+/**
+ * Command-line entry point to execute a projection without the user interface,
+ * e.g. on a compute server without display. The projection is either read from
+ * the database (by its ID) or loaded from a file into the database. It is then
+ * executed as defined by the configuration file, whose execution and database
+ * settings can be overridden by command-line options. Finally, the results can
+ * be aggregated and exported.
+ * 
+ * This class never opens any window: it switches to head-less mode before doing
+ * anything else, so that errors and progress are only reported.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ */
+public final class HeadlessRunner {
+
+  /** Option to define the configuration file to be read. */
+  static final String OPT_CONFIG = "--config";
+
+  /** Option to select the projection by its ID in the database. */
+  static final String OPT_PROJECTION = "--projection";
+
+  /** Option to load the projection from a file into the database. */
+  static final String OPT_LOAD = "--load";
+
+  /** Option to set the number of trials. */
+  static final String OPT_TRIALS = "--trials";
+
+  /** Option to set the number of parallel threads. */
+  static final String OPT_THREADS = "--threads";
+
+  /** Option to set the execution mode. */
+  static final String OPT_MODE = "--mode";
+
+  /** Option to set the random seed. */
+  static final String OPT_SEED = "--seed";
+
+  /** Option to set the database type. */
+  static final String OPT_DB_TYPE = "--db-type";
+
+  /** Option to set the database URL. */
+  static final String OPT_DB_URL = "--db-url";
+
+  /** Option to set the database user. */
+  static final String OPT_DB_USER = "--db-user";
+
+  /** Option to set the database password. */
+  static final String OPT_DB_PASSWORD = "--db-password";
+
+  /** Option to export the aggregated results to a directory. */
+  static final String OPT_AGGREGATE = "--aggregate";
+
+  /** Option to export all results to a directory. */
+  static final String OPT_EXPORT = "--export";
+
+  /** All supported options (each requires a value). */
+  static final List<String> OPTIONS = Arrays.asList(OPT_CONFIG,
+      OPT_PROJECTION, OPT_LOAD, OPT_TRIALS, OPT_THREADS, OPT_MODE, OPT_SEED,
+      OPT_DB_TYPE, OPT_DB_URL, OPT_DB_USER, OPT_DB_PASSWORD, OPT_AGGREGATE,
+      OPT_EXPORT);
+
+  /** The usage description. */
+  static final String USAGE = "Usage: p3j-batch (--projection <id> | --load <file>) [options]\n"
+      + "  --config <file>      configuration file (default: "
+      + Misc.CONFIG_FILE
+      + ", if it exists)\n"
+      + "  --trials <n>         number of trials\n"
+      + "  --threads <n>        number of parallel threads\n"
+      + "  --mode <mode>        execution mode, one of "
+      + names(ExecutionMode.values())
+      + "\n"
+      + "  --seed <n>           random seed (0: new seed)\n"
+      + "  --db-type <type>     database type, one of "
+      + names(DatabaseType.values())
+      + "\n"
+      + "  --db-url <url>       database URL\n"
+      + "  --db-user <user>     database user\n"
+      + "  --db-password <pwd>  database password\n"
+      + "  --aggregate <dir>    export aggregated results to directory\n"
+      + "  --export <dir>       export all results to directory";
+
+  /** The exit code in case the command line arguments are invalid. */
+  static final int EXIT_USAGE = 2;
+
+  /** The exit code in case the execution failed. */
+  static final int EXIT_FAILURE = 1;
+
+  /** The configuration to be used. */
+  private final P3JConfigFile configFile;
+
+  /** The ID of the projection to be executed (-1 if it shall be loaded). */
+  private final int projectionID;
+
+  /** The file from which the projection shall be loaded (may be null). */
+  private final String projectionFile;
+
+  /** The directory for the aggregated results (may be null). */
+  private final File aggregationDirectory;
+
+  /** The directory for all results (may be null). */
+  private final File exportDirectory;
+
+  /**
+   * Instantiates a new head-less runner.
+   * 
+   * @param configFile
+   *          the configuration to be used
+   * @param projectionID
+   *          the ID of the projection (-1 if it shall be loaded from a file)
+   * @param projectionFile
+   *          the file to load the projection from (null if it is selected by
+   *          ID)
+   * @param aggregationDirectory
+   *          the directory for the aggregated results (null if not required)
+   * @param exportDirectory
+   *          the directory for all results (null if not required)
+   */
+  HeadlessRunner(P3JConfigFile configFile, int projectionID,
+      String projectionFile, File aggregationDirectory, File exportDirectory) {
+    this.configFile = configFile;
+    this.projectionID = projectionID;
+    this.projectionFile = projectionFile;
+    this.aggregationDirectory = aggregationDirectory;
+    this.exportDirectory = exportDirectory;
+  }
+
+  /**
+   * Creates a runner from the given command line arguments.
+   * 
+   * @param argv
+   *          the command line arguments
+   * @return the runner
+   * @throws IllegalArgumentException
+   *           if the arguments are invalid
+   */
+  static HeadlessRunner fromArguments(String[] argv) {
+    Map<String, String> options = parseOptions(argv);
+    if (options.containsKey(OPT_PROJECTION) == options.containsKey(OPT_LOAD)) {
+      throw new IllegalArgumentException("Either " + OPT_PROJECTION + " or "
+          + OPT_LOAD + " has to be given.");
+    }
+    P3JConfigFile config = readConfigFile(options.get(OPT_CONFIG));
+    configureExecution(config, options);
+    configureDatabase(config, options);
+    return new HeadlessRunner(config,
+        options.containsKey(OPT_PROJECTION) ? parseInt(options, OPT_PROJECTION,
+            1) : -1, options.get(OPT_LOAD), toDirectory(options
+            .get(OPT_AGGREGATE)), toDirectory(options.get(OPT_EXPORT)));
+  }
+
+  /**
+   * Parses the options, which are all given as pairs of option name and value.
+   * 
+   * @param argv
+   *          the command line arguments
+   * @return the map from option name to value
+   * @throws IllegalArgumentException
+   *           if an option is unknown, misses a value, or is given twice
+   */
+  static Map<String, String> parseOptions(String[] argv) {
+    Map<String, String> options = new HashMap<>();
+    for (int i = 0; i < argv.length; i += 2) {
+      if (!OPTIONS.contains(argv[i])) {
+        throw new IllegalArgumentException("Unknown option: " + argv[i]);
+      }
+      if (i + 1 == argv.length) {
+        throw new IllegalArgumentException("Missing value for option: "
+            + argv[i]);
+      }
+      if (options.put(argv[i], argv[i + 1]) != null) {
+        throw new IllegalArgumentException("Option given twice: " + argv[i]);
+      }
+    }
+    return options;
+  }
+
+  /**
+   * Reads the configuration file. If no file name is given, the default
+   * configuration file is read if it exists, otherwise the defaults are used.
+   * 
+   * @param fileName
+   *          the file name (may be null)
+   * @return the configuration
+   * @throws IllegalArgumentException
+   *           if the given file cannot be read
+   */
+  static P3JConfigFile readConfigFile(String fileName) {
+    P3JConfigFile config = new P3JConfigFile();
+    config.setDefaults();
+    String configFileName = fileName == null ? "./" + Misc.CONFIG_FILE
+        : fileName;
+    if (fileName == null && !new File(configFileName).exists()) {
+      SimSystem.report(Level.INFO, "Configuration file '" + configFileName
+          + "' not found, using defaults.");
+      return config;
+    }
+    try {
+      config.readFile(configFileName);
+    } catch (FileNotFoundException ex) {
+      throw new IllegalArgumentException("Configuration file '"
+          + configFileName + "' not found.", ex);
+    }
+    return config;
+  }
+
+  /**
+   * Overrides the execution preferences with the given options.
+   * 
+   * @param config
+   *          the configuration
+   * @param options
+   *          the options
+   */
+  static void configureExecution(P3JConfigFile config,
+      Map<String, String> options) {
+    if (options.containsKey(OPT_TRIALS)) {
+      config.put(Misc.PREF_NUM_TRIALS, parseInt(options, OPT_TRIALS, 1));
+    }
+    if (options.containsKey(OPT_THREADS)) {
+      config.put(Misc.PREF_NUM_PARALLEL_THREADS,
+          parseInt(options, OPT_THREADS, 1));
+    }
+    if (options.containsKey(OPT_MODE)) {
+      config.put(Misc.PREF_EXECUTION_MODE,
+          parseExecutionMode(options.get(OPT_MODE)));
+    }
+    if (options.containsKey(OPT_SEED)) {
+      try {
+        config.put(Misc.PREF_RANDOM_SEED, Long.parseLong(options.get(OPT_SEED)));
+      } catch (NumberFormatException ex) {
+        throw new IllegalArgumentException("Invalid value for " + OPT_SEED
+            + ": " + options.get(OPT_SEED), ex);
+      }
+    }
+  }
+
+  /**
+   * Overrides the database preferences with the given options. If a database
+   * type is given, its stored settings (or defaults) are used, unless the
+   * connection data is also given.
+   * 
+   * @param config
+   *          the configuration
+   * @param options
+   *          the options
+   */
+  static void configureDatabase(P3JConfigFile config,
+      Map<String, String> options) {
+    if (options.containsKey(OPT_DB_TYPE)) {
+      DatabaseType dbType;
+      try {
+        dbType = DatabaseType.valueOf(options.get(OPT_DB_TYPE).toUpperCase());
+      } catch (IllegalArgumentException ex) {
+        throw new IllegalArgumentException("Unknown database type: "
+            + options.get(OPT_DB_TYPE), ex);
+      }
+      config.put(Misc.PREF_DB_TYPE, dbType);
+      dbType.writePreferences(config, dbType.readPreferences(config));
+    }
+    if (options.containsKey(OPT_DB_URL)) {
+      config.put(Misc.PREF_DB_URL, options.get(OPT_DB_URL));
+    }
+    if (options.containsKey(OPT_DB_USER)) {
+      config.put(Misc.PREF_DB_USER, options.get(OPT_DB_USER));
+    }
+    if (options.containsKey(OPT_DB_PASSWORD)) {
+      config.put(Misc.PREF_DB_PWD, options.get(OPT_DB_PASSWORD));
+    }
+  }
+
+  /**
+   * Parses the execution mode, given either by name or by description.
+   * 
+   * @param mode
+   *          the mode
+   * @return the execution mode
+   * @throws IllegalArgumentException
+   *           if the mode is unknown
+   */
+  static ExecutionMode parseExecutionMode(String mode) {
+    ExecutionMode executionMode = ExecutionMode.forString(mode);
+    if (executionMode != null) {
+      return executionMode;
+    }
+    try {
+      return ExecutionMode.valueOf(mode.toUpperCase().replace('-', '_'));
+    } catch (IllegalArgumentException ex) {
+      throw new IllegalArgumentException("Unknown execution mode: " + mode, ex);
+    }
+  }
+
+  /**
+   * Parses an integer option.
+   * 
+   * @param options
+   *          the options
+   * @param option
+   *          the option to be parsed
+   * @param minimum
+   *          the minimal admissible value
+   * @return the value
+   * @throws IllegalArgumentException
+   *           if the value is not an integer or too small
+   */
+  static int parseInt(Map<String, String> options, String option, int minimum) {
+    int value;
+    try {
+      value = Integer.parseInt(options.get(option));
+    } catch (NumberFormatException ex) {
+      throw new IllegalArgumentException("Invalid value for " + option + ": "
+          + options.get(option), ex);
+    }
+    if (value < minimum) {
+      throw new IllegalArgumentException("Value for " + option
+          + " has to be at least " + minimum + ", but is " + value);
+    }
+    return value;
+  }
+
+  /**
+   * Lists the names of the given enumeration constants.
+   * 
+   * @param values
+   *          the enumeration constants
+   * @return the list of their names
+   */
+  private static String names(Enum<?>[] values) {
+    List<String> names = new ArrayList<>();
+    for (Enum<?> value : values) {
+      names.add(value.name());
+    }
+    return names.toString();
+  }
+
+  /**
+   * Converts a directory name to a file.
+   * 
+   * @param directoryName
+   *          the directory name (may be null)
+   * @return the file, null if no directory name is given
+   */
+  private static File toDirectory(String directoryName) {
+    return directoryName == null ? null : new File(directoryName);
+  }
+
+  /**
+   * Executes the projection and exports its results.
+   * 
+   * @throws Exception
+   *           if the projection cannot be loaded, executed, or exported
+   */
+  public void run() throws Exception {
+    DatabaseFactory.setConfigFile(configFile);
+    DatabaseFactory.setDbConnData(configFile.getDBConnectionData());
+    ProjectionModel projection = retrieveProjection(DatabaseFactory
+        .getDatabaseSingleton());
+
+    ExperimentConfigurator configurator = new ExperimentConfigurator(
+        configFile);
+    SimSystem.report(Level.INFO, "Executing projection '"
+        + projection.getName() + "' (ID " + projection.getID() + "), #Trials:"
+        + configurator.getNumOfTrials() + ", #Threads:"
+        + configurator.getNumOfThreads() + ", Mode:"
+        + configFile.get(Misc.PREF_EXECUTION_MODE));
+    SurvivalProbabilityCache.clear();
+    MortalityBaselineCache.clear();
+    configurator.createExperiment(DatabaseFactory.getDbConnData(),
+        projection.getID()).execute();
+    SimSystem.report(Level.INFO, "Execution finished.");
+
+    if (aggregationDirectory != null) {
+      new ResultExport(projection, aggregationDirectory,
+          new IncludeAllResultFilter())
+          .exportAggregatedResults(new ReportingProgressObserver(
+              "Exporting aggregated results", 0));
+    }
+    if (exportDirectory != null) {
+      new ResultExport(projection, exportDirectory,
+          new IncludeAllResultFilter()).exportAllResults();
+    }
+  }
+
+  /**
+   * Retrieves the projection to be executed, either from the database or by
+   * loading it from a file.
+   * 
+   * @param database
+   *          the database
+   * @return the projection
+   * @throws Exception
+   *           if the projection could not be found or loaded
+   */
+  private ProjectionModel retrieveProjection(IP3MDatabase database)
+      throws Exception {
+    if (projectionFile != null) {
+      ProjectionModel projection = new Serializer().loadProjection(
+          projectionFile, database);
+      if (projection.getID() <= 0) {
+        throw new IllegalArgumentException(
+            "Projection could not be loaded from '" + projectionFile + "'.");
+      }
+      SimSystem.report(Level.INFO, "Loaded projection '" + projectionFile
+          + "' into the database, its ID is " + projection.getID());
+      return projection;
+    }
+    ProjectionModel projection = database.getProjectionByID(projectionID);
+    if (projection == null) {
+      throw new IllegalArgumentException("Projection with ID " + projectionID
+          + " was not found.");
+    }
+    return projection;
+  }
+
+  /**
+   * Main function.
+   * 
+   * @param argv
+   *          command line arguments, see {@link HeadlessRunner#USAGE}
+   */
+  public static void main(String[] argv) {
+    System.setProperty("java.awt.headless", "true");
+    GUI.setHeadless(true);
+
+    HeadlessRunner runner;
+    try {
+      runner = fromArguments(argv);
+    } catch (IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      System.err.println(USAGE);
+      System.exit(EXIT_USAGE);
+      return;
+    }
+
+    int exitCode = 0;
+    try {
+      runner.run();
+    } catch (Exception ex) {
+      SimSystem.report(Level.SEVERE, "Head-less execution failed.", ex);
+      exitCode = EXIT_FAILURE;
+    } finally {
+      DatabaseFactory.reset();
+    }
+    System.exit(exitCode);
+  }
+}
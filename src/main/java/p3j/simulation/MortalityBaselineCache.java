@@ -0,0 +1,177 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import p3j.misc.math.Matrix2D;
+import p3j.pppm.parameters.ParameterAssignment;
+
+/**
+ * Bounded, thread-safe cache for the logarithmic mortality probabilities
+ * (ln(Q_x)) of mortality assignments, which are the baseline for the
+ * stochastic deviation of mortality (see {@link DeviationCalculator}). As this
+ * transformation only depends on the assignment, it does not need to be
+ * repeated in every trial.
+ * 
+ * Only saved assignments (with a positive ID) are cached. As assignments may be
+ * edited, also in place, a cached baseline is only returned if the current
+ * values of the assignment's matrix equal those it has been calculated from;
+ * comparing the values is much cheaper than the logarithms it saves.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class MortalityBaselineCache {
+
+  /** The maximal number of baselines to be cached. */
+  public static final int MAX_ENTRIES = 64;
+
+  /** The cached baselines, by assignment ID and in access order. */
+  private static final Map<Integer, Baseline> BASELINES = new LinkedHashMap<Integer, Baseline>(
+      MAX_ENTRIES, 0.75f, true) {
+    private static final long serialVersionUID = 2291412853745081318L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Integer, Baseline> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  /**
+   * Mortality baseline cache should not be instantiated.
+   */
+  private MortalityBaselineCache() {
+  }
+
+  /**
+   * Gets the logarithmic mortality probabilities of the given mortality
+   * assignment. They are calculated and cached if necessary.
+   * 
+   * @param assignment
+   *          the mortality assignment
+   * @return the ln(Q_x) values, in row-major order (year-by-age, the last age
+   *         is always zero); must not be modified
+   */
+  static double[] getLnQx(ParameterAssignment assignment) {
+    Matrix2D lx = assignment.getMatrixValue();
+    if (assignment.getID() <= 0) {
+      return transform(lx);
+    }
+
+    Baseline baseline;
+    synchronized (BASELINES) {
+      baseline = BASELINES.get(assignment.getID());
+    }
+    if (baseline != null && baseline.isCalculatedFrom(lx)) {
+      return baseline.lnQx;
+    }
+
+    baseline = new Baseline(lx, transform(lx));
+    synchronized (BASELINES) {
+      BASELINES.put(assignment.getID(), baseline);
+    }
+    return baseline.lnQx;
+  }
+
+  /**
+   * Transforms mortality matrix from amounts of surviving people (L_x) to
+   * natural logarithms of mortality probabilities.
+   * 
+   * @param lx
+   *          the original L_x values
+   * @return the transformed ln(Q_x), in row-major order
+   */
+  static double[] transform(Matrix2D lx) {
+    int years = lx.rows();
+    int ages = lx.columns();
+    double[] values = lx.getRowMajorElements();
+    double[] lnQx = new double[years * ages];
+    for (int year = 0; year < years; year++) {
+      int offset = year * ages;
+      for (int age = 0; age < ages - 1; age++) {
+        double survProb = values[offset + age + 1] / values[offset + age];
+        lnQx[offset + age] = Math.log(1 - survProb);
+      }
+    }
+    return lnQx;
+  }
+
+  /**
+   * Removes all cached baselines.
+   */
+  public static void clear() {
+    synchronized (BASELINES) {
+      BASELINES.clear();
+    }
+  }
+
+  /**
+   * Gets the number of cached baselines.
+   * 
+   * @return the number of cached baselines
+   */
+  public static int size() {
+    synchronized (BASELINES) {
+      return BASELINES.size();
+    }
+  }
+
+  /**
+   * The ln(Q_x) values of a mortality matrix.
+   */
+  private static final class Baseline {
+
+    /** The number of columns of the L_x matrix. */
+    private final int columns;
+
+    /** A copy of the L_x values the baseline was calculated from. */
+    private final double[] lx;
+
+    /** The ln(Q_x) values. */
+    private final double[] lnQx;
+
+    /**
+     * Instantiates a new baseline.
+     * 
+     * @param lxMatrix
+     *          the L_x matrix
+     * @param lnQxValues
+     *          the ln(Q_x) values calculated from it
+     */
+    Baseline(Matrix2D lxMatrix, double[] lnQxValues) {
+      columns = lxMatrix.columns();
+      lx = lxMatrix.getRowMajorElements().clone();
+      lnQx = lnQxValues;
+    }
+
+    /**
+     * Checks whether the baseline has been calculated from the current values
+     * of the given matrix.
+     * 
+     * @param lxMatrix
+     *          the L_x matrix
+     * @return true, if the values are the same
+     */
+    boolean isCalculatedFrom(Matrix2D lxMatrix) {
+      return lxMatrix.columns() == columns
+          && Arrays.equals(lx, lxMatrix.getRowMajorElements());
+    }
+  }
+}
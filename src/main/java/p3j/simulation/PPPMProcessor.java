@@ -25,7 +25,6 @@ import org.jamesii.core.util.misc.Pair;
 import p3j.database.DatabaseFactory;
 import p3j.database.IP3MDatabase;
 import p3j.experiment.results.ExecutionSummary;
-import p3j.gui.P3J;
 import p3j.misc.errors.GeneratorError;
 import p3j.pppm.IProjectionModel;
 import p3j.simulation.assignments.plugintype.IParamAssignmentGenerator;
@@ -69,6 +68,24 @@ public class PPPMProcessor extends RunnableProcessor<Double> {
   /** The database, to store results. */
   private transient IP3MDatabase dataBase;
 
+  /** The settings of the execution. */
+  private final transient ExecutionSettings settings;
+
+  /** The cache for sub-population results that are shared between trials. */
+  private final transient SubPopulationResultCache resultCache = new SubPopulationResultCache();
+
+  /**
+   * The registry to merge repeated deterministic trials, null if all trials
+   * shall be calculated.
+   */
+  private final transient RepeatedTrialRegistry repeatedTrials;
+
+  /** The execution of single trials, recycled by subsequent trials. */
+  private transient SingleExecution execution;
+
+  /** The execution of batches of trials, recycled by subsequent batches. */
+  private transient BatchExecution batchExecution;
+
   /**
    * Default constructor.
    * 
@@ -78,12 +95,30 @@ public class PPPMProcessor extends RunnableProcessor<Double> {
    *          the assignment generator to be used
    */
   public PPPMProcessor(IProjectionModel mod, IParamAssignmentGenerator gen) {
+    this(mod, gen, ExecutionSettings.DEFAULT);
+  }
+
+  /**
+   * Constructor that allows to configure the execution, e.g. to choose the
+   * calculation engine or to calculate several trials together.
+   * 
+   * @param mod
+   *          the model to be simulated
+   * @param gen
+   *          the assignment generator to be used
+   * @param executionSettings
+   *          the settings of the execution
+   */
+  public PPPMProcessor(IProjectionModel mod, IParamAssignmentGenerator gen,
+      ExecutionSettings executionSettings) {
     super(mod);
     model = mod;
     generator = gen;
+    settings = executionSettings;
     generator.init(model);
-    dataBase = DatabaseFactory
-        .createDatabase(P3J.getInstance().getConfigFile());
+    dataBase = DatabaseFactory.createDatabase();
+    repeatedTrials = settings.isMergeRepeatedTrials()
+        ? new RepeatedTrialRegistry(dataBase) : null;
   }
 
   @Override
@@ -92,7 +127,8 @@ public class PPPMProcessor extends RunnableProcessor<Double> {
   }
 
   /**
-   * Calculates the outcome of *one* deterministic calculation.
+   * Calculates the outcome of *one* deterministic calculation, or of a batch
+   * of them if more than one trial shall be calculated together.
    */
   @Override
   protected void nextStep() {
@@ -104,17 +140,72 @@ public class PPPMProcessor extends RunnableProcessor<Double> {
       return;
     }
 
+    int numOfTrials = (int) Math.min(
+        Math.min(settings.getBatchSize(), generator.assignmentsLeft()),
+        Math.max(1, (long) settings.getMaxCalculations() - calcCount));
+    if (numOfTrials > 1) {
+      nextBatch(numOfTrials);
+      return;
+    }
+
     // Select assignment, set everything up
-    SingleExecution execution = new SingleExecution(model, dataBase);
+    if (execution == null) {
+      execution = new SingleExecution(model, dataBase, settings, resultCache,
+          new ParameterSlots(model), repeatedTrials);
+    }
     Pair<ExecutionSummary, List<GeneratorError>> runResults = execution
         .execute(generator);
+    finishTrial(runResults);
+  }
+
+  /**
+   * Calculates the outcome of several deterministic calculations at once.
+   * 
+   * @param numOfTrials
+   *          the number of trials to be calculated
+   */
+  private void nextBatch(int numOfTrials) {
+    if (batchExecution == null) {
+      batchExecution = new BatchExecution(model, dataBase, settings,
+          resultCache, repeatedTrials);
+    }
+    for (Pair<ExecutionSummary, List<GeneratorError>> runResults : batchExecution
+        .execute(generator, numOfTrials)) {
+      finishTrial(runResults);
+    }
+  }
 
-    for (GeneratorError e : runResults.getSecondValue()) {
-      SimSystem.report(Level.WARNING, e.getErrorMessage());
+  /**
+   * Reports the errors of a single trial, increases the calculation count, and
+   * notifies the observers. A failed trial (for which the execution has
+   * already reported the error) is counted, but the observers are not
+   * notified.
+   * 
+   * @param runResults
+   *          the execution summary and error log of the trial, null if the
+   *          trial failed
+   */
+  private void finishTrial(
+      Pair<ExecutionSummary, List<GeneratorError>> runResults) {
+    TrialStreams trialStreams = settings.getTrialStreams();
+    if (runResults != null) {
+      for (GeneratorError e : runResults.getSecondValue()) {
+        SimSystem.report(Level.WARNING, e.getErrorMessage());
+      }
+      if (trialStreams != null && !runResults.getFirstValue().isRepetition()) {
+        trialStreams.recordTrial(runResults.getFirstValue());
+      }
     }
 
     calcCount++;
-    changed(new Pair<PPPMProcessor, ExecutionSummary>(this,
-        runResults.getFirstValue()));
+    AntitheticPairStatistics pairStatistics = trialStreams == null ? null
+        : trialStreams.getPairStatistics();
+    if (calcCount == settings.getMaxCalculations() && pairStatistics != null) {
+      SimSystem.report(Level.INFO, pairStatistics.getSummary());
+    }
+    if (runResults != null) {
+      changed(new Pair<PPPMProcessor, ExecutionSummary>(this,
+          runResults.getFirstValue()));
+    }
   }
 }
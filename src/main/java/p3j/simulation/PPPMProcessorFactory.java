@@ -28,6 +28,8 @@ import org.jamesii.core.processor.IProcessor;
 import org.jamesii.core.processor.ProcessorInformation;
 import org.jamesii.core.processor.plugintype.ProcessorFactory;
 
+import p3j.experiment.results.OutputPlan;
+import p3j.misc.Misc;
 import p3j.pppm.IProjectionModel;
 import p3j.pppm.ProjectionModel;
 import p3j.simulation.assignments.plugintype.AbstractParamAssignmentGenFactory;
@@ -45,6 +47,51 @@ public class PPPMProcessorFactory extends ProcessorFactory {
 	/** Serialization ID. */
 	private static final long serialVersionUID = -7552093170636960651L;
 
+	/**
+	 * The name of the parameter that defines the {@link CalculationEngine} to be
+	 * used. Type: {@link CalculationEngine}.
+	 */
+	public static final String CALCULATION_ENGINE = "calculationEngine";
+
+	/**
+	 * The name of the parameter that defines how many trials are calculated
+	 * together. Type: {@link Integer}.
+	 */
+	public static final String BATCH_SIZE = "batchSize";
+
+	/**
+	 * The name of the parameter that defines how many trials shall be
+	 * calculated by the processor at most, so that batches do not exceed the
+	 * stop time. Type: {@link Integer}.
+	 */
+	public static final String MAX_CALCULATIONS = "maxCalculations";
+
+	/**
+	 * The name of the parameter that defines how many threads are used to
+	 * calculate the sub-populations of a single trial. Type: {@link Integer}.
+	 */
+	public static final String SUBPOP_THREADS = "subPopThreads";
+
+	/**
+	 * The name of the parameter that defines which results shall be stored, see
+	 * {@link p3j.experiment.results.OutputPlan}. Type: {@link String}.
+	 */
+	public static final String OUTPUT_PLAN = "outputPlan";
+
+	/**
+	 * The name of the parameter that holds the random number streams of the
+	 * trials, shared by all processors of an experiment. If not set, the trials
+	 * are not reproducible. Type: {@link TrialStreams}.
+	 */
+	public static final String TRIAL_STREAMS = "trialStreams";
+
+	/**
+	 * The name of the parameter that defines whether trials that repeat the
+	 * deterministic assignments of an earlier trial shall only be counted, see
+	 * {@link RepeatedTrialRegistry}. Type: {@link Boolean}.
+	 */
+	public static final String MERGE_REPEATED_TRIALS = "mergeRepeatedTrials";
+
 	@Override
 	public IProcessor create(IModel model, IComputationTask computationTask,
 	    Partition partition, ParameterBlock params) {
@@ -58,7 +105,8 @@ public class PPPMProcessorFactory extends ProcessorFactory {
 		SimSystem.report(Level.INFO,
 		    "Using parameter assignment generator:" + pagf.getClass());
 		PPPMProcessor processor = new PPPMProcessor((ProjectionModel) model,
-		    pagf.create(pagfp));
+		    pagf.create(pagfp), createSettings(params,
+		        ((ProjectionModel) model).getMaximumAge()));
 		processor.setComputationTask(computationTask);
 		ProcessorInformation pi = new ProcessorInformation();
 		pi.setLocal(processor);
@@ -66,6 +114,37 @@ public class PPPMProcessorFactory extends ProcessorFactory {
 		return processor;
 	}
 
+	/**
+	 * Creates the execution settings of a processor.
+	 * 
+	 * @param params
+	 *          the parameters of the processor
+	 * @param maximumAge
+	 *          the maximum age of the projection, to check the output plan
+	 * @return the execution settings
+	 * @throws IllegalArgumentException
+	 *           if the output plan conflicts with the reports, see
+	 *           {@link OutputPlan#parseForRun(String, int)}
+	 */
+	static ExecutionSettings createSettings(ParameterBlock params,
+	    int maximumAge) {
+		CalculationEngine engine = params.getSubBlockValue(CALCULATION_ENGINE,
+		    Misc.DEFAULT_CALCULATION_ENGINE);
+		int batchSize = params.getSubBlockValue(BATCH_SIZE, Misc.DEFAULT_BATCH_SIZE);
+		int maxCalculations = params.getSubBlockValue(MAX_CALCULATIONS,
+		    Integer.MAX_VALUE);
+		int subPopThreads = params.getSubBlockValue(SUBPOP_THREADS,
+		    Misc.DEFAULT_NUM_SUBPOP_THREADS);
+		OutputPlan outputPlan = OutputPlan.parseForRun(
+		    params.getSubBlockValue(OUTPUT_PLAN, Misc.DEFAULT_OUTPUT_PLAN),
+		    maximumAge);
+		TrialStreams trialStreams = params.getSubBlockValue(TRIAL_STREAMS);
+		boolean mergeRepeatedTrials = params.getSubBlockValue(
+		    MERGE_REPEATED_TRIALS, Misc.DEFAULT_MERGE_REPEATED_TRIALS);
+		return new ExecutionSettings(engine, batchSize, maxCalculations,
+		    subPopThreads, outputPlan, trialStreams, mergeRepeatedTrials);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import p3j.pppm.IProjectionModel;
+import p3j.pppm.SubPopulation;
+import p3j.pppm.parameters.ParameterInstance;
+import p3j.pppm.parameters.ParameterInstanceComparator;
+import p3j.pppm.parameters.ParameterType;
+
+/**
+ * Resolves the parameters of each sub-population and generation to the
+ * parameter instances of a projection, once before the first trial. Each
+ * parameter instance gets a dense ordinal (in the order of their comparison
+ * indices), so that the assignments of a trial can be stored in an array. The
+ * slots of each sub-population and generation are then looked up by
+ * {@link Slot}, instead of by the labels of the parameters.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class ParameterSlots {
+
+  /** The ordinal of a slot without parameter instance. */
+  public static final int NO_INSTANCE = -1;
+
+  /**
+   * The parameters needed to set up the calculation of a sub-population.
+   */
+  public enum Slot {
+
+    /** The male migrants. */
+    MIGRATION_MALE(ParameterType.MIGRATION, Boolean.TRUE),
+
+    /** The female migrants. */
+    MIGRATION_FEMALE(ParameterType.MIGRATION, Boolean.FALSE),
+
+    /** The male jump-off population. */
+    JUMP_OFF_MALE(ParameterType.JUMP_OFF, Boolean.TRUE),
+
+    /** The female jump-off population. */
+    JUMP_OFF_FEMALE(ParameterType.JUMP_OFF, Boolean.FALSE),
+
+    /** The male mortality. */
+    MORTALITY_MALE(ParameterType.MORTALITY, Boolean.TRUE),
+
+    /** The female mortality. */
+    MORTALITY_FEMALE(ParameterType.MORTALITY, Boolean.FALSE),
+
+    /** The proportion of male infant deaths in the first 6 months. */
+    INFANT_DEATHS_MALE(ParameterType.PROP_INF_DEATHS_FIRST_6M, Boolean.TRUE),
+
+    /** The proportion of female infant deaths in the first 6 months. */
+    INFANT_DEATHS_FEMALE(ParameterType.PROP_INF_DEATHS_FIRST_6M,
+        Boolean.FALSE),
+
+    /** The survival probability of the open-end age class, males. */
+    SURV_PROB_OPEN_END_MALE(ParameterType.SURV_PROB_OPEN_END, Boolean.TRUE),
+
+    /** The survival probability of the open-end age class, females. */
+    SURV_PROB_OPEN_END_FEMALE(ParameterType.SURV_PROB_OPEN_END, Boolean.FALSE),
+
+    /** The proportion of male live births. */
+    PROP_MALE_LIVE_BIRTHS(ParameterType.PROP_MALE_LIVE_BIRTHS, null),
+
+    /** The fertility. */
+    FERTILITY(ParameterType.FERTILITY, null);
+
+    /** The type of the parameter. */
+    private final ParameterType type;
+
+    /** Flag whether the parameter refers to males, null if to both sexes. */
+    private final Boolean male;
+
+    /**
+     * Instantiates a new slot.
+     * 
+     * @param parameterType
+     *          the parameter type
+     * @param maleParameter
+     *          flag whether the parameter refers to males (null if to both
+     *          sexes)
+     */
+    Slot(ParameterType parameterType, Boolean maleParameter) {
+      type = parameterType;
+      male = maleParameter;
+    }
+
+    /**
+     * Gets the label of the parameter for the given sub-population.
+     * 
+     * @param subPopulation
+     *          the sub-population
+     * @return the label
+     */
+    public String getLabelFor(SubPopulation subPopulation) {
+      if (male == null) {
+        return type.getLabelFor(subPopulation);
+      }
+      return male ? type.getMaleLabelFor(subPopulation) : type
+          .getFemaleLabelFor(subPopulation);
+    }
+  }
+
+  /** The parameter instances, indexed by their ordinals. */
+  private final ParameterInstance[] instances;
+
+  /** The ordinals of the parameter instances. */
+  private final Map<ParameterInstance, Integer> ordinals = new HashMap<>();
+
+  /**
+   * The ordinals of the parameter instances of each sub-population, indexed
+   * by generation and {@link Slot#ordinal()}.
+   */
+  private final Map<SubPopulation, int[][]> slots = new HashMap<>();
+
+  /**
+   * Resolves the slots of all sub-populations of a projection. The parameters
+   * of jump-off populations and the migrants of in-flow populations are
+   * generation-independent, all other parameters of in-flow populations are
+   * resolved for each generation.
+   * 
+   * @param projection
+   *          the projection
+   */
+  public ParameterSlots(IProjectionModel projection) {
+    List<ParameterInstance> instanceList = new ArrayList<>(projection
+        .getInstanceSetTypes().keySet());
+    Collections.sort(instanceList, new ParameterInstanceComparator());
+    instances = instanceList.toArray(new ParameterInstance[instanceList
+        .size()]);
+
+    Map<String, Integer> genIndepOrdinals = new HashMap<>();
+    List<Map<String, Integer>> genDepOrdinals = new ArrayList<>();
+    for (int i = 0; i < projection.getGenerations(); i++) {
+      genDepOrdinals.add(new HashMap<String, Integer>());
+    }
+    for (int i = 0; i < instances.length; i++) {
+      ParameterInstance instance = instances[i];
+      ordinals.put(instance, i);
+      if (!instance.getParameter().isGenerationDependent()) {
+        genIndepOrdinals.put(instance.getParameter().getName(), i);
+      } else if (instance.getGeneration() < genDepOrdinals.size()) {
+        genDepOrdinals.get(instance.getGeneration()).put(
+            instance.getParameter().getName(), i);
+      }
+    }
+
+    for (SubPopulation jumpOffPopulation : projection.getSubPopulationModel()
+        .getJumpOffPopulations()) {
+      int[][] subPopSlots = new int[1][Slot.values().length];
+      for (Slot slot : Slot.values()) {
+        subPopSlots[0][slot.ordinal()] = getOrdinal(genIndepOrdinals,
+            slot.getLabelFor(jumpOffPopulation));
+      }
+      slots.put(jumpOffPopulation, subPopSlots);
+    }
+
+    for (SubPopulation inFlowPopulation : projection.getSubPopulationModel()
+        .getInFlowPopulations()) {
+      int[][] subPopSlots = new int[projection.getGenerations()][Slot
+          .values().length];
+      for (int generation = 0; generation < subPopSlots.length; generation++) {
+        for (Slot slot : Slot.values()) {
+          boolean genIndep = slot == Slot.MIGRATION_MALE
+              || slot == Slot.MIGRATION_FEMALE;
+          subPopSlots[generation][slot.ordinal()] = getOrdinal(
+              genIndep ? genIndepOrdinals : genDepOrdinals.get(generation),
+              slot.getLabelFor(inFlowPopulation));
+        }
+      }
+      slots.put(inFlowPopulation, subPopSlots);
+    }
+  }
+
+  /**
+   * Gets the ordinal of the parameter instance with the given label.
+   * 
+   * @param labelOrdinals
+   *          the ordinals of the parameter instances, by label
+   * @param label
+   *          the label
+   * @return the ordinal, {@link ParameterSlots#NO_INSTANCE} if there is none
+   */
+  private static int getOrdinal(Map<String, Integer> labelOrdinals,
+      String label) {
+    Integer ordinal = labelOrdinals.get(label);
+    return ordinal == null ? NO_INSTANCE : ordinal;
+  }
+
+  /**
+   * Gets the ordinal of a parameter instance.
+   * 
+   * @param instance
+   *          the parameter instance
+   * @return the ordinal, {@link ParameterSlots#NO_INSTANCE} if the instance
+   *         does not belong to the projection
+   */
+  public int getOrdinal(ParameterInstance instance) {
+    Integer ordinal = ordinals.get(instance);
+    return ordinal == null ? NO_INSTANCE : ordinal;
+  }
+
+  /**
+   * Gets the slots of a sub-population. The ordinal of the parameter instance
+   * for the given slot and generation is stored at
+   * {@code [generation][slot.ordinal()]}, jump-off populations only have a
+   * single generation. The returned array must not be changed.
+   * 
+   * @param subPopulation
+   *          the sub-population
+   * @return the slots
+   */
+  public int[][] getSlots(SubPopulation subPopulation) {
+    return slots.get(subPopulation);
+  }
+
+  /**
+   * Gets the parameter instance with the given ordinal.
+   * 
+   * @param ordinal
+   *          the ordinal
+   * @return the parameter instance
+   */
+  public ParameterInstance getInstance(int ordinal) {
+    return instances[ordinal];
+  }
+
+  /**
+   * Gets the number of parameter instances.
+   * 
+   * @return the number of parameter instances
+   */
+  public int getNumOfInstances() {
+    return instances.length;
+  }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import p3j.database.IP3MDatabase;
+import p3j.experiment.results.ResultsOfTrial;
+import p3j.pppm.parameters.ParameterAssignment;
+
+/**
+ * Registry of the trials whose assignments are all deterministic, i.e. used
+ * without deviation. A trial with the same assignments as an earlier one
+ * yields the same results, so it is not calculated again: the multiplicity of
+ * the stored results of the earlier trial is increased instead (see
+ * {@link ResultsOfTrial#getMultiplicity()}). This is common in Monte-Carlo
+ * executions of projections with few stochastic parameters.
+ * 
+ * The trials are identified by a {@link Signature}, which contains the IDs of
+ * their assignments. Only the most recently used signatures are kept; if a
+ * forgotten signature occurs again, the trial is calculated and stored again,
+ * which is still correct. Each {@link PPPMProcessor} has its own registry, as
+ * it also has its own database connection.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class RepeatedTrialRegistry {
+
+  /** The maximal number of signatures to be kept. */
+  public static final int MAX_ENTRIES = 1 << 14;
+
+  /** The database in which the trial results are stored. */
+  private final IP3MDatabase database;
+
+  /** The trials per signature, in access order. */
+  private final Map<Signature, Trial> trials = new LinkedHashMap<Signature, Trial>(
+      16, 0.75f, true) {
+    private static final long serialVersionUID = -2403596587423935418L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Signature, Trial> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  /**
+   * Instantiates a new registry.
+   * 
+   * @param dataBase
+   *          the database in which the trial results are stored
+   */
+  public RepeatedTrialRegistry(IP3MDatabase dataBase) {
+    database = dataBase;
+  }
+
+  /**
+   * Creates the signature of a trial.
+   * 
+   * @param assignments
+   *          the assignments of the trial, indexed by the ordinals of their
+   *          parameter instances (see {@link ParameterSlots}), may contain null
+   *          for unused instances
+   * @return the signature, null if any of the assignments deviates or has not
+   *         been stored yet (and hence has no unique ID)
+   */
+  public static Signature createSignature(ParameterAssignment[] assignments) {
+    int[] assignmentIDs = new int[assignments.length];
+    for (int i = 0; i < assignmentIDs.length; i++) {
+      ParameterAssignment assignment = assignments[i];
+      if (assignment == null) {
+        continue;
+      }
+      if (Double.compare(assignment.getDeviation(), 0) != 0
+          || assignment.getID() <= 0) {
+        return null;
+      }
+      assignmentIDs[i] = assignment.getID();
+    }
+    return new Signature(assignmentIDs);
+  }
+
+  /**
+   * Counts a trial. If it repeats an earlier trial, the multiplicity of the
+   * earlier trial is increased, also in the database if its results have
+   * already been stored.
+   * 
+   * @param signature
+   *          the signature of the trial, may be null
+   * @return true, if the trial repeats an earlier one and does not need to be
+   *         calculated (always false if the signature is null)
+   */
+  public synchronized boolean countTrial(Signature signature) {
+    if (signature == null) {
+      return false;
+    }
+    Trial trial = trials.get(signature);
+    if (trial == null) {
+      trials.put(signature, new Trial());
+      return false;
+    }
+    trial.multiplicity++;
+    if (trial.id >= 0) {
+      database.updateTrialMultiplicity(trial.id, trial.multiplicity);
+    }
+    return true;
+  }
+
+  /**
+   * Discards a trial that has been counted as the first one with its
+   * signature, but whose results could not be calculated or stored. The next
+   * trial with the same signature is then calculated again, instead of being
+   * counted as a repetition of results that do not exist. Repetitions that
+   * have been counted in the meantime are discarded as well, so they have to
+   * be treated as failed by the caller. Does nothing if the results of the
+   * trial with this signature have already been stored.
+   * 
+   * @param signature
+   *          the signature of the trial, may be null
+   */
+  public synchronized void discard(Signature signature) {
+    if (signature == null) {
+      return;
+    }
+    Trial trial = trials.get(signature);
+    if (trial != null && trial.id < 0) {
+      trials.remove(signature);
+    }
+  }
+
+  /**
+   * Stores the results of a trial, with the multiplicity it has been counted
+   * so far.
+   * 
+   * @param signature
+   *          the signature of the trial, may be null
+   * @param results
+   *          the results of the trial
+   */
+  public synchronized void store(Signature signature, ResultsOfTrial results) {
+    Trial trial = signature == null ? null : trials.get(signature);
+    if (trial != null) {
+      results.setMultiplicity(trial.multiplicity);
+    }
+    database.saveTrialResults(results);
+    if (trial != null) {
+      trial.id = results.getID();
+    }
+  }
+
+  /**
+   * Identifies a trial by the IDs of its assignments.
+   */
+  public static final class Signature {
+
+    /** The IDs of the assignments, 0 for unused instances. */
+    private final int[] assignmentIDs;
+
+    /** The hash code. */
+    private final int hash;
+
+    /**
+     * Instantiates a new signature.
+     * 
+     * @param ids
+     *          the IDs of the assignments
+     */
+    Signature(int[] ids) {
+      assignmentIDs = ids;
+      hash = Arrays.hashCode(assignmentIDs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Signature)) {
+        return false;
+      }
+      Signature other = (Signature) o;
+      return hash == other.hash
+          && Arrays.equals(assignmentIDs, other.assignmentIDs);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * The state of a registered trial.
+   */
+  private static final class Trial {
+
+    /** The ID of the stored results, -1 if they are not stored yet. */
+    private int id = -1;
+
+    /** The number of trials with the same signature. */
+    private int multiplicity = 1;
+  }
+}
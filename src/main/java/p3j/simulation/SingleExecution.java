@@ -16,30 +16,37 @@
 package p3j.simulation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.jamesii.SimSystem;
 import org.jamesii.core.math.random.generators.IRandom;
 import org.jamesii.core.util.misc.Pair;
 
 import p3j.database.IP3MDatabase;
+import p3j.experiment.results.BasicResults;
 import p3j.experiment.results.ExecutionSummary;
 import p3j.experiment.results.ResultsOfTrial;
 import p3j.misc.errors.GeneratorError;
 import p3j.misc.gui.GUI;
 import p3j.misc.math.Matrix2D;
+import p3j.misc.math.ZigguratGaussian;
 import p3j.pppm.IProjectionModel;
 import p3j.pppm.SubPopulation;
 import p3j.pppm.parameters.ParameterAssignment;
 import p3j.pppm.parameters.ParameterInstance;
-import p3j.pppm.parameters.ParameterType;
+import p3j.simulation.ParameterSlots.Slot;
+import p3j.simulation.assignments.plugintype.IDeviationErrorGenerator;
+import p3j.simulation.assignments.plugintype.IIndexedParamAssignmentGenerator;
 import p3j.simulation.assignments.plugintype.IParamAssignmentGenerator;
-import p3j.simulation.calculation.deterministic.InFlowDescendantPopulation;
-import p3j.simulation.calculation.deterministic.InFlowPopulation;
-import p3j.simulation.calculation.deterministic.JumpOffPopulation;
+import p3j.simulation.calculation.deterministic.AbstractPopulation;
+import p3j.simulation.calculation.deterministic.SurvivalProbabilityCache;
 import p3j.simulation.calculation.deterministic.parameters.BasicParameters;
 import p3j.simulation.calculation.deterministic.parameters.InFlowDescendantParameters;
 import p3j.simulation.calculation.deterministic.parameters.InFlowParameters;
@@ -49,6 +56,13 @@ import p3j.simulation.calculation.deterministic.parameters.JumpOffParameters;
  * This class holds all data structures and methods that are required to use an
  * {@link IParamAssignmentGenerator} for a single execution of the PPPM.
  * 
+ * An instance may execute several trials, one after the other (see
+ * {@link PPPMProcessor}). It then recycles its auxiliary data structures, as
+ * well as the parameters and calculations of all sub-populations. The results
+ * of a trial are handed over to the storage and are never recycled, but the
+ * parameters of an {@link ExecutionSummary} are only valid until the next
+ * trial is set up.
+ * 
  * Created: August 17, 2008
  * 
  * @author Christina Bohk
@@ -58,17 +72,20 @@ import p3j.simulation.calculation.deterministic.parameters.JumpOffParameters;
 public class SingleExecution {
 
   /**
-   * Auxiliary mapping of generation-independent parameters. The key is the name
-   * of the associated parameters.
+   * The pools to calculate sub-populations concurrently, per parallelism. They
+   * are shared by all executions, to avoid creating more threads than
+   * configured when several replications run in parallel.
    */
-  private Map<String, ParameterAssignment> genIndepParameters;
+  private static final Map<Integer, ForkJoinPool> POOLS = new HashMap<>();
+
+  /** The slots of the parameters of all sub-populations and generations. */
+  private final ParameterSlots parameterSlots;
 
   /**
-   * Auxiliary mapping of generation-dependent parameters. The i-th element is a
-   * map containing all parameter assignments for the i-th generation. The key
-   * is the name of the associated parameters.
+   * The assignments of the current trial, indexed by the ordinals of their
+   * parameter instances (see {@link ParameterSlots}).
    */
-  private List<Map<String, ParameterAssignment>> genDepParameters;
+  private final ParameterAssignment[] assignments;
 
   /** The projection setup, contains all input data. */
   private final IProjectionModel projection;
@@ -82,8 +99,53 @@ public class SingleExecution {
   /** The database to store results in. */
   private final IP3MDatabase database;
 
-  /** The random number generator to be used. */
-  private final IRandom random;
+  /** The random number generator of the current trial. */
+  private IRandom random;
+
+  /**
+   * The generator of normally distributed deviation errors, re-seeded from
+   * {@link SingleExecution#random} in each trial.
+   */
+  private final ZigguratGaussian gaussian = new ZigguratGaussian(0);
+
+  /**
+   * The standard normally distributed deviation errors of the current trial
+   * per parameter instance, as given by the assignment generator (see
+   * {@link IDeviationErrorGenerator}), null if all errors are drawn from
+   * {@link SingleExecution#gaussian}.
+   */
+  private Map<ParameterInstance, double[]> deviationErrors;
+
+  /** The settings of the execution. */
+  private final ExecutionSettings settings;
+
+  /** The cache for the results of sub-populations, may be null. */
+  private final SubPopulationResultCache resultCache;
+
+  /**
+   * The registry of deterministic trials, to merge repeated trials, may be null
+   * (then all trials are calculated).
+   */
+  private final RepeatedTrialRegistry repeatedTrials;
+
+  /** The signature of the current trial, see {@link RepeatedTrialRegistry}. */
+  private RepeatedTrialRegistry.Signature signature;
+
+  /** The recycled data structures of each sub-population. */
+  private final Map<SubPopulation, SubPopulationContext> contexts = new HashMap<>();
+
+  /**
+   * The assignments that have been used to set up the parameters of the
+   * current sub-population and generation, see
+   * {@link SingleExecution#addResultKey(SubPopulation, int)}.
+   */
+  private final List<ParameterAssignment> usedAssignments = new ArrayList<>();
+
+  /**
+   * The buffers for the deviated values of each parameter instance, indexed by
+   * ordinal and recycled by subsequent trials.
+   */
+  private final Matrix2D[] deviationBuffers;
 
   /**
    * Default constructor.
@@ -94,13 +156,74 @@ public class SingleExecution {
    *          the database to store results in
    */
   public SingleExecution(IProjectionModel proj, IP3MDatabase dataBase) {
+    this(proj, dataBase, ExecutionSettings.DEFAULT, null, new ParameterSlots(
+        proj), null);
+  }
+
+  /**
+   * Constructor that allows to configure the execution. Independent
+   * sub-populations are calculated concurrently if the settings define more
+   * than one thread for this. These are all jump-off populations and all
+   * in-flow populations, the descendant generations of an in-flow population
+   * are calculated one after the other, by the same task. The parameter slots
+   * of the projection may be re-used, so that they are only resolved once for
+   * several executions.
+   * 
+   * @param proj
+   *          the projection containing all input data
+   * @param dataBase
+   *          the database to store results in
+   * @param executionSettings
+   *          the settings of the execution
+   * @param subPopResultCache
+   *          the cache to look up the results of sub-populations whose inputs
+   *          have already been calculated (may be null)
+   * @param slots
+   *          the parameter slots of the projection
+   * @param registry
+   *          the registry of deterministic trials, to merge repeated trials
+   *          (may be null)
+   */
+  public SingleExecution(IProjectionModel proj, IP3MDatabase dataBase,
+      ExecutionSettings executionSettings,
+      SubPopulationResultCache subPopResultCache, ParameterSlots slots,
+      RepeatedTrialRegistry registry) {
     projection = proj;
     jumpOffPopulations = projection.getSubPopulationModel()
         .getJumpOffPopulations();
     inFlowPopulations = projection.getSubPopulationModel()
         .getInFlowPopulations();
     database = dataBase;
-    random = SimSystem.getRNGGenerator().getNextRNG();
+    settings = executionSettings;
+    resultCache = subPopResultCache;
+    parameterSlots = slots;
+    repeatedTrials = registry;
+    assignments = new ParameterAssignment[slots.getNumOfInstances()];
+    deviationBuffers = new Matrix2D[slots.getNumOfInstances()];
+    for (SubPopulation jumpOffPopulation : jumpOffPopulations) {
+      contexts.put(jumpOffPopulation,
+          new SubPopulationContext(slots.getSlots(jumpOffPopulation)));
+    }
+    for (SubPopulation inFlowPopulation : inFlowPopulations) {
+      contexts.put(inFlowPopulation,
+          new SubPopulationContext(slots.getSlots(inFlowPopulation)));
+    }
+  }
+
+  /**
+   * Gets the pool for the given parallelism.
+   * 
+   * @param parallelism
+   *          the parallelism
+   * @return the pool
+   */
+  static synchronized ForkJoinPool getPool(int parallelism) {
+    ForkJoinPool pool = POOLS.get(parallelism);
+    if (pool == null) {
+      pool = new ForkJoinPool(parallelism);
+      POOLS.put(parallelism, pool);
+    }
+    return pool;
   }
 
   /**
@@ -114,60 +237,296 @@ public class SingleExecution {
       IParamAssignmentGenerator generator) {
 
     Pair<ExecutionSummary, List<GeneratorError>> result = null;
+    boolean counted = false;
 
     try {
-      Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>> assignment = chooseAssignment(
-          generator, random);
-
-      // Create parameter classes
-      int years = projection.getYears();
-      ExecutionSummary executionSummary = new ExecutionSummary(projection
-          .getSubPopulationModel().getSubPopulations(),
-          assignment.getFirstValue());
-
-      for (SubPopulation jumpOffPopulation : jumpOffPopulations) {
-        JumpOffParameters jumpOffParameters = setupBasicJumpOffParameters(
-            years, jumpOffPopulation);
-        JumpOffPopulation nativePopulation = new JumpOffPopulation();
-        executionSummary.setJumpOffParameters(jumpOffPopulation,
-            jumpOffParameters);
-        executionSummary.addResults(jumpOffPopulation, 0, nativePopulation
-            .calculatePopulation(jumpOffPopulation.getName(), 0,
-                jumpOffParameters));
-
-        if (jumpOffPopulation.isConsistingOfDescendantGenerations())
-          throw new UnsupportedOperationException(); // TODO
-      }
-
-      for (SubPopulation inFlowPopulation : inFlowPopulations) {
-        calculateFirstInFlowPopulation(executionSummary, inFlowPopulation,
-            years);
-        if (inFlowPopulation.isConsistingOfDescendantGenerations())
-          for (int i = 1; i < projection.getGenerations(); i++) {
-            calculateInFlowChildPopulation(executionSummary, inFlowPopulation,
-                i, years);
-          }
+      result = setup(generator);
+      ExecutionSummary executionSummary = result.getFirstValue();
+      if (countRepetition(executionSummary)) {
+        return result;
       }
+      counted = true;
+      if (settings.getSubPopThreads() > 1
+          && jumpOffPopulations.size() + inFlowPopulations.size() > 1)
+        calculateConcurrently(executionSummary);
+      else
+        calculate(executionSummary);
       storeResultsToDB(executionSummary);
-      result = new Pair<ExecutionSummary, List<GeneratorError>>(
-          executionSummary, assignment.getSecondValue());
     } catch (Throwable t) {
       GUI.printErrorMessage("Execution failed", t);
+      if (counted) {
+        discardTrial();
+      }
+      result = null;
     }
     return result;
   }
 
+  /**
+   * Calculates all sub-populations, one after the other.
+   * 
+   * @param executionSummary
+   *          the execution summary, containing all parameters (will be filled
+   *          with the results)
+   */
+  void calculate(ExecutionSummary executionSummary) {
+    for (SubPopulation jumpOffPopulation : jumpOffPopulations) {
+      executionSummary.addResults(jumpOffPopulation, 0,
+          calculateJumpOffPopulation(executionSummary, jumpOffPopulation));
+    }
+    for (SubPopulation inFlowPopulation : inFlowPopulations) {
+      addResults(executionSummary, inFlowPopulation,
+          calculateInFlowPopulation(executionSummary, inFlowPopulation));
+    }
+  }
+
+  /**
+   * Calculates all sub-populations concurrently. The results are added to the
+   * execution summary in the same order as by
+   * {@link SingleExecution#calculate(ExecutionSummary)}, after all calculations
+   * are finished.
+   * 
+   * @param executionSummary
+   *          the execution summary, containing all parameters (will be filled
+   *          with the results)
+   * @throws Exception
+   *           if a calculation failed
+   */
+  void calculateConcurrently(final ExecutionSummary executionSummary)
+      throws Exception {
+    List<Callable<List<BasicResults>>> tasks = new ArrayList<>();
+    List<SubPopulation> subPopulations = new ArrayList<>();
+    for (final SubPopulation jumpOffPopulation : jumpOffPopulations) {
+      subPopulations.add(jumpOffPopulation);
+      tasks.add(new Callable<List<BasicResults>>() {
+        @Override
+        public List<BasicResults> call() {
+          List<BasicResults> results = new ArrayList<>(1);
+          results.add(calculateJumpOffPopulation(executionSummary,
+              jumpOffPopulation));
+          return results;
+        }
+      });
+    }
+    for (final SubPopulation inFlowPopulation : inFlowPopulations) {
+      subPopulations.add(inFlowPopulation);
+      tasks.add(new Callable<List<BasicResults>>() {
+        @Override
+        public List<BasicResults> call() {
+          return calculateInFlowPopulation(executionSummary, inFlowPopulation);
+        }
+      });
+    }
+
+    List<Future<List<BasicResults>>> results = getPool(
+        settings.getSubPopThreads()).invokeAll(tasks);
+    for (int i = 0; i < results.size(); i++) {
+      addResults(executionSummary, subPopulations.get(i), results.get(i)
+          .get());
+    }
+  }
+
+  /**
+   * Adds the results of all generations of a sub-population to the execution
+   * summary.
+   * 
+   * @param executionSummary
+   *          the execution summary
+   * @param subPopulation
+   *          the sub-population
+   * @param results
+   *          the results, one per generation
+   */
+  private static void addResults(ExecutionSummary executionSummary,
+      SubPopulation subPopulation, List<BasicResults> results) {
+    for (int generation = 0; generation < results.size(); generation++) {
+      executionSummary.addResults(subPopulation, generation,
+          results.get(generation));
+    }
+  }
+
+  /**
+   * Chooses a variable assignment and sets up the parameters of all
+   * sub-populations, without calculating them. The random numbers are drawn in
+   * the same order as by {@link SingleExecution#execute(IParamAssignmentGenerator)}
+   * . The mean female populations of the previous generations are not set for
+   * descendant generations, as they are only known after the calculation.
+   * 
+   * @param generator
+   *          the assignment generator to be used
+   * @return the execution summary containing all parameters, and the error
+   *         log from the {@link IParamAssignmentGenerator}
+   */
+  Pair<ExecutionSummary, List<GeneratorError>> setup(
+      IParamAssignmentGenerator generator) {
+    long trial = -1;
+    TrialStreams trialStreams = settings.getTrialStreams();
+    if (trialStreams == null) {
+      random = SimSystem.getRNGGenerator().getNextRNG();
+    } else {
+      trial = trialStreams.nextTrial();
+      random = trialStreams.createRandom(trial);
+    }
+    Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>> assignment = chooseAssignment(
+        generator, random, trial);
+
+    // An antithetic trial draws the complement of its partner's seed, the
+    // errors are negated instead
+    boolean antithetic = trialStreams != null
+        && trialStreams.isAntitheticTrial(trial);
+    long gaussianSeed = random.nextLong();
+    gaussian.setSeed(antithetic ? ~gaussianSeed : gaussianSeed);
+    gaussian.setAntithetic(antithetic);
+    deviationErrors = trial >= 0
+        && generator instanceof IDeviationErrorGenerator ? ((IDeviationErrorGenerator) generator)
+        .createDeviationErrors(trial) : null;
+
+    // Create parameter classes
+    int years = projection.getYears();
+    ExecutionSummary executionSummary = new ExecutionSummary(projection
+        .getSubPopulationModel().getSubPopulations(),
+        assignment.getFirstValue());
+    executionSummary.setTrialIndex(trial);
+
+    for (SubPopulation jumpOffPopulation : jumpOffPopulations) {
+      usedAssignments.clear();
+      executionSummary.setJumpOffParameters(jumpOffPopulation,
+          setupBasicJumpOffParameters(years, jumpOffPopulation));
+      addResultKey(jumpOffPopulation, 0);
+      if (jumpOffPopulation.isConsistingOfDescendantGenerations())
+        throw new UnsupportedOperationException(); // TODO
+    }
+
+    for (SubPopulation inFlowPopulation : inFlowPopulations) {
+      usedAssignments.clear();
+      setupFirstInFlowParameters(executionSummary, inFlowPopulation, years);
+      addResultKey(inFlowPopulation, 0);
+      if (inFlowPopulation.isConsistingOfDescendantGenerations())
+        for (int i = 1; i < projection.getGenerations(); i++) {
+          usedAssignments.clear();
+          setupInFlowChildParameters(executionSummary, inFlowPopulation, i,
+              years);
+          addResultKey(inFlowPopulation, i);
+        }
+    }
+    return new Pair<ExecutionSummary, List<GeneratorError>>(executionSummary,
+        assignment.getSecondValue());
+  }
+
+  /**
+   * Creates the result cache key for the given sub-population and generation,
+   * from the assignments used to set up its parameters. Descendant generations
+   * also depend on the key of the previous generation. The keys of the previous
+   * trial are discarded when the first generation is added.
+   * 
+   * @param subPopulation
+   *          the sub-population
+   * @param generation
+   *          the generation
+   */
+  private void addResultKey(SubPopulation subPopulation, int generation) {
+    List<SubPopulationResultCache.Key> keys = contexts.get(subPopulation).resultKeys;
+    if (generation == 0) {
+      keys.clear();
+    }
+    keys.add(resultCache == null ? null : SubPopulationResultCache.createKey(
+        subPopulation.getName(), generation, projection.getYears(),
+        projection.getMaximumAge(), usedAssignments,
+        generation == 0 ? null : keys.get(generation - 1)));
+  }
+
+  /**
+   * Gets the cached results of the given sub-population and generation.
+   * 
+   * @param subPopulation
+   *          the sub-population
+   * @param generation
+   *          the generation
+   * @return the cached results, null if there are none
+   */
+  BasicResults getCachedResults(SubPopulation subPopulation,
+      int generation) {
+    return resultCache == null ? null : resultCache.get(contexts
+        .get(subPopulation).resultKeys.get(generation));
+  }
+
+  /**
+   * Stores the results of the given sub-population and generation in the
+   * result cache, if possible.
+   * 
+   * @param subPopulation
+   *          the sub-population
+   * @param generation
+   *          the generation
+   * @param results
+   *          the results
+   */
+  void cacheResults(SubPopulation subPopulation, int generation,
+      BasicResults results) {
+    if (resultCache != null) {
+      resultCache.put(contexts.get(subPopulation).resultKeys.get(generation),
+          results);
+    }
+  }
+
   /**
    * Stores results to database.
    * 
    * @param executionSummary
    *          the execution summary
    */
-  private void storeResultsToDB(ExecutionSummary executionSummary) {
+  void storeResultsToDB(ExecutionSummary executionSummary) {
+    if (settings.getOutputPlan() != null) {
+      for (BasicResults subPopResults : executionSummary.getAllResults()) {
+        subPopResults.setOutputPlan(settings.getOutputPlan());
+      }
+    }
     ResultsOfTrial results = new ResultsOfTrial(projection, executionSummary);
-    database.saveTrialResults(results);
+    if (repeatedTrials == null) {
+      database.saveTrialResults(results);
+    } else {
+      repeatedTrials.store(signature, results);
+    }
   }
 
+  /**
+   * Checks whether the trial that has been set up repeats an earlier trial
+   * with the same deterministic assignments. If so, it is counted by the
+   * multiplicity of the earlier trial, and marked as repetition in its
+   * execution summary; it must then neither be calculated nor stored.
+   * 
+   * @param executionSummary
+   *          the execution summary of the trial
+   * @return true, if the trial is a repetition
+   */
+  boolean countRepetition(ExecutionSummary executionSummary) {
+    if (repeatedTrials == null || !repeatedTrials.countTrial(signature)) {
+      return false;
+    }
+    executionSummary.setRepetition(true);
+    return true;
+  }
+
+  /**
+   * Discards the trial that has been set up and counted by
+   * {@link #countRepetition(ExecutionSummary)} from the registry of repeated
+   * trials, as it failed.
+   */
+  void discardTrial() {
+    if (repeatedTrials != null) {
+      repeatedTrials.discard(signature);
+    }
+  }
+
+  /**
+   * Gets the signature of the trial that has been set up.
+   * 
+   * @return the signature, null if repeated trials are not merged or the
+   *         trial has deviated assignments
+   */
+  RepeatedTrialRegistry.Signature getSignature() {
+    return signature;
+  }
   /**
    * Lets the {@link IParamAssignmentGenerator} choose a valid assignment and
    * sets up all auxiliary data structures according to this.
@@ -176,100 +535,126 @@ public class SingleExecution {
    *          the component for generating the assignment to be calculated
    * @param rng
    *          the random number generator
+   * @param trial
+   *          the index of the trial, -1 if unknown
    * @return error log from the {@link IParamAssignmentGenerator}
    */
   protected Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>> chooseAssignment(
-      IParamAssignmentGenerator generator, IRandom rng) {
-
-    Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>> generatorResults = generator
-        .chooseParamAssignments(rng);
-
-    // Generate parameter assignment
-    Map<ParameterInstance, ParameterAssignment> assignments = generatorResults
-        .getFirstValue();
-
-    // Create data structures to hold generation-dependent and
-    // generation-independent parameters
-    genIndepParameters = new HashMap<String, ParameterAssignment>();
-    genDepParameters = new ArrayList<Map<String, ParameterAssignment>>();
-    for (int i = 0; i < projection.getGenerations(); i++) {
-      genDepParameters.add(new HashMap<String, ParameterAssignment>());
-    }
-
-    for (Entry<ParameterInstance, ParameterAssignment> assignmentEntry : assignments
-        .entrySet()) {
-      if (assignmentEntry.getKey().getParameter().isGenerationDependent()) {
-        genDepParameters.get(assignmentEntry.getKey().getGeneration()).put(
-            assignmentEntry.getKey().getParameter().getName(),
-            assignmentEntry.getValue());
-      } else {
-        genIndepParameters.put(assignmentEntry.getKey().getParameter()
-            .getName(), assignmentEntry.getValue());
+      IParamAssignmentGenerator generator, IRandom rng, long trial) {
+
+    Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>> generatorResults;
+    if (trial >= 0 && generator instanceof IIndexedParamAssignmentGenerator) {
+      generatorResults = ((IIndexedParamAssignmentGenerator) generator)
+          .chooseParamAssignments(rng, trial);
+    } else {
+      generatorResults = generator.chooseParamAssignments(rng);
+    }
+
+    // Store the assignments by the ordinals of their instances
+    Arrays.fill(assignments, null);
+    for (Entry<ParameterInstance, ParameterAssignment> assignmentEntry : generatorResults
+        .getFirstValue().entrySet()) {
+      int ordinal = parameterSlots.getOrdinal(assignmentEntry.getKey());
+      if (ordinal != ParameterSlots.NO_INSTANCE) {
+        assignments[ordinal] = assignmentEntry.getValue();
       }
     }
+    signature = repeatedTrials == null ? null : RepeatedTrialRegistry
+        .createSignature(assignments);
     return generatorResults;
   }
 
   /**
-   * Retrieve the value for a generation-independent parameter.
+   * Creates the key to cache the survival probabilities that are calculated
+   * from the given assignments. This is only possible if both assignments are
+   * used without deviation, i.e. their values are the same in every trial.
    * 
-   * @param parameterName
-   *          the parameter name
-   * @return value for the given parameter
+   * @param mortality
+   *          the mortality assignment
+   * @param infantDeaths
+   *          the assignment of the infant death probabilities
+   * @return the key, null if the survival probabilities shall not be cached
+   */
+  protected SurvivalProbabilityCache.Key getSurvivalKey(
+      ParameterAssignment mortality, ParameterAssignment infantDeaths) {
+    if (Double.compare(mortality.getDeviation(), 0) != 0
+        || Double.compare(infantDeaths.getDeviation(), 0) != 0) {
+      return null;
+    }
+    return new SurvivalProbabilityCache.Key(mortality.getID(),
+        infantDeaths.getID(), projection.getMaximumAge(),
+        projection.getYears());
+  }
+
+  /**
+   * Retrieves the assignment of a parameter, without using it.
+   * 
+   * @param slots
+   *          the slots of the sub-population and generation
+   * @param slot
+   *          the slot of the parameter
+   * @return the assignment, null if there is none
    */
-  protected Matrix2D getGenIndepParameter(String parameterName) {
-    ParameterAssignment parameterAssignment = genIndepParameters
-        .get(parameterName);
-    return DeviationCalculator.calculateAssignmentDeviation(
-        parameterAssignment, random);
+  protected ParameterAssignment getAssignment(int[] slots, Slot slot) {
+    int ordinal = slots[slot.ordinal()];
+    return ordinal == ParameterSlots.NO_INSTANCE ? null : assignments[ordinal];
   }
 
   /**
-   * Retrieve the value for a generation-dependent parameter.
+   * Retrieves the value of a parameter.
    * 
-   * @param parameterName
-   *          the parameter name
-   * @param generation
-   *          the generation of the parameter
+   * @param slots
+   *          the slots of the sub-population and generation
+   * @param slot
+   *          the slot of the parameter
    * @return value for the given parameter
    */
-  protected Matrix2D getGenDepParameter(String parameterName, int generation) {
-    ParameterAssignment parameterAssignment = genDepParameters.get(generation)
-        .get(parameterName);
-    return DeviationCalculator.calculateAssignmentDeviation(
-        parameterAssignment, random);
+  protected Matrix2D getParameter(int[] slots, Slot slot) {
+    int ordinal = slots[slot.ordinal()];
+    ParameterAssignment parameterAssignment = getAssignment(slots, slot);
+    usedAssignments.add(parameterAssignment);
+    Matrix2D values = DeviationCalculator.calculateAssignmentDeviation(
+        parameterAssignment, gaussian, deviationErrors == null ? null
+            : deviationErrors.get(parameterAssignment.getParamInstance()),
+        deviationBuffers[ordinal]);
+    if (values != parameterAssignment.getMatrixValue()) {
+      deviationBuffers[ordinal] = values;
+    }
+    return values;
   }
 
   /**
-   * Calculates the first generation of emigrants.
+   * Sets up the parameters for the first generation of emigrants.
    * 
    * @param executionSummary
-   *          execution summary to be filled with the results
+   *          execution summary to be filled with the parameters
    * @param subPopulation
    *          the sub-population
    * @param years
    *          the number of years for which shall be predicted
    */
-  void calculateFirstInFlowPopulation(ExecutionSummary executionSummary,
+  void setupFirstInFlowParameters(ExecutionSummary executionSummary,
       SubPopulation subPopulation, int years) {
-    InFlowParameters parameters = new InFlowParameters(years,
+    SubPopulationContext context = contexts.get(subPopulation);
+    InFlowParameters parameters = context.getInFlowParameters(years,
         projection.getMaximumAge());
-    parameters.setMigrantsXm(getGenIndepParameter(ParameterType.MIGRATION
-        .getMaleLabelFor(subPopulation)));
-    parameters.setMigrantsXf(getGenIndepParameter(ParameterType.MIGRATION
-        .getFemaleLabelFor(subPopulation)));
+    parameters.setMigrantsXm(getParameter(context.slots[0],
+        Slot.MIGRATION_MALE));
+    parameters.setMigrantsXf(getParameter(context.slots[0],
+        Slot.MIGRATION_FEMALE));
     setupBasicInFlowPopulationParameters(parameters, subPopulation, 0);
-    InFlowPopulation migPopulation = new InFlowPopulation();
     executionSummary.setInFlowParameters(subPopulation, parameters);
-    executionSummary.addResults(subPopulation, 0, migPopulation
-        .calculatePopulation(subPopulation.getName(), 0, parameters));
   }
 
   /**
-   * Calculates a child population of the emigrants sub-population.
+   * Sets up the parameters for a child population of the emigrants
+   * sub-population. The mean female population of the previous generation is
+   * set by
+   * {@link SingleExecution#calculateInFlowPopulation(ExecutionSummary, SubPopulation)}
+   * .
    * 
    * @param executionSummary
-   *          execution summary to be filled with the results
+   *          execution summary to be filled with the parameters
    * @param subPopulation
    *          the sub-population
    * @param generation
@@ -277,20 +662,86 @@ public class SingleExecution {
    * @param years
    *          the number of years for which shall be predicted
    */
-  void calculateInFlowChildPopulation(ExecutionSummary executionSummary,
+  void setupInFlowChildParameters(ExecutionSummary executionSummary,
       SubPopulation subPopulation, int generation, int years) {
-    InFlowDescendantParameters parameters = new InFlowDescendantParameters(
-        years, projection.getMaximumAge());
+    InFlowDescendantParameters parameters = contexts.get(subPopulation)
+        .getDescendantParameters(generation, years, projection.getMaximumAge());
     parameters.setOldFertX(executionSummary.getParameters(subPopulation,
         generation - 1).getFertX());
-    parameters.setOldMeanXf(executionSummary.getResults(subPopulation,
-        generation - 1).getMeanXf());
     setupBasicInFlowPopulationParameters(parameters, subPopulation, generation);
-    InFlowDescendantPopulation migChildPopulation = new InFlowDescendantPopulation();
     executionSummary.setDescendantParameters(subPopulation, generation,
         parameters);
-    executionSummary.addResults(subPopulation, generation, migChildPopulation
-        .calculatePopulation(subPopulation.getName(), generation, parameters));
+  }
+
+  /**
+   * Calculates a jump-off population, or looks up its results in the result
+   * cache.
+   * 
+   * @param executionSummary
+   *          execution summary containing the parameters
+   * @param subPopulation
+   *          the sub-population
+   * @return the results
+   */
+  BasicResults calculateJumpOffPopulation(ExecutionSummary executionSummary,
+      SubPopulation subPopulation) {
+    BasicResults results = getCachedResults(subPopulation, 0);
+    if (results != null)
+      return results;
+    AbstractPopulation<JumpOffParameters, BasicResults> nativePopulation = contexts
+        .get(subPopulation).getJumpOffCalculation(settings.getEngine());
+    results = nativePopulation.calculatePopulation(subPopulation.getName(), 0,
+        executionSummary.getJumpOffParameters(subPopulation));
+    cacheResults(subPopulation, 0, results);
+    return results;
+  }
+
+  /**
+   * Calculates all generations of an in-flow population. Only accesses the
+   * parameters of the given sub-population, so that different sub-populations
+   * can be calculated concurrently. Results are looked up in the result cache
+   * first.
+   * 
+   * @param executionSummary
+   *          execution summary containing the parameters
+   * @param subPopulation
+   *          the sub-population
+   * @return the results, one per generation
+   */
+  List<BasicResults> calculateInFlowPopulation(
+      ExecutionSummary executionSummary, SubPopulation subPopulation) {
+    List<BasicResults> results = new ArrayList<>();
+    SubPopulationContext context = contexts.get(subPopulation);
+    BasicResults firstGeneration = getCachedResults(subPopulation, 0);
+    if (firstGeneration == null) {
+      AbstractPopulation<InFlowParameters, BasicResults> migPopulation = context
+          .getInFlowCalculation(settings.getEngine());
+      firstGeneration = migPopulation.calculatePopulation(
+          subPopulation.getName(), 0,
+          executionSummary.getInFlowParameters(subPopulation));
+      cacheResults(subPopulation, 0, firstGeneration);
+    }
+    results.add(firstGeneration);
+
+    if (!subPopulation.isConsistingOfDescendantGenerations())
+      return results;
+
+    for (int generation = 1; generation < projection.getGenerations(); generation++) {
+      BasicResults generationResults = getCachedResults(subPopulation,
+          generation);
+      if (generationResults == null) {
+        InFlowDescendantParameters parameters = executionSummary
+            .getDescendantParameters(subPopulation, generation);
+        parameters.setOldMeanXf(results.get(generation - 1).getMeanXf());
+        AbstractPopulation<InFlowDescendantParameters, BasicResults> migChildPopulation = context
+            .getDescendantCalculation(settings.getEngine());
+        generationResults = migChildPopulation.calculatePopulation(
+            subPopulation.getName(), generation, parameters);
+        cacheResults(subPopulation, generation, generationResults);
+      }
+      results.add(generationResults);
+    }
+    return results;
   }
 
   /**
@@ -304,39 +755,33 @@ public class SingleExecution {
   JumpOffParameters setupBasicJumpOffParameters(int years,
       SubPopulation jumpOffPopulation) {
 
-    JumpOffParameters nativeParameters = new JumpOffParameters(years,
+    SubPopulationContext context = contexts.get(jumpOffPopulation);
+    JumpOffParameters nativeParameters = context.getJumpOffParameters(years,
         projection.getMaximumAge());
+    int[] slots = context.slots[0];
+
+    nativeParameters.setPEndSYm(getParameter(slots, Slot.JUMP_OFF_MALE));
+    nativeParameters.setPEndSYf(getParameter(slots, Slot.JUMP_OFF_FEMALE));
+
+    nativeParameters.setMortXm(getParameter(slots, Slot.MORTALITY_MALE));
+    nativeParameters.setMortXf(getParameter(slots, Slot.MORTALITY_FEMALE));
+
+    nativeParameters.setDeathProbInfant1halfMale(getParameter(slots,
+        Slot.INFANT_DEATHS_MALE));
+    nativeParameters.setDeathProbInfant1halfFemale(getParameter(slots,
+        Slot.INFANT_DEATHS_FEMALE));
+
+    nativeParameters.setSurviveProbO100m(getParameter(slots,
+        Slot.SURV_PROB_OPEN_END_MALE));
+    nativeParameters.setSurviveProbO100f(getParameter(slots,
+        Slot.SURV_PROB_OPEN_END_FEMALE));
+
+    nativeParameters.setMaleRateLiveBirth(getParameter(slots,
+        Slot.PROP_MALE_LIVE_BIRTHS));
 
-    nativeParameters.setPEndSYm(getGenIndepParameter(ParameterType.JUMP_OFF
-        .getMaleLabelFor(jumpOffPopulation)));
-    nativeParameters.setPEndSYf(getGenIndepParameter(ParameterType.JUMP_OFF
-        .getFemaleLabelFor(jumpOffPopulation)));
-
-    nativeParameters.setMortXm(getGenIndepParameter(ParameterType.MORTALITY
-        .getMaleLabelFor(jumpOffPopulation)));
-    nativeParameters.setMortXf(getGenIndepParameter(ParameterType.MORTALITY
-        .getFemaleLabelFor(jumpOffPopulation)));
-
-    nativeParameters
-        .setDeathProbInfant1halfMale(getGenIndepParameter(ParameterType.PROP_INF_DEATHS_FIRST_6M
-            .getMaleLabelFor(jumpOffPopulation)));
-    nativeParameters
-        .setDeathProbInfant1halfFemale(getGenIndepParameter(ParameterType.PROP_INF_DEATHS_FIRST_6M
-            .getFemaleLabelFor(jumpOffPopulation)));
-
-    nativeParameters
-        .setSurviveProbO100m(getGenIndepParameter(ParameterType.SURV_PROB_OPEN_END
-            .getMaleLabelFor(jumpOffPopulation)));
-    nativeParameters
-        .setSurviveProbO100f(getGenIndepParameter(ParameterType.SURV_PROB_OPEN_END
-            .getFemaleLabelFor(jumpOffPopulation)));
-
-    nativeParameters
-        .setMaleRateLiveBirth(getGenIndepParameter(ParameterType.PROP_MALE_LIVE_BIRTHS
-            .getLabelFor(jumpOffPopulation)));
-
-    nativeParameters.setFertX(getGenIndepParameter(ParameterType.FERTILITY
-        .getLabelFor(jumpOffPopulation)));
+    nativeParameters.setFertX(getParameter(slots, Slot.FERTILITY));
+
+    setSurvivalKeys(nativeParameters, slots);
 
     return nativeParameters;
   }
@@ -354,31 +799,188 @@ public class SingleExecution {
   void setupBasicInFlowPopulationParameters(BasicParameters parameters,
       SubPopulation subPopulation, int generation) {
 
-    parameters.setDeathProbInfant1halfMale(getGenDepParameter(
-        ParameterType.PROP_INF_DEATHS_FIRST_6M.getMaleLabelFor(subPopulation),
-        generation));
-    parameters
-        .setDeathProbInfant1halfFemale(getGenDepParameter(
-            ParameterType.PROP_INF_DEATHS_FIRST_6M
-                .getFemaleLabelFor(subPopulation), generation));
-
-    parameters.setMortXm(getGenDepParameter(
-        ParameterType.MORTALITY.getMaleLabelFor(subPopulation), generation));
-    parameters.setMortXf(getGenDepParameter(
-        ParameterType.MORTALITY.getFemaleLabelFor(subPopulation), generation));
-
-    parameters.setSurviveProbO100m(getGenDepParameter(
-        ParameterType.SURV_PROB_OPEN_END.getMaleLabelFor(subPopulation),
-        generation));
-    parameters.setSurviveProbO100f(getGenDepParameter(
-        ParameterType.SURV_PROB_OPEN_END.getFemaleLabelFor(subPopulation),
-        generation));
-
-    parameters.setFertX(getGenDepParameter(
-        ParameterType.FERTILITY.getLabelFor(subPopulation), generation));
-
-    parameters.setMaleRateLiveBirth(getGenDepParameter(
-        ParameterType.PROP_MALE_LIVE_BIRTHS.getLabelFor(subPopulation),
-        generation));
+    int[] slots = contexts.get(subPopulation).slots[generation];
+
+    parameters.setDeathProbInfant1halfMale(getParameter(slots,
+        Slot.INFANT_DEATHS_MALE));
+    parameters.setDeathProbInfant1halfFemale(getParameter(slots,
+        Slot.INFANT_DEATHS_FEMALE));
+
+    parameters.setMortXm(getParameter(slots, Slot.MORTALITY_MALE));
+    parameters.setMortXf(getParameter(slots, Slot.MORTALITY_FEMALE));
+
+    parameters.setSurviveProbO100m(getParameter(slots,
+        Slot.SURV_PROB_OPEN_END_MALE));
+    parameters.setSurviveProbO100f(getParameter(slots,
+        Slot.SURV_PROB_OPEN_END_FEMALE));
+
+    parameters.setFertX(getParameter(slots, Slot.FERTILITY));
+
+    parameters.setMaleRateLiveBirth(getParameter(slots,
+        Slot.PROP_MALE_LIVE_BIRTHS));
+
+    setSurvivalKeys(parameters, slots);
+  }
+
+  /**
+   * Sets the keys to cache the survival probabilities of both sexes.
+   * 
+   * @param parameters
+   *          the parameters
+   * @param slots
+   *          the slots of the sub-population and generation
+   */
+  private void setSurvivalKeys(BasicParameters parameters, int[] slots) {
+    parameters.setSurvivalKeyMale(getSurvivalKey(
+        getAssignment(slots, Slot.MORTALITY_MALE),
+        getAssignment(slots, Slot.INFANT_DEATHS_MALE)));
+    parameters.setSurvivalKeyFemale(getSurvivalKey(
+        getAssignment(slots, Slot.MORTALITY_FEMALE),
+        getAssignment(slots, Slot.INFANT_DEATHS_FEMALE)));
+  }
+
+  /**
+   * The data structures to set up and calculate a single sub-population. They
+   * are created on demand and recycled by subsequent trials. Each
+   * sub-population is only calculated by a single thread at once, so that the
+   * calculations may keep their buffers.
+   */
+  private static class SubPopulationContext {
+
+    /**
+     * The ordinals of the parameter instances of the sub-population, see
+     * {@link ParameterSlots#getSlots(SubPopulation)}.
+     */
+    final int[][] slots;
+
+    /**
+     * The keys to look up the results in the result cache, one per generation.
+     * A key is null if the results of a generation cannot be cached.
+     */
+    final List<SubPopulationResultCache.Key> resultKeys = new ArrayList<>();
+
+    /** The parameters of a jump-off population. */
+    private JumpOffParameters jumpOffParameters;
+
+    /** The parameters of the first generation of an in-flow population. */
+    private InFlowParameters inFlowParameters;
+
+    /** The parameters of the descendant generations, starting with the second. */
+    private final List<InFlowDescendantParameters> descendantParameters = new ArrayList<>();
+
+    /** The calculation of a jump-off population. */
+    private AbstractPopulation<JumpOffParameters, BasicResults> jumpOffCalculation;
+
+    /** The calculation of the first generation of an in-flow population. */
+    private AbstractPopulation<InFlowParameters, BasicResults> inFlowCalculation;
+
+    /** The calculation of the descendant generations. */
+    private AbstractPopulation<InFlowDescendantParameters, BasicResults> descendantCalculation;
+
+    /**
+     * Instantiates a new context.
+     * 
+     * @param subPopSlots
+     *          the slots of the sub-population
+     */
+    SubPopulationContext(int[][] subPopSlots) {
+      slots = subPopSlots;
+    }
+
+    /**
+     * Gets the parameters of a jump-off population.
+     * 
+     * @param years
+     *          the number of years
+     * @param maxAge
+     *          the maximum age
+     * @return the recycled parameters
+     */
+    JumpOffParameters getJumpOffParameters(int years, int maxAge) {
+      if (jumpOffParameters == null) {
+        jumpOffParameters = new JumpOffParameters(years, maxAge);
+      }
+      return jumpOffParameters;
+    }
+
+    /**
+     * Gets the parameters of the first generation of an in-flow population.
+     * 
+     * @param years
+     *          the number of years
+     * @param maxAge
+     *          the maximum age
+     * @return the recycled parameters
+     */
+    InFlowParameters getInFlowParameters(int years, int maxAge) {
+      if (inFlowParameters == null) {
+        inFlowParameters = new InFlowParameters(years, maxAge);
+      }
+      return inFlowParameters;
+    }
+
+    /**
+     * Gets the parameters of a descendant generation.
+     * 
+     * @param generation
+     *          the generation (at least one)
+     * @param years
+     *          the number of years
+     * @param maxAge
+     *          the maximum age
+     * @return the recycled parameters
+     */
+    InFlowDescendantParameters getDescendantParameters(int generation,
+        int years, int maxAge) {
+      while (descendantParameters.size() < generation) {
+        descendantParameters.add(new InFlowDescendantParameters(years, maxAge));
+      }
+      return descendantParameters.get(generation - 1);
+    }
+
+    /**
+     * Gets the calculation of a jump-off population.
+     * 
+     * @param engine
+     *          the calculation engine
+     * @return the recycled calculation
+     */
+    AbstractPopulation<JumpOffParameters, BasicResults> getJumpOffCalculation(
+        CalculationEngine engine) {
+      if (jumpOffCalculation == null) {
+        jumpOffCalculation = engine.createJumpOffPopulation();
+      }
+      return jumpOffCalculation;
+    }
+
+    /**
+     * Gets the calculation of the first generation of an in-flow population.
+     * 
+     * @param engine
+     *          the calculation engine
+     * @return the recycled calculation
+     */
+    AbstractPopulation<InFlowParameters, BasicResults> getInFlowCalculation(
+        CalculationEngine engine) {
+      if (inFlowCalculation == null) {
+        inFlowCalculation = engine.createInFlowPopulation();
+      }
+      return inFlowCalculation;
+    }
+
+    /**
+     * Gets the calculation of the descendant generations.
+     * 
+     * @param engine
+     *          the calculation engine
+     * @return the recycled calculation
+     */
+    AbstractPopulation<InFlowDescendantParameters, BasicResults> getDescendantCalculation(
+        CalculationEngine engine) {
+      if (descendantCalculation == null) {
+        descendantCalculation = engine.createInFlowDescendantPopulation();
+      }
+      return descendantCalculation;
+    }
   }
 }
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import p3j.experiment.results.BasicResults;
+import p3j.pppm.parameters.ParameterAssignment;
+
+/**
+ * Bounded, thread-safe cache for the results of sub-populations whose inputs
+ * are the same in several trials, i.e. that are calculated from the same
+ * parameter assignments, all without deviation. This is common for exhaustive
+ * executions, where most combinations only differ in some sub-populations.
+ * 
+ * Trials with identical inputs share the same {@link BasicResults} instance,
+ * so that it is also stored only once in the database (several trials may
+ * refer to the same results). Hence, cached results must not be modified.
+ * Each {@link PPPMProcessor} has its own cache, as it also has its own
+ * database connection.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class SubPopulationResultCache {
+
+  /** The maximal number of results to be cached. */
+  public static final int MAX_ENTRIES = 32;
+
+  /** The cached results, in access order. */
+  private final Map<Key, BasicResults> results = new LinkedHashMap<Key, BasicResults>(
+      MAX_ENTRIES, 0.75f, true) {
+    private static final long serialVersionUID = 1877419318062531604L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, BasicResults> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  /**
+   * Creates the key for the results of a sub-population.
+   * 
+   * @param subPopName
+   *          the name of the sub-population
+   * @param generation
+   *          the generation
+   * @param numOfYears
+   *          the number of years
+   * @param maxAge
+   *          the maximum age
+   * @param inputs
+   *          the assignments from which the parameters of the sub-population
+   *          (and generation) are set up, in the order they are used
+   * @param previousGeneration
+   *          the key of the previous generation (for descendant generations,
+   *          which depend on the results of the previous generation), null
+   *          otherwise
+   * @return the key, null if any of the assignments deviates or has not been
+   *         stored yet (and hence has no unique ID)
+   */
+  public static Key createKey(String subPopName, int generation,
+      int numOfYears, int maxAge, List<ParameterAssignment> inputs,
+      Key previousGeneration) {
+    if (generation > 0 && previousGeneration == null) {
+      return null;
+    }
+    int[] inputIDs = new int[inputs.size()];
+    for (int i = 0; i < inputIDs.length; i++) {
+      ParameterAssignment assignment = inputs.get(i);
+      if (Double.compare(assignment.getDeviation(), 0) != 0
+          || assignment.getID() <= 0) {
+        return null;
+      }
+      inputIDs[i] = assignment.getID();
+    }
+    return new Key(subPopName, generation, numOfYears, maxAge, inputIDs,
+        previousGeneration);
+  }
+
+  /**
+   * Gets the cached results.
+   * 
+   * @param key
+   *          the key, may be null
+   * @return the results, null if there are none (or the key is null)
+   */
+  public synchronized BasicResults get(Key key) {
+    return key == null ? null : results.get(key);
+  }
+
+  /**
+   * Caches the given results. Nothing happens if the key is null.
+   * 
+   * @param key
+   *          the key, may be null
+   * @param subPopResults
+   *          the results
+   */
+  public synchronized void put(Key key, BasicResults subPopResults) {
+    if (key != null) {
+      results.put(key, subPopResults);
+    }
+  }
+
+  /**
+   * Identifies the results of a sub-population and generation by the IDs of
+   * all parameter assignments they depend on.
+   */
+  public static final class Key {
+
+    /** The name of the sub-population. */
+    private final String subPopName;
+
+    /** The generation. */
+    private final int generation;
+
+    /** The number of years. */
+    private final int numOfYears;
+
+    /** The maximum age. */
+    private final int maxAge;
+
+    /** The IDs of the assignments. */
+    private final int[] inputIDs;
+
+    /** The key of the previous generation, may be null. */
+    private final Key previousGeneration;
+
+    /** The hash code. */
+    private final int hash;
+
+    /**
+     * Instantiates a new key.
+     * 
+     * @param name
+     *          the name of the sub-population
+     * @param gen
+     *          the generation
+     * @param years
+     *          the number of years
+     * @param maximumAge
+     *          the maximum age
+     * @param ids
+     *          the IDs of the assignments
+     * @param previous
+     *          the key of the previous generation, may be null
+     */
+    Key(String name, int gen, int years, int maximumAge, int[] ids,
+        Key previous) {
+      subPopName = name;
+      generation = gen;
+      numOfYears = years;
+      maxAge = maximumAge;
+      inputIDs = ids;
+      previousGeneration = previous;
+      int h = subPopName.hashCode();
+      h = 31 * h + generation;
+      h = 31 * h + numOfYears;
+      h = 31 * h + maxAge;
+      h = 31 * h + Arrays.hashCode(inputIDs);
+      hash = 31 * h
+          + (previousGeneration == null ? 0 : previousGeneration.hashCode());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return hash == other.hash
+          && generation == other.generation
+          && numOfYears == other.numOfYears
+          && maxAge == other.maxAge
+          && subPopName.equals(other.subPopName)
+          && Arrays.equals(inputIDs, other.inputIDs)
+          && (previousGeneration == null ? other.previousGeneration == null
+              : previousGeneration.equals(other.previousGeneration));
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.io.Serializable;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jamesii.core.math.random.generators.IRandom;
+
+import p3j.experiment.results.ExecutionSummary;
+import p3j.misc.SharedInstanceRegistry;
+import p3j.misc.math.AntitheticRandom;
+import p3j.misc.math.Matrix2D;
+import p3j.misc.math.SplitMixRandom;
+
+/**
+ * Provides the random number streams of the trials of an experiment. The
+ * stream of the i-th trial only depends on the seed of the experiment and on
+ * i, so that the trials of an experiment are the same regardless of how many
+ * threads calculate them, and in which order. Trials are claimed from a
+ * counter that is shared by all processors of the experiment, which is why a
+ * single instance has to be passed to all of them (see
+ * {@link PPPMProcessorFactory#TRIAL_STREAMS}). As the parameters are copied for
+ * each run, copies resolve to the original instance via the
+ * {@link SharedInstanceRegistry}.
+ * 
+ * If the streams are antithetic, trials 2i and 2i+1 form a pair: both use the
+ * same stream, but the second trial uses an {@link AntitheticRandom} view on
+ * it (see {@link VarianceReduction#ANTITHETIC}).
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TrialStreams implements Serializable {
+
+  /** Serialization ID. */
+  private static final long serialVersionUID = -4390716541722369873L;
+
+  /**
+   * The names of the aggregates for which the variance reduction of antithetic
+   * pairs is estimated, see {@link #getKeyAggregates(ExecutionSummary)}.
+   */
+  static final String[] KEY_AGGREGATES = { "total population (mid year)",
+      "total population (last year)" };
+
+  /** The seed of the experiment. */
+  private final long seed;
+
+  /** The index of the next trial to be claimed. */
+  private final AtomicLong nextTrial = new AtomicLong();
+
+  /** Flag to signal that trials are calculated in antithetic pairs. */
+  private final boolean antithetic;
+
+  /** The key under which the instance is shared. */
+  private final UUID key;
+
+  /** The statistics on the antithetic pairs, null if not antithetic. */
+  private transient AntitheticPairStatistics pairStatistics;
+
+  /**
+   * Instantiates new trial streams.
+   * 
+   * @param experimentSeed
+   *          the seed of the experiment
+   */
+  public TrialStreams(long experimentSeed) {
+    this(experimentSeed, false);
+  }
+
+  /**
+   * Instantiates new trial streams.
+   * 
+   * @param experimentSeed
+   *          the seed of the experiment
+   * @param antitheticPairs
+   *          true, if trials shall be calculated in antithetic pairs
+   */
+  public TrialStreams(long experimentSeed, boolean antitheticPairs) {
+    seed = experimentSeed;
+    antithetic = antitheticPairs;
+    pairStatistics = createPairStatistics();
+    key = SharedInstanceRegistry.register(this);
+  }
+
+  /**
+   * Creates the statistics on the antithetic pairs.
+   * 
+   * @return the statistics, null if not antithetic
+   */
+  private AntitheticPairStatistics createPairStatistics() {
+    return antithetic ? new AntitheticPairStatistics(KEY_AGGREGATES) : null;
+  }
+
+  /**
+   * Resolves a deserialized copy to the shared instance.
+   * 
+   * @return the shared instance
+   */
+  private Object readResolve() {
+    pairStatistics = createPairStatistics();
+    return SharedInstanceRegistry.resolve(key, this);
+  }
+
+  /**
+   * Gets the seed of the given trial.
+   * 
+   * @param experimentSeed
+   *          the seed of the experiment
+   * @param trial
+   *          the index of the trial
+   * @return the seed of the trial's random number stream
+   */
+  public static long getTrialSeed(long experimentSeed, long trial) {
+    return SplitMixRandom.getStreamElement(experimentSeed, trial);
+  }
+
+  /**
+   * Claims the next trial. Thread-safe.
+   * 
+   * @return the index of the trial
+   */
+  public long nextTrial() {
+    return nextTrial.getAndIncrement();
+  }
+
+  /**
+   * Creates the random number generator of the given trial.
+   * 
+   * @param trial
+   *          the index of the trial
+   * @return the random number generator
+   */
+  public IRandom createRandom(long trial) {
+    if (!antithetic) {
+      return new SplitMixRandom(getTrialSeed(seed, trial));
+    }
+    IRandom pairRandom = new SplitMixRandom(getTrialSeed(seed, trial / 2));
+    return isAntitheticTrial(trial) ? new AntitheticRandom(pairRandom)
+        : pairRandom;
+  }
+
+  /**
+   * Checks whether the given trial is the antithetic (i.e., second) trial of a
+   * pair.
+   * 
+   * @param trial
+   *          the index of the trial
+   * @return true, if trials are antithetic and this is the second of a pair
+   */
+  public boolean isAntitheticTrial(long trial) {
+    return antithetic && trial % 2 == 1;
+  }
+
+  /**
+   * Claims the next trial and creates its random number generator.
+   * 
+   * @return the random number generator of the next trial
+   */
+  public IRandom nextRandom() {
+    return createRandom(nextTrial());
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+
+  public boolean isAntithetic() {
+    return antithetic;
+  }
+
+  public AntitheticPairStatistics getPairStatistics() {
+    return pairStatistics;
+  }
+
+  /**
+   * Gets the number of trials that have been claimed so far.
+   * 
+   * @return the number of claimed trials
+   */
+  public long getNumOfClaimedTrials() {
+    return nextTrial.get();
+  }
+
+  /**
+   * Records the results of a trial for the estimation of the variance
+   * reduction, if trials are calculated in antithetic pairs.
+   * 
+   * @param summary
+   *          the execution summary of the trial
+   */
+  public void recordTrial(ExecutionSummary summary) {
+    if (pairStatistics != null && summary.getTrialIndex() >= 0) {
+      pairStatistics.addTrial(summary.getTrialIndex(),
+          getKeyAggregates(summary));
+    }
+  }
+
+  /**
+   * Gets the key aggregates of a trial: the total populations of the middle
+   * and the last year.
+   * 
+   * @param summary
+   *          the execution summary of the trial
+   * @return the key aggregates
+   */
+  static double[] getKeyAggregates(ExecutionSummary summary) {
+    Matrix2D total = summary.getTotalEndPopulation();
+    int lastYear = total.columns() - 1;
+    double[] aggregates = new double[KEY_AGGREGATES.length];
+    for (int age = 0; age < total.rows(); age++) {
+      aggregates[0] += total.getQuick(age, lastYear / 2);
+      aggregates[1] += total.getQuick(age, lastYear);
+    }
+    return aggregates;
+  }
+}
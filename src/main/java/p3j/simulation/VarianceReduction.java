@@ -0,0 +1,74 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+/**
+ * Enumeration of the variance reduction techniques for Monte-Carlo
+ * experiments. Note that common random numbers for comparing experiments are
+ * available regardless of the technique, by re-using the seed of an experiment
+ * (see {@link TrialStreams}).
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public enum VarianceReduction {
+
+	/** All trials are independent. */
+	NONE,
+
+	/**
+	 * Trials are calculated in antithetic pairs: the second trial of a pair uses
+	 * the mirrored uniform random numbers (for choosing sets and assignments) and
+	 * the negated normally distributed errors (for deviations) of the first one.
+	 */
+	ANTITHETIC;
+
+	/** The string representation of independent trials. */
+	public static final String DESC_NONE = "None";
+
+	/** The string representation of antithetic pairs. */
+	public static final String DESC_ANTITHETIC = "Antithetic Pairs";
+
+	@Override
+	public String toString() {
+		switch (this) {
+		case NONE:
+			return DESC_NONE;
+		case ANTITHETIC:
+			return DESC_ANTITHETIC;
+		default:
+			return "unknown";
+		}
+	}
+
+	/**
+	 * Gets the variance reduction technique associated with the given text.
+	 * 
+	 * @param text
+	 *          the text (retrievable via toString())
+	 * @return the variance reduction technique associated with the given text,
+	 *         null if none was found
+	 */
+	public static VarianceReduction forString(String text) {
+		if (text.equals(DESC_NONE)) {
+			return NONE;
+		} else if (text.equals(DESC_ANTITHETIC)) {
+			return ANTITHETIC;
+		}
+		return null;
+	}
+}
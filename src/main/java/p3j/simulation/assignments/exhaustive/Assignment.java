@@ -15,13 +15,17 @@
  */
 package p3j.simulation.assignments.exhaustive;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import p3j.misc.Misc;
 
 /**
  * Stores a selection of (Settype, parameter,...) assignments and their overall
- * probability.
+ * probability. The indices are kept in a primitive array, together with their
+ * hash code. Assignments are ordered by decreasing probability, then by their
+ * ID (see {@link Assignment#getID()}), which is compared without being
+ * created.
  * 
  * Created: August 23, 2008
  * 
@@ -32,16 +36,13 @@ import p3j.misc.Misc;
 class Assignment implements Comparable<Assignment> {
 
 	/** Assignment indices. */
-	private final List<Integer> assignmentIndices;
+	private final int[] indices;
 
 	/** The probability of this assignment. */
-	private final Double probability;
+	private final double probability;
 
-	/** Index sum (required for sorting). */
-	private final Integer indexSum;
-
-	/** The id of this assignment: index1+index2+etc (concatenation). */
-	private final String id;
+	/** The hash code of the indices. */
+	private final int hash;
 
 	/**
 	 * Default constructor.
@@ -52,35 +53,201 @@ class Assignment implements Comparable<Assignment> {
 	 *          their probability
 	 */
 	Assignment(List<Integer> stAssigns, double prob) {
-		assignmentIndices = stAssigns;
+		this(toArray(stAssigns), prob);
+	}
+
+	/**
+	 * Creates an assignment from an index array, which must not be changed
+	 * afterwards.
+	 * 
+	 * @param assignmentIndices
+	 *          indices of assignments
+	 * @param prob
+	 *          their probability
+	 */
+	Assignment(int[] assignmentIndices, double prob) {
+		indices = assignmentIndices;
 		probability = prob;
+		hash = IndexTupleSet.hash(indices);
+	}
 
-		int sum = 0;
-		StringBuffer strBuf = new StringBuffer();
-		for (Integer index : stAssigns) {
-			sum += index;
-			strBuf.append(index);
-			strBuf.append('-');
+	/**
+	 * Converts a list of indices to an array.
+	 * 
+	 * @param indexList
+	 *          the list of indices
+	 * @return the array of indices
+	 */
+	private static int[] toArray(List<Integer> indexList) {
+		int[] result = new int[indexList.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = indexList.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the first position at which an index may be incremented to create a
+	 * child, if each assignment shall be created from exactly one parent. This
+	 * is the position of the last non-zero index, so that the canonical parent of
+	 * an assignment is the one with its last non-zero index decremented.
+	 * 
+	 * @return the first position to create a child from
+	 */
+	int getFirstChildPosition() {
+		for (int i = indices.length - 1; i > 0; i--) {
+			if (indices[i] != 0) {
+				return i;
+			}
 		}
+		return 0;
+	}
 
-		id = strBuf.toString();
-		indexSum = sum;
+	/**
+	 * Creates the indices of a child assignment, where the given index is
+	 * incremented.
+	 * 
+	 * @param position
+	 *          the position of the index to be incremented
+	 * @return the indices of the child
+	 */
+	int[] createChildIndices(int position) {
+		int[] childIndices = indices.clone();
+		childIndices[position]++;
+		return childIndices;
 	}
 
+	/**
+	 * Gets the assignment indices as a list.
+	 * 
+	 * @return the assignment indices
+	 */
 	public List<Integer> getAssignmentIndices() {
-		return assignmentIndices;
+		List<Integer> result = new ArrayList<Integer>(indices.length);
+		for (int index : indices) {
+			result.add(index);
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the number of indices.
+	 * 
+	 * @return the number of indices
+	 */
+	int size() {
+		return indices.length;
+	}
+
+	/**
+	 * Gets an index.
+	 * 
+	 * @param position
+	 *          the position of the index
+	 * @return the index
+	 */
+	int getIndex(int position) {
+		return indices[position];
+	}
+
+	/**
+	 * Gets the indices. The array must not be changed.
+	 * 
+	 * @return the indices
+	 */
+	int[] getIndices() {
+		return indices;
 	}
 
-	public Double getProbability() {
+	public double getProbability() {
 		return probability;
 	}
 
 	@Override
 	public int compareTo(Assignment a) {
 		if (!Misc.numEqual(probability, a.probability)) {
-			return a.probability.compareTo(probability);
+			return Double.compare(a.probability, probability);
+		}
+		return compareIDs(indices, a.indices);
+	}
+
+	/**
+	 * Compares the IDs of two index tuples, as
+	 * {@code getID().compareTo(other.getID())} would do.
+	 * 
+	 * @param indices1
+	 *          the first indices
+	 * @param indices2
+	 *          the second indices
+	 * @return the result of the comparison
+	 */
+	static int compareIDs(int[] indices1, int[] indices2) {
+		int length = Math.min(indices1.length, indices2.length);
+		for (int i = 0; i < length; i++) {
+			if (indices1[i] != indices2[i]) {
+				return compareIDParts(indices1[i], indices2[i]);
+			}
+		}
+		return indices1.length - indices2.length;
+	}
+
+	/**
+	 * Compares two different non-negative indices as parts of an ID, i.e. their
+	 * decimal representation followed by the delimiter, which precedes all
+	 * digits.
+	 * 
+	 * @param index1
+	 *          the first index
+	 * @param index2
+	 *          the second index
+	 * @return the result of the comparison
+	 */
+	private static int compareIDParts(int index1, int index2) {
+		int digits1 = numOfDigits(index1);
+		int digits2 = numOfDigits(index2);
+		int divisor1 = powerOfTen(digits1 - 1);
+		int divisor2 = powerOfTen(digits2 - 1);
+		for (int i = 0; i < Math.min(digits1, digits2); i++) {
+			int digit1 = (index1 / divisor1) % Misc.BASE_NUM;
+			int digit2 = (index2 / divisor2) % Misc.BASE_NUM;
+			if (digit1 != digit2) {
+				return digit1 - digit2;
+			}
+			divisor1 /= Misc.BASE_NUM;
+			divisor2 /= Misc.BASE_NUM;
+		}
+		// One is a prefix of the other: the delimiter comes first
+		return digits1 - digits2;
+	}
+
+	/**
+	 * Gets the number of decimal digits of a non-negative number.
+	 * 
+	 * @param number
+	 *          the number
+	 * @return the number of digits
+	 */
+	private static int numOfDigits(int number) {
+		int digits = 1;
+		for (int rest = number / Misc.BASE_NUM; rest > 0; rest /= Misc.BASE_NUM) {
+			digits++;
+		}
+		return digits;
+	}
+
+	/**
+	 * Calculates a power of ten.
+	 * 
+	 * @param exponent
+	 *          the exponent
+	 * @return ten to the power of the exponent
+	 */
+	private static int powerOfTen(int exponent) {
+		int result = 1;
+		for (int i = 0; i < exponent; i++) {
+			result *= Misc.BASE_NUM;
 		}
-		return id.compareTo(a.id);
+		return result;
 	}
 
 	@Override
@@ -93,26 +260,35 @@ class Assignment implements Comparable<Assignment> {
 
 	@Override
 	public int hashCode() {
-		int code = 0;
-		int multiplier = 1;
-		for (int index : assignmentIndices) {
-			code += multiplier * index;
-			multiplier *= Misc.BASE_NUM;
-		}
-		return code;
+		return hash;
 	}
 
 	/**
-	 * Gets the ID.
+	 * Gets the ID: the concatenation of all indices, each followed by '-'. It is
+	 * created on demand.
 	 * 
 	 * @return the id
 	 */
 	public String getID() {
-		return id;
+		StringBuilder strBuf = new StringBuilder();
+		for (int index : indices) {
+			strBuf.append(index);
+			strBuf.append('-');
+		}
+		return strBuf.toString();
 	}
 
-	public Integer getIndexSum() {
-		return indexSum;
+	/**
+	 * Gets the sum of all indices.
+	 * 
+	 * @return the index sum
+	 */
+	public int getIndexSum() {
+		int sum = 0;
+		for (int index : indices) {
+			sum += index;
+		}
+		return sum;
 	}
 
 }
@@ -15,16 +15,23 @@
  */
 package p3j.simulation.assignments.exhaustive;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
+import java.util.Arrays;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 /**
  * This class provides all data structures and methods required to enumerate a
  * set of {@link Assignment} instances step-by-step. Ensures no assignment is
- * added twice.
+ * added twice. The assignments to be enumerated are kept in a heap, ordered by
+ * {@link Assignment#compareTo(Assignment)}, and the indices of all assignments
+ * added so far are kept in an {@link IndexTupleSet}.
+ * 
+ * A bounded enumerator keeps only the most probable assignments: whenever the
+ * heap has grown to twice its capacity, the least probable assignments are
+ * pruned until it is back at its capacity. Callers of a bounded enumerator are
+ * expected to add each index tuple only once (e.g., by creating children only
+ * from the canonical parent, see {@link Assignment#getFirstChildPosition()}),
+ * so it does not keep the indices of the added assignments.
  * 
  * @author Christina Bohk
  * @author Roland Ewald
@@ -32,11 +39,20 @@ import java.util.Set;
  */
 public class AssignmentEnumerator {
 
-	/** Sorted list with most probably assignment combinations in front. */
-	private final List<Assignment> assignmentQueue = new ArrayList<Assignment>();
+	/** Heap with the most probable assignment combination in front. */
+	private final PriorityQueue<Assignment> assignmentQueue = new PriorityQueue<Assignment>();
+
+	/** The indices of all assignments added so far, created on demand. */
+	private IndexTupleSet addedIndices;
+
+	/** Flag to check whether an assignment has been added before. */
+	private final boolean checkDuplicates;
+
+	/** The maximal number of assignments kept after pruning. */
+	private final int capacity;
 
-	/** The set of assignment IDs. */
-	private final java.util.Set<String> idSet = new HashSet<String>();
+	/** The highest probability of a pruned assignment, -1 if none was pruned. */
+	private double maxPrunedProbability = -1;
 
 	/**
 	 * Instantiates a new assignment enumerator. Puts first assignment in the
@@ -46,6 +62,7 @@ public class AssignmentEnumerator {
 	 *          the first assignment
 	 */
 	AssignmentEnumerator(Assignment assignment) {
+		this();
 		addToQueue(assignment);
 	}
 
@@ -53,6 +70,28 @@ public class AssignmentEnumerator {
 	 * Instantiates a new assignment enumerator.
 	 */
 	AssignmentEnumerator() {
+		checkDuplicates = true;
+		capacity = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Instantiates a new bounded assignment enumerator, which does not check for
+	 * duplicates. Puts first assignment in the queue.
+	 * 
+	 * @param assignment
+	 *          the first assignment
+	 * @param maxSize
+	 *          the capacity, i.e. the number of most probable assignments that
+	 *          are kept when pruning
+	 */
+	AssignmentEnumerator(Assignment assignment, int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive, but is "
+			    + maxSize);
+		}
+		checkDuplicates = false;
+		capacity = maxSize;
+		addToQueue(assignment);
 	}
 
 	/**
@@ -62,11 +101,33 @@ public class AssignmentEnumerator {
 	 *          the assignment
 	 */
 	private void addToQueue(Assignment assignment) {
-		if (idSet.contains(assignment.getID())) {
+		if (!checkDuplicates) {
+			assignmentQueue.add(assignment);
 			return;
 		}
-		assignmentQueue.add(assignment);
-		idSet.add(assignment.getID());
+		if (addedIndices == null) {
+			addedIndices = new IndexTupleSet(assignment.size());
+		}
+		if (addedIndices.add(assignment.getIndices(), assignment.hashCode())) {
+			assignmentQueue.add(assignment);
+		}
+	}
+
+	/**
+	 * Prunes the least probable assignments if the heap has grown to twice its
+	 * capacity.
+	 */
+	private void pruneIfNecessary() {
+		if (assignmentQueue.size() - capacity < capacity) {
+			return;
+		}
+		Assignment[] assignments = assignmentQueue
+		    .toArray(new Assignment[assignmentQueue.size()]);
+		Arrays.sort(assignments);
+		maxPrunedProbability = Math.max(maxPrunedProbability,
+		    assignments[capacity].getProbability());
+		assignmentQueue.clear();
+		assignmentQueue.addAll(Arrays.asList(assignments).subList(0, capacity));
 	}
 
 	/**
@@ -84,7 +145,7 @@ public class AssignmentEnumerator {
 	 * @return the most probable assignment, null if there is none
 	 */
 	public Assignment removeMostProbable() {
-		return isEmpty() ? null : assignmentQueue.remove(0);
+		return assignmentQueue.poll();
 	}
 
 	/**
@@ -93,7 +154,7 @@ public class AssignmentEnumerator {
 	 * @return the most probable assignment
 	 */
 	public Assignment getMostProbable() {
-		return assignmentQueue.get(0);
+		return assignmentQueue.peek();
 	}
 
 	/**
@@ -106,7 +167,28 @@ public class AssignmentEnumerator {
 		for (Assignment assignment : assignments) {
 			addToQueue(assignment);
 		}
-		Collections.sort(assignmentQueue);
+		pruneIfNecessary();
+	}
+
+	/**
+	 * Gets the number of assignments in the queue.
+	 * 
+	 * @return the number of assignments
+	 */
+	public int size() {
+		return assignmentQueue.size();
+	}
+
+	/**
+	 * Gets the highest probability of all pruned assignments. All assignments
+	 * with a higher probability are still enumerated, as the children of an
+	 * assignment are never more probable than the assignment itself.
+	 * 
+	 * @return the highest probability of a pruned assignment, -1 if nothing was
+	 *         pruned
+	 */
+	public double getMaxPrunedProbability() {
+		return maxPrunedProbability;
 	}
 
 }
@@ -20,7 +20,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 
+import org.jamesii.SimSystem;
 import org.jamesii.core.math.random.generators.IRandom;
 import org.jamesii.core.util.misc.Pair;
 
@@ -37,7 +39,13 @@ import p3j.simulation.assignments.plugintype.IParamAssignmentGenerator;
  * Generator that analyses probabilities to select the most probable
  * combinations first (and also avoid re-trying existing combinations). This
  * leads to an exhaustive enumeration of all assignments, ordered by their
- * probability.
+ * probability. If several generators work in parallel, they claim their
+ * assignments from a {@link SharedExhaustiveEnumeration} instead.
+ * 
+ * Each assignment is only created as child of its canonical parent (see
+ * {@link Assignment#getFirstChildPosition()}), and the frontier of candidates
+ * is bounded by the number of runs left and by
+ * {@link ExhaustiveSimParameters#getFrontierCapacity()}.
  * 
  * Created: August 21, 2008
  * 
@@ -49,7 +57,10 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 	/** Simulation parameters to use. */
 	private ExhaustiveSimParameters parameters;
 
-	/** Overall number of configurations. */
+	/**
+	 * Overall number of configurations, {@link Long#MAX_VALUE} if there are
+	 * more.
+	 */
 	private long overallCombinations;
 
 	/** Number of current run. */
@@ -75,20 +86,62 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 	/** Helps enumerating the assignments. */
 	private AssignmentEnumerator assignmentEnumerator;
 
+	/**
+	 * The enumeration shared with the generators of other threads, null if this
+	 * generator enumerates all assignments itself.
+	 */
+	private SharedExhaustiveEnumeration sharedEnumeration;
+
+	/**
+	 * The assignment claimed from the shared enumeration, but not chosen yet.
+	 */
+	private Assignment claimedAssignment;
+
+	/**
+	 * Flag that determines whether pruning the frontier may skip assignments that
+	 * would otherwise be enumerated.
+	 */
+	private boolean frontierPruningLossy;
+
+	/** Flag that determines whether skipped assignments have been reported. */
+	private boolean frontierPruningReported;
+
 	@Override
 	public void init(IProjectionModel proj) {
 		overallCombinations = calculateNumOfCombinations(proj);
 
 		// Initialize Settype managers
-		List<Integer> maxProbIndices = new ArrayList<Integer>();
 		for (SetType setType : proj.getAllSetTypes()) {
 			stManagers.add(new SetTypeManager(setType));
-			maxProbIndices.add(0);
+		}
+
+		if (sharedEnumeration != null) {
+			sharedEnumeration.init(proj);
+			return;
 		}
 
 		// Add first Settype assignment to queue
+		int[] maxProbIndices = new int[stManagers.size()];
 		assignmentEnumerator = new AssignmentEnumerator(new Assignment(
-		    maxProbIndices, calcAssignmentProbability(maxProbIndices)));
+		    maxProbIndices, calcAssignmentProbability(maxProbIndices)),
+		    calculateFrontierCapacity());
+	}
+
+	/**
+	 * Calculates the capacity of the frontier. No more candidates need to be kept
+	 * than there are runs left, so only a smaller capacity from the
+	 * {@link ExhaustiveSimParameters} may lead to skipped assignments.
+	 * 
+	 * @return the capacity of the frontier
+	 */
+	private int calculateFrontierCapacity() {
+		long capacity = Math.max(1, assignmentsLeft());
+		int maxCapacity = parameters.getFrontierCapacity();
+		if (maxCapacity > 0 && maxCapacity < capacity) {
+			frontierPruningLossy = true;
+			capacity = maxCapacity;
+		}
+		return (int) Math.min(capacity, Integer.MAX_VALUE);
 	}
 
 	@Override
@@ -96,9 +149,32 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 	    IRandom random) {
 
 		List<GeneratorError> errorLog = new ArrayList<GeneratorError>();
-		Pair<Map<ParameterInstance, ParameterAssignment>, Double> assignment = nextAssignment();
-		double assignmentProb = assignment.getSecondValue();
+		Assignment assignment;
+		if (sharedEnumeration == null) {
+			assignment = nextEnumeratedAssignment();
+			if (assignment != null) {
+				countRun(assignment.getProbability());
+			}
+		} else {
+			assignment = claimedAssignment != null ? claimedAssignment
+			    : sharedEnumeration.claim();
+			claimedAssignment = null;
+		}
+		if (assignment == null) {
+			throw new IllegalStateException("No assignments left.");
+		}
+
+		return new Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>>(
+		    createMapping(assignment.getIndices()), errorLog);
+	}
 
+	/**
+	 * Counts a run and checks the probabilistic stopping criteria.
+	 * 
+	 * @param assignmentProb
+	 *          the probability of the assignment of the run
+	 */
+	void countRun(double assignmentProb) {
 		currentRun++;
 
 		// Check probabilistic stopping criteria
@@ -108,9 +184,6 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 		    || (assignmentProb < parameters.getCutOffProbability())) {
 			probStopCriterionFulfilled = true;
 		}
-
-		return new Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>>(
-		    assignment.getFirstValue(), errorLog);
 	}
 
 	/**
@@ -121,20 +194,48 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 	 *         left
 	 */
 	protected Pair<Map<ParameterInstance, ParameterAssignment>, Double> nextAssignment() {
+		Assignment top = nextEnumeratedAssignment();
+		if (top == null) {
+			return null;
+		}
+		return new Pair<Map<ParameterInstance, ParameterAssignment>, Double>(
+		    createMapping(top.getIndices()), top.getProbability());
+	}
 
+	/**
+	 * Removes the next most probable assignment from the queue, and adds its
+	 * children.
+	 * 
+	 * @return the next most probable assignment, null if there is none left
+	 */
+	Assignment nextEnumeratedAssignment() {
 		if (assignmentEnumerator.isEmpty()) {
 			return null;
 		}
-
-		// Add children to queue
 		Assignment top = assignmentEnumerator.removeMostProbable();
 		assignmentEnumerator.add(getChildren(top));
+		if (frontierPruningLossy && !frontierPruningReported
+		    && assignmentEnumerator.getMaxPrunedProbability() >= 0) {
+			frontierPruningReported = true;
+			SimSystem.report(Level.WARNING, "Frontier capacity of "
+			    + parameters.getFrontierCapacity()
+			    + " exceeded, assignments with a probability of at most "
+			    + assignmentEnumerator.getMaxPrunedProbability()
+			    + " may be skipped.");
+		}
+		return top;
+	}
 
-		// Retrieve result
-		Map<ParameterInstance, ParameterAssignment> overallAssignment = createMapping(top
-		    .getAssignmentIndices());
-		return new Pair<Map<ParameterInstance, ParameterAssignment>, Double>(
-		    overallAssignment, top.getProbability());
+	/**
+	 * Gets the highest probability of all candidate assignments that have been
+	 * pruned from the frontier. All more probable assignments are enumerated.
+	 * 
+	 * @return the highest probability of a pruned assignment, -1 if nothing was
+	 *         pruned
+	 */
+	public double getMaxPrunedProbability() {
+		return assignmentEnumerator == null ? -1 : assignmentEnumerator
+		    .getMaxPrunedProbability();
 	}
 
 	/**
@@ -148,7 +249,8 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 	}
 
 	/**
-	 * Retrieves all possible children for given {@link SetTypeAssignment}.
+	 * Retrieves all possible children for given {@link SetTypeAssignment}, for
+	 * which it is the canonical parent.
 	 * 
 	 * @param assignment
 	 *          the given assignment
@@ -157,23 +259,33 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 	 */
 	protected java.util.Set<Assignment> getChildren(Assignment assignment) {
 		java.util.Set<Assignment> childs = new HashSet<Assignment>();
-		final List<Integer> indices = assignment.getAssignmentIndices();
-		for (int i = 0; i < stManagers.size(); i++) {
-			int currentIndex = indices.get(i);
-			if (!stManagers.get(i).hasAssignment(currentIndex + 1)) {
+		for (int i = assignment.getFirstChildPosition(); i < stManagers.size(); i++) {
+			if (!stManagers.get(i).hasAssignment(assignment.getIndex(i) + 1)) {
 				continue;
 			}
-			List<Integer> childIndices = new ArrayList<Integer>(indices);
-			childIndices.set(i, currentIndex + 1);
+			int[] childIndices = assignment.createChildIndices(i);
 			childs.add(new Assignment(childIndices,
 			    calcAssignmentProbability(childIndices)));
 		}
 		return childs;
 	}
 
+	/**
+	 * Gets the number of assignments left. If the enumeration is shared, this
+	 * claims the next assignment, so that it is either 0 or 1.
+	 * 
+	 * @return the number of assignments left
+	 */
 	@Override
 	public long assignmentsLeft() {
 
+		if (sharedEnumeration != null) {
+			if (claimedAssignment == null) {
+				claimedAssignment = sharedEnumeration.claim();
+			}
+			return claimedAssignment == null ? 0 : 1;
+		}
+
 		if (probStopCriterionFulfilled) {
 			return 0;
 		}
@@ -196,7 +308,8 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 	 * @param proj
 	 *          the given projection setup
 	 * 
-	 * @return the number of possible matrix assignments
+	 * @return the number of possible matrix assignments, {@link Long#MAX_VALUE}
+	 *         if there are more
 	 */
 	protected long calculateNumOfCombinations(IProjectionModel proj) {
 
@@ -206,16 +319,47 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 			for (Set set : defType.getSets()) {
 				long numSetCombinations = 1;
 				for (ParameterInstance instance : defType.getDefinedParameters()) {
-					numSetCombinations *= set.getNumberOfAssignments(instance);
+					numSetCombinations = saturatedMultiply(numSetCombinations,
+					    set.getNumberOfAssignments(instance));
 				}
-				numSetTypeCombinations += numSetCombinations;
+				numSetTypeCombinations = saturatedAdd(numSetTypeCombinations,
+				    numSetCombinations);
 			}
-			num *= numSetTypeCombinations;
+			num = saturatedMultiply(num, numSetTypeCombinations);
 		}
 
 		return num;
 	}
 
+	/**
+	 * Multiplies two non-negative numbers.
+	 * 
+	 * @param x
+	 *          the first factor
+	 * @param y
+	 *          the second factor
+	 * @return the product, {@link Long#MAX_VALUE} if it would overflow
+	 */
+	static long saturatedMultiply(long x, long y) {
+		if (x == 0 || y == 0) {
+			return 0;
+		}
+		return x > Long.MAX_VALUE / y ? Long.MAX_VALUE : x * y;
+	}
+
+	/**
+	 * Adds two non-negative numbers.
+	 * 
+	 * @param x
+	 *          the first summand
+	 * @param y
+	 *          the second summand
+	 * @return the sum, {@link Long#MAX_VALUE} if it would overflow
+	 */
+	static long saturatedAdd(long x, long y) {
+		return x > Long.MAX_VALUE - y ? Long.MAX_VALUE : x + y;
+	}
+
 	/**
 	 * Calculates number of distinct sets.
 	 * 
@@ -228,7 +372,7 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 		long num = 1;
 		int setTypes = proj.getNumOfSetTypes();
 		for (int i = 0; i < setTypes; i++) {
-			num *= proj.getSetType(i).getNumOfSets();
+			num = saturatedMultiply(num, proj.getSetType(i).getNumOfSets());
 		}
 		return num;
 	}
@@ -242,10 +386,10 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 	 * 
 	 * @return calculated probability
 	 */
-	protected double calcAssignmentProbability(List<Integer> indices) {
+	protected double calcAssignmentProbability(int[] indices) {
 		double prob = 1;
-		for (int i = 0; i < indices.size(); i++) {
-			prob *= stManagers.get(i).getProbability(indices.get(i));
+		for (int i = 0; i < indices.length; i++) {
+			prob *= stManagers.get(i).getProbability(indices[i]);
 		}
 		return prob;
 	}
@@ -259,10 +403,10 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 	 * @return complete parameter map
 	 */
 	protected Map<ParameterInstance, ParameterAssignment> createMapping(
-	    List<Integer> indices) {
+	    int[] indices) {
 		Map<ParameterInstance, ParameterAssignment> overallMap = new HashMap<ParameterInstance, ParameterAssignment>();
-		for (int i = 0; i < indices.size(); i++) {
-			overallMap.putAll(stManagers.get(i).getAssignment(indices.get(i)));
+		for (int i = 0; i < indices.length; i++) {
+			overallMap.putAll(stManagers.get(i).getAssignment(indices[i]));
 		}
 		return overallMap;
 	}
@@ -286,4 +430,15 @@ public class ExhaustiveAssignmentGenerator implements IParamAssignmentGenerator
 		this.parameters = parameters;
 	}
 
+	/**
+	 * Sets the enumeration shared with the generators of other threads. Needs
+	 * to be called before {@link ExhaustiveAssignmentGenerator#init}.
+	 * 
+	 * @param enumeration
+	 *          the shared enumeration
+	 */
+	public void setSharedEnumeration(SharedExhaustiveEnumeration enumeration) {
+		sharedEnumeration = enumeration;
+	}
+
 }
@@ -21,7 +21,9 @@ import p3j.simulation.assignments.plugintype.IParamAssignmentGenerator;
 import p3j.simulation.assignments.plugintype.ParamAssignmentGenFactory;
 
 /**
- * Creates an {@link ExhaustiveAssignmentGenerator}.
+ * Creates an {@link ExhaustiveAssignmentGenerator}. If a
+ * {@link SharedExhaustiveEnumeration} is given, the generator claims its
+ * assignments from there.
  * 
  * @author Christina Bohk
  * @author Roland Ewald
@@ -36,6 +38,12 @@ public class ExhaustiveParamAssignmentGenFactory extends
    */
   private static final long serialVersionUID = -2894733238035338522L;
 
+  /**
+   * The name of the parameter that defines the enumeration shared by the
+   * generators of all threads. Type: {@link SharedExhaustiveEnumeration}.
+   */
+  public static final String SHARED_ENUMERATION = "sharedEnumeration";
+
   /*
    * (non-Javadoc)
    * 
@@ -46,8 +54,14 @@ public class ExhaustiveParamAssignmentGenFactory extends
   @Override
   public IParamAssignmentGenerator create(ParameterBlock params) {
     ExhaustiveAssignmentGenerator generator = new ExhaustiveAssignmentGenerator();
-    ExhaustiveSimParameters parameters = new ExhaustiveSimParameters();
-    generator.setParameters(parameters);
+    SharedExhaustiveEnumeration sharedEnumeration = params
+        .getSubBlockValue(SHARED_ENUMERATION);
+    if (sharedEnumeration == null) {
+      generator.setParameters(new ExhaustiveSimParameters());
+    } else {
+      generator.setParameters(sharedEnumeration.getParameters());
+      generator.setSharedEnumeration(sharedEnumeration);
+    }
     return generator;
   }
 
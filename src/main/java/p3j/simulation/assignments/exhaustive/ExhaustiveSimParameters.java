@@ -30,6 +30,12 @@ public class ExhaustiveSimParameters implements ISimulationParameters {
 	/** Serialization ID. */
 	private static final long serialVersionUID = -2083782392926642137L;
 
+	/**
+	 * The default frontier capacity. For projections with a dozen Settypes, each
+	 * candidate assignment takes up about 100 bytes.
+	 */
+	public static final int DEFAULT_FRONTIER_CAPACITY = 1 << 20;
+
 	/** Maximal number of runs. Default is -1 (not restricted). */
 	private Integer maxNumRuns = -1;
 
@@ -50,6 +56,15 @@ public class ExhaustiveSimParameters implements ISimulationParameters {
 	 */
 	private Double desiredOverallProbability = 1.0;
 
+	/**
+	 * The maximal number of the most probable candidate assignments to be kept
+	 * in memory. If there are more, the least probable ones are skipped. This
+	 * bounds the memory required by the enumeration. Default is
+	 * {@link ExhaustiveSimParameters#DEFAULT_FRONTIER_CAPACITY}, values
+	 * smaller than 1 mean it is not restricted.
+	 */
+	private Integer frontierCapacity = DEFAULT_FRONTIER_CAPACITY;
+
 	/**
 	 * Gets the max num runs.
 	 * 
@@ -126,4 +141,24 @@ public class ExhaustiveSimParameters implements ISimulationParameters {
 		this.desiredOverallProbability = desiredOverallProbability;
 	}
 
+	/**
+	 * Gets the frontier capacity.
+	 * 
+	 * @return the frontier capacity
+	 */
+	public int getFrontierCapacity() {
+		return frontierCapacity == null ? DEFAULT_FRONTIER_CAPACITY
+		    : frontierCapacity;
+	}
+
+	/**
+	 * Sets the frontier capacity.
+	 * 
+	 * @param frontierCapacity
+	 *          the new frontier capacity
+	 */
+	public void setFrontierCapacity(int frontierCapacity) {
+		this.frontierCapacity = frontierCapacity;
+	}
+
 }
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.exhaustive;
+
+import java.util.Arrays;
+
+/**
+ * Set of index tuples of a fixed dimension, to check whether an
+ * {@link Assignment} has already been enumerated. The tuples are stored in a
+ * single primitive array and looked up via open addressing, so that no objects
+ * are created per tuple.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+final class IndexTupleSet {
+
+	/** The initial capacity of the hash table (a power of two). */
+	static final int INITIAL_CAPACITY = 16;
+
+	/** The dimension of the tuples. */
+	private final int dimension;
+
+	/** The stored tuples, one after the other. */
+	private int[] tuples;
+
+	/** The hash codes of the stored tuples. */
+	private int[] hashes;
+
+	/**
+	 * The hash table: the position of a tuple plus one, or zero for empty
+	 * entries.
+	 */
+	private int[] table;
+
+	/** The number of stored tuples. */
+	private int size;
+
+	/**
+	 * Instantiates a new, empty set.
+	 * 
+	 * @param tupleDimension
+	 *          the dimension of the tuples
+	 */
+	IndexTupleSet(int tupleDimension) {
+		dimension = tupleDimension;
+		tuples = new int[INITIAL_CAPACITY * dimension];
+		hashes = new int[INITIAL_CAPACITY];
+		table = new int[2 * INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Adds a tuple to the set.
+	 * 
+	 * @param indices
+	 *          the indices of the tuple
+	 * @return true, if the tuple has not been contained before
+	 */
+	boolean add(int[] indices) {
+		return add(indices, hash(indices));
+	}
+
+	/**
+	 * Adds a tuple with a known hash code to the set.
+	 * 
+	 * @param indices
+	 *          the indices of the tuple
+	 * @param hash
+	 *          the hash code of the tuple, see {@link IndexTupleSet#hash(int[])}
+	 * @return true, if the tuple has not been contained before
+	 */
+	boolean add(int[] indices, int hash) {
+		if (indices.length != dimension) {
+			throw new IllegalArgumentException("Tuple dimension is "
+			    + indices.length + ", expected " + dimension);
+		}
+		int mask = table.length - 1;
+		for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+			int position = table[slot] - 1;
+			if (position < 0) {
+				break;
+			}
+			if (hashes[position] == hash && equalsTuple(position, indices)) {
+				return false;
+			}
+		}
+
+		if (size == hashes.length) {
+			grow();
+		}
+		System.arraycopy(indices, 0, tuples, size * dimension, dimension);
+		hashes[size] = hash;
+		insert(size);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Checks whether the stored tuple at the given position equals the given
+	 * indices.
+	 * 
+	 * @param position
+	 *          the position of the stored tuple
+	 * @param indices
+	 *          the indices
+	 * @return true, if both are equal
+	 */
+	private boolean equalsTuple(int position, int[] indices) {
+		int offset = position * dimension;
+		for (int i = 0; i < dimension; i++) {
+			if (tuples[offset + i] != indices[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Inserts the tuple at the given position into the hash table.
+	 * 
+	 * @param position
+	 *          the position of the tuple
+	 */
+	private void insert(int position) {
+		int mask = table.length - 1;
+		int slot = hashes[position] & mask;
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = position + 1;
+	}
+
+	/**
+	 * Doubles the capacity. The hash table is kept at most half full.
+	 */
+	private void grow() {
+		int capacity = 2 * hashes.length;
+		tuples = Arrays.copyOf(tuples, capacity * dimension);
+		hashes = Arrays.copyOf(hashes, capacity);
+		table = new int[2 * capacity];
+		for (int position = 0; position < size; position++) {
+			insert(position);
+		}
+	}
+
+	/**
+	 * Calculates the hash code of a tuple.
+	 * 
+	 * @param indices
+	 *          the indices of the tuple
+	 * @return the hash code
+	 */
+	static int hash(int[] indices) {
+		int hash = 1;
+		for (int index : indices) {
+			hash = 31 * hash + index;
+		}
+		// Finalisation step of MurmurHash3, spreads the bits over the table
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+
+	/**
+	 * Gets the number of stored tuples.
+	 * 
+	 * @return the number of tuples
+	 */
+	int size() {
+		return size;
+	}
+
+}
@@ -73,26 +73,30 @@ public class SetManager {
 	public SetManager(Set s, SetType setType) {
 		set = s;
 		instances = setType.getDefinedParameters();
-		List<Integer> maxProbCombination = new ArrayList<Integer>();
 		for (ParameterInstance instance : instances) {
 			List<ParameterAssignment> assignments = new ArrayList<ParameterAssignment>(
 			    set.getParameterAssignments(instance).getAssignments());
 
-			// Sort assignments in decreasing order
+			// Sort assignments in decreasing order; ties are broken by ID, so that
+			// all threads of a shared enumeration map indices to the same
+			// assignments, regardless of the order in which they were loaded
 			Collections.sort(assignments, new Comparator<ParameterAssignment>() {
 				@Override
 				public int compare(ParameterAssignment a1, ParameterAssignment a2) {
-					return Double.compare(a2.getProbability(), a1.getProbability());
+					int result = Double.compare(a2.getProbability(), a1.getProbability());
+					return result != 0 ? result : Integer.compare(a1.getID(), a2.getID());
 				}
 			});
 
 			assumptions.add(assignments);
-			maxProbCombination.add(0);
 		}
+		int[] maxProbCombination = new int[instances.size()];
 
-		// Add first element to assignment queue
+		// Add first element to assignment queue; children are only created from
+		// their canonical parent, so no duplicates need to be checked
 		assignmentEnumerator = new AssignmentEnumerator(new Assignment(
-		    maxProbCombination, calcAssignmentProbability(maxProbCombination)));
+		    maxProbCombination, calcAssignmentProbability(maxProbCombination)),
+		    Integer.MAX_VALUE);
 		nextAssignment();
 	}
 
@@ -118,10 +122,10 @@ public class SetManager {
 	 *          list of indices of the selected assumptions
 	 * @return the probability of choosing the given assignment combination
 	 */
-	private double calcAssignmentProbability(List<Integer> assumptionIndices) {
+	private double calcAssignmentProbability(int[] assumptionIndices) {
 		double prob = 1;
-		for (int i = 0; i < assumptionIndices.size(); i++) {
-			Integer index = assumptionIndices.get(i);
+		for (int i = 0; i < assumptionIndices.length; i++) {
+			int index = assumptionIndices[i];
 			if (index >= assumptions.get(i).size()) {
 				return 0;
 			}
@@ -148,7 +152,8 @@ public class SetManager {
 	}
 
 	/**
-	 * Generates children of given assignment.
+	 * Generates children of given assignment, for which it is the canonical
+	 * parent.
 	 * 
 	 * @param assignment
 	 *          the assignment for which the children shall be generated
@@ -156,14 +161,11 @@ public class SetManager {
 	 */
 	private java.util.Set<Assignment> createChildAssignments(Assignment assignment) {
 		java.util.Set<Assignment> childs = new HashSet<Assignment>();
-		final List<Integer> indices = assignment.getAssignmentIndices();
-		for (int i = 0; i < instances.size(); i++) {
-			int currentIndex = indices.get(i);
-			if (currentIndex >= assumptions.get(i).size() - 1) {
+		for (int i = assignment.getFirstChildPosition(); i < instances.size(); i++) {
+			if (assignment.getIndex(i) >= assumptions.get(i).size() - 1) {
 				continue;
 			}
-			List<Integer> childIndices = new ArrayList<Integer>(indices);
-			childIndices.set(i, currentIndex + 1);
+			int[] childIndices = assignment.createChildIndices(i);
 			childs.add(new Assignment(childIndices,
 			    calcAssignmentProbability(childIndices)));
 		}
@@ -196,12 +198,35 @@ public class SetManager {
 	 * @return the mapping instance -> assignment
 	 */
 	protected Map<ParameterInstance, ParameterAssignment> getCurrentMapping() {
+		return getMapping(currentAssignment);
+	}
+
+	/**
+	 * Creates mapping from all {@link ParameterInstance} objects covered by the
+	 * {@link SetType} of the managed {@link Set} to the {@link ParameterAssignment}
+	 * instances selected by the given assignment.
+	 * 
+	 * @param assignment
+	 *          the assignment, as returned by
+	 *          {@link SetManager#getCurrentAssignment()}
+	 * @return the mapping instance -> assignment
+	 */
+	protected Map<ParameterInstance, ParameterAssignment> getMapping(
+	    Assignment assignment) {
 		Map<ParameterInstance, ParameterAssignment> mapping = new HashMap<ParameterInstance, ParameterAssignment>();
-		List<Integer> assumptionIndices = currentAssignment.getAssignmentIndices();
 		for (int i = 0; i < instances.size(); i++) {
 			mapping.put(instances.get(i),
-			    assumptions.get(i).get(assumptionIndices.get(i)));
+			    assumptions.get(i).get(assignment.getIndex(i)));
 		}
 		return mapping;
 	}
+
+	/**
+	 * Gets the current assignment.
+	 * 
+	 * @return the current assignment
+	 */
+	protected Assignment getCurrentAssignment() {
+		return currentAssignment;
+	}
 }
@@ -48,10 +48,10 @@ public class SetTypeManager {
 	private SetManagerComparator smComp = new SetManagerComparator();
 
 	/**
-	 * The history of past set assignment.
-	 * 
-	 * TODO: The first entries of the history can be deleted every now and then,
-	 * this will otherwise cause memory problems for large projections.
+	 * The history of past set assignment. It cannot be truncated, as the most
+	 * probable entries are part of almost all assignments, but its entries only
+	 * refer to the index tuples of their {@link SetManager}, the mappings are
+	 * created on demand.
 	 */
 	private List<SetAssignment> history = new ArrayList<SetAssignment>();
 
@@ -136,9 +136,6 @@ public class SetTypeManager {
 	 * Creates most probable assignments up to the given desired size of the
 	 * history.
 	 * 
-	 * TODO: When history is truncated every once in a while, this method needs to
-	 * be adapted. It now assumes that the history is growing constantly.
-	 * 
 	 * @param desiredSize
 	 *          the desired size of the history
 	 * @return true, if new assignments could be created, otherwise false
@@ -148,8 +145,9 @@ public class SetTypeManager {
 		while (history.size() < desiredSize && !setManagers.isEmpty()) {
 
 			// Add assignment of top set to history
-			history.add(new SetAssignment(setManagers.get(0).getCurrentMapping(),
-			    setManagers.get(0).calcSetAssignmentProbability()));
+			history.add(new SetAssignment(setManagers.get(0), setManagers.get(0)
+			    .getCurrentAssignment(), setManagers.get(0)
+			    .calcSetAssignmentProbability()));
 
 			// Create next assignment for top set (as this has already been used)
 			boolean hasNext = setManagers.get(0).nextAssignment();
@@ -178,8 +176,11 @@ public class SetTypeManager {
  */
 class SetAssignment {
 
-	/** The assignment. */
-	private final Map<ParameterInstance, ParameterAssignment> assignment;
+	/** The manager of the set. */
+	private final SetManager setManager;
+
+	/** The assignment, i.e. the index tuple within the set manager. */
+	private final Assignment assignment;
 
 	/** The probability of the assignment. */
 	private final double probability;
@@ -187,18 +188,21 @@ class SetAssignment {
 	/**
 	 * Default constructor for set assignments.
 	 * 
+	 * @param manager
+	 *          the manager of the set
 	 * @param assignm
 	 *          the assignment chosen by the set
 	 * @param prob
 	 *          the probability of that assignment
 	 */
-	SetAssignment(Map<ParameterInstance, ParameterAssignment> assignm, Double prob) {
+	SetAssignment(SetManager manager, Assignment assignm, double prob) {
+		setManager = manager;
 		assignment = assignm;
 		probability = prob;
 	}
 
 	public Map<ParameterInstance, ParameterAssignment> getAssignment() {
-		return assignment;
+		return setManager.getMapping(assignment);
 	}
 
 	public double getProbability() {
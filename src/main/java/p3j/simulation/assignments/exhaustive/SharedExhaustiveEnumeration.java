@@ -0,0 +1,123 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.exhaustive;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+import p3j.misc.SharedInstanceRegistry;
+import p3j.pppm.IProjectionModel;
+
+/**
+ * Exhaustive enumeration shared by the {@link ExhaustiveAssignmentGenerator}
+ * instances of several threads. A single best-first producer hands out the
+ * assignments one after the other, so that each assignment is calculated by
+ * exactly one thread, and the stopping criteria of the
+ * {@link ExhaustiveSimParameters} are checked for all threads together.
+ * 
+ * Assignments are handed out as index tuples, which each generator maps to the
+ * parameter assignments of its own projection. As the parameters are copied
+ * for each run, copies resolve to the original instance via the
+ * {@link SharedInstanceRegistry}, so that there is only one producer.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class SharedExhaustiveEnumeration implements Serializable {
+
+  /** Serialization ID. */
+  private static final long serialVersionUID = -4457406322985453617L;
+
+  /** The parameters of the enumeration. */
+  private final ExhaustiveSimParameters parameters;
+
+  /** The producer of the assignments, created by the first generator. */
+  private transient ExhaustiveAssignmentGenerator producer;
+
+  /** The number of assignments handed out so far. */
+  private long numOfClaims;
+
+  /** The key under which the instance is shared. */
+  private final UUID key;
+
+  /**
+   * Instantiates a new shared enumeration.
+   * 
+   * @param params
+   *          the parameters of the enumeration
+   */
+  public SharedExhaustiveEnumeration(ExhaustiveSimParameters params) {
+    parameters = params;
+    key = SharedInstanceRegistry.register(this);
+  }
+
+  /**
+   * Resolves a deserialized copy to the shared instance.
+   * 
+   * @return the shared instance
+   */
+  private Object readResolve() {
+    return SharedInstanceRegistry.resolve(key, this);
+  }
+
+  /**
+   * Initializes the producer with the projection of the first generator. All
+   * generators are expected to work on the same projection.
+   * 
+   * @param proj
+   *          the projection
+   */
+  synchronized void init(IProjectionModel proj) {
+    if (producer == null) {
+      producer = new ExhaustiveAssignmentGenerator();
+      producer.setParameters(parameters);
+      producer.init(proj);
+    }
+  }
+
+  /**
+   * Claims the next most probable assignment.
+   * 
+   * @return the assignment, null if there is none left or a stopping criterion
+   *         is fulfilled
+   */
+  synchronized Assignment claim() {
+    if (producer == null || producer.assignmentsLeft() <= 0) {
+      return null;
+    }
+    Assignment assignment = producer.nextEnumeratedAssignment();
+    if (assignment != null) {
+      producer.countRun(assignment.getProbability());
+      numOfClaims++;
+    }
+    return assignment;
+  }
+
+  public ExhaustiveSimParameters getParameters() {
+    return parameters;
+  }
+
+  /**
+   * Gets the number of assignments handed out so far.
+   * 
+   * @return the number of claims
+   */
+  public synchronized long getNumOfClaims() {
+    return numOfClaims;
+  }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.plugintype;
+
+import java.util.Map;
+
+import p3j.pppm.parameters.ParameterInstance;
+
+/**
+ * Interface for parameter assignment generators that also determine the
+ * errors of the stochastic deviations of a trial, instead of leaving them to
+ * the random number generator of the trial (see
+ * {@link p3j.simulation.TrialStreams}). The errors of a trial shall only
+ * depend on its index.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public interface IDeviationErrorGenerator extends
+    IIndexedParamAssignmentGenerator {
+
+	/**
+	 * Creates the standard normally distributed errors for the deviations of the
+	 * trial with the given index. The i-th error of a parameter instance refers
+	 * to the (i+1)-th year of its matrix, as there is no deviation in the
+	 * jump-off year.
+	 * 
+	 * @param trial
+	 *          the index of the trial
+	 * @return the errors per parameter instance; the deviations of other
+	 *         instances, and of the years beyond the given errors, are drawn
+	 *         from the random number generator of the trial
+	 */
+	Map<ParameterInstance, double[]> createDeviationErrors(long trial);
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.plugintype;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jamesii.core.math.random.generators.IRandom;
+import org.jamesii.core.util.misc.Pair;
+
+import p3j.misc.errors.GeneratorError;
+import p3j.pppm.parameters.ParameterAssignment;
+import p3j.pppm.parameters.ParameterInstance;
+
+/**
+ * Interface for parameter assignment generators that work on a deterministic
+ * sequence, whose elements shall be associated with the index of the trial
+ * instead of the order in which trials are calculated (see
+ * {@link p3j.simulation.TrialStreams}).
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public interface IIndexedParamAssignmentGenerator extends
+    IParamAssignmentGenerator {
+
+	/**
+	 * Chooses the parameter assignments for the trial with the given index, see
+	 * {@link IParamAssignmentGenerator#chooseParamAssignments(IRandom)}.
+	 * 
+	 * @param random
+	 *          the random number generator of the trial
+	 * @param trial
+	 *          the index of the trial
+	 * @return tuple, first element is the mapping from each
+	 *         {@link ParameterInstance} to one {@link ParameterAssignment} to be
+	 *         used, the second element is the error log
+	 */
+	Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>> chooseParamAssignments(
+	    IRandom random, long trial);
+
+}
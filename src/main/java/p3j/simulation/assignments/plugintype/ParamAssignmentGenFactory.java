@@ -32,6 +32,19 @@ public abstract class ParamAssignmentGenFactory extends
    */
   private static final long serialVersionUID = -3123446562383771745L;
 
+  /**
+   * The name of the parameter that defines the seed of the experiment, for
+   * generators that randomise their sequence. Type: {@link Long}.
+   */
+  public static final String SEED = "seed";
+
+  /**
+   * The name of the parameter that defines the overall number of trials of the
+   * experiment, for generators that stratify their samples. Type:
+   * {@link Integer}.
+   */
+  public static final String NUM_OF_TRIALS = "numOfTrials";
+
   /**
    * Creates an {@link IParamAssignmentGenerator} instance.
    * 
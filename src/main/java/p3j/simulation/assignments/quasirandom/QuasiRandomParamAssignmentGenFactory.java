@@ -0,0 +1,45 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.quasirandom;
+
+import org.jamesii.core.parameters.ParameterBlock;
+
+import p3j.simulation.assignments.plugintype.IParamAssignmentGenerator;
+import p3j.simulation.assignments.plugintype.ParamAssignmentGenFactory;
+
+/**
+ * Factory to create a generator that selects assignments by a scrambled
+ * low-discrepancy sequence.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class QuasiRandomParamAssignmentGenFactory extends
+    ParamAssignmentGenFactory {
+
+  /**
+   * Serialization ID.
+   */
+  private static final long serialVersionUID = -6187453357420942706L;
+
+  @Override
+  public IParamAssignmentGenerator create(ParameterBlock params) {
+    return new QuasiRandomParamAssignmentGenerator(params.getSubBlockValue(
+        SEED, 0L));
+  }
+
+}
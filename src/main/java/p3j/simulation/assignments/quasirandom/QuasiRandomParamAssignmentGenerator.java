@@ -0,0 +1,202 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.quasirandom;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jamesii.core.math.random.generators.IRandom;
+
+import cern.jet.stat.Probability;
+
+import p3j.misc.math.SobolSequence;
+import p3j.pppm.IProjectionModel;
+import p3j.pppm.parameters.ParameterAssignment;
+import p3j.pppm.parameters.ParameterAssignmentSet;
+import p3j.pppm.parameters.ParameterInstance;
+import p3j.pppm.sets.Set;
+import p3j.pppm.sets.SetType;
+import p3j.simulation.assignments.plugintype.IDeviationErrorGenerator;
+import p3j.simulation.assignments.random.AbstractPointParamAssignmentGenerator;
+import p3j.simulation.assignments.random.SamplingPlan;
+
+/**
+ * Quasi-Monte-Carlo variant of
+ * {@link p3j.simulation.assignments.random.RandomParamAssignmentGenerator}:
+ * the sets and assignments of the i-th trial are chosen by the i-th point of a
+ * scrambled {@link SobolSequence}, one dimension per set type and per
+ * parameter instance. The stochastic deviations need one error per year and
+ * deviated parameter instance (see {@link IDeviationErrorGenerator}); these
+ * are taken from the subsequent dimensions of the point, transformed by the
+ * inverse of the standard normal distribution. Errors beyond
+ * {@link SobolSequence#MAX_DIMENSIONS} are drawn from the random number
+ * generator of the trial.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class QuasiRandomParamAssignmentGenerator extends
+    AbstractPointParamAssignmentGenerator implements IDeviationErrorGenerator {
+
+  /**
+   * The offset of the coordinates before they are transformed, so that they
+   * are the centers of their cells (and never 0).
+   */
+  private static final double HALF_UNIT = 0.5 / SobolSequence.NUM_OF_POINTS;
+
+  /** The seed for the scrambling of the sequence. */
+  private final long scrambleSeed;
+
+  /** The low-discrepancy sequence. */
+  private SobolSequence sequence;
+
+  /** The number of dimensions to choose the sets and assignments. */
+  private int numOfChoiceDimensions;
+
+  /** The deviated parameter instances that have errors. */
+  private ParameterInstance[] deviatedInstances;
+
+  /** The first dimension of the errors of each deviated parameter instance. */
+  private int[] firstErrorDimensions;
+
+  /** The number of errors of each deviated parameter instance. */
+  private int[] numOfErrors;
+
+  /**
+   * Instantiates a new quasi-random generator.
+   * 
+   * @param seed
+   *          the seed for the scrambling of the sequence
+   */
+  public QuasiRandomParamAssignmentGenerator(long seed) {
+    scrambleSeed = seed;
+  }
+
+  @Override
+  public void init(IProjectionModel proj) {
+    super.init(proj);
+    initErrorDimensions(proj);
+  }
+
+  @Override
+  protected void initPoints(int numOfDimensions) {
+    numOfChoiceDimensions = Math.min(numOfDimensions,
+        SobolSequence.MAX_DIMENSIONS);
+    deviatedInstances = new ParameterInstance[0];
+    sequence = new SobolSequence(numOfChoiceDimensions, scrambleSeed);
+  }
+
+  /**
+   * Assigns the dimensions after those to choose the sets and assignments to
+   * the errors of the deviated parameter instances, in the order of their
+   * ordinals, as long as dimensions are left.
+   * 
+   * @param projection
+   *          the projection
+   */
+  private void initErrorDimensions(IProjectionModel projection) {
+    int dimensions = numOfChoiceDimensions;
+    List<ParameterInstance> instances = new ArrayList<>();
+    List<Integer> firstDimensions = new ArrayList<>();
+    List<Integer> errors = new ArrayList<>();
+    SamplingPlan plan = getPlan();
+    for (int ordinal = 0; ordinal < plan.getNumOfInstances()
+        && dimensions < SobolSequence.MAX_DIMENSIONS; ordinal++) {
+      ParameterInstance instance = plan.getInstance(ordinal);
+      int numOfInstanceErrors = Math.min(getNumOfErrors(projection, instance),
+          SobolSequence.MAX_DIMENSIONS - dimensions);
+      if (numOfInstanceErrors > 0) {
+        instances.add(instance);
+        firstDimensions.add(dimensions);
+        errors.add(numOfInstanceErrors);
+        dimensions += numOfInstanceErrors;
+      }
+    }
+
+    deviatedInstances = instances.toArray(new ParameterInstance[instances
+        .size()]);
+    firstErrorDimensions = new int[deviatedInstances.length];
+    numOfErrors = new int[deviatedInstances.length];
+    for (int i = 0; i < deviatedInstances.length; i++) {
+      firstErrorDimensions[i] = firstDimensions.get(i);
+      numOfErrors[i] = errors.get(i);
+    }
+    sequence = new SobolSequence(dimensions, scrambleSeed);
+  }
+
+  /**
+   * Gets the number of errors needed to deviate the assignments of a parameter
+   * instance, i.e. the number of years after the jump-off year of its largest
+   * deviated assignment.
+   * 
+   * @param projection
+   *          the projection
+   * @param instance
+   *          the parameter instance
+   * @return the number of errors, 0 if no assignment is deviated
+   */
+  private static int getNumOfErrors(IProjectionModel projection,
+      ParameterInstance instance) {
+    int errors = 0;
+    for (SetType setType : projection.getAllSetTypes()) {
+      for (Set set : setType.getSets()) {
+        ParameterAssignmentSet assignments = set.getSetData().get(instance);
+        if (assignments == null) {
+          continue;
+        }
+        for (ParameterAssignment assignment : assignments.getAssignments()) {
+          if (Double.compare(assignment.getDeviation(), 0) != 0) {
+            errors = Math.max(errors,
+                assignment.getMatrixValue().rows() - 1);
+          }
+        }
+      }
+    }
+    return errors;
+  }
+
+  @Override
+  protected double[] createPoint(long trial, IRandom random) {
+    double[] point = new double[numOfChoiceDimensions];
+    sequence.getPoint(trial, point, 0, numOfChoiceDimensions);
+    return point;
+  }
+
+  @Override
+  public Map<ParameterInstance, double[]> createDeviationErrors(long trial) {
+    Map<ParameterInstance, double[]> result = new HashMap<>();
+    if (deviatedInstances.length == 0) {
+      return result;
+    }
+    double[] point = new double[sequence.getDimensions()];
+    sequence.getPoint(trial, point, numOfChoiceDimensions,
+        point.length);
+    for (int i = 0; i < deviatedInstances.length; i++) {
+      double[] errors = new double[numOfErrors[i]];
+      for (int year = 0; year < errors.length; year++) {
+        errors[year] = Probability.normalInverse(point[firstErrorDimensions[i]
+            + year]
+            + HALF_UNIT);
+      }
+      result.put(deviatedInstances[i], errors);
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.random;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jamesii.core.math.random.generators.IRandom;
+import org.jamesii.core.util.misc.Pair;
+
+import p3j.misc.errors.GeneratorError;
+import p3j.pppm.IProjectionModel;
+import p3j.pppm.parameters.ParameterAssignment;
+import p3j.pppm.parameters.ParameterInstance;
+import p3j.simulation.assignments.plugintype.IIndexedParamAssignmentGenerator;
+
+/**
+ * Base class for variants of {@link RandomParamAssignmentGenerator} that choose
+ * the sets and assignments of each trial by a point in the unit hypercube,
+ * with one dimension per set type and per parameter instance, instead of
+ * independent random numbers. The point of a trial only depends on its index.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public abstract class AbstractPointParamAssignmentGenerator extends
+    RandomParamAssignmentGenerator implements IIndexedParamAssignmentGenerator {
+
+  /** The index of the next trial, if trial indices are not known. */
+  private final AtomicLong nextTrial = new AtomicLong();
+
+  @Override
+  public void init(IProjectionModel proj) {
+    super.init(proj);
+    initPoints(Math.max(1, getPlan().getNumOfDimensions()));
+  }
+
+  /**
+   * Initializes the generation of points.
+   * 
+   * @param numOfDimensions
+   *          the number of dimensions
+   */
+  protected abstract void initPoints(int numOfDimensions);
+
+  /**
+   * Creates the point of a trial. Points may have fewer dimensions than
+   * needed, the remaining random numbers are drawn from the trial's random
+   * number generator.
+   * 
+   * @param trial
+   *          the index of the trial
+   * @param random
+   *          the random number generator of the trial
+   * @return the point
+   */
+  protected abstract double[] createPoint(long trial, IRandom random);
+
+  @Override
+  public Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>> chooseParamAssignments(
+      IRandom random) {
+    return chooseParamAssignments(random, nextTrial.getAndIncrement());
+  }
+
+  @Override
+  public Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>> chooseParamAssignments(
+      IRandom random, long trial) {
+    return super.chooseParamAssignments(new PointRandom(
+        createPoint(trial, random), random));
+  }
+
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.random;
+
+import java.io.Serializable;
+
+import org.jamesii.core.math.random.generators.IRandom;
+import org.jamesii.core.math.random.generators.RNGInfo;
+
+/**
+ * Provides the coordinates of a quasi-random point one after the other, via
+ * {@link #nextDouble()}. All other values, and all values beyond the last
+ * coordinate, are provided by a pseudo-random number generator.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+class PointRandom implements IRandom {
+
+  /** Serialization ID. */
+  private static final long serialVersionUID = 4217396017433290217L;
+
+  /** The coordinates of the point. */
+  private final double[] point;
+
+  /** The index of the next coordinate. */
+  private int nextCoordinate;
+
+  /** The generator for all other values. */
+  private final IRandom fallback;
+
+  /**
+   * Instantiates a new point random.
+   * 
+   * @param coordinates
+   *          the coordinates of the point
+   * @param random
+   *          the generator for all other values
+   */
+  PointRandom(double[] coordinates, IRandom random) {
+    point = coordinates;
+    fallback = random;
+  }
+
+  @Override
+  public double nextDouble() {
+    return nextCoordinate < point.length ? point[nextCoordinate++] : fallback
+        .nextDouble();
+  }
+
+  @Override
+  public void setSeed(Serializable seed) {
+    fallback.setSeed(seed);
+  }
+
+  @Override
+  public Serializable getSeed() {
+    return fallback.getSeed();
+  }
+
+  @Override
+  public long next() {
+    return fallback.next();
+  }
+
+  @Override
+  public int nextInt() {
+    return fallback.nextInt();
+  }
+
+  @Override
+  public int nextInt(int n) {
+    return fallback.nextInt(n);
+  }
+
+  @Override
+  public long nextLong() {
+    return fallback.nextLong();
+  }
+
+  @Override
+  public long nextLong(long n) {
+    return fallback.nextLong(n);
+  }
+
+  @Override
+  public boolean nextBoolean() {
+    return fallback.nextBoolean();
+  }
+
+  @Override
+  public float nextFloat() {
+    return fallback.nextFloat();
+  }
+
+  @Override
+  public RNGInfo getInfo() {
+    return fallback.getInfo();
+  }
+}
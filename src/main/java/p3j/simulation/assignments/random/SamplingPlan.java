@@ -0,0 +1,227 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.random;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.jamesii.core.math.random.generators.IRandom;
+
+import p3j.misc.errors.GeneratorError;
+import p3j.misc.math.AliasTable;
+import p3j.misc.math.RandomNumberChecks;
+import p3j.pppm.IProjectionModel;
+import p3j.pppm.parameters.ParameterAssignment;
+import p3j.pppm.parameters.ParameterAssignmentComparator;
+import p3j.pppm.parameters.ParameterAssignmentSet;
+import p3j.pppm.parameters.ParameterInstance;
+import p3j.pppm.parameters.ParameterInstanceComparator;
+import p3j.pppm.sets.Set;
+import p3j.pppm.sets.SetType;
+
+/**
+ * Immutable plan for sampling parameter assignments of a projection, compiled
+ * once before the run starts. Each parameter instance of the projection has a
+ * dense ordinal: the instances are ordered by Settype, and by comparison index
+ * within a Settype. Sets and assignments are chosen via {@link AliasTable}s,
+ * assignments are ordered by their IDs. The plan does not change the
+ * projection, and it can be shared by several threads.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class SamplingPlan {
+
+  /** The parameter instances, indexed by their ordinals. */
+  private final ParameterInstance[] instances;
+
+  /** The ordinal of the first parameter instance of each Settype. */
+  private final int[] firstOrdinals;
+
+  /** The alias tables to choose a set, per Settype. */
+  private final AliasTable<Set>[] setTables;
+
+  /**
+   * The alias tables to choose an assignment, per Settype, set, and parameter
+   * instance of the Settype.
+   */
+  private final AliasTable<ParameterAssignment>[][][] assignmentTables;
+
+  /** The warnings regarding the probabilities of the projection. */
+  private final List<GeneratorError> warnings;
+
+  /**
+   * Compiles the sampling plan for a projection. All Settypes, sets, and
+   * parameter instances are checked at once.
+   * 
+   * @param projection
+   *          the projection
+   * @throws IllegalArgumentException
+   *           if Settypes without sets, or parameter instances without
+   *           assignments exist (the message lists all of them)
+   */
+  @SuppressWarnings("unchecked")
+  public SamplingPlan(IProjectionModel projection) {
+    RandomNumberChecks rnc = RandomNumberChecks.getInstance();
+    List<GeneratorError> errors = new ArrayList<>();
+    List<String> missing = new ArrayList<>();
+
+    List<SetType> setTypes = projection.getAllSetTypes();
+    List<ParameterInstance> instanceList = new ArrayList<>();
+    firstOrdinals = new int[setTypes.size()];
+    setTables = new AliasTable[setTypes.size()];
+    assignmentTables = new AliasTable[setTypes.size()][][];
+
+    for (int typeIndex = 0; typeIndex < setTypes.size(); typeIndex++) {
+      SetType setType = setTypes.get(typeIndex);
+      List<ParameterInstance> typeInstances = new ArrayList<>(
+          setType.getDefinedParameters());
+      Collections.sort(typeInstances, new ParameterInstanceComparator());
+      firstOrdinals[typeIndex] = instanceList.size();
+      instanceList.addAll(typeInstances);
+
+      List<Set> sets = setType.getSets();
+      String setsName = "Sets of Settype '" + setType.getName() + "'";
+      if (sets.isEmpty()) {
+        missing.add(setsName);
+        continue;
+      }
+      rnc.checkProbabilitySum(setsName, sets, errors);
+      double[] setProbabilities = new double[sets.size()];
+      assignmentTables[typeIndex] = new AliasTable[sets.size()][];
+      for (int setIndex = 0; setIndex < sets.size(); setIndex++) {
+        Set set = sets.get(setIndex);
+        setProbabilities[setIndex] = set.getProbability();
+        assignmentTables[typeIndex][setIndex] = createAssignmentTables(set,
+            typeInstances, rnc, errors, missing);
+      }
+      setTables[typeIndex] = new AliasTable<>(sets, setProbabilities);
+    }
+
+    if (!missing.isEmpty()) {
+      StringBuilder message = new StringBuilder(
+          "There are no assignments for:");
+      for (String name : missing) {
+        message.append("\n").append(name);
+      }
+      throw new IllegalArgumentException(message.toString());
+    }
+
+    instances = instanceList.toArray(new ParameterInstance[instanceList
+        .size()]);
+    warnings = Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * Creates the alias tables to choose the assignments of a set.
+   * 
+   * @param set
+   *          the set
+   * @param typeInstances
+   *          the ordered parameter instances of the set's Settype
+   * @param rnc
+   *          the checker for probability validity
+   * @param errors
+   *          the warnings (to be filled)
+   * @param missing
+   *          the names of parameter instances without assignments (to be
+   *          filled)
+   * @return the alias tables, one per parameter instance
+   */
+  @SuppressWarnings("unchecked")
+  private static AliasTable<ParameterAssignment>[] createAssignmentTables(
+      Set set, List<ParameterInstance> typeInstances, RandomNumberChecks rnc,
+      List<GeneratorError> errors, List<String> missing) {
+    AliasTable<ParameterAssignment>[] tables = new AliasTable[typeInstances
+        .size()];
+    for (int i = 0; i < tables.length; i++) {
+      ParameterInstance instance = typeInstances.get(i);
+      ParameterAssignmentSet assignments = set.getSetData().get(instance);
+      String name = "matrices of set '" + set.getName()
+          + "' for parameter instance '" + instance + "'";
+      if (assignments == null || assignments.getAssignments().isEmpty()) {
+        missing.add(name);
+        continue;
+      }
+      rnc.checkProbabilitySum(name, assignments.getAssignments(), errors);
+      tables[i] = AliasTable.create(assignments.getAssignments(),
+          new ParameterAssignmentComparator());
+    }
+    return tables;
+  }
+
+  /**
+   * Chooses a set for each Settype, and then an assignment for each parameter
+   * instance from the chosen set. This consumes one random number per Settype
+   * and one per parameter instance, in this order.
+   * 
+   * @param random
+   *          the random number generator
+   * @return the chosen assignments, indexed by the ordinals of their parameter
+   *         instances
+   */
+  public ParameterAssignment[] choose(IRandom random) {
+    int[] chosenSets = new int[setTables.length];
+    for (int typeIndex = 0; typeIndex < setTables.length; typeIndex++) {
+      chosenSets[typeIndex] = setTables[typeIndex].chooseIndex(random
+          .nextDouble());
+    }
+    ParameterAssignment[] assignments = new ParameterAssignment[instances.length];
+    for (int typeIndex = 0; typeIndex < setTables.length; typeIndex++) {
+      AliasTable<ParameterAssignment>[] tables = assignmentTables[typeIndex][chosenSets[typeIndex]];
+      for (int i = 0; i < tables.length; i++) {
+        assignments[firstOrdinals[typeIndex] + i] = tables[i].choose(random);
+      }
+    }
+    return assignments;
+  }
+
+  /**
+   * Gets the parameter instance with the given ordinal.
+   * 
+   * @param ordinal
+   *          the ordinal
+   * @return the parameter instance
+   */
+  public ParameterInstance getInstance(int ordinal) {
+    return instances[ordinal];
+  }
+
+  /**
+   * Gets the number of parameter instances.
+   * 
+   * @return the number of parameter instances
+   */
+  public int getNumOfInstances() {
+    return instances.length;
+  }
+
+  /**
+   * Gets the number of random numbers consumed by {@link #choose(IRandom)}.
+   * 
+   * @return the number of dimensions
+   */
+  public int getNumOfDimensions() {
+    return setTables.length + instances.length;
+  }
+
+  public List<GeneratorError> getWarnings() {
+    return warnings;
+  }
+
+}
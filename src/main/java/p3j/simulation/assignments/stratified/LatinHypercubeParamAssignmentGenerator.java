@@ -0,0 +1,103 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.stratified;
+
+import org.jamesii.core.math.random.generators.IRandom;
+
+import p3j.misc.math.RandomPermutation;
+import p3j.misc.math.SplitMixRandom;
+import p3j.simulation.assignments.random.AbstractPointParamAssignmentGenerator;
+
+/**
+ * Stratified variant of
+ * {@link p3j.simulation.assignments.random.RandomParamAssignmentGenerator},
+ * based on Latin hypercube sampling. For an experiment with n trials, each
+ * dimension (i.e., each set type and each parameter instance) is divided into
+ * n strata of equal probability, and each trial is assigned to one stratum per
+ * dimension, by a random permutation per dimension. Hence, the number of
+ * trials using a set (or an assignment) is proportional to its probability, up
+ * to rounding, while the combination of sets across set types is random.
+ * 
+ * The strata of a trial only depend on its index, so that concurrent workers
+ * never duplicate strata. Trials beyond the n-th start a new Latin hypercube,
+ * with new permutations.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class LatinHypercubeParamAssignmentGenerator extends
+    AbstractPointParamAssignmentGenerator {
+
+  /** The number of strata per dimension, i.e. trials per Latin hypercube. */
+  private final int numOfStrata;
+
+  /** The seed for the permutations. */
+  private final long seed;
+
+  /** The number of dimensions. */
+  private int dimensions;
+
+  /** The index of the Latin hypercube the permutations belong to. */
+  private long hypercube = -1;
+
+  /** The permutations of the current Latin hypercube, per dimension. */
+  private RandomPermutation[] permutations;
+
+  /**
+   * Instantiates a new Latin hypercube generator.
+   * 
+   * @param strata
+   *          the number of strata per dimension, i.e. the overall number of
+   *          trials
+   * @param permutationSeed
+   *          the seed for the permutations
+   */
+  public LatinHypercubeParamAssignmentGenerator(int strata,
+      long permutationSeed) {
+    numOfStrata = Math.max(1, strata);
+    seed = permutationSeed;
+  }
+
+  @Override
+  protected void initPoints(int numOfDimensions) {
+    dimensions = numOfDimensions;
+    hypercube = -1;
+  }
+
+  @Override
+  protected double[] createPoint(long trial, IRandom random) {
+    long currentHypercube = trial / numOfStrata;
+    if (currentHypercube != hypercube) {
+      hypercube = currentHypercube;
+      permutations = new RandomPermutation[dimensions];
+      long hypercubeSeed = SplitMixRandom.getStreamElement(seed, hypercube);
+      for (int dim = 0; dim < dimensions; dim++) {
+        permutations[dim] = new RandomPermutation(numOfStrata,
+            SplitMixRandom.getStreamElement(hypercubeSeed, dim));
+      }
+    }
+
+    long index = trial % numOfStrata;
+    double[] point = new double[dimensions];
+    for (int dim = 0; dim < dimensions; dim++) {
+      point[dim] = (permutations[dim].get(index) + random.nextDouble())
+          / numOfStrata;
+    }
+    return point;
+  }
+
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.BasicParameters;
+
+/**
+ * Base class for population calculations that calculate the same
+ * sub-population for a batch of K trials at once. The data is laid out as
+ * [year][age][trial], i.e. the value of trial k for (age, year) is stored at
+ * index (year * (maxAge + 1) + age) * K + k, so that the innermost loops run
+ * over the trials. The result matrices of each trial are strided views on
+ * these buffers (see {@link Matrix2D#Matrix2D(int, int, double[], int, int, int)}
+ * ), so the results are not copied. Like {@link AbstractFusedSweepPopulation},
+ * the survival probabilities are not part of the results.
+ * 
+ * The results are bit-identical to those of the corresponding
+ * {@link AbstractPopulation} sub-classes.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ * @param <P>
+ *          the parameter class
+ */
+public abstract class AbstractBatchPopulation<P extends BasicParameters>
+    extends AbstractPopulation<P, BasicResults> {
+
+  /**
+   * Calculates the populations of a batch of trials.
+   * 
+   * @param subPopName
+   *          the sub-population name
+   * @param generation
+   *          the generation
+   * @param parameters
+   *          the parameters, one per trial (all with the same number of years
+   *          and maximum age)
+   * @return the results, one per trial
+   */
+  public abstract List<BasicResults> calculatePopulations(String subPopName,
+      int generation, List<P> parameters);
+
+  @Override
+  public BasicResults calculatePopulation(String subPopName, int generation,
+      P parameters) {
+    return calculatePopulations(subPopName, generation,
+        Collections.singletonList(parameters)).get(0);
+  }
+
+  /**
+   * Gathers the values of a year from year-major matrices (one row per year)
+   * into a slice ([age][trial]).
+   * 
+   * @param target
+   *          the slice
+   * @param matrices
+   *          the row-major elements of the matrices, one per trial
+   * @param strides
+   *          the number of columns of the matrices
+   * @param year
+   *          the year
+   * @param numOfAges
+   *          the number of ages to be gathered
+   */
+  protected static void gatherYear(double[] target, double[][] matrices,
+      int[] strides, int year, int numOfAges) {
+    int batchSize = matrices.length;
+    for (int k = 0; k < batchSize; k++) {
+      double[] values = matrices[k];
+      int offset = year * strides[k];
+      for (int age = 0; age < numOfAges; age++) {
+        target[age * batchSize + k] = values[offset + age];
+      }
+    }
+  }
+
+  /**
+   * Gathers the first column of year-major matrices (one row per year), e.g.
+   * the survival probabilities of the over-100-years-olds.
+   * 
+   * @param matrices
+   *          the matrices, one per trial
+   * @param numOfYears
+   *          the number of years
+   * @return the values, at index year * K + k
+   */
+  protected static double[] gatherYearlyValues(List<Matrix2D> matrices,
+      int numOfYears) {
+    int batchSize = matrices.size();
+    double[] values = new double[numOfYears * batchSize];
+    for (int k = 0; k < batchSize; k++) {
+      Matrix2D matrix = matrices.get(k);
+      for (int year = 0; year < numOfYears; year++) {
+        values[year * batchSize + k] = matrix.getQuick(year, 0);
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Creates the survival probabilities of a single sex for all trials.
+   * 
+   * @param parameters
+   *          the parameters, one per trial
+   * @param male
+   *          true for males, false for females
+   * @return the survival probabilities
+   */
+  protected static BatchSurvivalColumns createSurvivalColumns(
+      List<? extends BasicParameters> parameters, boolean male) {
+    List<Matrix2D> deathProbInfant1half = new ArrayList<>(parameters.size());
+    List<Matrix2D> mortality = new ArrayList<>(parameters.size());
+    SurvivalProbabilityCache.Table[] tables = new SurvivalProbabilityCache.Table[parameters
+        .size()];
+    for (int k = 0; k < tables.length; k++) {
+      BasicParameters params = parameters.get(k);
+      deathProbInfant1half.add(male ? params.getDeathProbInfant1halfMale()
+          : params.getDeathProbInfant1halfFemale());
+      mortality.add(male ? params.getMortXm() : params.getMortXf());
+      tables[k] = SurvivalProbabilityCache.getTable(params, male);
+    }
+    BasicParameters first = parameters.get(0);
+    return new BatchSurvivalColumns(deathProbInfant1half, mortality, tables,
+        first.getNumOfYears(), first.getMaxAge());
+  }
+
+  /**
+   * Gathers the survival probabilities of the over-100-years-olds of a single
+   * sex for all trials.
+   * 
+   * @param parameters
+   *          the parameters, one per trial
+   * @param male
+   *          true for males, false for females
+   * @return the values, at index year * K + k
+   */
+  protected static double[] gatherSurviveProbO100(
+      List<? extends BasicParameters> parameters, boolean male) {
+    List<Matrix2D> matrices = new ArrayList<>(parameters.size());
+    for (BasicParameters params : parameters) {
+      matrices.add(male ? params.getSurviveProbO100m() : params
+          .getSurviveProbO100f());
+    }
+    return gatherYearlyValues(matrices, parameters.get(0).getNumOfYears());
+  }
+
+  /**
+   * Gathers the proportions of live births of a single sex for all trials.
+   * 
+   * @param parameters
+   *          the parameters, one per trial
+   * @param male
+   *          true for males, false for females
+   * @return the values, at index year * K + k
+   */
+  protected static double[] gatherPropLiveBirth(
+      List<? extends BasicParameters> parameters, boolean male) {
+    List<Matrix2D> matrices = new ArrayList<>(parameters.size());
+    for (BasicParameters params : parameters) {
+      matrices.add(male ? params.getMalePropLiveBirth() : params
+          .getFemalePropLiveBirth());
+    }
+    return gatherYearlyValues(matrices, parameters.get(0).getNumOfYears());
+  }
+
+  /**
+   * Gets the row-major elements of the given matrices.
+   * 
+   * @param matrices
+   *          the matrices
+   * @return the elements of each matrix
+   */
+  protected static double[][] getElements(List<Matrix2D> matrices) {
+    double[][] elements = new double[matrices.size()][];
+    for (int k = 0; k < elements.length; k++) {
+      elements[k] = matrices.get(k).getRowMajorElements();
+    }
+    return elements;
+  }
+
+  /**
+   * Gets the number of columns of the given matrices.
+   * 
+   * @param matrices
+   *          the matrices
+   * @return the number of columns of each matrix
+   */
+  protected static int[] getStrides(List<Matrix2D> matrices) {
+    int[] strides = new int[matrices.size()];
+    for (int k = 0; k < strides.length; k++) {
+      strides[k] = matrices.get(k).columns();
+    }
+    return strides;
+  }
+
+  /**
+   * Holds the result buffers ([year][age][trial]) for all trials of a batch.
+   */
+  protected static class Results {
+
+    /** The number of trials. */
+    final int batchSize;
+
+    /** The number of years. */
+    final int numOfYears;
+
+    /** The maximum age. */
+    final int maxAge;
+
+    /** The number of values per year, i.e. (maxAge + 1) * K. */
+    final int yearLength;
+
+    /** The male end populations. */
+    final double[] endXm;
+
+    /** The female end populations. */
+    final double[] endXf;
+
+    /** The male mean populations. */
+    final double[] meanXm;
+
+    /** The female mean populations. */
+    final double[] meanXf;
+
+    /**
+     * Allocates the result buffers.
+     * 
+     * @param trials
+     *          the number of trials
+     * @param years
+     *          the number of years
+     * @param maximumAge
+     *          the maximum age
+     */
+    Results(int trials, int years, int maximumAge) {
+      batchSize = trials;
+      numOfYears = years;
+      maxAge = maximumAge;
+      yearLength = (maxAge + 1) * batchSize;
+      endXm = new double[numOfYears * yearLength];
+      endXf = new double[numOfYears * yearLength];
+      meanXm = new double[numOfYears * yearLength];
+      meanXf = new double[numOfYears * yearLength];
+    }
+
+    /**
+     * Creates the results. The result matrices of a trial are views on the
+     * buffers.
+     * 
+     * @param subPopName
+     *          the sub-population name
+     * @param generation
+     *          the generation
+     * @return the results, one per trial
+     */
+    List<BasicResults> create(String subPopName, int generation) {
+      List<BasicResults> results = new ArrayList<>(batchSize);
+      for (int k = 0; k < batchSize; k++) {
+        BasicResults trialResults = new BasicResults();
+        trialResults.setSubPopName(subPopName);
+        trialResults.setGeneration(generation);
+        trialResults.setEndXm(createView(endXm, k));
+        trialResults.setEndXf(createView(endXf, k));
+        trialResults.setMeanXm(createView(meanXm, k));
+        trialResults.setMeanXf(createView(meanXf, k));
+        results.add(trialResults);
+      }
+      return results;
+    }
+
+    /**
+     * Creates the view (age x year) on the values of a trial.
+     * 
+     * @param values
+     *          the buffer
+     * @param k
+     *          the trial
+     * @return the view
+     */
+    private Matrix2D createView(double[] values, int k) {
+      return new Matrix2D(maxAge + 1, numOfYears, values, k, batchSize,
+          yearLength);
+    }
+  }
+
+  /**
+   * Holds the survival probabilities of a single sex for all trials, for the
+   * current year (P_1 and P_2) and the previous year (P_2 only). All slices
+   * are [age][trial].
+   */
+  protected static class BatchSurvivalColumns {
+
+    /** The death probabilities of infants within the first 6 months. */
+    private final double[] infant;
+
+    /** The mortality matrices. */
+    private final double[][] mort;
+
+    /** The number of columns of the mortality matrices. */
+    private final int[] mortStrides;
+
+    /** The cached survival probabilities per trial, null if not available. */
+    private final SurvivalProbabilityCache.Table[] tables;
+
+    /** Whether the survival probabilities of all trials are cached. */
+    private final boolean allCached;
+
+    /** The mortality of the current year ([age][trial]). */
+    private final double[] mortSlice;
+
+    /** The number of years. */
+    private final int years;
+
+    /** The number of trials. */
+    private final int batchSize;
+
+    /** The maximum age. */
+    private final int maxAge;
+
+    /** Survival probabilities for the first half of the current year. */
+    final double[] p1;
+
+    /** Survival probabilities for the second half of the previous year. */
+    double[] p2Prev;
+
+    /** Survival probabilities for the second half of the current year. */
+    double[] p2Cur;
+
+    /**
+     * Instantiates new survival columns, the current year is the first year.
+     * 
+     * @param deathProbInfant1half
+     *          death probabilities of infants within the first 6 months, one
+     *          matrix per trial
+     * @param mortality
+     *          mortality matrices, one per trial
+     * @param cachedTables
+     *          the cached survival probabilities, one per trial (elements are
+     *          null if not available)
+     * @param numOfYears
+     *          the number of years
+     * @param maximumAge
+     *          the maximum age
+     */
+    BatchSurvivalColumns(List<Matrix2D> deathProbInfant1half,
+        List<Matrix2D> mortality, SurvivalProbabilityCache.Table[] cachedTables,
+        int numOfYears, int maximumAge) {
+      batchSize = mortality.size();
+      maxAge = maximumAge;
+      years = numOfYears;
+      tables = cachedTables;
+      boolean cached = true;
+      for (SurvivalProbabilityCache.Table table : tables) {
+        cached &= table != null;
+      }
+      allCached = cached;
+      infant = gatherYearlyValues(deathProbInfant1half, numOfYears);
+      mort = getElements(mortality);
+      mortStrides = getStrides(mortality);
+      mortSlice = new double[(maxAge + 1) * batchSize];
+      p1 = new double[maxAge * batchSize];
+      p2Prev = new double[maxAge * batchSize];
+      p2Cur = new double[maxAge * batchSize];
+      calculate(0);
+    }
+
+    /**
+     * Advances to the given year, the current year becomes the previous year.
+     * 
+     * @param year
+     *          the year
+     */
+    void nextYear(int year) {
+      double[] swap = p2Prev;
+      p2Prev = p2Cur;
+      p2Cur = swap;
+      calculate(year);
+    }
+
+    /**
+     * Calculates P_1 and P_2 of all trials for the given year. See
+     * {@link AbstractFusedSweepPopulation.SurvivalColumns}. The mortality of
+     * the year is gathered into a slice ([age][trial]) first, so that the
+     * divisions for all ages above zero run in a single loop over contiguous
+     * values.
+     * 
+     * @param year
+     *          the year
+     */
+    private void calculate(int year) {
+      if (allCached) {
+        for (int k = 0; k < batchSize; k++) {
+          copyCachedColumn(tables[k], year, k);
+        }
+        return;
+      }
+      gatherYear(mortSlice, mort, mortStrides, year, maxAge + 1);
+
+      // Age 0 to 0.5
+      int infantIndex = year * batchSize;
+      for (int k = 0; k < batchSize; k++) {
+        double deathProbInfant = infant[infantIndex + k];
+        double mortCurrentYear = mortSlice[k];
+        double mortDiff = mortCurrentYear - mortSlice[batchSize + k];
+        p1[k] = 1.0 - ((deathProbInfant * mortDiff) / mortCurrentYear);
+        p2Cur[k] = 1.0 - (((1.0 - deathProbInfant) * mortDiff) / (mortCurrentYear - deathProbInfant
+            * mortDiff));
+      }
+
+      // Other ages
+      int maxAgeIndex = maxAge * batchSize;
+      for (int index = batchSize; index < maxAgeIndex; index++) {
+        double mortCurrentYear = mortSlice[index];
+        double mortDiff = mortCurrentYear - mortSlice[index + batchSize];
+        p1[index] = 1.0 - ((FORCE_MORT_INTERVAL * mortDiff) / mortCurrentYear);
+        p2Cur[index] = 1.0 - ((FORCE_MORT_INTERVAL * mortDiff) / (mortCurrentYear - FORCE_MORT_INTERVAL
+            * mortDiff));
+      }
+
+      for (int k = 0; k < batchSize; k++) {
+        if (tables[k] != null) {
+          copyCachedColumn(tables[k], year, k);
+        }
+      }
+    }
+
+    /**
+     * Copies the survival probabilities of a trial for the given year from the
+     * cached table.
+     * 
+     * @param table
+     *          the cached table
+     * @param year
+     *          the year
+     * @param k
+     *          the trial
+     */
+    private void copyCachedColumn(SurvivalProbabilityCache.Table table,
+        int year, int k) {
+      for (int age = 0, index = k, tableIndex = year; age < maxAge; age++, index += batchSize, tableIndex += years) {
+        p1[index] = table.p1[tableIndex];
+        p2Cur[index] = table.p2[tableIndex];
+      }
+    }
+  }
+}
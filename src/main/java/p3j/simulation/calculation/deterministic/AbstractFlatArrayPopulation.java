@@ -0,0 +1,246 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.BasicParameters;
+
+/**
+ * Base class for population calculations that work on primitive arrays instead
+ * of {@link Matrix2D} instances. The results are bit-identical to those of the
+ * corresponding {@link AbstractPopulation} sub-classes.
+ * 
+ * All buffers have the layout of the result matrices in {@link BasicResults}:
+ * the value for (age, year) is stored at index age * numOfYears + year. This
+ * holds for the population buffers (maxAge + 1 rows) as well as for the
+ * survival probability buffers (maxAge rows). Input matrices are read via
+ * {@link Matrix2D#getRowMajorElements()}, the buffers are wrapped into the
+ * result matrices without copying them.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ * @param <P>
+ *          the parameter class
+ */
+public abstract class AbstractFlatArrayPopulation<P extends BasicParameters>
+    extends AbstractPopulation<P, BasicResults> {
+
+  /**
+   * Calculates survival probabilities for both halves of a year, see
+   * {@link AbstractPopulation#getFirstHalfyearSurvProb(Matrix2D, Matrix2D, Matrix2D, int, int)}
+   * and
+   * {@link AbstractPopulation#getSecondHalfyearSurvProb(Matrix2D, Matrix2D, Matrix2D, int, int)}
+   * . Both are calculated in a single pass, as they are derived from the same
+   * differences of the mortality matrix.
+   * 
+   * @param firstHalf
+   *          the buffer to store the survival probabilities of the first
+   *          half-year in
+   * @param secondHalf
+   *          the buffer to store the survival probabilities of the second
+   *          half-year in
+   * @param deathProbInfant1half
+   *          death probabilities of infants within the first 6 months
+   * @param mortality
+   *          mortality matrix
+   * @param numOfYears
+   *          number of years to be calculated
+   * @param maxAge
+   *          the maximum age
+   */
+  protected static void getSurvProbs(double[] firstHalf, double[] secondHalf,
+      Matrix2D deathProbInfant1half, Matrix2D mortality, int numOfYears,
+      int maxAge) {
+
+    double[] infant = deathProbInfant1half.getRowMajorElements();
+    int infantStride = deathProbInfant1half.columns();
+    double[] mort = mortality.getRowMajorElements();
+    int mortStride = mortality.columns();
+
+    for (int year = 0; year < numOfYears; year++) {
+      int mortIndex = year * mortStride;
+
+      double deathProbInfant = infant[year * infantStride];
+      double mortCurrentYear = mort[mortIndex];
+      double mortNextYear = mort[mortIndex + 1];
+      double mortDiff = mortCurrentYear - mortNextYear;
+
+      // Age 0 to 0.5
+      firstHalf[year] = 1.0 - ((deathProbInfant * mortDiff) / mortCurrentYear);
+      secondHalf[year] = 1.0 - (((1.0 - deathProbInfant) * mortDiff) / (mortCurrentYear - deathProbInfant
+          * mortDiff));
+
+      // Other ages
+      for (int age = 1; age < maxAge; age++) {
+        mortCurrentYear = mortNextYear;
+        mortNextYear = mort[mortIndex + age + 1];
+        mortDiff = mortCurrentYear - mortNextYear;
+        int index = age * numOfYears + year;
+        firstHalf[index] = 1.0 - ((FORCE_MORT_INTERVAL * mortDiff) / mortCurrentYear);
+        secondHalf[index] = 1.0 - ((FORCE_MORT_INTERVAL * mortDiff) / (mortCurrentYear - FORCE_MORT_INTERVAL
+            * mortDiff));
+      }
+    }
+  }
+
+  /**
+   * Extracts the first column of a year-major matrix (one row per year), e.g.
+   * the survival probabilities of the over-100-years-olds.
+   * 
+   * @param matrix
+   *          the matrix
+   * @param numOfYears
+   *          the number of years
+   * @return the values of the first column, one per year
+   */
+  protected static double[] getYearlyValues(Matrix2D matrix, int numOfYears) {
+    double[] values = new double[numOfYears];
+    for (int year = 0; year < numOfYears; year++) {
+      values[year] = matrix.getQuick(year, 0);
+    }
+    return values;
+  }
+
+  /**
+   * Calculates number of children in the current year. See
+   * {@link AbstractPopulation#getNumOfChilds(Matrix2D, Matrix2D, int)}.
+   * 
+   * @param meanFemalePop
+   *          mean female population
+   * @param fertility
+   *          fertility
+   * @param year
+   *          current year
+   * @param numOfYears
+   *          the number of years
+   * @return number of children in current year
+   */
+  protected static double getNumOfChilds(double[] meanFemalePop,
+      Matrix2D fertility, int year, int numOfYears) {
+    double[] fert = fertility.getRowMajorElements();
+    int fertIndex = year * fertility.columns();
+    double numOfChilds = 0;
+    for (int age = Constants.FERT_AGE_BEGIN; age < Constants.FERT_AGE_END; age++) {
+      numOfChilds += meanFemalePop[(age + 1) * numOfYears + year]
+          * fert[fertIndex + age + 1];
+    }
+    return numOfChilds;
+  }
+
+  /**
+   * Creates the results from the given buffers. The buffers are not copied.
+   * 
+   * @param subPopName
+   *          the sub-population name
+   * @param generation
+   *          the generation
+   * @param numOfYears
+   *          the number of years
+   * @param maxAge
+   *          the maximum age
+   * @param buffers
+   *          the buffers holding the results
+   * @return the results
+   */
+  protected static BasicResults createResults(String subPopName,
+      int generation, int numOfYears, int maxAge, Buffers buffers) {
+    BasicResults results = new BasicResults();
+    results.setSubPopName(subPopName);
+    results.setGeneration(generation);
+    results.setEndXm(new Matrix2D(maxAge + 1, numOfYears, buffers.endXm));
+    results.setEndXf(new Matrix2D(maxAge + 1, numOfYears, buffers.endXf));
+    results.setMeanXm(new Matrix2D(maxAge + 1, numOfYears, buffers.meanXm));
+    results.setMeanXf(new Matrix2D(maxAge + 1, numOfYears, buffers.meanXf));
+    results.setP1m(new Matrix2D(maxAge, numOfYears, buffers.p1m));
+    results.setP1f(new Matrix2D(maxAge, numOfYears, buffers.p1f));
+    results.setP2m(new Matrix2D(maxAge, numOfYears, buffers.p2m));
+    results.setP2f(new Matrix2D(maxAge, numOfYears, buffers.p2f));
+    return results;
+  }
+
+  /**
+   * Holds the buffers for a single calculation.
+   */
+  protected static class Buffers {
+
+    /** The male end population. */
+    final double[] endXm;
+
+    /** The female end population. */
+    final double[] endXf;
+
+    /** The male mean population. */
+    final double[] meanXm;
+
+    /** The female mean population. */
+    final double[] meanXf;
+
+    /** The male survival probabilities for the first half-year. */
+    final double[] p1m;
+
+    /** The female survival probabilities for the first half-year. */
+    final double[] p1f;
+
+    /** The male survival probabilities for the second half-year. */
+    final double[] p2m;
+
+    /** The female survival probabilities for the second half-year. */
+    final double[] p2f;
+
+    /**
+     * Allocates the buffers and calculates the survival probabilities for both
+     * halves of the year, or takes them from the
+     * {@link SurvivalProbabilityCache} (in which case they are shared).
+     * 
+     * @param parameters
+     *          the parameters
+     */
+    Buffers(BasicParameters parameters) {
+      int years = parameters.getNumOfYears();
+      int maxAge = parameters.getMaxAge();
+      endXm = new double[(maxAge + 1) * years];
+      endXf = new double[(maxAge + 1) * years];
+      meanXm = new double[(maxAge + 1) * years];
+      meanXf = new double[(maxAge + 1) * years];
+
+      SurvivalProbabilityCache.Table female = SurvivalProbabilityCache
+          .getTable(parameters, false);
+      if (female != null) {
+        p1f = female.p1;
+        p2f = female.p2;
+      } else {
+        p1f = new double[maxAge * years];
+        p2f = new double[maxAge * years];
+        getSurvProbs(p1f, p2f, parameters.getDeathProbInfant1halfFemale(),
+            parameters.getMortXf(), years, maxAge);
+      }
+
+      SurvivalProbabilityCache.Table male = SurvivalProbabilityCache.getTable(
+          parameters, true);
+      if (male != null) {
+        p1m = male.p1;
+        p2m = male.p2;
+      } else {
+        p1m = new double[maxAge * years];
+        p2m = new double[maxAge * years];
+        getSurvProbs(p1m, p2m, parameters.getDeathProbInfant1halfMale(),
+            parameters.getMortXm(), years, maxAge);
+      }
+    }
+  }
+}
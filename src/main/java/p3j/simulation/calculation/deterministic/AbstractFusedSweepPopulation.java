@@ -0,0 +1,409 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.BasicParameters;
+
+/**
+ * Base class for array-based population calculations that do not materialise
+ * the survival probabilities (P_1 and P_2) of all years. Instead, they are
+ * calculated year by year, within the sweep over the years, and only the
+ * columns for the current and the previous year are kept. Hence, the
+ * {@link BasicResults} created by these calculations do not contain the
+ * matrices P_1 and P_2, which are not stored in the database anyway.
+ * 
+ * The population buffers have the same layout as in
+ * {@link AbstractFlatArrayPopulation}, i.e. they are age-major, whereas the
+ * input matrices are year-major. As the calculations sweep over the years and
+ * then over the ages, they work on {@link PopulationRows} (one value per age)
+ * and only write the population buffers, once per year and value. Hence, all
+ * values are read with unit stride. The population buffers are handed over to
+ * the results
+ * (and hence to the storage), whereas all other buffers are recycled by
+ * subsequent calculations of the same instance. Instances must therefore not
+ * be used by several threads at once.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ * @param <P>
+ *          the parameter class
+ */
+public abstract class AbstractFusedSweepPopulation<P extends BasicParameters>
+    extends AbstractFlatArrayPopulation<P> {
+
+  /** The number of buffers for yearly values. */
+  protected static final int NUM_YEARLY_BUFFERS = 5;
+
+  /** The buffers for yearly values, recycled by subsequent calculations. */
+  private final double[][] yearlyBuffers = new double[NUM_YEARLY_BUFFERS][];
+
+  /** The survival columns for males, recycled by subsequent calculations. */
+  private SurvivalColumns maleSurvival;
+
+  /** The survival columns for females, recycled by subsequent calculations. */
+  private SurvivalColumns femaleSurvival;
+
+  /** The population rows, recycled by subsequent calculations. */
+  private final PopulationRows rows = new PopulationRows();
+
+  /**
+   * Gets a recycled buffer for yearly values. Its content is undefined.
+   * 
+   * @param buffer
+   *          the index of the buffer, smaller than {@link #NUM_YEARLY_BUFFERS}
+   * @param numOfYears
+   *          the number of years
+   * @return the buffer
+   */
+  protected double[] getYearlyBuffer(int buffer, int numOfYears) {
+    if (yearlyBuffers[buffer] == null
+        || yearlyBuffers[buffer].length != numOfYears) {
+      yearlyBuffers[buffer] = new double[numOfYears];
+    }
+    return yearlyBuffers[buffer];
+  }
+
+  /**
+   * Extracts the first column of a year-major matrix into a recycled buffer,
+   * see {@link AbstractFlatArrayPopulation#getYearlyValues(Matrix2D, int)}.
+   * 
+   * @param matrix
+   *          the matrix
+   * @param numOfYears
+   *          the number of years
+   * @param buffer
+   *          the index of the buffer to be used
+   * @return the values of the first column, one per year
+   */
+  protected double[] getYearlyValues(Matrix2D matrix, int numOfYears,
+      int buffer) {
+    double[] values = getYearlyBuffer(buffer, numOfYears);
+    for (int year = 0; year < numOfYears; year++) {
+      values[year] = matrix.getQuick(year, 0);
+    }
+    return values;
+  }
+
+  /**
+   * Gets the recycled survival columns for the given parameters, the current
+   * year is the first year.
+   * 
+   * @param parameters
+   *          the parameters
+   * @param male
+   *          true for males, false for females
+   * @return the survival columns
+   */
+  protected SurvivalColumns getSurvivalColumns(BasicParameters parameters,
+      boolean male) {
+    SurvivalColumns columns = male ? maleSurvival : femaleSurvival;
+    if (columns == null) {
+      columns = new SurvivalColumns(parameters, male);
+      if (male) {
+        maleSurvival = columns;
+      } else {
+        femaleSurvival = columns;
+      }
+    } else {
+      columns.reset(parameters, male);
+    }
+    return columns;
+  }
+
+  /**
+   * Gets the recycled population rows, starting with the first year of the
+   * given end population.
+   * 
+   * @param end
+   *          the end population
+   * @param numOfYears
+   *          the number of years
+   * @param maxAge
+   *          the maximum age
+   * @return the population rows
+   */
+  protected PopulationRows getPopulationRows(double[] end, int numOfYears,
+      int maxAge) {
+    rows.start(end, numOfYears, maxAge);
+    return rows;
+  }
+
+  /**
+   * Calculates number of children in the current year. See
+   * {@link AbstractFlatArrayPopulation#getNumOfChilds(double[], Matrix2D, int, int)}
+   * .
+   * 
+   * @param meanFemaleRow
+   *          mean female population of the current year (one value per age)
+   * @param fertility
+   *          fertility
+   * @param year
+   *          current year
+   * @return number of children in current year
+   */
+  protected static double getNumOfChilds(double[] meanFemaleRow,
+      Matrix2D fertility, int year) {
+    double[] fert = fertility.getRowMajorElements();
+    int fertIndex = year * fertility.columns();
+    double numOfChilds = 0;
+    for (int age = Constants.FERT_AGE_BEGIN; age < Constants.FERT_AGE_END; age++) {
+      numOfChilds += meanFemaleRow[age + 1] * fert[fertIndex + age + 1];
+    }
+    return numOfChilds;
+  }
+
+  /**
+   * Creates the results from the given population buffers. The buffers are not
+   * copied, the survival probabilities are not set.
+   * 
+   * @param subPopName
+   *          the sub-population name
+   * @param generation
+   *          the generation
+   * @param numOfYears
+   *          the number of years
+   * @param maxAge
+   *          the maximum age
+   * @param endXm
+   *          the male end population
+   * @param endXf
+   *          the female end population
+   * @param meanXm
+   *          the male mean population
+   * @param meanXf
+   *          the female mean population
+   * @return the results
+   */
+  protected static BasicResults createResults(String subPopName,
+      int generation, int numOfYears, int maxAge, double[] endXm,
+      double[] endXf, double[] meanXm, double[] meanXf) {
+    BasicResults results = new BasicResults();
+    results.setSubPopName(subPopName);
+    results.setGeneration(generation);
+    results.setEndXm(new Matrix2D(maxAge + 1, numOfYears, endXm));
+    results.setEndXf(new Matrix2D(maxAge + 1, numOfYears, endXf));
+    results.setMeanXm(new Matrix2D(maxAge + 1, numOfYears, meanXm));
+    results.setMeanXf(new Matrix2D(maxAge + 1, numOfYears, meanXf));
+    return results;
+  }
+
+  /**
+   * Holds the survival probabilities of a single sex for the current year
+   * (P_1 and P_2) and the previous year (P_2 only). Call
+   * {@link SurvivalColumns#nextYear(int)} to advance to the next year. If the
+   * parameters allow it, the columns are copied from the
+   * {@link SurvivalProbabilityCache} instead of being calculated.
+   */
+  protected static class SurvivalColumns {
+
+    /** The cached survival probabilities, null if not available. */
+    private SurvivalProbabilityCache.Table table;
+
+    /** The number of years. */
+    private int numOfYears;
+
+    /** The death probabilities of infants within the first 6 months. */
+    private double[] infant;
+
+    /** The number of columns of the infant death probability matrix. */
+    private int infantStride;
+
+    /** The mortality matrix (year x age). */
+    private double[] mort;
+
+    /** The number of columns of the mortality matrix. */
+    private int mortStride;
+
+    /** The maximum age. */
+    private int maxAge;
+
+    /** Survival probabilities for the first half of the current year. */
+    double[] p1;
+
+    /** Survival probabilities for the second half of the previous year. */
+    double[] p2Prev;
+
+    /** Survival probabilities for the second half of the current year. */
+    double[] p2Cur;
+
+    /**
+     * Instantiates new survival columns, the current year is the first year.
+     * 
+     * @param parameters
+     *          the parameters
+     * @param male
+     *          true for males, false for females
+     */
+    SurvivalColumns(BasicParameters parameters, boolean male) {
+      reset(parameters, male);
+    }
+
+    /**
+     * Resets the survival columns to the given parameters, the current year is
+     * the first year. The buffers are only re-allocated if the maximum age
+     * differs.
+     * 
+     * @param parameters
+     *          the parameters
+     * @param male
+     *          true for males, false for females
+     */
+    final void reset(BasicParameters parameters, boolean male) {
+      Matrix2D deathProbInfant1half = male ? parameters
+          .getDeathProbInfant1halfMale() : parameters
+          .getDeathProbInfant1halfFemale();
+      Matrix2D mortality = male ? parameters.getMortXm() : parameters
+          .getMortXf();
+      table = SurvivalProbabilityCache.getTable(parameters, male);
+      numOfYears = parameters.getNumOfYears();
+      infant = deathProbInfant1half.getRowMajorElements();
+      infantStride = deathProbInfant1half.columns();
+      mort = mortality.getRowMajorElements();
+      mortStride = mortality.columns();
+      if (p1 == null || maxAge != parameters.getMaxAge()) {
+        maxAge = parameters.getMaxAge();
+        p1 = new double[maxAge];
+        p2Prev = new double[maxAge];
+        p2Cur = new double[maxAge];
+      }
+      calculate(0);
+    }
+
+    /**
+     * Advances to the given year, the current year becomes the previous year.
+     * 
+     * @param year
+     *          the year
+     */
+    void nextYear(int year) {
+      double[] swap = p2Prev;
+      p2Prev = p2Cur;
+      p2Cur = swap;
+      calculate(year);
+    }
+
+    /**
+     * Calculates P_1 and P_2 for the given year in a single pass (or copies
+     * them from the cached table). See
+     * {@link AbstractPopulation#getFirstHalfyearSurvProb(Matrix2D, Matrix2D, Matrix2D, int, int)}
+     * and
+     * {@link AbstractPopulation#getSecondHalfyearSurvProb(Matrix2D, Matrix2D, Matrix2D, int, int)}
+     * .
+     * 
+     * @param year
+     *          the year
+     */
+    private void calculate(int year) {
+      if (table != null) {
+        for (int age = 0, index = year; age < maxAge; age++, index += numOfYears) {
+          p1[age] = table.p1[index];
+          p2Cur[age] = table.p2[index];
+        }
+        return;
+      }
+
+      int mortIndex = year * mortStride;
+
+      double deathProbInfant = infant[year * infantStride];
+      double mortCurrentYear = mort[mortIndex];
+      double mortNextYear = mort[mortIndex + 1];
+      double mortDiff = mortCurrentYear - mortNextYear;
+
+      // Age 0 to 0.5
+      p1[0] = 1.0 - ((deathProbInfant * mortDiff) / mortCurrentYear);
+      p2Cur[0] = 1.0 - (((1.0 - deathProbInfant) * mortDiff) / (mortCurrentYear - deathProbInfant
+          * mortDiff));
+
+      // Other ages
+      for (int age = 1; age < maxAge; age++) {
+        mortCurrentYear = mortNextYear;
+        mortNextYear = mort[mortIndex + age + 1];
+        mortDiff = mortCurrentYear - mortNextYear;
+        p1[age] = 1.0 - ((FORCE_MORT_INTERVAL * mortDiff) / mortCurrentYear);
+        p2Cur[age] = 1.0 - ((FORCE_MORT_INTERVAL * mortDiff) / (mortCurrentYear - FORCE_MORT_INTERVAL
+            * mortDiff));
+      }
+    }
+  }
+  /**
+   * Holds the mean and end population of a single sex for the current year,
+   * and the end population of the previous year, one value per age. Call
+   * {@link PopulationRows#store(double[], double[], int)} to store the current
+   * year to the population buffers and to advance to the next year.
+   */
+  protected static class PopulationRows {
+
+    /** The number of years. */
+    private int numOfYears;
+
+    /** The mean population of the current year. */
+    double[] mean;
+
+    /** The end population of the current year. */
+    double[] end;
+
+    /** The end population of the previous year. */
+    double[] prevEnd;
+
+    /**
+     * Starts with the first year of the given end population, i.e. the
+     * previous year of the first year to be calculated. The buffers are only
+     * re-allocated if the maximum age differs.
+     * 
+     * @param endPopulation
+     *          the end population
+     * @param years
+     *          the number of years
+     * @param maxAge
+     *          the maximum age
+     */
+    void start(double[] endPopulation, int years, int maxAge) {
+      if (mean == null || mean.length != maxAge + 1) {
+        mean = new double[maxAge + 1];
+        end = new double[maxAge + 1];
+        prevEnd = new double[maxAge + 1];
+      }
+      numOfYears = years;
+      for (int age = 0, index = 0; age <= maxAge; age++, index += years) {
+        prevEnd[age] = endPopulation[index];
+      }
+    }
+
+    /**
+     * Stores the current year to the given population buffers, the current
+     * year becomes the previous year.
+     * 
+     * @param meanPopulation
+     *          the mean population
+     * @param endPopulation
+     *          the end population
+     * @param year
+     *          the current year
+     */
+    void store(double[] meanPopulation, double[] endPopulation, int year) {
+      for (int age = 0, index = year; age < mean.length; age++, index += numOfYears) {
+        meanPopulation[index] = mean[age];
+        endPopulation[index] = end[age];
+      }
+      double[] swap = prevEnd;
+      prevEnd = end;
+      end = swap;
+    }
+  }
+}
@@ -152,7 +152,9 @@ public abstract class AbstractPopulation<P extends BasicParameters, R extends Ba
   }
 
   /**
-   * Calculate survival probabilities for both halves of the year.
+   * Calculate survival probabilities for both halves of the year. If the
+   * parameters allow it, the survival probabilities are taken from the
+   * {@link SurvivalProbabilityCache}.
    * 
    * @param parameters
    *          the parameters
@@ -162,21 +164,36 @@ public abstract class AbstractPopulation<P extends BasicParameters, R extends Ba
   protected static void calculateSurvivalProbabilities(
       BasicParameters parameters, BasicResults results) {
 
-    // First half of the year
-    getFirstHalfyearSurvProb(results.getP1f(),
-        parameters.getDeathProbInfant1halfFemale(), parameters.getMortXf(),
-        parameters.getNumOfYears(), parameters.getMaxAge());
-    getFirstHalfyearSurvProb(results.getP1m(),
-        parameters.getDeathProbInfant1halfMale(), parameters.getMortXm(),
-        parameters.getNumOfYears(), parameters.getMaxAge());
+    int years = parameters.getNumOfYears();
+    int maxAge = parameters.getMaxAge();
 
-    // Second half of the year
-    getSecondHalfyearSurvProb(results.getP2f(),
-        parameters.getDeathProbInfant1halfFemale(), parameters.getMortXf(),
-        parameters.getNumOfYears(), parameters.getMaxAge());
-    getSecondHalfyearSurvProb(results.getP2m(),
-        parameters.getDeathProbInfant1halfMale(), parameters.getMortXm(),
-        parameters.getNumOfYears(), parameters.getMaxAge());
+    SurvivalProbabilityCache.Table female = SurvivalProbabilityCache.getTable(
+        parameters, false);
+    if (female != null) {
+      results.setP1f(new Matrix2D(maxAge, years, female.p1));
+      results.setP2f(new Matrix2D(maxAge, years, female.p2));
+    } else {
+      getFirstHalfyearSurvProb(results.getP1f(),
+          parameters.getDeathProbInfant1halfFemale(), parameters.getMortXf(),
+          years, maxAge);
+      getSecondHalfyearSurvProb(results.getP2f(),
+          parameters.getDeathProbInfant1halfFemale(), parameters.getMortXf(),
+          years, maxAge);
+    }
+
+    SurvivalProbabilityCache.Table male = SurvivalProbabilityCache.getTable(
+        parameters, true);
+    if (male != null) {
+      results.setP1m(new Matrix2D(maxAge, years, male.p1));
+      results.setP2m(new Matrix2D(maxAge, years, male.p2));
+    } else {
+      getFirstHalfyearSurvProb(results.getP1m(),
+          parameters.getDeathProbInfant1halfMale(), parameters.getMortXm(),
+          years, maxAge);
+      getSecondHalfyearSurvProb(results.getP2m(),
+          parameters.getDeathProbInfant1halfMale(), parameters.getMortXm(),
+          years, maxAge);
+    }
   }
 
   /**
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import java.util.List;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.InFlowDescendantParameters;
+
+/**
+ * Batch variant of {@link InFlowDescendantPopulation}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class BatchInFlowDescendantPopulation extends
+    AbstractBatchPopulation<InFlowDescendantParameters> {
+
+  @Override
+  public List<BasicResults> calculatePopulations(String subPopName,
+      int generation, List<InFlowDescendantParameters> parameters) {
+
+    int batchSize = parameters.size();
+    int years = parameters.get(0).getNumOfYears();
+    int maxAge = parameters.get(0).getMaxAge();
+    Results results = new Results(batchSize, years, maxAge);
+
+    double[] numOfChilds = new double[years * batchSize];
+    for (int k = 0; k < batchSize; k++) {
+      InFlowDescendantParameters params = parameters.get(k);
+      getNumOfChildsPerYear(params.getOldMeanXf(), params.getOldFertX(),
+          numOfChilds, k, batchSize, years);
+    }
+
+    // ...for females
+    calculateMeanAndEndPopulation(numOfChilds,
+        gatherPropLiveBirth(parameters, false), results.meanXf,
+        results.endXf, gatherSurviveProbO100(parameters, false),
+        createSurvivalColumns(parameters, false), batchSize, years, maxAge);
+
+    // ...for males
+    calculateMeanAndEndPopulation(numOfChilds,
+        gatherPropLiveBirth(parameters, true), results.meanXm, results.endXm,
+        gatherSurviveProbO100(parameters, true),
+        createSurvivalColumns(parameters, true), batchSize, years, maxAge);
+
+    return results.create(subPopName, generation);
+  }
+
+  /**
+   * Calculates the number of children per year of a trial, born by the mean
+   * female population of the previous generation. See
+   * {@link FlatArrayInFlowDescendantPopulation#getNumOfChildsPerYear(Matrix2D, Matrix2D, double[], int)}
+   * . The old mean population is read element-wise, as it is usually a view
+   * on the buffers of the previous generation's batch.
+   * 
+   * @param oldMeanXf
+   *          old mean population of females (age x year)
+   * @param oldFertX
+   *          old fertility
+   * @param numOfChilds
+   *          the number of children per year (year * K + k, will be filled)
+   * @param k
+   *          the trial
+   * @param batchSize
+   *          the number of trials
+   * @param numOfYears
+   *          the number of years
+   */
+  static void getNumOfChildsPerYear(Matrix2D oldMeanXf, Matrix2D oldFertX,
+      double[] numOfChilds, int k, int batchSize, int numOfYears) {
+    for (int year = 0; year < numOfYears; year++) {
+      numOfChilds[year * batchSize + k] = 0;
+    }
+    for (int age = Constants.FERT_AGE_BEGIN; age < Constants.FERT_AGE_END; age++) {
+      for (int year = 1; year < numOfYears; year++) {
+        numOfChilds[year * batchSize + k] += oldMeanXf.getQuick(age + 1, year)
+            * oldFertX.getQuick(year, age + 1);
+      }
+    }
+  }
+
+  /**
+   * Calculates mean and end populations of all trials. See
+   * {@link FusedSweepInFlowDescendantPopulation#calculateMeanAndEndPopulation(double[], double[], double[], double[], double[], AbstractFusedSweepPopulation.SurvivalColumns, int, int)}
+   * .
+   * 
+   * @param numOfChilds
+   *          the number of children per year (year * K + k)
+   * @param propLiveBirth
+   *          the yearly proportions of live births of this sex
+   * @param mean
+   *          mean populations ([year][age][trial], filled by this method)
+   * @param end
+   *          end populations ([year][age][trial], filled by this method)
+   * @param surviveProbO100
+   *          the yearly survival probabilities of the over-100-years-olds
+   * @param surv
+   *          the survival probabilities
+   * @param batchSize
+   *          the number of trials
+   * @param numOfYears
+   *          number of years to be predicted
+   * @param maxAge
+   *          the maximum age
+   */
+  static void calculateMeanAndEndPopulation(double[] numOfChilds,
+      double[] propLiveBirth, double[] mean, double[] end,
+      double[] surviveProbO100, BatchSurvivalColumns surv, int batchSize,
+      int numOfYears, int maxAge) {
+
+    int yearLength = (maxAge + 1) * batchSize;
+    int maxAgeIndex = maxAge * batchSize;
+
+    for (int year = 1; year < numOfYears; year++) {
+      surv.nextYear(year);
+      double[] p1 = surv.p1;
+      double[] p2Prev = surv.p2Prev;
+      int yearIndex = year * batchSize;
+      int cur = year * yearLength;
+      int prev = cur - yearLength;
+
+      for (int k = 0; k < batchSize; k++) {
+        mean[cur + k] = numOfChilds[yearIndex + k]
+            * propLiveBirth[yearIndex + k];
+        end[cur + k] = mean[cur + k] * p1[k];
+      }
+
+      for (int index = batchSize; index < maxAgeIndex; index++) {
+        mean[cur + index] = end[prev + index - batchSize]
+            * p2Prev[index - batchSize];
+        end[cur + index] = mean[cur + index] * p1[index];
+      }
+
+      for (int k = 0; k < batchSize; k++) {
+        int index = maxAgeIndex + k;
+        mean[cur + index] = end[prev + index - batchSize]
+            * p2Prev[index - batchSize] + end[prev + index]
+            * surviveProbO100[yearIndex + k];
+        end[cur + index] = mean[cur + index] * surviveProbO100[yearIndex + k];
+      }
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.InFlowParameters;
+
+/**
+ * Batch variant of {@link InFlowPopulation}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class BatchInFlowPopulation extends
+    AbstractBatchPopulation<InFlowParameters> {
+
+  @Override
+  public List<BasicResults> calculatePopulations(String subPopName,
+      int generation, List<InFlowParameters> parameters) {
+
+    if (generation != 0)
+      throw new IllegalArgumentException(
+          "Only supports generation-0 populations");
+
+    int batchSize = parameters.size();
+    int years = parameters.get(0).getNumOfYears();
+    int maxAge = parameters.get(0).getMaxAge();
+    Results results = new Results(batchSize, years, maxAge);
+
+    List<Matrix2D> migrantsXf = new ArrayList<>(batchSize);
+    List<Matrix2D> migrantsXm = new ArrayList<>(batchSize);
+    for (InFlowParameters params : parameters) {
+      migrantsXf.add(params.getMigrantsXf());
+      migrantsXm.add(params.getMigrantsXm());
+    }
+
+    // ...for females
+    calculateMeanAndEndPopulation(results.meanXf, results.endXf, migrantsXf,
+        gatherSurviveProbO100(parameters, false),
+        createSurvivalColumns(parameters, false), batchSize, years, maxAge);
+
+    // ...for males
+    calculateMeanAndEndPopulation(results.meanXm, results.endXm, migrantsXm,
+        gatherSurviveProbO100(parameters, true),
+        createSurvivalColumns(parameters, true), batchSize, years, maxAge);
+
+    return results.create(subPopName, generation);
+  }
+
+  /**
+   * Calculates mean and end populations of all trials. See
+   * {@link FusedSweepInFlowPopulation#calculateMeanAndEndPopulation(double[], double[], Matrix2D, double[], AbstractFusedSweepPopulation.SurvivalColumns, int, int)}
+   * .
+   * 
+   * @param mean
+   *          mean populations ([year][age][trial], will be filled)
+   * @param end
+   *          end populations ([year][age][trial], will be filled)
+   * @param migrants
+   *          the migrants, one matrix per trial
+   * @param surviveProbO100
+   *          the yearly survival probabilities of the over-100-years-olds
+   * @param surv
+   *          the survival probabilities
+   * @param batchSize
+   *          the number of trials
+   * @param numOfYears
+   *          number of years to be predicted
+   * @param maxAge
+   *          the maximum age class
+   */
+  static void calculateMeanAndEndPopulation(double[] mean, double[] end,
+      List<Matrix2D> migrants, double[] surviveProbO100,
+      BatchSurvivalColumns surv, int batchSize, int numOfYears, int maxAge) {
+
+    int yearLength = (maxAge + 1) * batchSize;
+    int maxAgeIndex = maxAge * batchSize;
+
+    double[][] mig = getElements(migrants);
+    int[] migStrides = getStrides(migrants);
+    double[] migCur = new double[(maxAge + 1) * batchSize];
+    double[] migPrev = new double[(maxAge + 1) * batchSize];
+    gatherYear(migPrev, mig, migStrides, 0, maxAge + 1);
+
+    for (int year = 1; year < numOfYears; year++) {
+      surv.nextYear(year);
+      double[] p1 = surv.p1;
+      double[] p2Prev = surv.p2Prev;
+      int yearIndex = year * batchSize;
+      int cur = year * yearLength;
+      int prev = cur - yearLength;
+      gatherYear(migCur, mig, migStrides, year, maxAge + 1);
+
+      // Age 0
+      for (int k = 0; k < batchSize; k++) {
+        mean[cur + k] = 0;
+        end[cur + k] = mean[cur + k] * p1[k] + migCur[k];
+      }
+
+      // Age 1
+      if (maxAge > 1) {
+        for (int index = batchSize; index < 2 * batchSize; index++) {
+          mean[cur + index] = (migPrev[index - batchSize] + migCur[index] / 2)
+              * p2Prev[index - batchSize];
+          end[cur + index] = mean[cur + index] * p1[index] + migCur[index] / 2;
+        }
+      }
+
+      // Other ages
+      for (int index = 2 * batchSize; index < maxAgeIndex; index++) {
+        mean[cur + index] = (migCur[index] / 2 + end[prev + index - batchSize])
+            * p2Prev[index - batchSize];
+        end[cur + index] = mean[cur + index] * p1[index] + migCur[index] / 2;
+      }
+
+      // Maximum age
+      for (int k = 0; k < batchSize; k++) {
+        int index = maxAgeIndex + k;
+        mean[cur + index] = end[prev + index - batchSize]
+            * p2Prev[index - batchSize] + (migCur[index] / 2)
+            * surviveProbO100[yearIndex + k];
+        end[cur + index] = mean[cur + index] * surviveProbO100[yearIndex + k]
+            + migCur[index] / 2;
+      }
+
+      double[] swap = migPrev;
+      migPrev = migCur;
+      migCur = swap;
+    }
+  }
+}
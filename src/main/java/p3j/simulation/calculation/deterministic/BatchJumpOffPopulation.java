@@ -0,0 +1,184 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.JumpOffParameters;
+
+/**
+ * Batch variant of {@link JumpOffPopulation}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class BatchJumpOffPopulation extends
+    AbstractBatchPopulation<JumpOffParameters> {
+
+  @Override
+  public List<BasicResults> calculatePopulations(String subPopName,
+      int generation, List<JumpOffParameters> parameters) {
+
+    int batchSize = parameters.size();
+    int years = parameters.get(0).getNumOfYears();
+    int maxAge = parameters.get(0).getMaxAge();
+    Results results = new Results(batchSize, years, maxAge);
+
+    List<Matrix2D> fertility = new ArrayList<>(batchSize);
+    for (int k = 0; k < batchSize; k++) {
+      JumpOffParameters params = parameters.get(k);
+      storeStartYearPopulation(results.endXf, params.getPEndSYf(), k,
+          batchSize, maxAge);
+      storeStartYearPopulation(results.endXm, params.getPEndSYm(), k,
+          batchSize, maxAge);
+      fertility.add(params.getFertX());
+    }
+
+    // Females first, the number of children is needed for the males as well
+    double[] numOfChilds = new double[years * batchSize];
+    calculateMeanAndEndPopulation(results.meanXf, results.endXf,
+        createSurvivalColumns(parameters, false),
+        gatherSurviveProbO100(parameters, false),
+        gatherPropLiveBirth(parameters, false), fertility, numOfChilds,
+        batchSize, years, maxAge);
+    calculateMeanAndEndPopulation(results.meanXm, results.endXm,
+        createSurvivalColumns(parameters, true),
+        gatherSurviveProbO100(parameters, true),
+        gatherPropLiveBirth(parameters, true), null, numOfChilds, batchSize,
+        years, maxAge);
+
+    return results.create(subPopName, generation);
+  }
+
+  /**
+   * Stores the start year population of a trial to the first year of the end
+   * population.
+   * 
+   * @param end
+   *          the end populations ([year][age][trial])
+   * @param startYearPopulation
+   *          the start year population of the trial
+   * @param k
+   *          the trial
+   * @param batchSize
+   *          the number of trials
+   * @param maxAge
+   *          the maximum age
+   */
+  static void storeStartYearPopulation(double[] end,
+      Matrix2D startYearPopulation, int k, int batchSize, int maxAge) {
+    if (startYearPopulation.columns() != maxAge + 1) {
+      throw new IllegalArgumentException("Matrix operation error: Can't store "
+          + startYearPopulation.columns() + " - value vector to matrix with "
+          + (maxAge + 1) + " rows");
+    }
+    for (int age = 0; age <= maxAge; age++) {
+      end[age * batchSize + k] = startYearPopulation.getQuick(0, age);
+    }
+  }
+
+  /**
+   * Calculates mean and end populations of all trials. See
+   * {@link FusedSweepJumpOffPopulation#calculateMeanAndEndPopulation(double[], double[], AbstractFusedSweepPopulation.SurvivalColumns, double[], double[], Matrix2D, double[], int, int)}
+   * .
+   * 
+   * @param mean
+   *          the mean populations ([year][age][trial], will be filled)
+   * @param end
+   *          the end populations ([year][age][trial], will be filled, except
+   *          the first year)
+   * @param surv
+   *          the survival probabilities
+   * @param surviveProbO100
+   *          the yearly survival probabilities of the over-100-years-olds
+   * @param liveBirthProp
+   *          the yearly proportions of live births belonging to this sex
+   * @param fertility
+   *          the fertility matrices, if null the number of children per year
+   *          will be read from numOfChilds instead of being calculated
+   * @param numOfChilds
+   *          the number of children per year (year * K + k)
+   * @param batchSize
+   *          the number of trials
+   * @param numOfYears
+   *          the number of years
+   * @param maxAge
+   *          the maximum age
+   */
+  static void calculateMeanAndEndPopulation(double[] mean, double[] end,
+      BatchSurvivalColumns surv, double[] surviveProbO100,
+      double[] liveBirthProp, List<Matrix2D> fertility, double[] numOfChilds,
+      int batchSize, int numOfYears, int maxAge) {
+
+    int yearLength = (maxAge + 1) * batchSize;
+    int maxAgeIndex = maxAge * batchSize;
+
+    double[][] fert = fertility == null ? null : getElements(fertility);
+    int[] fertStrides = fertility == null ? null : getStrides(fertility);
+    double[] fertSlice = fertility == null ? null
+        : new double[(Constants.FERT_AGE_END + 1) * batchSize];
+
+    for (int year = 1; year < numOfYears; year++) {
+      surv.nextYear(year);
+      double[] p1 = surv.p1;
+      double[] p2Prev = surv.p2Prev;
+      double[] p2Cur = surv.p2Cur;
+      int yearIndex = year * batchSize;
+      int cur = year * yearLength;
+      int prev = cur - yearLength;
+
+      for (int index = batchSize; index < maxAgeIndex; index++) {
+        mean[cur + index] = end[prev + index - batchSize]
+            * p2Prev[index - batchSize];
+      }
+
+      if (fert != null) {
+        gatherYear(fertSlice, fert, fertStrides, year,
+            Constants.FERT_AGE_END + 1);
+        for (int k = 0; k < batchSize; k++) {
+          numOfChilds[yearIndex + k] = 0;
+        }
+        for (int age = Constants.FERT_AGE_BEGIN; age < Constants.FERT_AGE_END; age++) {
+          int index = (age + 1) * batchSize;
+          for (int k = 0; k < batchSize; k++) {
+            numOfChilds[yearIndex + k] += mean[cur + index + k]
+                * fertSlice[index + k];
+          }
+        }
+      }
+
+      for (int k = 0; k < batchSize; k++) {
+        mean[cur + k] = numOfChilds[yearIndex + k]
+            * liveBirthProp[yearIndex + k];
+        mean[cur + maxAgeIndex + k] = end[prev + maxAgeIndex - batchSize + k]
+            * p2Cur[maxAgeIndex - batchSize + k] + end[prev + maxAgeIndex + k]
+            * surviveProbO100[yearIndex + k];
+      }
+
+      for (int index = 0; index < maxAgeIndex; index++) {
+        end[cur + index] = mean[cur + index] * p1[index];
+      }
+      for (int k = 0; k < batchSize; k++) {
+        end[cur + maxAgeIndex + k] = mean[cur + maxAgeIndex + k]
+            * surviveProbO100[yearIndex + k];
+      }
+    }
+  }
+}
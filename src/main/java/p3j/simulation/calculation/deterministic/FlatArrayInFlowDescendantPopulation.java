@@ -0,0 +1,166 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import java.util.Arrays;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.InFlowDescendantParameters;
+
+/**
+ * Array-based variant of {@link InFlowDescendantPopulation}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class FlatArrayInFlowDescendantPopulation extends
+    AbstractFlatArrayPopulation<InFlowDescendantParameters> {
+
+  @Override
+  public BasicResults calculatePopulation(String subPopName, int generation,
+      InFlowDescendantParameters parameters) {
+
+    int years = parameters.getNumOfYears();
+    int maxAge = parameters.getMaxAge();
+    Buffers buffers = new Buffers(parameters);
+
+    double[] numOfChilds = getNumOfChildsPerYear(parameters.getOldMeanXf(),
+        parameters.getOldFertX(), years);
+
+    // ...for females
+    calculateMeanAndEndPopulation(numOfChilds,
+        getYearlyValues(parameters.getFemalePropLiveBirth(), years),
+        buffers.meanXf, buffers.endXf,
+        getYearlyValues(parameters.getSurviveProbO100f(), years), buffers.p1f,
+        buffers.p2f, years, maxAge);
+
+    // ...for males
+    calculateMeanAndEndPopulation(numOfChilds,
+        getYearlyValues(parameters.getMalePropLiveBirth(), years),
+        buffers.meanXm, buffers.endXm,
+        getYearlyValues(parameters.getSurviveProbO100m(), years), buffers.p1m,
+        buffers.p2m, years, maxAge);
+
+    return createResults(subPopName, generation, years, maxAge, buffers);
+  }
+
+  /**
+   * Calculates the number of children per year, born by the mean female
+   * population of the previous generation.
+   * 
+   * @param oldMeanXf
+   *          old mean population of females (age x year)
+   * @param oldFertX
+   *          old fertility
+   * @param numOfYears
+   *          the number of years
+   * @return the number of children per year
+   */
+  static double[] getNumOfChildsPerYear(Matrix2D oldMeanXf, Matrix2D oldFertX,
+      int numOfYears) {
+    double[] numOfChilds = new double[numOfYears];
+    getNumOfChildsPerYear(oldMeanXf, oldFertX, numOfChilds, numOfYears);
+    return numOfChilds;
+  }
+
+  /**
+   * Calculates the number of children per year, born by the mean female
+   * population of the previous generation, into the given buffer.
+   * 
+   * @param oldMeanXf
+   *          old mean population of females (age x year)
+   * @param oldFertX
+   *          old fertility
+   * @param numOfChilds
+   *          the buffer for the number of children per year (will be filled)
+   * @param numOfYears
+   *          the number of years
+   */
+  static void getNumOfChildsPerYear(Matrix2D oldMeanXf, Matrix2D oldFertX,
+      double[] numOfChilds, int numOfYears) {
+    double[] oldMean = oldMeanXf.getRowMajorElements();
+    int oldMeanStride = oldMeanXf.columns();
+    double[] oldFert = oldFertX.getRowMajorElements();
+    int oldFertStride = oldFertX.columns();
+    Arrays.fill(numOfChilds, 0, numOfYears, 0);
+
+    // The children are summed up in the same order (by age) for each year, but
+    // the mean population is read with unit stride
+    for (int age = Constants.FERT_AGE_BEGIN; age < Constants.FERT_AGE_END; age++) {
+      int oldMeanIndex = (age + 1) * oldMeanStride;
+      for (int year = 1; year < numOfYears; year++) {
+        numOfChilds[year] += oldMean[oldMeanIndex + year]
+            * oldFert[year * oldFertStride + age + 1];
+      }
+    }
+  }
+
+  /**
+   * Calculates mean and end populations. See
+   * {@link InFlowDescendantPopulation#calculateMeanAndEndPopulation(Matrix2D, Matrix2D, Matrix2D, Matrix2D, Matrix2D, Matrix2D, Matrix2D, Matrix2D, int, int)}
+   * .
+   * 
+   * @param numOfChilds
+   *          the number of children per year
+   * @param propLiveBirth
+   *          the yearly proportions of live births of this sex
+   * @param mean
+   *          mean population (filled by this method)
+   * @param end
+   *          end population (filled by this method)
+   * @param surviveProbO100
+   *          the yearly survival probabilities of the over-100-years-olds
+   * @param p1
+   *          the survival probabilities for the first half-year
+   * @param p2
+   *          the survival probabilities for the second half-year
+   * @param numOfYears
+   *          number of years to be predicted
+   * @param maxAge
+   *          the maximum age
+   */
+  static void calculateMeanAndEndPopulation(double[] numOfChilds,
+      double[] propLiveBirth, double[] mean, double[] end,
+      double[] surviveProbO100, double[] p1, double[] p2, int numOfYears,
+      int maxAge) {
+
+    // Each age class only depends on the previous age class of the previous
+    // year, so the buffers are filled age by age, with unit stride
+    for (int year = 1; year < numOfYears; year++) {
+      mean[year] = numOfChilds[year] * propLiveBirth[year];
+      end[year] = mean[year] * p1[year];
+    }
+
+    for (int age = 1; age < maxAge; age++) {
+      int ageIndex = age * numOfYears;
+      for (int year = 1; year < numOfYears; year++) {
+        int index = ageIndex + year;
+        mean[index] = end[index - numOfYears - 1] * p2[index - numOfYears - 1];
+        end[index] = mean[index] * p1[index];
+      }
+    }
+
+    int maxAgeIndex = maxAge * numOfYears;
+    for (int year = 1; year < numOfYears; year++) {
+      int index = maxAgeIndex + year;
+      mean[index] = end[index - numOfYears - 1] * p2[index - numOfYears - 1]
+          + end[index - 1] * surviveProbO100[year];
+      end[index] = mean[index] * surviveProbO100[year];
+    }
+  }
+}
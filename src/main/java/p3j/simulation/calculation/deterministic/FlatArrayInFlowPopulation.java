@@ -0,0 +1,130 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.InFlowParameters;
+
+/**
+ * Array-based variant of {@link InFlowPopulation}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class FlatArrayInFlowPopulation extends
+    AbstractFlatArrayPopulation<InFlowParameters> {
+
+  @Override
+  public BasicResults calculatePopulation(String subPopName, int generation,
+      InFlowParameters parameters) {
+
+    if (generation != 0)
+      throw new IllegalArgumentException(
+          "Only supports generation-0 populations");
+
+    int years = parameters.getNumOfYears();
+    int maxAge = parameters.getMaxAge();
+    Buffers buffers = new Buffers(parameters);
+
+    // ...for females
+    calculateMeanAndEndPopulation(buffers.meanXf, buffers.endXf,
+        parameters.getMigrantsXf(),
+        getYearlyValues(parameters.getSurviveProbO100f(), years), buffers.p1f,
+        buffers.p2f, years, maxAge);
+
+    // ...for males
+    calculateMeanAndEndPopulation(buffers.meanXm, buffers.endXm,
+        parameters.getMigrantsXm(),
+        getYearlyValues(parameters.getSurviveProbO100m(), years), buffers.p1m,
+        buffers.p2m, years, maxAge);
+
+    return createResults(subPopName, generation, years, maxAge, buffers);
+  }
+
+  /**
+   * Calculates mean and end populations. See
+   * {@link InFlowPopulation#calculateMeanAndEndPopulation(Matrix2D, Matrix2D, Matrix2D, Matrix2D, Matrix2D, Matrix2D, int, int)}
+   * .
+   * 
+   * @param mean
+   *          mean population (will be filled)
+   * @param end
+   *          end population (will be filled)
+   * @param migrants
+   *          the migrants
+   * @param surviveProbO100
+   *          the yearly survival probabilities of the over-100-years-olds
+   * @param p1
+   *          the survival probabilities for the first half-year
+   * @param p2
+   *          the survival probabilities for the second half-year
+   * @param numOfYears
+   *          number of years to be predicted
+   * @param maxAge
+   *          the maximum age class
+   */
+  static void calculateMeanAndEndPopulation(double[] mean, double[] end,
+      Matrix2D migrants, double[] surviveProbO100, double[] p1, double[] p2,
+      int numOfYears, int maxAge) {
+
+    double[] mig = migrants.getRowMajorElements();
+    int migStride = migrants.columns();
+
+    // Each age class only depends on the previous age class of the previous
+    // year, so the buffers are filled age by age, with unit stride
+    // Age 0
+    for (int year = 1; year < numOfYears; year++) {
+      mean[year] = 0;
+      end[year] = mean[year] * p1[year] + mig[year * migStride];
+    }
+
+    // Age 1
+    if (maxAge > 1) {
+      for (int year = 1; year < numOfYears; year++) {
+        int curMig = year * migStride;
+        int index = numOfYears + year;
+        mean[index] = (mig[curMig - migStride] + mig[curMig + 1] / 2)
+            * p2[year - 1];
+        end[index] = mean[index] * p1[index] + mig[curMig + 1] / 2;
+      }
+    }
+
+    // Other ages
+    for (int age = 2; age < maxAge; age++) {
+      int ageIndex = age * numOfYears;
+      for (int year = 1; year < numOfYears; year++) {
+        int index = ageIndex + year;
+        double halfMigrants = mig[year * migStride + age] / 2;
+        mean[index] = (halfMigrants + end[index - numOfYears - 1])
+            * p2[index - numOfYears - 1];
+        end[index] = mean[index] * p1[index] + halfMigrants;
+      }
+    }
+
+    // Maximum age
+    int maxAgeIndex = maxAge * numOfYears;
+    for (int year = 1; year < numOfYears; year++) {
+      int curMig = year * migStride;
+      int index = maxAgeIndex + year;
+      mean[index] = end[index - numOfYears - 1] * p2[index - numOfYears - 1]
+          + (mig[curMig + maxAge] / 2) * surviveProbO100[year];
+      end[index] = mean[index] * surviveProbO100[year] + mig[curMig + maxAge]
+          / 2;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.JumpOffParameters;
+
+/**
+ * Array-based variant of {@link JumpOffPopulation}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class FlatArrayJumpOffPopulation extends
+    AbstractFlatArrayPopulation<JumpOffParameters> {
+
+  @Override
+  public BasicResults calculatePopulation(String subPopName, int generation,
+      JumpOffParameters parameters) {
+
+    int years = parameters.getNumOfYears();
+    int maxAge = parameters.getMaxAge();
+    Buffers buffers = new Buffers(parameters);
+
+    // Storing start year populations to results
+    storeStartYearPopulation(buffers.endXf, parameters.getPEndSYf(), years,
+        maxAge);
+    storeStartYearPopulation(buffers.endXm, parameters.getPEndSYm(), years,
+        maxAge);
+
+    // Females first, the number of children is needed for the males as well
+    double[] numOfChilds = new double[years];
+    calculateMeanAndEndPopulation(buffers.meanXf, buffers.endXf, buffers.p1f,
+        buffers.p2f, getYearlyValues(parameters.getSurviveProbO100f(), years),
+        getYearlyValues(parameters.getFemalePropLiveBirth(), years),
+        parameters.getFertX(), numOfChilds, years, maxAge);
+    calculateMeanAndEndPopulation(buffers.meanXm, buffers.endXm, buffers.p1m,
+        buffers.p2m, getYearlyValues(parameters.getSurviveProbO100m(), years),
+        getYearlyValues(parameters.getMalePropLiveBirth(), years), null,
+        numOfChilds, years, maxAge);
+
+    return createResults(subPopName, generation, years, maxAge, buffers);
+  }
+
+  /**
+   * Stores the start year population to the first year of the end population.
+   * 
+   * @param endPopulation
+   *          the end population
+   * @param startYearPopulation
+   *          the start year population (first row is used)
+   * @param numOfYears
+   *          the number of years
+   * @param maxAge
+   *          the maximum age
+   */
+  static void storeStartYearPopulation(double[] endPopulation,
+      Matrix2D startYearPopulation, int numOfYears, int maxAge) {
+    if (startYearPopulation.columns() != maxAge + 1) {
+      throw new IllegalArgumentException("Matrix operation error: Can't store "
+          + startYearPopulation.columns() + " - value vector to matrix with "
+          + (maxAge + 1) + " rows");
+    }
+    double[] startYear = startYearPopulation.getRowMajorElements();
+    for (int age = 0; age <= maxAge; age++) {
+      endPopulation[age * numOfYears] = startYear[age];
+    }
+  }
+
+  /**
+   * Calculates mean and end population.
+   * 
+   * @param mean
+   *          the mean population (will be filled)
+   * @param end
+   *          the end population (will be filled, except the first year)
+   * @param p1
+   *          the survival probabilities for the first half-year
+   * @param p2
+   *          the survival probabilities for the second half-year
+   * @param surviveProbO100
+   *          the yearly survival probabilities of the over-100-years-olds
+   * @param liveBirthProp
+   *          the yearly proportions of live births belonging to this sex
+   * @param fertility
+   *          the fertility, if null the number of children per year will be
+   *          read from numOfChilds instead of being calculated
+   * @param numOfChilds
+   *          the number of children per year
+   * @param numOfYears
+   *          the number of years
+   * @param maxAge
+   *          the maximum age
+   */
+  static void calculateMeanAndEndPopulation(double[] mean, double[] end,
+      double[] p1, double[] p2, double[] surviveProbO100,
+      double[] liveBirthProp, Matrix2D fertility, double[] numOfChilds,
+      int numOfYears, int maxAge) {
+
+    int maxAgeIndex = maxAge * numOfYears;
+
+    for (int year = 1; year < numOfYears; year++) {
+
+      for (int age = 1; age < maxAge; age++) {
+        int index = age * numOfYears + year;
+        mean[index] = end[index - numOfYears - 1] * p2[index - numOfYears - 1];
+      }
+
+      if (fertility != null) {
+        numOfChilds[year] = getNumOfChilds(mean, fertility, year, numOfYears);
+      }
+
+      mean[year] = numOfChilds[year] * liveBirthProp[year];
+      mean[maxAgeIndex + year] = end[maxAgeIndex - numOfYears + year - 1]
+          * p2[maxAgeIndex - numOfYears + year]
+          + end[maxAgeIndex + year - 1] * surviveProbO100[year];
+
+      for (int age = 0; age < maxAge; age++) {
+        int index = age * numOfYears + year;
+        end[index] = mean[index] * p1[index];
+      }
+      end[maxAgeIndex + year] = mean[maxAgeIndex + year]
+          * surviveProbO100[year];
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import p3j.experiment.results.BasicResults;
+import p3j.simulation.calculation.deterministic.parameters.InFlowDescendantParameters;
+
+/**
+ * Variant of {@link InFlowDescendantPopulation} that calculates the survival
+ * probabilities within the sweep over the years.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class FusedSweepInFlowDescendantPopulation extends
+    AbstractFusedSweepPopulation<InFlowDescendantParameters> {
+
+  @Override
+  public BasicResults calculatePopulation(String subPopName, int generation,
+      InFlowDescendantParameters parameters) {
+
+    int years = parameters.getNumOfYears();
+    int maxAge = parameters.getMaxAge();
+    double[] endXm = new double[(maxAge + 1) * years];
+    double[] endXf = new double[(maxAge + 1) * years];
+    double[] meanXm = new double[(maxAge + 1) * years];
+    double[] meanXf = new double[(maxAge + 1) * years];
+
+    double[] numOfChilds = getYearlyBuffer(0, years);
+    FlatArrayInFlowDescendantPopulation.getNumOfChildsPerYear(
+        parameters.getOldMeanXf(), parameters.getOldFertX(), numOfChilds,
+        years);
+
+    // ...for females
+    calculateMeanAndEndPopulation(numOfChilds,
+        getYearlyValues(parameters.getFemalePropLiveBirth(), years, 1), meanXf,
+        endXf, getPopulationRows(endXf, years, maxAge), getYearlyValues(parameters.getSurviveProbO100f(), years, 2),
+        getSurvivalColumns(parameters, false), years, maxAge);
+
+    // ...for males
+    calculateMeanAndEndPopulation(numOfChilds,
+        getYearlyValues(parameters.getMalePropLiveBirth(), years, 3), meanXm,
+        endXm, getPopulationRows(endXm, years, maxAge), getYearlyValues(parameters.getSurviveProbO100m(), years, 4),
+        getSurvivalColumns(parameters, true), years, maxAge);
+
+    return createResults(subPopName, generation, years, maxAge, endXm, endXf,
+        meanXm, meanXf);
+  }
+
+  /**
+   * Calculates mean and end populations. See
+   * {@link FlatArrayInFlowDescendantPopulation#calculateMeanAndEndPopulation(double[], double[], double[], double[], double[], double[], double[], int, int)}
+   * .
+   * 
+   * @param numOfChilds
+   *          the number of children per year
+   * @param propLiveBirth
+   *          the yearly proportions of live births of this sex
+   * @param mean
+   *          mean population (filled by this method)
+   * @param end
+   *          end population (filled by this method)
+   * @param rows
+   *          the population rows, starting with the first year
+   * @param surviveProbO100
+   *          the yearly survival probabilities of the over-100-years-olds
+   * @param surv
+   *          the survival probabilities
+   * @param numOfYears
+   *          number of years to be predicted
+   * @param maxAge
+   *          the maximum age
+   */
+  static void calculateMeanAndEndPopulation(double[] numOfChilds,
+      double[] propLiveBirth, double[] mean, double[] end,
+      PopulationRows rows, double[] surviveProbO100, SurvivalColumns surv,
+      int numOfYears, int maxAge) {
+
+    for (int year = 1; year < numOfYears; year++) {
+      surv.nextYear(year);
+      double[] p1 = surv.p1;
+      double[] p2Prev = surv.p2Prev;
+      double[] meanRow = rows.mean;
+      double[] endRow = rows.end;
+      double[] prevEndRow = rows.prevEnd;
+
+      meanRow[0] = numOfChilds[year] * propLiveBirth[year];
+      endRow[0] = meanRow[0] * p1[0];
+
+      for (int age = 1; age < maxAge; age++) {
+        meanRow[age] = prevEndRow[age - 1] * p2Prev[age - 1];
+        endRow[age] = meanRow[age] * p1[age];
+      }
+
+      meanRow[maxAge] = prevEndRow[maxAge - 1] * p2Prev[maxAge - 1]
+          + prevEndRow[maxAge] * surviveProbO100[year];
+      endRow[maxAge] = meanRow[maxAge] * surviveProbO100[year];
+      rows.store(mean, end, year);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.InFlowParameters;
+
+/**
+ * Variant of {@link InFlowPopulation} that calculates the survival
+ * probabilities within the sweep over the years.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class FusedSweepInFlowPopulation extends
+    AbstractFusedSweepPopulation<InFlowParameters> {
+
+  @Override
+  public BasicResults calculatePopulation(String subPopName, int generation,
+      InFlowParameters parameters) {
+
+    if (generation != 0)
+      throw new IllegalArgumentException(
+          "Only supports generation-0 populations");
+
+    int years = parameters.getNumOfYears();
+    int maxAge = parameters.getMaxAge();
+    double[] endXm = new double[(maxAge + 1) * years];
+    double[] endXf = new double[(maxAge + 1) * years];
+    double[] meanXm = new double[(maxAge + 1) * years];
+    double[] meanXf = new double[(maxAge + 1) * years];
+
+    // ...for females
+    calculateMeanAndEndPopulation(meanXf, endXf,
+        getPopulationRows(endXf, years, maxAge), parameters.getMigrantsXf(),
+        getYearlyValues(parameters.getSurviveProbO100f(), years, 0),
+        getSurvivalColumns(parameters, false), years, maxAge);
+
+    // ...for males
+    calculateMeanAndEndPopulation(meanXm, endXm,
+        getPopulationRows(endXm, years, maxAge), parameters.getMigrantsXm(),
+        getYearlyValues(parameters.getSurviveProbO100m(), years, 1),
+        getSurvivalColumns(parameters, true), years, maxAge);
+
+    return createResults(subPopName, generation, years, maxAge, endXm, endXf,
+        meanXm, meanXf);
+  }
+
+  /**
+   * Calculates mean and end populations. See
+   * {@link FlatArrayInFlowPopulation#calculateMeanAndEndPopulation(double[], double[], Matrix2D, double[], double[], double[], int, int)}
+   * .
+   * 
+   * @param mean
+   *          mean population (will be filled)
+   * @param end
+   *          end population (will be filled)
+   * @param rows
+   *          the population rows, starting with the first year
+   * @param migrants
+   *          the migrants
+   * @param surviveProbO100
+   *          the yearly survival probabilities of the over-100-years-olds
+   * @param surv
+   *          the survival probabilities
+   * @param numOfYears
+   *          number of years to be predicted
+   * @param maxAge
+   *          the maximum age class
+   */
+  static void calculateMeanAndEndPopulation(double[] mean, double[] end,
+      PopulationRows rows, Matrix2D migrants, double[] surviveProbO100,
+      SurvivalColumns surv, int numOfYears, int maxAge) {
+
+    double[] mig = migrants.getRowMajorElements();
+    int migStride = migrants.columns();
+
+    for (int year = 1; year < numOfYears; year++) {
+      surv.nextYear(year);
+      double[] p1 = surv.p1;
+      double[] p2Prev = surv.p2Prev;
+      double[] meanRow = rows.mean;
+      double[] endRow = rows.end;
+      double[] prevEndRow = rows.prevEnd;
+      int curMig = year * migStride;
+      int prevMig = curMig - migStride;
+
+      // Age 0
+      meanRow[0] = 0;
+      endRow[0] = meanRow[0] * p1[0] + mig[curMig];
+
+      // Age 1
+      if (maxAge > 1) {
+        meanRow[1] = (mig[prevMig] + mig[curMig + 1] / 2) * p2Prev[0];
+        endRow[1] = meanRow[1] * p1[1] + mig[curMig + 1] / 2;
+      }
+
+      // Other ages
+      for (int age = 2; age < maxAge; age++) {
+        meanRow[age] = (mig[curMig + age] / 2 + prevEndRow[age - 1])
+            * p2Prev[age - 1];
+        endRow[age] = meanRow[age] * p1[age] + mig[curMig + age] / 2;
+      }
+
+      // Maximum age
+      meanRow[maxAge] = prevEndRow[maxAge - 1] * p2Prev[maxAge - 1]
+          + (mig[curMig + maxAge] / 2) * surviveProbO100[year];
+      endRow[maxAge] = meanRow[maxAge] * surviveProbO100[year]
+          + mig[curMig + maxAge] / 2;
+      rows.store(mean, end, year);
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.JumpOffParameters;
+
+/**
+ * Variant of {@link JumpOffPopulation} that calculates the survival
+ * probabilities within the sweep over the years.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class FusedSweepJumpOffPopulation extends
+    AbstractFusedSweepPopulation<JumpOffParameters> {
+
+  @Override
+  public BasicResults calculatePopulation(String subPopName, int generation,
+      JumpOffParameters parameters) {
+
+    int years = parameters.getNumOfYears();
+    int maxAge = parameters.getMaxAge();
+    double[] endXm = new double[(maxAge + 1) * years];
+    double[] endXf = new double[(maxAge + 1) * years];
+    double[] meanXm = new double[(maxAge + 1) * years];
+    double[] meanXf = new double[(maxAge + 1) * years];
+
+    // Storing start year populations to results
+    FlatArrayJumpOffPopulation.storeStartYearPopulation(endXf,
+        parameters.getPEndSYf(), years, maxAge);
+    FlatArrayJumpOffPopulation.storeStartYearPopulation(endXm,
+        parameters.getPEndSYm(), years, maxAge);
+
+    // Females first, the number of children is needed for the males as well
+    double[] numOfChilds = getYearlyBuffer(0, years);
+    calculateMeanAndEndPopulation(meanXf, endXf,
+        getPopulationRows(endXf, years, maxAge),
+        getSurvivalColumns(parameters, false),
+        getYearlyValues(parameters.getSurviveProbO100f(), years, 1),
+        getYearlyValues(parameters.getFemalePropLiveBirth(), years, 2),
+        parameters.getFertX(), numOfChilds, years, maxAge);
+    calculateMeanAndEndPopulation(meanXm, endXm,
+        getPopulationRows(endXm, years, maxAge),
+        getSurvivalColumns(parameters, true),
+        getYearlyValues(parameters.getSurviveProbO100m(), years, 3),
+        getYearlyValues(parameters.getMalePropLiveBirth(), years, 4), null,
+        numOfChilds, years, maxAge);
+
+    return createResults(subPopName, generation, years, maxAge, endXm, endXf,
+        meanXm, meanXf);
+  }
+
+  /**
+   * Calculates mean and end population. See
+   * {@link FlatArrayJumpOffPopulation#calculateMeanAndEndPopulation(double[], double[], double[], double[], double[], double[], Matrix2D, double[], int, int)}
+   * .
+   * 
+   * @param mean
+   *          the mean population (will be filled)
+   * @param end
+   *          the end population (will be filled, except the first year)
+   * @param rows
+   *          the population rows, starting with the first year
+   * @param surv
+   *          the survival probabilities
+   * @param surviveProbO100
+   *          the yearly survival probabilities of the over-100-years-olds
+   * @param liveBirthProp
+   *          the yearly proportions of live births belonging to this sex
+   * @param fertility
+   *          the fertility, if null the number of children per year will be
+   *          read from numOfChilds instead of being calculated
+   * @param numOfChilds
+   *          the number of children per year
+   * @param numOfYears
+   *          the number of years
+   * @param maxAge
+   *          the maximum age
+   */
+  static void calculateMeanAndEndPopulation(double[] mean, double[] end,
+      PopulationRows rows, SurvivalColumns surv, double[] surviveProbO100,
+      double[] liveBirthProp, Matrix2D fertility, double[] numOfChilds,
+      int numOfYears, int maxAge) {
+
+    for (int year = 1; year < numOfYears; year++) {
+      surv.nextYear(year);
+      double[] p1 = surv.p1;
+      double[] p2Prev = surv.p2Prev;
+      double[] meanRow = rows.mean;
+      double[] endRow = rows.end;
+      double[] prevEndRow = rows.prevEnd;
+
+      for (int age = 1; age < maxAge; age++) {
+        meanRow[age] = prevEndRow[age - 1] * p2Prev[age - 1];
+      }
+
+      if (fertility != null) {
+        numOfChilds[year] = getNumOfChilds(meanRow, fertility, year);
+      }
+
+      meanRow[0] = numOfChilds[year] * liveBirthProp[year];
+      meanRow[maxAge] = prevEndRow[maxAge - 1] * surv.p2Cur[maxAge - 1]
+          + prevEndRow[maxAge] * surviveProbO100[year];
+
+      for (int age = 0; age < maxAge; age++) {
+        endRow[age] = meanRow[age] * p1[age];
+      }
+      endRow[maxAge] = meanRow[maxAge] * surviveProbO100[year];
+      rows.store(mean, end, year);
+    }
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.BasicParameters;
+
+/**
+ * Bounded, thread-safe cache for the survival probabilities (P_1 and P_2) of a
+ * single sex. Tables are only cached for parameters that carry a {@link Key}
+ * (see {@link BasicParameters#setSurvivalKeyMale(Key)}), i.e. when the
+ * mortality and the infant death probabilities are used without deviation
+ * and hence are the same in every trial.
+ * 
+ * As assignments may be edited between experiments, a cached table is only
+ * returned if it has been calculated from the very same matrices. The cache
+ * should be cleared before a new experiment is started.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class SurvivalProbabilityCache {
+
+  /** The maximal number of tables to be cached. */
+  public static final int MAX_ENTRIES = 64;
+
+  /** The cached tables, in access order. */
+  private static final Map<Key, Table> TABLES = new LinkedHashMap<Key, Table>(
+      MAX_ENTRIES, 0.75f, true) {
+    private static final long serialVersionUID = -4127796409553011640L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Table> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  /**
+   * Survival probability cache should not be instantiated.
+   */
+  private SurvivalProbabilityCache() {
+  }
+
+  /**
+   * Gets the survival probabilities of the given sex. They are calculated and
+   * cached if necessary.
+   * 
+   * @param parameters
+   *          the parameters
+   * @param male
+   *          true for males, false for females
+   * @return the survival probabilities, null if the parameters do not allow
+   *         caching
+   */
+  public static Table getTable(BasicParameters parameters, boolean male) {
+    Key key = male ? parameters.getSurvivalKeyMale() : parameters
+        .getSurvivalKeyFemale();
+    if (key == null) {
+      return null;
+    }
+    Matrix2D infant = male ? parameters.getDeathProbInfant1halfMale()
+        : parameters.getDeathProbInfant1halfFemale();
+    Matrix2D mortality = male ? parameters.getMortXm() : parameters
+        .getMortXf();
+
+    Table table;
+    synchronized (TABLES) {
+      table = TABLES.get(key);
+    }
+    if (table != null && table.isCalculatedFrom(infant, mortality)) {
+      return table;
+    }
+
+    table = new Table(infant, mortality, key.numOfYears, key.maxAge);
+    synchronized (TABLES) {
+      TABLES.put(key, table);
+    }
+    return table;
+  }
+
+  /**
+   * Removes all cached tables.
+   */
+  public static void clear() {
+    synchronized (TABLES) {
+      TABLES.clear();
+    }
+  }
+
+  /**
+   * Gets the number of cached tables.
+   * 
+   * @return the number of cached tables
+   */
+  public static int size() {
+    synchronized (TABLES) {
+      return TABLES.size();
+    }
+  }
+
+  /**
+   * Identifies a survival probability table by the IDs of the parameter
+   * assignments for mortality and infant death probabilities, the maximum age,
+   * and the number of years.
+   */
+  public static final class Key {
+
+    /** The ID of the mortality assignment. */
+    private final int mortalityID;
+
+    /** The ID of the infant death probability assignment. */
+    private final int infantDeathsID;
+
+    /** The maximum age. */
+    private final int maxAge;
+
+    /** The number of years. */
+    private final int numOfYears;
+
+    /**
+     * Instantiates a new key.
+     * 
+     * @param mortID
+     *          the ID of the mortality assignment
+     * @param infantID
+     *          the ID of the infant death probability assignment
+     * @param maximumAge
+     *          the maximum age
+     * @param years
+     *          the number of years
+     */
+    public Key(int mortID, int infantID, int maximumAge, int years) {
+      mortalityID = mortID;
+      infantDeathsID = infantID;
+      maxAge = maximumAge;
+      numOfYears = years;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return mortalityID == other.mortalityID
+          && infantDeathsID == other.infantDeathsID && maxAge == other.maxAge
+          && numOfYears == other.numOfYears;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = mortalityID;
+      hash = 31 * hash + infantDeathsID;
+      hash = 31 * hash + maxAge;
+      return 31 * hash + numOfYears;
+    }
+  }
+
+  /**
+   * The survival probabilities of a single sex. The arrays have the same
+   * layout as in {@link AbstractFlatArrayPopulation} and are shared by all
+   * calculations, so they must not be modified.
+   */
+  public static final class Table {
+
+    /** The death probabilities of infants the table was calculated from. */
+    private final Matrix2D infant;
+
+    /** The mortality matrix the table was calculated from. */
+    private final Matrix2D mortality;
+
+    /** Survival probabilities for the first half-year (age * years + year). */
+    final double[] p1;
+
+    /** Survival probabilities for the second half-year (age * years + year). */
+    final double[] p2;
+
+    /**
+     * Calculates a new table.
+     * 
+     * @param deathProbInfant1half
+     *          death probabilities of infants within the first 6 months
+     * @param mort
+     *          mortality matrix
+     * @param numOfYears
+     *          the number of years
+     * @param maxAge
+     *          the maximum age
+     */
+    Table(Matrix2D deathProbInfant1half, Matrix2D mort, int numOfYears,
+        int maxAge) {
+      infant = deathProbInfant1half;
+      mortality = mort;
+      p1 = new double[maxAge * numOfYears];
+      p2 = new double[maxAge * numOfYears];
+      AbstractFlatArrayPopulation.getSurvProbs(p1, p2, infant, mortality,
+          numOfYears, maxAge);
+    }
+
+    /**
+     * Checks whether the table has been calculated from the given matrices.
+     * 
+     * @param deathProbInfant1half
+     *          death probabilities of infants within the first 6 months
+     * @param mort
+     *          mortality matrix
+     * @return true, if the table has been calculated from these matrices
+     */
+    boolean isCalculatedFrom(Matrix2D deathProbInfant1half, Matrix2D mort) {
+      return infant == deathProbInfant1half && mortality == mort;
+    }
+  }
+}
@@ -16,6 +16,7 @@
 package p3j.simulation.calculation.deterministic.parameters;
 
 import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.SurvivalProbabilityCache;
 
 /**
  * Basic parameters of the model.
@@ -67,6 +68,18 @@ public class BasicParameters {
 	/** Year-by-year proportion of female live births. */
 	private Matrix2D femalePropLiveBirth;
 
+	/**
+	 * Key for the cached male survival probabilities, null if they shall not be
+	 * cached.
+	 */
+	private SurvivalProbabilityCache.Key survivalKeyMale;
+
+	/**
+	 * Key for the cached female survival probabilities, null if they shall not
+	 * be cached.
+	 */
+	private SurvivalProbabilityCache.Key survivalKeyFemale;
+
 	/**
 	 * Default constructor.
 	 * 
@@ -81,7 +94,8 @@ public class BasicParameters {
 	}
 
 	/**
-	 * Setting rate of male live birth also sets the female one (1 - male).
+	 * Setting rate of male live birth also sets the female one (1 - male). The
+	 * matrix of the female rate is recycled if the parameters are set up again.
 	 * 
 	 * @param maleRateLiveBirth
 	 *          rate of male live births
@@ -90,7 +104,10 @@ public class BasicParameters {
 		this.malePropLiveBirth = maleRateLiveBirth;
 		int rows = maleRateLiveBirth.rows();
 		int cols = maleRateLiveBirth.columns();
-		this.femalePropLiveBirth = new Matrix2D(rows, cols);
+		if (femalePropLiveBirth == null || femalePropLiveBirth.rows() != rows
+		    || femalePropLiveBirth.columns() != cols) {
+			this.femalePropLiveBirth = new Matrix2D(rows, cols);
+		}
 		for (int i = 0; i < rows; i++) {
 			for (int j = 0; j < cols; j++) {
 				this.femalePropLiveBirth.setQuick(i, j,
@@ -179,4 +196,21 @@ public class BasicParameters {
 		this.maxAge = maxAge;
 	}
 
+	public SurvivalProbabilityCache.Key getSurvivalKeyMale() {
+		return survivalKeyMale;
+	}
+
+	public void setSurvivalKeyMale(SurvivalProbabilityCache.Key survivalKeyMale) {
+		this.survivalKeyMale = survivalKeyMale;
+	}
+
+	public SurvivalProbabilityCache.Key getSurvivalKeyFemale() {
+		return survivalKeyFemale;
+	}
+
+	public void setSurvivalKeyFemale(
+	    SurvivalProbabilityCache.Key survivalKeyFemale) {
+		this.survivalKeyFemale = survivalKeyFemale;
+	}
+
 }
\ No newline at end of file
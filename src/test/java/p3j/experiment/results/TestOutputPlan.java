@@ -0,0 +1,177 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.experiment.results;
+
+import junit.framework.TestCase;
+import p3j.misc.math.Matrix2D;
+
+/**
+ * Tests for {@link OutputPlan}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestOutputPlan extends TestCase {
+
+  /** The number of years. */
+  static final int YEARS = 12;
+
+  /** The maximum age. */
+  static final int MAX_AGE = 100;
+
+  /**
+   * Tests parsing of output plans.
+   */
+  public void testParse() {
+    assertNull(OutputPlan.parse(""));
+    assertNull(OutputPlan.parse(null));
+
+    OutputPlan plan = OutputPlan
+        .parse("variables=end_x_f,end_x_m; ages=60-; yearStep=5");
+    assertTrue(plan.retains(OutputPlan.Variable.END_X_M));
+    assertFalse(plan.retains(OutputPlan.Variable.MEAN_X_F));
+    assertEquals(plan, OutputPlan.parse(plan.toString()));
+    assertEquals(plan.toString(), OutputPlan.parse(plan.toString())
+        .toString());
+
+    for (String invalid : new String[] { "variables=end_x", "ages=10-5",
+        "yearStep=0", "step=5", "ages" }) {
+      try {
+        OutputPlan.parse(invalid);
+        fail("Plan '" + invalid + "' should not be valid.");
+      } catch (IllegalArgumentException ex) {
+        // Expected
+      }
+    }
+  }
+
+  /**
+   * Tests that plans dropping results needed for reports are rejected, unless
+   * they declare that their results are not used for reports.
+   */
+  public void testReportConflicts() {
+    assertNull(OutputPlan.parseForRun("", MAX_AGE));
+    OutputPlan.parseForRun("ages=0-", MAX_AGE);
+    OutputPlan.parseForRun("ages=0-" + MAX_AGE, MAX_AGE);
+    OutputPlan.parseForRun("ages=0-" + (MAX_AGE - 1), -1);
+    for (String conflicting : new String[] { "variables=end_x_m,end_x_f",
+        "ages=1-", "ages=0-" + (MAX_AGE - 1), "yearStep=2" }) {
+      try {
+        OutputPlan.parseForRun(conflicting, MAX_AGE);
+        fail("Plan '" + conflicting + "' should conflict with reports.");
+      } catch (IllegalArgumentException ex) {
+        assertTrue(ex.getMessage().contains("report=false"));
+      }
+      OutputPlan plan = OutputPlan.parseForRun(conflicting + ";report=false",
+          MAX_AGE);
+      assertEquals(plan, OutputPlan.parse(plan.toString()));
+      assertFalse(plan.equals(OutputPlan.parse(conflicting)));
+    }
+
+    try {
+      OutputPlan.parse("report=no");
+      fail("Plan 'report=no' should not be valid.");
+    } catch (IllegalArgumentException ex) {
+      // Expected
+    }
+  }
+
+  /**
+   * Tests that the first and the last year are always retained.
+   */
+  public void testRetainedYears() {
+    OutputPlan plan = OutputPlan.parse("yearStep=5");
+    assertEquals(4, plan.getRetainedYears(YEARS).length);
+    assertEquals(0, plan.getRetainedYears(YEARS)[0]);
+    assertEquals(10, plan.getRetainedYears(YEARS)[2]);
+    assertEquals(YEARS - 1, plan.getRetainedYears(YEARS)[3]);
+    assertEquals(3, plan.getRetainedYears(11).length);
+    assertEquals(10, plan.getRetainedYears(11)[2]);
+    assertEquals(1, plan.getRetainedYears(1).length);
+  }
+
+  /**
+   * Tests that reduced results are expanded to their original shape.
+   */
+  public void testReduceAndExpand() {
+    Matrix2D results = new Matrix2D(MAX_AGE + 1, YEARS);
+    for (int age = 0; age <= MAX_AGE; age++) {
+      for (int year = 0; year < YEARS; year++) {
+        results.setQuick(age, year, age * YEARS + year);
+      }
+    }
+    OutputPlan plan = OutputPlan
+        .parse("variables=end_x_m;ages=20-30;yearStep=5");
+    assertNull(plan.reduce(results, OutputPlan.Variable.MEAN_X_M));
+
+    Matrix2D reduced = plan.reduce(results, OutputPlan.Variable.END_X_M);
+    assertEquals(11, reduced.rows());
+    assertEquals(4, reduced.columns());
+
+    String layout = plan.getLayout(MAX_AGE + 1, YEARS);
+    Matrix2D expanded = OutputPlan.expand(layout, reduced);
+    assertEquals(MAX_AGE + 1, expanded.rows());
+    assertEquals(YEARS, expanded.columns());
+    assertEquals(results.getQuick(25, 5), expanded.getQuick(25, 5));
+    assertEquals(results.getQuick(30, YEARS - 1),
+        expanded.getQuick(30, YEARS - 1));
+    assertTrue(Double.isNaN(expanded.getQuick(25, 4)));
+    assertTrue(Double.isNaN(expanded.getQuick(31, 5)));
+    assertTrue(Double.isNaN(OutputPlan.expand(layout, null).getQuick(25, 5)));
+  }
+
+  /**
+   * Tests that basic results persist the reduced results, but keep the full
+   * ones in memory.
+   */
+  public void testBasicResults() {
+    BasicResults results = new BasicResults("Natives", 0, YEARS, MAX_AGE);
+    results.getEndXm().assign(1);
+    results.setOutputPlan(OutputPlan.parse("variables=end_x_m;yearStep=5"));
+    assertEquals(YEARS, results.getEndXm().columns());
+    assertEquals(4, results.getStoredEndXm().columns());
+    assertNull(results.getStoredMeanXf());
+
+    BasicResults loaded = new BasicResults();
+    loaded.setStoredEndXm(results.getStoredEndXm());
+    loaded.setStoredMeanXf(results.getStoredMeanXf());
+    loaded.setOutputLayout(results.getOutputLayout());
+    assertEquals(1.0, loaded.getEndXm().getQuick(MAX_AGE, 5));
+    assertTrue(Double.isNaN(loaded.getEndXm().getQuick(MAX_AGE, 4)));
+    assertTrue(Double.isNaN(loaded.getMeanXf().getQuick(0, 0)));
+    assertSame(results.getStoredEndXm(), loaded.getStoredEndXm());
+    assertTrue(loaded.isReduced());
+  }
+
+  /**
+   * Tests that only plans storing all values yield complete results.
+   */
+  public void testIsComplete() {
+    assertTrue(OutputPlan.isComplete(null));
+    assertTrue(OutputPlan.isComplete(OutputPlan.parse("ages=0-").getLayout(
+        MAX_AGE + 1, YEARS)));
+    assertTrue(OutputPlan.isComplete(OutputPlan.parse("ages=0-" + MAX_AGE)
+        .getLayout(MAX_AGE + 1, YEARS)));
+    for (String reduced : new String[] { "variables=end_x_m,end_x_f",
+        "ages=1-", "ages=0-" + (MAX_AGE - 1), "yearStep=2" }) {
+      assertFalse(reduced, OutputPlan.isComplete(OutputPlan.parse(reduced)
+          .getLayout(MAX_AGE + 1, YEARS)));
+    }
+    assertTrue(OutputPlan.isComplete(OutputPlan.parse("yearStep=2")
+        .getLayout(MAX_AGE + 1, 2)));
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.experiment.results;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Scanner;
+
+import junit.framework.TestCase;
+import p3j.experiment.results.filters.IncludeAllResultFilter;
+import p3j.gui.misc.P3JConfigFile;
+import p3j.misc.Misc;
+import p3j.misc.ReportingProgressObserver;
+import p3j.misc.gui.GUI;
+import p3j.simulation.ExecutionMode;
+import p3j.simulation.ExperimentFixture;
+
+/**
+ * Tests for {@link ResultExport}, regarding results that have been stored
+ * under an {@link OutputPlan}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestResultExport extends TestCase {
+
+  /** The number of trials per experiment. */
+  static final int TRIALS = 2;
+
+  /** The test projection. */
+  ExperimentFixture fixture;
+
+  /** The export directory. */
+  File targetDir;
+
+  @Override
+  public void setUp() throws Exception {
+    GUI.setHeadless(true);
+    fixture = new ExperimentFixture(2, 0);
+    targetDir = Files.createTempDirectory("p3j-export").toFile();
+  }
+
+  @Override
+  public void tearDown() {
+    fixture.tearDown();
+    GUI.setHeadless(false);
+    delete(targetDir);
+  }
+
+  /**
+   * Tests that results stored under a reduced output plan are not aggregated,
+   * as the dropped values would turn all aggregates into {@link Double#NaN}.
+   * 
+   * @throws Exception
+   *           if the experiment fails
+   */
+  public void testReducedResultsAreNotAggregated() throws Exception {
+    execute("ages=0-10;yearStep=2;report=false");
+    try {
+      createExport().exportAggregatedResults(
+          new ReportingProgressObserver("Aggregation", 0));
+      fail("Aggregating reduced results should fail.");
+    } catch (IllegalStateException ex) {
+      assertTrue(ex.getMessage().contains("output plan"));
+    }
+
+    // The stored values can still be exported trial by trial
+    createExport().exportAllResults();
+  }
+
+  /**
+   * Tests that a run with a plan that drops results needed for reports is
+   * rejected before any trial is calculated.
+   * 
+   * @throws Exception
+   *           if the experiment fails otherwise
+   */
+  public void testConflictingPlanIsRejected() throws Exception {
+    try {
+      execute("variables=end_x_m,end_x_f");
+      fail("The plan should conflict with the reports.");
+    } catch (IllegalArgumentException ex) {
+      assertTrue(ex.getMessage().contains("mean_x_m"));
+    }
+    assertTrue(fixture.getDatabase().getAllResults(fixture.getProjection())
+        .isEmpty());
+  }
+
+  /**
+   * Tests that complete results are aggregated without missing values.
+   * 
+   * @throws Exception
+   *           if the experiment fails
+   */
+  public void testCompleteResultsAreAggregated() throws Exception {
+    execute("ages=0-;yearStep=1");
+    createExport().exportAggregatedResults(
+        new ReportingProgressObserver("Aggregation", 0));
+    File aggregatedDir = new File(targetDir, "aggregated_data");
+    assertTrue(aggregatedDir.listFiles().length > 0);
+    for (File file : aggregatedDir.listFiles()) {
+      assertFalse(file.getName(), read(file).contains("NaN"));
+    }
+  }
+
+  /**
+   * Executes an experiment storing its results under the given output plan.
+   * 
+   * @param outputPlan
+   *          the output plan
+   * @throws Exception
+   *           if the experiment fails
+   */
+  void execute(String outputPlan) throws Exception {
+    P3JConfigFile config = ExperimentFixture.createConfig(
+        ExecutionMode.MONTE_CARLO, TRIALS, 1);
+    config.put(Misc.PREF_OUTPUT_PLAN, outputPlan);
+    fixture.execute(config);
+  }
+
+  /**
+   * Creates the result export.
+   * 
+   * @return the result export
+   */
+  ResultExport createExport() {
+    return new ResultExport(fixture.getProjection(), targetDir,
+        new IncludeAllResultFilter());
+  }
+
+  /**
+   * Reads a file.
+   * 
+   * @param file
+   *          the file
+   * @return the content of the file
+   * @throws Exception
+   *           if reading fails
+   */
+  static String read(File file) throws Exception {
+    try (Scanner scanner = new Scanner(file)) {
+      return scanner.useDelimiter("\\A").hasNext() ? scanner.next() : "";
+    }
+  }
+
+  /**
+   * Deletes a file or directory recursively.
+   * 
+   * @param file
+   *          the file or directory
+   */
+  static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link AliasTable}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestAliasTable extends TestCase {
+
+  /** The number of equidistant random numbers to be checked. */
+  static final int GRID_SIZE = 1 << 16;
+
+  /** The objects to choose from. */
+  static final List<String> OBJECTS = Arrays.asList("a", "b", "c", "d");
+
+  /**
+   * Tests that a uniform grid of random numbers is mapped to the objects
+   * according to their probabilities.
+   */
+  public void testFrequencies() {
+    double[] weights = { 0.5, 0.25, 0.125, 0.125 };
+    checkFrequencies(new AliasTable<>(OBJECTS, weights), weights);
+  }
+
+  /**
+   * Tests that weights do not need to be normalised and that objects with zero
+   * weight are never chosen.
+   */
+  public void testUnnormalisedWeights() {
+    checkFrequencies(new AliasTable<>(OBJECTS, new double[] { 2, 0, 1, 1 }),
+        new double[] { 0.5, 0, 0.25, 0.25 });
+  }
+
+  /** Tests that all objects are equally likely if no weight is positive. */
+  public void testZeroWeights() {
+    checkFrequencies(new AliasTable<>(OBJECTS, new double[] { 0, 0, -1, 0 }),
+        new double[] { 0.25, 0.25, 0.25, 0.25 });
+  }
+
+  /** Tests that a single object is always chosen. */
+  public void testSingleObject() {
+    AliasTable<String> table = new AliasTable<>(Arrays.asList("a"),
+        new double[] { 0.3 });
+    assertEquals(1, table.size());
+    assertEquals("a", table.choose(0.0));
+    assertEquals("a", table.choose(Math.nextAfter(1.0, 0.0)));
+  }
+
+  /**
+   * Checks the frequencies with which the objects are chosen on a uniform grid.
+   * 
+   * @param table
+   *          the alias table
+   * @param probabilities
+   *          the expected probabilities
+   */
+  private static void checkFrequencies(AliasTable<String> table,
+      double[] probabilities) {
+    int[] counts = new int[table.size()];
+    for (int i = 0; i < GRID_SIZE; i++) {
+      counts[table.chooseIndex((i + 0.5) / GRID_SIZE)]++;
+    }
+    for (int i = 0; i < counts.length; i++) {
+      assertEquals(probabilities[i], counts[i] / (double) GRID_SIZE,
+          1.0 / GRID_SIZE * table.size());
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link Matrix2D}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestMatrix2D extends TestCase {
+
+  /** The number of rows. */
+  static final int ROWS = 3;
+
+  /** The number of columns. */
+  static final int COLUMNS = 4;
+
+  /** The number of interleaved matrices. */
+  static final int INTERLEAVED = 5;
+
+  /**
+   * Tests strided views, as used for the results of a batch of trials, and
+   * that they are serialized as compact copies.
+   * 
+   * @throws Exception
+   *           if serialization fails
+   */
+  public void testStridedViews() throws Exception {
+    double[] values = new double[ROWS * COLUMNS * INTERLEAVED];
+    for (int index = 0; index < values.length; index++) {
+      values[index] = index;
+    }
+
+    Matrix2D view = new Matrix2D(ROWS, COLUMNS, values, 2, INTERLEAVED,
+        ROWS * INTERLEAVED);
+    double[] elements = view.getRowMajorElements();
+    assertEquals(ROWS * COLUMNS, elements.length);
+    for (int row = 0; row < ROWS; row++) {
+      for (int col = 0; col < COLUMNS; col++) {
+        double expected = 2 + row * INTERLEAVED + col * ROWS * INTERLEAVED;
+        assertEquals(expected, view.getQuick(row, col));
+        assertEquals(expected, elements[row * COLUMNS + col]);
+      }
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(view);
+    out.close();
+    Matrix2D copy = (Matrix2D) new ObjectInputStream(new ByteArrayInputStream(
+        bytes.toByteArray())).readObject();
+    assertEquals(ROWS * COLUMNS, copy.getRowMajorElements().length);
+    assertSame(copy.getRowMajorElements(), copy.getRowMajorElements());
+    assertEquals(view, copy);
+  }
+}
@@ -124,6 +124,28 @@ public class TestRandomNumberChecker extends TestCase {
 			    1.0 / testList.size(), testEntity.getProbability());
 		}
 	}
+
+	/**
+	 * Checks that the probability sum check reports errors, but does not change
+	 * any probabilities.
+	 */
+	public void testProbabilitySumCheck() {
+		List<TestEntity> testList = new ArrayList<TestEntity>();
+		for (int i = 0; i < NUM_TEST_ENTITIES; i++) {
+			testList.add(new TestEntity(i));
+		}
+		rnc.checkProbabilitySum("sumCheck", testList, errorLog);
+		assertEquals(ONE_ERR_MSG, 1, errorLog.size());
+		for (int i = 0; i < testList.size(); i++) {
+			assertEquals(i, testList.get(i).getProbability(), 0.0);
+		}
+
+		for (TestEntity testEntity : testList) {
+			testEntity.setProbability(1.0 / testList.size());
+		}
+		rnc.checkProbabilitySum("sumCheck", testList, errorLog);
+		assertEquals(ONE_ERR_MSG, 1, errorLog.size());
+	}
 }
 
 /**
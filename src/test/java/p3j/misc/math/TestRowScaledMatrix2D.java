@@ -0,0 +1,136 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link RowScaledMatrix2D}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestRowScaledMatrix2D extends TestCase {
+
+  /** The number of rows. */
+  static final int ROWS = 4;
+
+  /** The number of columns. */
+  static final int COLUMNS = 3;
+
+  /**
+   * Tests that all ways to read the view yield the scaled values, and that the
+   * view can be recycled.
+   */
+  public void testScaledValues() {
+    Matrix2D base = new Matrix2D(ROWS, COLUMNS);
+    for (int row = 0; row < ROWS; row++) {
+      for (int col = 0; col < COLUMNS; col++) {
+        base.setQuick(row, col, row * COLUMNS + col + 1);
+      }
+    }
+
+    RowScaledMatrix2D view = new RowScaledMatrix2D(base, new double[] { 1, 2,
+        .5, 0 });
+    checkScaled(base, view, new double[] { 1, 2, .5, 0 });
+    assertTrue(view.isViewOf(base));
+    assertFalse(view.isViewOf(base.copy()));
+
+    double[] factors = { 3, 1, 1, 1 };
+    view.setRowFactors(factors);
+    checkScaled(base, view, factors);
+
+    try {
+      view.setQuick(0, 0, 1);
+      fail("Views should be read-only.");
+    } catch (UnsupportedOperationException ex) {
+      // Expected
+    }
+    assertEquals(1.0, base.getQuick(0, 0));
+  }
+
+  /**
+   * Tests that views on parts of the matrix, operations reading its values
+   * directly, and serialization see the scaled values.
+   * 
+   * @throws Exception
+   *           if serialization fails
+   */
+  public void testScaledValuesOutsideView() throws Exception {
+    Matrix2D base = new Matrix2D(ROWS, COLUMNS);
+    base.assign(1);
+    double[] factors = { 1, 2, 3, 4 };
+    RowScaledMatrix2D view = new RowScaledMatrix2D(base, factors);
+
+    Matrix2D target = new Matrix2D(ROWS, COLUMNS);
+    target.assign(view);
+    for (int row = 0; row < ROWS; row++) {
+      assertEquals(factors[row], view.viewRow(row).zSum() / COLUMNS);
+      assertEquals(factors[row], view.viewColumn(0).getQuick(row));
+      assertEquals(factors[row], target.getQuick(row, COLUMNS - 1));
+    }
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(view);
+    out.close();
+    Object copy = new ObjectInputStream(new ByteArrayInputStream(
+        bytes.toByteArray())).readObject();
+    assertEquals(Matrix2D.class, copy.getClass());
+    for (int row = 0; row < ROWS; row++) {
+      assertEquals(factors[row], ((Matrix2D) copy).getQuick(row, 0));
+    }
+
+    base.setQuick(0, 0, 2);
+    view.setRowFactors(factors);
+    assertEquals(2.0, target.assign(view).getQuick(0, 0));
+  }
+
+  /**
+   * Checks that the view contains the scaled values of the base matrix.
+   * 
+   * @param base
+   *          the base matrix
+   * @param view
+   *          the view
+   * @param factors
+   *          the factors
+   */
+  private static void checkScaled(Matrix2D base, RowScaledMatrix2D view,
+      double[] factors) {
+    double[] elements = view.getRowMajorElements();
+    double[][] values = view.toArray();
+    Matrix2D copy = view.copy();
+    double sum = 0;
+    for (int row = 0; row < ROWS; row++) {
+      for (int col = 0; col < COLUMNS; col++) {
+        double expected = base.getQuick(row, col) * factors[row];
+        assertEquals(expected, view.get(row, col));
+        assertEquals(expected, elements[row * COLUMNS + col]);
+        assertEquals(expected, values[row][col]);
+        assertEquals(expected, copy.getQuick(row, col));
+        sum += expected;
+      }
+    }
+    assertEquals(sum, view.zSum(), 1e-10);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link SobolSequence}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestSobolSequence extends TestCase {
+
+  /** The seed for scrambling. */
+  static final long SEED = 4711;
+
+  /** The binary logarithm of the number of points to be checked. */
+  static final int LOG_POINTS = 10;
+
+  /** The number of points to be checked. */
+  static final int NUM_OF_POINTS = 1 << LOG_POINTS;
+
+  /**
+   * Tests the enumeration of primitive polynomials.
+   */
+  public void testPrimitivePolynomials() {
+    assertEquals(Arrays.asList(3L, 7L, 11L, 13L, 19L, 25L),
+        SobolSequence.findPrimitivePolynomials(6));
+    assertEquals(SobolSequence.MAX_DIMENSIONS - 1, SobolSequence
+        .findPrimitivePolynomials(SobolSequence.MAX_DIMENSIONS - 1).size());
+  }
+
+  /**
+   * Tests that each dimension is perfectly stratified, and that the first two
+   * dimensions stratify all elementary intervals.
+   */
+  public void testStratification() {
+    SobolSequence sequence = new SobolSequence(SobolSequence.MAX_DIMENSIONS,
+        SEED);
+    double[][] points = new double[NUM_OF_POINTS][sequence.getDimensions()];
+    for (int i = 0; i < NUM_OF_POINTS; i++) {
+      sequence.getPoint(i, points[i]);
+    }
+
+    for (int dim = 0; dim < sequence.getDimensions(); dim++) {
+      boolean[] occupied = new boolean[NUM_OF_POINTS];
+      for (double[] point : points) {
+        int stratum = (int) (point[dim] * NUM_OF_POINTS);
+        assertFalse("Dimension " + dim, occupied[stratum]);
+        occupied[stratum] = true;
+      }
+    }
+
+    for (int xBits = 0; xBits <= LOG_POINTS; xBits++) {
+      boolean[][] occupied = new boolean[1 << xBits][1 << (LOG_POINTS - xBits)];
+      for (double[] point : points) {
+        int x = (int) (point[0] * (1 << xBits));
+        int y = (int) (point[1] * (1 << (LOG_POINTS - xBits)));
+        assertFalse(occupied[x][y]);
+        occupied[x][y] = true;
+      }
+    }
+  }
+
+  /**
+   * Tests that the integration error is far below the one of Monte-Carlo
+   * integration (whose standard error would be about 0.015 here).
+   */
+  public void testIntegration() {
+    int dimensions = 8;
+    SobolSequence sequence = new SobolSequence(dimensions, SEED);
+    double[] point = new double[dimensions];
+    double sum = 0;
+    int numOfPoints = 4 * NUM_OF_POINTS;
+    for (int i = 0; i < numOfPoints; i++) {
+      sequence.getPoint(i, point);
+      double product = 1;
+      for (double coordinate : point) {
+        product *= 0.5 + coordinate;
+      }
+      sum += product;
+    }
+    assertEquals(1, sum / numOfPoints, 2e-3);
+  }
+
+  /**
+   * Tests that the scrambling is determined by the seed.
+   */
+  public void testScrambling() {
+    double[] first = new double[3];
+    double[] second = new double[3];
+    new SobolSequence(3, SEED).getPoint(5, first);
+    new SobolSequence(3, SEED).getPoint(5, second);
+    assertTrue(Arrays.equals(first, second));
+    new SobolSequence(3, SEED + 1).getPoint(5, second);
+    assertFalse(Arrays.equals(first, second));
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.misc.math;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.jamesii.core.math.random.distributions.NormalDistribution;
+import org.jamesii.core.math.random.generators.java.JavaRandom;
+
+import cern.jet.stat.Probability;
+
+/**
+ * Statistical tests for {@link ZigguratGaussian}. The Kolmogorov-Smirnov
+ * tests use a significance level of 0.001, the seeds are fixed.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestZigguratGaussian extends TestCase {
+
+  /** The number of samples. */
+  static final int NUM_SAMPLES = 200000;
+
+  /**
+   * The critical value of the Kolmogorov-Smirnov statistic (times the square
+   * root of the effective sample size) for a significance level of 0.001.
+   */
+  static final double KS_CRITICAL_VALUE = 1.949;
+
+  /** The mean used by the deviation of parameters. */
+  static final double MEAN = 1;
+
+  /** A standard deviation as used by the deviation of parameters. */
+  static final double STD_DEV = 0.2;
+
+  /**
+   * Compares the samples with the standard normal distribution (one-sample
+   * Kolmogorov-Smirnov test), and checks the moments and the tails.
+   */
+  public void testStandardNormal() {
+    ZigguratGaussian gaussian = new ZigguratGaussian(42);
+    double[] samples = new double[NUM_SAMPLES];
+    gaussian.nextGaussians(samples, 0, NUM_SAMPLES, 0, 1);
+    Arrays.sort(samples);
+
+    double maxDistance = 0;
+    double sum = 0;
+    double sumOfSquares = 0;
+    int tail = 0;
+    for (int i = 0; i < NUM_SAMPLES; i++) {
+      double cdf = Probability.normal(samples[i]);
+      maxDistance = Math.max(maxDistance, Math.max(
+          Math.abs((i + 1.) / NUM_SAMPLES - cdf), Math.abs(cdf - (double) i
+              / NUM_SAMPLES)));
+      sum += samples[i];
+      sumOfSquares += samples[i] * samples[i];
+      if (Math.abs(samples[i]) > ZigguratGaussian.TAIL_START) {
+        tail++;
+      }
+    }
+    assertTrue("KS statistic too large: " + maxDistance,
+        maxDistance < KS_CRITICAL_VALUE / Math.sqrt(NUM_SAMPLES));
+    assertEquals(0, sum / NUM_SAMPLES, 0.01);
+    assertEquals(1, sumOfSquares / NUM_SAMPLES, 0.01);
+
+    // Samples from the tail are generated separately
+    double expectedTail = 2 * (1 - Probability
+        .normal(ZigguratGaussian.TAIL_START)) * NUM_SAMPLES;
+    assertEquals(expectedTail, tail, 4 * Math.sqrt(expectedTail));
+  }
+
+  /**
+   * Compares the samples with those of the normal distribution that has been
+   * used before (two-sample Kolmogorov-Smirnov test).
+   */
+  public void testMatchesNormalDistribution() {
+    ZigguratGaussian gaussian = new ZigguratGaussian(4711);
+    NormalDistribution normDist = new NormalDistribution(new JavaRandom(4711),
+        MEAN, STD_DEV);
+    double[] samples = new double[NUM_SAMPLES];
+    double[] reference = new double[NUM_SAMPLES];
+    gaussian.nextGaussians(samples, 0, NUM_SAMPLES, MEAN, STD_DEV);
+    for (int i = 0; i < NUM_SAMPLES; i++) {
+      reference[i] = normDist.getRandomNumber();
+    }
+    Arrays.sort(samples);
+    Arrays.sort(reference);
+
+    double maxDistance = 0;
+    int i = 0;
+    int j = 0;
+    while (i < NUM_SAMPLES && j < NUM_SAMPLES) {
+      double value = Math.min(samples[i], reference[j]);
+      while (i < NUM_SAMPLES && samples[i] <= value) {
+        i++;
+      }
+      while (j < NUM_SAMPLES && reference[j] <= value) {
+        j++;
+      }
+      maxDistance = Math.max(maxDistance, Math.abs((double) (i - j))
+          / NUM_SAMPLES);
+    }
+    assertTrue("KS statistic too large: " + maxDistance,
+        maxDistance < KS_CRITICAL_VALUE / Math.sqrt(NUM_SAMPLES / 2.));
+  }
+
+  /**
+   * Tests that generators are reproducible and that split generators yield
+   * different streams.
+   */
+  public void testSeedsAndSplit() {
+    ZigguratGaussian first = new ZigguratGaussian(1);
+    ZigguratGaussian second = new ZigguratGaussian(1);
+    for (int i = 0; i < 100; i++) {
+      assertEquals(first.nextGaussian(), second.nextGaussian());
+    }
+    ZigguratGaussian split = first.split();
+    second.split();
+    assertEquals(first.nextGaussian(), second.nextGaussian());
+    assertFalse(first.nextGaussian() == split.nextGaussian());
+  }
+
+  /**
+   * Tests that an antithetic generator negates the values of a regular
+   * generator with the same seed.
+   */
+  public void testAntithetic() {
+    ZigguratGaussian regular = new ZigguratGaussian(4711);
+    ZigguratGaussian antithetic = new ZigguratGaussian(4711);
+    antithetic.setAntithetic(true);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(-regular.nextGaussian(), antithetic.nextGaussian(), 0);
+    }
+    double[] regularValues = new double[1000];
+    double[] antitheticValues = new double[1000];
+    regular.nextGaussians(regularValues, 0, regularValues.length, 1, 0.2);
+    antithetic.nextGaussians(antitheticValues, 0, antitheticValues.length, 1,
+        0.2);
+    for (int i = 0; i < regularValues.length; i++) {
+      assertEquals(2, regularValues[i] + antitheticValues[i], 1e-12);
+    }
+  }
+}
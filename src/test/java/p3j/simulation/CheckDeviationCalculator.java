@@ -20,12 +20,14 @@ import java.util.List;
 import junit.framework.TestCase;
 
 import org.jamesii.SimSystem;
+import org.jamesii.core.math.random.generators.java.JavaRandom;
 import org.jamesii.core.util.misc.CSVReader;
 import org.jamesii.core.util.misc.Strings;
 
 import p3j.misc.MatrixDimension;
 import p3j.misc.math.Matrix;
 import p3j.misc.math.Matrix2D;
+import p3j.misc.math.ZigguratGaussian;
 import p3j.pppm.parameters.Parameter;
 import p3j.pppm.parameters.ParameterAssignment;
 import p3j.pppm.parameters.ParameterInstance;
@@ -198,6 +200,35 @@ public class CheckDeviationCalculator extends TestCase {
     System.out.println(Strings.displayMatrix(deviationMatrix.toArray()));
   }
 
+  /**
+   * Tests that cached mortality baselines and recycled buffers yield the same
+   * deviations.
+   */
+  public void testRecycledMortalityDeviation() {
+    MortalityBaselineCache.clear();
+    ParameterAssignment mortAssignment = new ParameterAssignment(
+        new ParameterInstance(0, new Parameter(0, true,
+            "Some parameter regarding " + ParameterType.SURVIVORS_AGE_X,
+            MatrixDimension.YEARS, MatrixDimension.AGES, Population.NATIVES)),
+        "test", "", 1.0, 0.0, new Matrix(getTestMatrixForMortality()));
+    mortAssignment.setDeviation(DEFAULT_DEVIATION);
+    mortAssignment.setID(1);
+
+    Matrix2D buffer = null;
+    for (long seed = 0; seed < 3; seed++) {
+      Matrix2D expected = DeviationCalculator.calculateAssignmentDeviation(
+          mortAssignment, new JavaRandom(seed));
+      Matrix2D deviationMatrix = DeviationCalculator
+          .calculateAssignmentDeviation(mortAssignment, new ZigguratGaussian(
+              new JavaRandom(seed).nextLong()), null, buffer);
+      assertTrue(buffer == null || buffer == deviationMatrix);
+      assertEquals(expected, deviationMatrix);
+      buffer = deviationMatrix;
+    }
+    assertEquals(1, MortalityBaselineCache.size());
+    MortalityBaselineCache.clear();
+  }
+
   /**
    * Gets the test matrix for mortality. Is transposed while being read.
    * 
@@ -0,0 +1,369 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.jamesii.core.data.DBConnectionData;
+import org.jamesii.core.experiments.BaseExperiment;
+import org.jamesii.core.parameters.ParameterBlock;
+import org.jamesii.core.processor.plugintype.ProcessorFactory;
+
+import p3j.database.DatabaseFactory;
+import p3j.database.DatabaseType;
+import p3j.database.IP3MDatabase;
+import p3j.experiment.results.BasicResults;
+import p3j.experiment.results.ResultsOfTrial;
+import p3j.gui.misc.P3JConfigFile;
+import p3j.misc.MatrixDimension;
+import p3j.misc.Misc;
+import p3j.misc.math.Matrix2D;
+import p3j.pppm.ProjectionModel;
+import p3j.pppm.SubPopulation;
+import p3j.pppm.SubPopulationModel;
+import p3j.pppm.parameters.ParameterAssignment;
+import p3j.pppm.parameters.ParameterInstance;
+import p3j.pppm.parameters.ParameterType;
+import p3j.simulation.assignments.plugintype.ParamAssignmentGenFactory;
+import p3j.simulation.calculation.deterministic.Constants;
+
+/**
+ * Creates a small projection in an in-memory database and executes it with
+ * experiments set up by the {@link ExperimentConfigurator}, i.e. along the same
+ * path as the GUI and the {@link HeadlessRunner}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class ExperimentFixture {
+
+  /** The number of descendant generations. */
+  static final int GENERATIONS = 2;
+
+  /** The number of years to be projected. */
+  static final int YEARS = 5;
+
+  /**
+   * The maximum age, needs to cover the fertile ages and the old ages
+   * considered by the result aggregation.
+   */
+  static final int MAX_AGE = 100;
+
+  /** The jump-off year. */
+  static final int JUMP_OFF_YEAR = 2011;
+
+  /** The seed of the experiments. */
+  static final long SEED = 1234;
+
+  /** The database. */
+  private final IP3MDatabase db;
+
+  /** The projection. */
+  private final ProjectionModel projection;
+
+  /**
+   * Creates the projection, with the given number of equally probable
+   * assignments per parameter instance.
+   * 
+   * @param numOfAssignments
+   *          the number of assignments per parameter instance
+   * @param deviation
+   *          the deviation of all assignments
+   */
+  public ExperimentFixture(int numOfAssignments, double deviation) {
+    DatabaseFactory.setDbConnData(new DBConnectionData(
+        "jdbc:hsqldb:mem:ppm_db", "testuser", "", Misc.HIBERNATE_DIALECTS
+            .get(DatabaseType.HSQLDB)));
+    db = DatabaseFactory.createDatabase(Misc.TEST_HIBERNATE_CONFIG_FILE);
+    projection = new ProjectionModel("Test projection", "", GENERATIONS,
+        YEARS, MAX_AGE, JUMP_OFF_YEAR, createSubPopulationModel());
+    db.newProjection(projection);
+    for (ParameterInstance instance : projection.getAllParameterInstances()) {
+      for (int i = 0; i < numOfAssignments; i++) {
+        ParameterAssignment assignment = db.newParameterAssignment(instance,
+            "Assumption " + i, "", 1. / numOfAssignments, deviation,
+            createValues(instance, i));
+        projection.getDefaultSet().addParameterAssignment(assignment);
+      }
+    }
+    db.saveProjection(projection);
+  }
+
+  /**
+   * Creates the sub-population model: two jump-off populations and two in-flow
+   * populations with descendant generations.
+   * 
+   * @return the sub-population model
+   */
+  static SubPopulationModel createSubPopulationModel() {
+    SubPopulationModel model = new SubPopulationModel();
+    model.getSubPopulations().add(
+        new SubPopulation("Natives", true, true, false));
+    model.getSubPopulations().add(
+        new SubPopulation("Residents", true, true, false));
+    model.getSubPopulations().add(
+        new SubPopulation("Immigrants", false, true, true));
+    model.getSubPopulations().add(
+        new SubPopulation("Emigrants", false, false, true));
+    return model;
+  }
+
+  /**
+   * Creates the values of an assignment. All values are small and positive, so
+   * that they are valid for all kinds of parameters, except for the numbers of
+   * survivors, which need to decrease with age. As in the parameter editor,
+   * the rows of the matrix correspond to the width of the instance.
+   * 
+   * @param instance
+   *          the parameter instance
+   * @param assignmentIndex
+   *          the index of the assignment
+   * @return the values
+   */
+  static Matrix2D createValues(ParameterInstance instance, int assignmentIndex) {
+    Matrix2D values = new Matrix2D(getDimension(instance.getValueWidth()),
+        getDimension(instance.getValueHeight()));
+    boolean survivors = instance.getParameter().getName()
+        .contains(ParameterType.SURVIVORS_AGE_X);
+    for (int row = 0; row < values.rows(); row++) {
+      double survivorsOfAge = Constants.BASELINE_AMOUNT_MORT_MATRICES;
+      for (int col = 0; col < values.columns(); col++) {
+        double value = 0.01 * (assignmentIndex + 1)
+            * (1 + 0.1 * ((row + col + instance.getComparisonIndex()) % 5));
+        if (survivors) {
+          values.setQuick(row, col, survivorsOfAge);
+          survivorsOfAge *= 1 - value;
+        } else {
+          values.setQuick(row, col, value);
+        }
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Gets the size of a matrix dimension for the test projection.
+   * 
+   * @param dimension
+   *          the dimension
+   * @return the size
+   */
+  static int getDimension(MatrixDimension dimension) {
+    switch (dimension) {
+    case AGES:
+      return MAX_AGE + 1;
+    case YEARS:
+      return YEARS;
+    default:
+      return 1;
+    }
+  }
+
+  /**
+   * Creates a configuration for an experiment on the test projection.
+   * 
+   * @param mode
+   *          the execution mode
+   * @param trials
+   *          the number of trials
+   * @param threads
+   *          the number of parallel threads
+   * @return the configuration
+   */
+  public static P3JConfigFile createConfig(ExecutionMode mode, int trials, int threads) {
+    P3JConfigFile config = new P3JConfigFile();
+    config.setDefaults();
+    config.put(Misc.PREF_EXECUTION_MODE, mode);
+    config.put(Misc.PREF_NUM_TRIALS, trials);
+    config.put(Misc.PREF_NUM_PARALLEL_THREADS, threads);
+    config.put(Misc.PREF_RANDOM_SEED, SEED);
+    return config;
+  }
+
+  /**
+   * Creates an experiment with the given configuration.
+   * 
+   * @param config
+   *          the configuration
+   * @return the experiment
+   * @throws Exception
+   *           if the experiment could not be created
+   */
+  BaseExperiment createExperiment(P3JConfigFile config) throws Exception {
+    return new ExperimentConfigurator(config).createExperiment(
+        DatabaseFactory.getDbConnData(), projection.getID());
+  }
+
+  /**
+   * Executes an experiment with the given configuration, after all previous
+   * results have been deleted.
+   * 
+   * @param config
+   *          the configuration
+   * @return the executed experiment
+   * @throws Exception
+   *           if the experiment could not be created
+   */
+  public BaseExperiment execute(P3JConfigFile config) throws Exception {
+    db.deleteAllResults(projection, null);
+    BaseExperiment experiment = createExperiment(config);
+    experiment.execute();
+    return experiment;
+  }
+
+  /**
+   * Gets a parameter of the processors of the experiment.
+   * 
+   * @param experiment
+   *          the experiment
+   * @param name
+   *          the name of the parameter
+   * @return the value
+   */
+  static <V> V getProcessorParameter(BaseExperiment experiment, String name) {
+    ParameterBlock processorParameters = experiment.getParameters()
+        .getParameterBlock().getSubBlock(ProcessorFactory.class.getName());
+    return processorParameters.getSubBlockValue(name);
+  }
+
+  /**
+   * Gets a parameter of the assignment generators of the experiment.
+   * 
+   * @param experiment
+   *          the experiment
+   * @param name
+   *          the name of the parameter
+   * @return the value
+   */
+  static <V> V getGeneratorParameter(BaseExperiment experiment, String name) {
+    ParameterBlock processorParameters = experiment.getParameters()
+        .getParameterBlock().getSubBlock(ProcessorFactory.class.getName());
+    return processorParameters.getSubBlock(
+        ParamAssignmentGenFactory.class.getName()).getSubBlockValue(name);
+  }
+
+  /**
+   * Gets the stored results.
+   * 
+   * @return the results
+   */
+  List<ResultsOfTrial> getResults() {
+    return db.getAllResults(projection);
+  }
+
+  /**
+   * Describes the stored results, so that the results of two experiments can
+   * be compared regardless of the order in which the trials were calculated.
+   * 
+   * @return the sorted descriptions of all results
+   */
+  List<String> describeResults() {
+    List<String> descriptions = new ArrayList<>();
+    for (ResultsOfTrial result : getResults()) {
+      descriptions.add(describe(result));
+    }
+    Collections.sort(descriptions);
+    return descriptions;
+  }
+
+  /**
+   * Describes the assignments of the stored results, see
+   * {@link #describeResults()}.
+   * 
+   * @return the sorted descriptions of the assignments of all results
+   */
+  List<String> describeAssignments() {
+    List<String> descriptions = new ArrayList<>();
+    for (ResultsOfTrial result : getResults()) {
+      descriptions.add(describeAssignment(result));
+    }
+    Collections.sort(descriptions);
+    return descriptions;
+  }
+
+  /**
+   * Describes the assignment of a result.
+   * 
+   * @param result
+   *          the result
+   * @return the description
+   */
+  static String describeAssignment(ResultsOfTrial result) {
+    List<String> assignments = new ArrayList<>();
+    for (Entry<ParameterInstance, ParameterAssignment> entry : result
+        .getAssignment().entrySet()) {
+      assignments.add(entry.getKey().getComparisonIndex() + ":"
+          + entry.getValue().getName());
+    }
+    Collections.sort(assignments);
+    return assignments.toString();
+  }
+
+  /**
+   * Describes a result by its assignments and the exact sums of the end
+   * populations of all sub-populations.
+   * 
+   * @param result
+   *          the result
+   * @return the description
+   */
+  static String describe(ResultsOfTrial result) {
+    StringBuilder description = new StringBuilder(describeAssignment(result));
+    for (BasicResults subPopResults : result.getSubPopulationResults()) {
+      description.append(' ').append(subPopResults.getSubPopName())
+          .append(subPopResults.getGeneration()).append('=')
+          .append(sum(subPopResults.getEndXm()) + sum(subPopResults.getEndXf()));
+    }
+    return description.toString();
+  }
+
+  /**
+   * Sums all values of a matrix.
+   * 
+   * @param matrix
+   *          the matrix
+   * @return the sum
+   */
+  static double sum(Matrix2D matrix) {
+    double sum = 0;
+    for (int row = 0; row < matrix.rows(); row++) {
+      for (int col = 0; col < matrix.columns(); col++) {
+        sum += matrix.getQuick(row, col);
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * Removes the projection and its results from the database.
+   */
+  public void tearDown() {
+    db.clear();
+    DatabaseFactory.reset();
+  }
+
+  public ProjectionModel getProjection() {
+    return projection;
+  }
+
+  public IP3MDatabase getDatabase() {
+    return db;
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.jamesii.core.math.random.generators.IRandom;
+import org.jamesii.core.util.misc.Pair;
+
+import p3j.gui.misc.P3JConfigFile;
+import p3j.misc.Misc;
+import p3j.experiment.results.ExecutionSummary;
+import p3j.experiment.results.ResultsOfTrial;
+import p3j.misc.errors.GeneratorError;
+import p3j.misc.gui.GUI;
+import p3j.pppm.parameters.ParameterAssignment;
+import p3j.pppm.parameters.ParameterInstance;
+import p3j.simulation.assignments.random.RandomParamAssignmentGenerator;
+
+/**
+ * Tests for {@link BatchExecution}. The projection has no deviations, so that
+ * the results of sub-populations are shared between trials via the
+ * {@link SubPopulationResultCache}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestBatchExecution extends TestCase {
+
+  /** The number of trials per experiment. */
+  static final int TRIALS = 8;
+
+  /** The test projection. */
+  ExperimentFixture fixture;
+
+  @Override
+  public void setUp() {
+    GUI.setHeadless(true);
+    fixture = new ExperimentFixture(2, 0);
+  }
+
+  @Override
+  public void tearDown() {
+    fixture.tearDown();
+    GUI.setHeadless(false);
+  }
+
+  /**
+   * Tests that batches of trials yield the same results as single trials,
+   * regardless of the number of threads per trial.
+   * 
+   * @throws Exception
+   *           if the experiment fails
+   */
+  public void testBatchesMatchSingleTrials() throws Exception {
+    List<String> singleTrials = executeAndDescribe(1, 1);
+    assertEquals(singleTrials, executeAndDescribe(4, 1));
+    assertEquals(singleTrials, executeAndDescribe(4, 4));
+    assertEquals(singleTrials, executeAndDescribe(TRIALS, 4));
+  }
+
+  /**
+   * Tests that a trial of a batch that cannot be set up is skipped, as by a
+   * {@link SingleExecution}, while the other trials are calculated and
+   * stored.
+   */
+  public void testFailedTrialIsSkipped() {
+    BatchExecution execution = new BatchExecution(fixture.getProjection(),
+        fixture.getDatabase(), ExecutionSettings.DEFAULT, null, null);
+    List<Pair<ExecutionSummary, List<GeneratorError>>> results = execution
+        .execute(createFailingGenerator(1), 3);
+    assertEquals(3, results.size());
+    assertNotNull(results.get(0));
+    assertNull(results.get(1));
+    assertNotNull(results.get(2));
+    assertEquals(2, fixture.getResults().size());
+  }
+
+  /**
+   * Tests that the trials of a batch whose calculation fails are skipped, and
+   * that none of them is stored.
+   */
+  public void testFailedCalculationIsSkipped() {
+    BatchExecution execution = new BatchExecution(fixture.getProjection(),
+        fixture.getDatabase(), ExecutionSettings.DEFAULT, null, null) {
+      @Override
+      void calculate(List<SingleExecution> executions,
+          List<ExecutionSummary> summaries) {
+        throw new IllegalStateException("Calculation failed");
+      }
+    };
+    List<Pair<ExecutionSummary, List<GeneratorError>>> results = execution
+        .execute(createFailingGenerator(-1), 2);
+    assertEquals(2, results.size());
+    assertNull(results.get(0));
+    assertNull(results.get(1));
+    assertTrue(fixture.getResults().isEmpty());
+  }
+
+  /**
+   * Tests that trials with the same deterministic assignments as a failed
+   * trial are not counted as its repetitions, neither by single executions
+   * nor by batches.
+   */
+  public void testFailedTrialsAreNotRepeated() {
+    fixture.tearDown();
+    fixture = new ExperimentFixture(1, 0);
+    ExecutionSettings settings = new ExecutionSettings(
+        Misc.DEFAULT_CALCULATION_ENGINE, 1, Integer.MAX_VALUE, 1, null, null,
+        true);
+    RepeatedTrialRegistry registry = new RepeatedTrialRegistry(
+        fixture.getDatabase());
+    ParameterSlots slots = new ParameterSlots(fixture.getProjection());
+    RandomParamAssignmentGenerator generator = createFailingGenerator(-1);
+
+    SingleExecution failingExecution = new SingleExecution(
+        fixture.getProjection(), fixture.getDatabase(), settings, null, slots,
+        registry) {
+      @Override
+      void calculate(ExecutionSummary executionSummary) {
+        throw new IllegalStateException("Calculation failed");
+      }
+    };
+    assertNull(failingExecution.execute(generator));
+
+    BatchExecution failingBatch = new BatchExecution(fixture.getProjection(),
+        fixture.getDatabase(), settings, null, registry) {
+      @Override
+      void calculate(List<SingleExecution> executions,
+          List<ExecutionSummary> summaries) {
+        throw new IllegalStateException("Calculation failed");
+      }
+    };
+    for (Pair<ExecutionSummary, List<GeneratorError>> trial : failingBatch
+        .execute(generator, 3)) {
+      assertNull(trial);
+    }
+    assertTrue(fixture.getResults().isEmpty());
+
+    List<Pair<ExecutionSummary, List<GeneratorError>>> trials = new BatchExecution(
+        fixture.getProjection(), fixture.getDatabase(), settings, null,
+        registry).execute(generator, 2);
+    assertFalse(trials.get(0).getFirstValue().isRepetition());
+    assertTrue(trials.get(1).getFirstValue().isRepetition());
+    List<ResultsOfTrial> results = fixture.getResults();
+    assertEquals(1, results.size());
+    assertEquals(2, results.get(0).getMultiplicity());
+  }
+
+  /**
+   * Tests that the processor skips failed trials, in batches as well as in
+   * single executions, instead of aborting the run.
+   */
+  public void testProcessorSkipsFailedTrials() {
+    for (int batchSize : new int[] { 1, 2 }) {
+      PPPMProcessor processor = new PPPMProcessor(fixture.getProjection(),
+          createFailingGenerator(0), new ExecutionSettings(
+              Misc.DEFAULT_CALCULATION_ENGINE, batchSize, Integer.MAX_VALUE,
+              1, null, null, false));
+      processor.nextStep();
+      assertEquals((double) batchSize, processor.getTime());
+    }
+    assertTrue(fixture.getResults().isEmpty());
+  }
+
+  /**
+   * Creates a generator that fails to choose the assignments of one trial.
+   * 
+   * @param failingTrial
+   *          the index of the failing trial, all trials fail if it is 0, none
+   *          if it is negative
+   * @return the generator
+   */
+  RandomParamAssignmentGenerator createFailingGenerator(final int failingTrial) {
+    RandomParamAssignmentGenerator generator = new RandomParamAssignmentGenerator() {
+
+      /** The number of trials set up so far. */
+      private int trials;
+
+      @Override
+      public Pair<Map<ParameterInstance, ParameterAssignment>, List<GeneratorError>> chooseParamAssignments(
+          IRandom random) {
+        if (trials++ == failingTrial || failingTrial == 0) {
+          throw new IllegalArgumentException("No assignment");
+        }
+        return super.chooseParamAssignments(random);
+      }
+    };
+    generator.init(fixture.getProjection());
+    return generator;
+  }
+
+  /**
+   * Executes a Monte-Carlo experiment and describes its results.
+   * 
+   * @param batchSize
+   *          the number of trials per batch
+   * @param subPopThreads
+   *          the number of threads per trial
+   * @return the descriptions of the results
+   * @throws Exception
+   *           if the experiment fails
+   */
+  List<String> executeAndDescribe(int batchSize, int subPopThreads)
+      throws Exception {
+    P3JConfigFile config = ExperimentFixture.createConfig(
+        ExecutionMode.MONTE_CARLO, TRIALS, 1);
+    config.put(Misc.PREF_BATCH_SIZE, batchSize);
+    config.put(Misc.PREF_NUM_SUBPOP_THREADS, subPopThreads);
+    fixture.execute(config);
+    List<String> results = fixture.describeResults();
+    assertEquals(TRIALS, results.size());
+    return results;
+  }
+}
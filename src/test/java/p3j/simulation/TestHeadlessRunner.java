@@ -0,0 +1,106 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+import p3j.database.DatabaseType;
+import p3j.gui.misc.P3JConfigFile;
+import p3j.misc.Misc;
+
+/**
+ * Tests for the command-line handling of {@link HeadlessRunner}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestHeadlessRunner extends TestCase {
+
+  /**
+   * Tests parsing of the options.
+   */
+  public void testParseOptions() {
+    Map<String, String> options = HeadlessRunner.parseOptions(new String[] {
+        "--projection", "3", "--trials", "100" });
+    assertEquals("3", options.get(HeadlessRunner.OPT_PROJECTION));
+    assertEquals("100", options.get(HeadlessRunner.OPT_TRIALS));
+
+    assertInvalid("--unknown", "1");
+    assertInvalid("--projection");
+    assertInvalid("--projection", "1", "--projection", "2");
+    assertInvalid("--trials", "10");
+    assertInvalid("--projection", "1", "--load", "projection.p3j");
+    assertInvalid("--projection", "1", "--trials", "0");
+    assertInvalid("--projection", "x");
+    assertInvalid("--projection", "1", "--mode", "unknown");
+    assertInvalid("--projection", "1", "--db-type", "unknown");
+  }
+
+  /**
+   * Tests that the options override the execution and database preferences.
+   */
+  public void testConfiguration() {
+    P3JConfigFile config = new P3JConfigFile();
+    config.setDefaults();
+    Map<String, String> options = HeadlessRunner.parseOptions(new String[] {
+        "--trials", "20", "--threads", "4", "--mode", "latin_hypercube",
+        "--seed", "42", "--db-type", "mysql", "--db-user", "p3j" });
+    HeadlessRunner.configureExecution(config, options);
+    HeadlessRunner.configureDatabase(config, options);
+
+    assertEquals(20, config.get(Misc.PREF_NUM_TRIALS));
+    assertEquals(4, config.get(Misc.PREF_NUM_PARALLEL_THREADS));
+    assertEquals(ExecutionMode.LATIN_HYPERCUBE,
+        config.get(Misc.PREF_EXECUTION_MODE));
+    assertEquals(42L, config.get(Misc.PREF_RANDOM_SEED));
+    assertEquals(DatabaseType.MYSQL, config.get(Misc.PREF_DB_TYPE));
+    assertEquals(Misc.DEFAULT_DB_URLS.get(DatabaseType.MYSQL), config
+        .getDBConnectionData().getURL());
+    assertEquals("p3j", config.getDBConnectionData().getUser());
+
+    ExperimentConfigurator configurator = new ExperimentConfigurator(config);
+    assertEquals(5, configurator.getTrialsPerThread());
+  }
+
+  /**
+   * Tests that execution modes can be given by name or by description.
+   */
+  public void testParseExecutionMode() {
+    assertEquals(ExecutionMode.EXHAUSTIVE,
+        HeadlessRunner.parseExecutionMode("EXHAUSTIVE"));
+    assertEquals(ExecutionMode.QUASI_MONTE_CARLO,
+        HeadlessRunner.parseExecutionMode("quasi-monte-carlo"));
+    assertEquals(ExecutionMode.MONTE_CARLO,
+        HeadlessRunner.parseExecutionMode(ExecutionMode.DESC_MONTE_CARLO));
+  }
+
+  /**
+   * Asserts that the given arguments are rejected.
+   * 
+   * @param argv
+   *          the arguments
+   */
+  private static void assertInvalid(String... argv) {
+    try {
+      HeadlessRunner.fromArguments(argv);
+      fail("Arguments should be rejected.");
+    } catch (IllegalArgumentException ex) {
+      assertNotNull(ex.getMessage());
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import junit.framework.TestCase;
+import p3j.misc.MatrixDimension;
+import p3j.misc.math.Matrix;
+import p3j.misc.math.Matrix2D;
+import p3j.pppm.parameters.Parameter;
+import p3j.pppm.parameters.ParameterAssignment;
+import p3j.pppm.parameters.ParameterInstance;
+import p3j.pppm.parameters.ParameterType;
+import p3j.pppm.parameters.Population;
+
+/**
+ * Tests for {@link MortalityBaselineCache}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestMortalityBaselineCache extends TestCase {
+
+  /** The number of years. */
+  static final int YEARS = 3;
+
+  /** The number of ages. */
+  static final int AGES = 5;
+
+  @Override
+  public void setUp() {
+    MortalityBaselineCache.clear();
+  }
+
+  @Override
+  public void tearDown() {
+    MortalityBaselineCache.clear();
+  }
+
+  /**
+   * Tests that baselines are cached, and that they are re-calculated if the
+   * matrix of the assignment is replaced or edited in place.
+   */
+  public void testEditedAssignments() {
+    ParameterAssignment assignment = new ParameterAssignment(
+        new ParameterInstance(0, new Parameter(0, true,
+            "Some parameter regarding " + ParameterType.SURVIVORS_AGE_X,
+            MatrixDimension.YEARS, MatrixDimension.AGES, Population.NATIVES)),
+        "test", "", 1.0, 0.1, new Matrix(createLx(1)));
+    assignment.setID(1);
+
+    double[] lnQx = MortalityBaselineCache.getLnQx(assignment);
+    assertSame(lnQx, MortalityBaselineCache.getLnQx(assignment));
+    assertEquals(1, MortalityBaselineCache.size());
+
+    Matrix2D lx = assignment.getMatrixValue();
+    lx.setQuick(1, 2, lx.getQuick(1, 2) * 0.9);
+    double[] edited = MortalityBaselineCache.getLnQx(assignment);
+    assertNotSame(lnQx, edited);
+    assertEquals(MortalityBaselineCache.transform(lx)[AGES + 1],
+        edited[AGES + 1]);
+    assertFalse(lnQx[AGES + 1] == edited[AGES + 1]);
+    assertSame(edited, MortalityBaselineCache.getLnQx(assignment));
+
+    assignment.getMatrix().setValue(createLx(2));
+    assertNotSame(edited, MortalityBaselineCache.getLnQx(assignment));
+    assertEquals(1, MortalityBaselineCache.size());
+  }
+
+  /**
+   * Creates a matrix with the amounts of surviving people.
+   * 
+   * @param decline
+   *          the decline per age
+   * @return the L_x matrix (year x age)
+   */
+  static Matrix2D createLx(double decline) {
+    Matrix2D lx = new Matrix2D(YEARS, AGES);
+    for (int year = 0; year < YEARS; year++) {
+      for (int age = 0; age < AGES; age++) {
+        lx.setQuick(year, age, 100000 - age * (1000 * decline + year));
+      }
+    }
+    return lx;
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jamesii.core.experiments.BaseExperiment;
+
+import p3j.gui.misc.P3JConfigFile;
+import p3j.misc.Misc;
+import p3j.simulation.assignments.exhaustive.ExhaustiveParamAssignmentGenFactory;
+import p3j.simulation.assignments.exhaustive.SharedExhaustiveEnumeration;
+
+/**
+ * Executes experiments with several parallel threads, along the same path as
+ * the GUI, and checks that the threads share the trials of the experiment
+ * instead of calculating the same trials each.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestParallelExperiments extends TestCase {
+
+  /** The number of trials per experiment. */
+  static final int TRIALS = 8;
+
+  /** The test projection. */
+  ExperimentFixture fixture;
+
+  @Override
+  public void setUp() {
+    fixture = new ExperimentFixture(3, 0.1);
+  }
+
+  @Override
+  public void tearDown() {
+    fixture.tearDown();
+  }
+
+  /**
+   * Tests that the processors of all threads claim their trials from the same
+   * {@link TrialStreams}, so that the claimed trial indices are disjoint and
+   * cover 0..n-1, and that the results do not depend on the number of threads.
+   * 
+   * @throws Exception
+   *           if the experiment fails
+   */
+  public void testMonteCarloTrialsAreShared() throws Exception {
+    checkTrialsAreShared(ExecutionMode.MONTE_CARLO);
+  }
+
+  /**
+   * Tests that the workers of a Latin hypercube experiment calculate disjoint
+   * trials, and hence never duplicate strata.
+   * 
+   * @throws Exception
+   *           if the experiment fails
+   */
+  public void testLatinHypercubeTrialsAreShared() throws Exception {
+    checkTrialsAreShared(ExecutionMode.LATIN_HYPERCUBE);
+  }
+
+  /**
+   * Tests that the workers of a quasi-Monte-Carlo experiment calculate disjoint
+   * trials, and hence never use the same point of the sequence.
+   * 
+   * @throws Exception
+   *           if the experiment fails
+   */
+  public void testQuasiMonteCarloTrialsAreShared() throws Exception {
+    checkTrialsAreShared(ExecutionMode.QUASI_MONTE_CARLO);
+  }
+
+  /**
+   * Executes an experiment with one and with two threads, and checks that the
+   * trials are shared by the threads.
+   * 
+   * @param mode
+   *          the execution mode
+   * @throws Exception
+   *           if the experiment fails
+   */
+  void checkTrialsAreShared(ExecutionMode mode) throws Exception {
+    List<String> singleThreaded = executeAndDescribe(mode, 1);
+    assertEquals(TRIALS, new HashSet<>(singleThreaded).size());
+    BaseExperiment experiment = fixture.execute(ExperimentFixture.createConfig(
+        mode, TRIALS, 2));
+    TrialStreams streams = ExperimentFixture.getProcessorParameter(experiment,
+        PPPMProcessorFactory.TRIAL_STREAMS);
+    assertEquals(TRIALS, streams.getNumOfClaimedTrials());
+    assertEquals(singleThreaded, fixture.describeResults());
+  }
+
+  /**
+   * Tests antithetic trials with several threads: the pairs are recorded in
+   * the statistics of the shared {@link TrialStreams}, and the results do not
+   * depend on the number of threads.
+   * 
+   * @throws Exception
+   *           if the experiment fails
+   */
+  public void testAntitheticTrialsAreShared() throws Exception {
+    P3JConfigFile config = ExperimentFixture.createConfig(
+        ExecutionMode.MONTE_CARLO, TRIALS, 1);
+    config.put(Misc.PREF_VARIANCE_REDUCTION, VarianceReduction.ANTITHETIC);
+    List<String> singleThreaded = execute(config);
+    config.put(Misc.PREF_NUM_PARALLEL_THREADS, 2);
+    BaseExperiment experiment = fixture.execute(config);
+    TrialStreams streams = ExperimentFixture.getProcessorParameter(experiment,
+        PPPMProcessorFactory.TRIAL_STREAMS);
+    assertTrue(streams.isAntithetic());
+    assertEquals(TRIALS / 2, streams.getPairStatistics().getNumOfPairs());
+    assertEquals(singleThreaded, fixture.describeResults());
+  }
+
+  /**
+   * Tests that the generators of all threads claim their assignments from the
+   * same {@link SharedExhaustiveEnumeration}, so that each assignment is
+   * calculated exactly once, and the same assignments are calculated as with a
+   * single thread. The deviations of the assignments are not compared, as the
+   * trial (and hence the random number stream) that calculates an assignment
+   * depends on the order in which the threads claim them.
+   * 
+   * @throws Exception
+   *           if the experiment fails
+   */
+  public void testExhaustiveEnumerationIsShared() throws Exception {
+    fixture.execute(ExperimentFixture.createConfig(ExecutionMode.EXHAUSTIVE,
+        TRIALS, 1));
+    List<String> singleThreaded = fixture.describeAssignments();
+    assertEquals(TRIALS, new HashSet<>(singleThreaded).size());
+    BaseExperiment experiment = fixture.execute(ExperimentFixture.createConfig(
+        ExecutionMode.EXHAUSTIVE, TRIALS, 2));
+    SharedExhaustiveEnumeration enumeration = ExperimentFixture
+        .getGeneratorParameter(experiment,
+            ExhaustiveParamAssignmentGenFactory.SHARED_ENUMERATION);
+    assertEquals(TRIALS, enumeration.getNumOfClaims());
+    assertEquals(singleThreaded, fixture.describeAssignments());
+  }
+
+  /**
+   * Executes an experiment and describes its results.
+   * 
+   * @param mode
+   *          the execution mode
+   * @param threads
+   *          the number of threads
+   * @return the descriptions of the results
+   * @throws Exception
+   *           if the experiment fails
+   */
+  List<String> executeAndDescribe(ExecutionMode mode, int threads)
+      throws Exception {
+    return execute(ExperimentFixture.createConfig(mode, TRIALS, threads));
+  }
+
+  /**
+   * Executes an experiment and describes its results.
+   * 
+   * @param config
+   *          the configuration of the experiment
+   * @return the descriptions of the results
+   * @throws Exception
+   *           if the experiment fails
+   */
+  List<String> execute(P3JConfigFile config) throws Exception {
+    fixture.execute(config);
+    List<String> results = fixture.describeResults();
+    assertEquals(TRIALS, results.size());
+    return results;
+  }
+}
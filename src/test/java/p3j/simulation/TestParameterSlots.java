@@ -0,0 +1,162 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import junit.framework.TestCase;
+import p3j.misc.MatrixDimension;
+import p3j.pppm.PPPModelFactory;
+import p3j.pppm.ProjectionModel;
+import p3j.pppm.SubPopulation;
+import p3j.pppm.parameters.Parameter;
+import p3j.pppm.parameters.ParameterInstance;
+import p3j.pppm.parameters.Population;
+import p3j.simulation.ParameterSlots.Slot;
+
+/**
+ * Tests for {@link ParameterSlots}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestParameterSlots extends TestCase {
+
+  /** The number of generations. */
+  static final int GENERATIONS = 3;
+
+  /** The projection, with one parameter instance per slot and generation. */
+  ProjectionModel projection;
+
+  /** The comparison index of the last parameter instance. */
+  int comparisonIndex;
+
+  @Override
+  public void setUp() {
+    projection = PPPModelFactory.createModel("Test Projection", "", GENERATIONS,
+        10, 100, PPPModelFactory.DEFAULT_JUMP_OFF_YEAR,
+        PPPModelFactory.createDefaultSubPopulationModel());
+    for (SubPopulation jumpOffPopulation : projection.getSubPopulationModel()
+        .getJumpOffPopulations()) {
+      for (Slot slot : Slot.values()) {
+        if (slot != Slot.MIGRATION_MALE && slot != Slot.MIGRATION_FEMALE) {
+          addInstances(slot.getLabelFor(jumpOffPopulation), false);
+        }
+      }
+    }
+    for (SubPopulation inFlowPopulation : projection.getSubPopulationModel()
+        .getInFlowPopulations()) {
+      for (Slot slot : Slot.values()) {
+        if (slot != Slot.JUMP_OFF_MALE && slot != Slot.JUMP_OFF_FEMALE) {
+          addInstances(slot.getLabelFor(inFlowPopulation),
+              slot != Slot.MIGRATION_MALE && slot != Slot.MIGRATION_FEMALE);
+        }
+      }
+    }
+    projection.init();
+  }
+
+  /**
+   * Adds the instances of a parameter to the projection.
+   * 
+   * @param name
+   *          the name of the parameter
+   * @param genDependent
+   *          flag whether the parameter is generation-dependent
+   */
+  private void addInstances(String name, boolean genDependent) {
+    Parameter parameter = new Parameter(comparisonIndex, genDependent, name,
+        MatrixDimension.AGES, MatrixDimension.YEARS, Population.CUSTOM);
+    for (int generation = 0; generation < (genDependent ? GENERATIONS : 1); generation++) {
+      projection.getAllParameterInstances().add(
+          new ParameterInstance(++comparisonIndex, parameter, generation));
+    }
+  }
+
+  /**
+   * Tests that the slots of all sub-populations refer to the parameter
+   * instances with the matching labels and generations.
+   */
+  public void testSlots() {
+    ParameterSlots slots = new ParameterSlots(projection);
+    assertEquals(projection.getAllParameterInstances().size(),
+        slots.getNumOfInstances());
+
+    for (SubPopulation jumpOffPopulation : projection.getSubPopulationModel()
+        .getJumpOffPopulations()) {
+      int[] subPopSlots = slots.getSlots(jumpOffPopulation)[0];
+      assertEquals(ParameterSlots.NO_INSTANCE,
+          subPopSlots[Slot.MIGRATION_MALE.ordinal()]);
+      for (Slot slot : Slot.values()) {
+        if (slot != Slot.MIGRATION_MALE && slot != Slot.MIGRATION_FEMALE) {
+          checkSlot(slots, subPopSlots, slot, jumpOffPopulation, -1);
+        }
+      }
+    }
+
+    for (SubPopulation inFlowPopulation : projection.getSubPopulationModel()
+        .getInFlowPopulations()) {
+      int[][] subPopSlots = slots.getSlots(inFlowPopulation);
+      assertEquals(GENERATIONS, subPopSlots.length);
+      for (int generation = 0; generation < GENERATIONS; generation++) {
+        checkSlot(slots, subPopSlots[generation], Slot.MIGRATION_MALE,
+            inFlowPopulation, -1);
+        checkSlot(slots, subPopSlots[generation], Slot.MORTALITY_FEMALE,
+            inFlowPopulation, generation);
+        checkSlot(slots, subPopSlots[generation], Slot.FERTILITY,
+            inFlowPopulation, generation);
+      }
+    }
+  }
+
+  /**
+   * Tests that ordinals follow the comparison indices of the instances.
+   */
+  public void testOrdinals() {
+    ParameterSlots slots = new ParameterSlots(projection);
+    for (int i = 0; i < slots.getNumOfInstances(); i++) {
+      ParameterInstance instance = slots.getInstance(i);
+      assertEquals(i + 1, instance.getComparisonIndex());
+      assertEquals(i, slots.getOrdinal(instance));
+    }
+    assertEquals(ParameterSlots.NO_INSTANCE,
+        slots.getOrdinal(new ParameterInstance()));
+  }
+
+  /**
+   * Checks that a slot refers to the expected parameter instance.
+   * 
+   * @param slots
+   *          the parameter slots
+   * @param subPopSlots
+   *          the slots of the sub-population and generation
+   * @param slot
+   *          the slot
+   * @param subPopulation
+   *          the sub-population
+   * @param generation
+   *          the expected generation of the instance
+   */
+  private static void checkSlot(ParameterSlots slots, int[] subPopSlots,
+      Slot slot, SubPopulation subPopulation, int generation) {
+    int ordinal = subPopSlots[slot.ordinal()];
+    assertTrue(slot + " of " + subPopulation,
+        ordinal != ParameterSlots.NO_INSTANCE);
+    ParameterInstance instance = slots.getInstance(ordinal);
+    assertEquals(slot.getLabelFor(subPopulation), instance.getParameter()
+        .getName());
+    assertEquals(generation, instance.getGeneration());
+  }
+}
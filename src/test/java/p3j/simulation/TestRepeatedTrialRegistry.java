@@ -0,0 +1,153 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import p3j.database.IP3MDatabase;
+import p3j.experiment.results.ResultsOfTrial;
+import p3j.pppm.parameters.ParameterAssignment;
+
+/**
+ * Tests for {@link RepeatedTrialRegistry}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestRepeatedTrialRegistry extends TestCase {
+
+  /** The multiplicities stored in the database, per trial ID. */
+  final Map<Integer, Integer> storedMultiplicities = new HashMap<>();
+
+  /** The registry to be tested. */
+  RepeatedTrialRegistry registry;
+
+  @Override
+  public void setUp() {
+    IP3MDatabase database = (IP3MDatabase) Proxy.newProxyInstance(
+        IP3MDatabase.class.getClassLoader(),
+        new Class<?>[] { IP3MDatabase.class }, new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getName().equals("saveTrialResults")) {
+              ResultsOfTrial results = (ResultsOfTrial) args[0];
+              results.setID(storedMultiplicities.size() + 1);
+              storedMultiplicities.put(results.getID(),
+                  results.getMultiplicity());
+            } else if (method.getName().equals("updateTrialMultiplicity")) {
+              storedMultiplicities.put((Integer) args[0], (Integer) args[1]);
+            } else {
+              throw new UnsupportedOperationException(method.getName());
+            }
+            return null;
+          }
+        });
+    registry = new RepeatedTrialRegistry(database);
+  }
+
+  /**
+   * Tests that only deterministic, stored assignments have a signature.
+   */
+  public void testSignatures() {
+    RepeatedTrialRegistry.Signature signature = RepeatedTrialRegistry
+        .createSignature(createAssignments(1, 2, 3));
+    assertEquals(signature,
+        RepeatedTrialRegistry.createSignature(createAssignments(1, 2, 3)));
+    assertEquals(signature.hashCode(), RepeatedTrialRegistry.createSignature(
+        createAssignments(1, 2, 3)).hashCode());
+    assertFalse(signature.equals(RepeatedTrialRegistry
+        .createSignature(createAssignments(1, 3, 2))));
+
+    ParameterAssignment[] withUnused = createAssignments(1, 2, 3, 4);
+    withUnused[3] = null;
+    assertNotNull(RepeatedTrialRegistry.createSignature(withUnused));
+
+    ParameterAssignment[] deviating = createAssignments(1, 2, 3);
+    deviating[1].setDeviation(0.1);
+    assertNull(RepeatedTrialRegistry.createSignature(deviating));
+    assertNull(RepeatedTrialRegistry.createSignature(createAssignments(1, 0)));
+  }
+
+  /**
+   * Tests that repeated trials are counted, before and after the results of
+   * the first trial have been stored.
+   */
+  public void testCounting() {
+    RepeatedTrialRegistry.Signature signature = RepeatedTrialRegistry
+        .createSignature(createAssignments(1, 2));
+    assertFalse(registry.countTrial(signature));
+    assertTrue(registry.countTrial(signature));
+    assertTrue(storedMultiplicities.isEmpty());
+
+    ResultsOfTrial results = new ResultsOfTrial();
+    registry.store(signature, results);
+    assertEquals(2, results.getMultiplicity());
+    assertEquals(Integer.valueOf(2), storedMultiplicities.get(results.getID()));
+
+    assertTrue(registry.countTrial(signature));
+    assertEquals(Integer.valueOf(3), storedMultiplicities.get(results.getID()));
+
+    assertFalse(registry.countTrial(null));
+    assertFalse(registry.countTrial(null));
+    ResultsOfTrial stochasticResults = new ResultsOfTrial();
+    registry.store(null, stochasticResults);
+    assertEquals(1, stochasticResults.getMultiplicity());
+    assertEquals(2, storedMultiplicities.size());
+  }
+
+  /**
+   * Tests that a first trial that failed can be discarded, so that the next
+   * trial with its signature is not counted as a repetition, while stored
+   * trials are kept.
+   */
+  public void testDiscardingFailedTrials() {
+    RepeatedTrialRegistry.Signature signature = RepeatedTrialRegistry
+        .createSignature(createAssignments(1, 2));
+    assertFalse(registry.countTrial(signature));
+    registry.discard(signature);
+    assertFalse(registry.countTrial(signature));
+
+    ResultsOfTrial results = new ResultsOfTrial();
+    registry.store(signature, results);
+    registry.discard(signature);
+    assertTrue(registry.countTrial(signature));
+    assertEquals(Integer.valueOf(2), storedMultiplicities.get(results.getID()));
+    registry.discard(null);
+  }
+
+  /**
+   * Creates assignments with the given IDs.
+   * 
+   * @param ids
+   *          the IDs
+   * @return the assignments
+   */
+  static ParameterAssignment[] createAssignments(int... ids) {
+    List<ParameterAssignment> assignments = TestSubPopulationResultCache
+        .createAssignments(ids);
+    for (ParameterAssignment assignment : assignments) {
+      assignment.setDeviation(0.);
+    }
+    return assignments.toArray(new ParameterAssignment[assignments.size()]);
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import p3j.experiment.results.BasicResults;
+import p3j.experiment.results.ExecutionSummary;
+import p3j.misc.Misc;
+import p3j.misc.math.Matrix2D;
+import p3j.pppm.parameters.ParameterInstance;
+import p3j.simulation.assignments.quasirandom.QuasiRandomParamAssignmentGenerator;
+import p3j.simulation.assignments.random.RandomParamAssignmentGenerator;
+
+/**
+ * Tests for {@link SingleExecution}, in particular for the concurrent
+ * calculation of sub-populations. The test projection has two jump-off
+ * populations and two in-flow populations with descendant generations.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestSingleExecution extends TestCase {
+
+  /** The number of trials to be compared. */
+  static final int TRIALS = 5;
+
+  /** The test projection. */
+  ExperimentFixture fixture;
+
+  @Override
+  public void setUp() {
+    fixture = new ExperimentFixture(3, 0.1);
+  }
+
+  @Override
+  public void tearDown() {
+    fixture.tearDown();
+  }
+
+  /**
+   * Tests that calculating the sub-populations concurrently yields
+   * bit-identical results, for all calculation engines.
+   */
+  public void testConcurrentCalculation() {
+    for (CalculationEngine engine : CalculationEngine.values()) {
+      SingleExecution sequential = createExecution(engine, 1);
+      SingleExecution concurrent = createExecution(engine, 4);
+      RandomParamAssignmentGenerator sequentialGenerator = createGenerator();
+      RandomParamAssignmentGenerator concurrentGenerator = createGenerator();
+      for (int trial = 0; trial < TRIALS; trial++) {
+        ExecutionSummary expected = sequential.execute(sequentialGenerator)
+            .getFirstValue();
+        ExecutionSummary actual = concurrent.execute(concurrentGenerator)
+            .getFirstValue();
+        assertEquals(trial, actual.getTrialIndex());
+        assertSameResults(engine + ", trial " + trial,
+            expected.getAllResults(), actual.getAllResults());
+      }
+    }
+  }
+
+  /**
+   * Tests that the quasi-random generator determines the deviation errors of
+   * all years and parameter instances, so that trials with the same index do
+   * not depend on the random number streams.
+   */
+  public void testQuasiRandomDeviations() {
+    QuasiRandomParamAssignmentGenerator generator = new QuasiRandomParamAssignmentGenerator(
+        ExperimentFixture.SEED);
+    generator.init(fixture.getProjection());
+    Map<ParameterInstance, double[]> errors = generator
+        .createDeviationErrors(0);
+    assertFalse(errors.isEmpty());
+    for (double[] instanceErrors : errors.values()) {
+      assertEquals(ExperimentFixture.YEARS - 1, instanceErrors.length);
+      for (double error : instanceErrors) {
+        assertFalse(Double.isInfinite(error) || Double.isNaN(error));
+      }
+    }
+    assertFalse(Arrays.equals(errors.values().iterator().next(), generator
+        .createDeviationErrors(1).values().iterator().next()));
+
+    SingleExecution execution = createExecution(CalculationEngine.FLAT_ARRAY, 1,
+        ExperimentFixture.SEED);
+    SingleExecution otherStreams = createExecution(CalculationEngine.FLAT_ARRAY, 1,
+        ExperimentFixture.SEED + 1);
+    for (int trial = 0; trial < TRIALS; trial++) {
+      assertSameResults("trial " + trial, execution.execute(generator)
+          .getFirstValue().getAllResults(), otherStreams.execute(generator)
+          .getFirstValue().getAllResults());
+    }
+  }
+
+  /**
+   * Tests that the pools are shared per parallelism.
+   */
+  public void testPools() {
+    ForkJoinPool pool = SingleExecution.getPool(3);
+    assertEquals(3, pool.getParallelism());
+    assertSame(pool, SingleExecution.getPool(3));
+    assertNotSame(pool, SingleExecution.getPool(2));
+  }
+
+  /**
+   * Creates an execution for the test projection.
+   * 
+   * @param engine
+   *          the calculation engine
+   * @param subPopThreads
+   *          the number of threads to calculate the sub-populations
+   * @return the execution
+   */
+  SingleExecution createExecution(CalculationEngine engine, int subPopThreads) {
+    return createExecution(engine, subPopThreads, ExperimentFixture.SEED);
+  }
+
+  /**
+   * Creates an execution for the test projection.
+   * 
+   * @param engine
+   *          the calculation engine
+   * @param subPopThreads
+   *          the number of threads to calculate the sub-populations
+   * @param seed
+   *          the seed of the random number streams
+   * @return the execution
+   */
+  SingleExecution createExecution(CalculationEngine engine,
+      int subPopThreads, long seed) {
+    ExecutionSettings settings = new ExecutionSettings(engine,
+        Misc.DEFAULT_BATCH_SIZE, Integer.MAX_VALUE, subPopThreads, null,
+        new TrialStreams(seed), false);
+    return new SingleExecution(fixture.getProjection(), fixture.getDatabase(),
+        settings, null, new ParameterSlots(fixture.getProjection()), null);
+  }
+
+  /**
+   * Creates a generator for the test projection.
+   * 
+   * @return the generator
+   */
+  RandomParamAssignmentGenerator createGenerator() {
+    RandomParamAssignmentGenerator generator = new RandomParamAssignmentGenerator();
+    generator.init(fixture.getProjection());
+    return generator;
+  }
+
+  /**
+   * Asserts that the results of all sub-populations are bit-identical.
+   * 
+   * @param message
+   *          the message
+   * @param expected
+   *          the expected results
+   * @param actual
+   *          the actual results
+   */
+  static void assertSameResults(String message, List<BasicResults> expected,
+      List<BasicResults> actual) {
+    assertEquals(message, 6, expected.size());
+    assertEquals(message, expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      BasicResults exp = expected.get(i);
+      BasicResults act = actual.get(i);
+      String subPopMessage = message + ", " + exp.getSubPopName()
+          + exp.getGeneration();
+      assertEquals(subPopMessage, exp.getSubPopName(), act.getSubPopName());
+      assertEquals(subPopMessage, exp.getGeneration(), act.getGeneration());
+      assertSameValues(subPopMessage, exp.getEndXm(), act.getEndXm());
+      assertSameValues(subPopMessage, exp.getEndXf(), act.getEndXf());
+      assertSameValues(subPopMessage, exp.getMeanXm(), act.getMeanXm());
+      assertSameValues(subPopMessage, exp.getMeanXf(), act.getMeanXf());
+      assertSameValues(subPopMessage, exp.getP1m(), act.getP1m());
+      assertSameValues(subPopMessage, exp.getP2f(), act.getP2f());
+    }
+  }
+
+  /**
+   * Asserts that two matrices are bit-identical.
+   * 
+   * @param message
+   *          the message
+   * @param expected
+   *          the expected values (may be null)
+   * @param actual
+   *          the actual values (may be null)
+   */
+  static void assertSameValues(String message, Matrix2D expected,
+      Matrix2D actual) {
+    if (expected == null) {
+      assertNull(message, actual);
+      return;
+    }
+    assertTrue(message, Arrays.equals(expected.getRowMajorElements(),
+        actual.getRowMajorElements()));
+  }
+}
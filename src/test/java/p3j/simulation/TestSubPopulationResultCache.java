@@ -0,0 +1,169 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.jamesii.core.data.DBConnectionData;
+
+import p3j.database.DatabaseFactory;
+import p3j.experiment.results.BasicResults;
+import p3j.experiment.results.ResultsOfTrial;
+import p3j.pppm.parameters.ParameterAssignment;
+
+/**
+ * Tests for {@link SubPopulationResultCache}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestSubPopulationResultCache extends TestCase {
+
+  /** The number of years. */
+  static final int YEARS = 10;
+
+  /** The maximum age. */
+  static final int MAX_AGE = 100;
+
+  /**
+   * Tests that equal inputs yield equal keys, and that deviating or unsaved
+   * assignments cannot be cached.
+   */
+  public void testKeys() {
+    SubPopulationResultCache.Key key = SubPopulationResultCache.createKey(
+        "Natives", 0, YEARS, MAX_AGE, createAssignments(1, 2, 3), null);
+    assertEquals(key, SubPopulationResultCache.createKey("Natives", 0, YEARS,
+        MAX_AGE, createAssignments(1, 2, 3), null));
+    assertEquals(key.hashCode(), SubPopulationResultCache.createKey("Natives",
+        0, YEARS, MAX_AGE, createAssignments(1, 2, 3), null).hashCode());
+    assertFalse(key.equals(SubPopulationResultCache.createKey("Natives", 0,
+        YEARS, MAX_AGE, createAssignments(1, 3, 2), null)));
+    assertFalse(key.equals(SubPopulationResultCache.createKey("Emigrants", 0,
+        YEARS, MAX_AGE, createAssignments(1, 2, 3), null)));
+
+    SubPopulationResultCache.Key child = SubPopulationResultCache.createKey(
+        "Natives", 1, YEARS, MAX_AGE, createAssignments(4), key);
+    assertFalse(child.equals(SubPopulationResultCache.createKey("Natives", 1,
+        YEARS, MAX_AGE, createAssignments(4), SubPopulationResultCache
+            .createKey("Natives", 0, YEARS, MAX_AGE,
+                createAssignments(1, 2, 5), null))));
+    assertNull(SubPopulationResultCache.createKey("Natives", 1, YEARS,
+        MAX_AGE, createAssignments(4), null));
+
+    List<ParameterAssignment> deviating = createAssignments(1, 2, 3);
+    deviating.get(1).setDeviation(0.1);
+    assertNull(SubPopulationResultCache.createKey("Natives", 0, YEARS,
+        MAX_AGE, deviating, null));
+    assertNull(SubPopulationResultCache.createKey("Natives", 0, YEARS,
+        MAX_AGE, createAssignments(1, 0), null));
+  }
+
+  /**
+   * Tests that results are shared and that the cache is bounded.
+   */
+  public void testCache() {
+    SubPopulationResultCache cache = new SubPopulationResultCache();
+    BasicResults results = new BasicResults();
+    cache.put(null, results);
+    assertNull(cache.get(null));
+
+    cache.put(SubPopulationResultCache.createKey("Natives", 0, YEARS, MAX_AGE,
+        createAssignments(1), null), results);
+    assertSame(results, cache.get(SubPopulationResultCache.createKey(
+        "Natives", 0, YEARS, MAX_AGE, createAssignments(1), null)));
+
+    for (int i = 2; i <= SubPopulationResultCache.MAX_ENTRIES + 1; i++) {
+      cache.put(SubPopulationResultCache.createKey("Natives", 0, YEARS,
+          MAX_AGE, createAssignments(i), null), new BasicResults());
+    }
+    assertNull(cache.get(SubPopulationResultCache.createKey("Natives", 0,
+        YEARS, MAX_AGE, createAssignments(1), null)));
+  }
+
+  /**
+   * Tests that shared sub-population results are kept as long as a trial
+   * refers to them, and are deleted together with the last one.
+   * 
+   * @throws Exception
+   *           if the experiment fails
+   */
+  public void testSharedResultsAreDeletedWithLastTrial() throws Exception {
+    ExperimentFixture fixture = new ExperimentFixture(1, 0);
+    try {
+      fixture.execute(ExperimentFixture.createConfig(
+          ExecutionMode.MONTE_CARLO, 3, 1));
+      List<ResultsOfTrial> results = fixture.getResults();
+      assertEquals(3, results.size());
+      int numOfSubPopResults = results.get(0).getSubPopulationResults()
+          .size();
+      assertEquals(numOfSubPopResults, countStoredSubPopResults());
+
+      fixture.getDatabase().deleteResult(results.get(0));
+      assertEquals(numOfSubPopResults, countStoredSubPopResults());
+      for (ResultsOfTrial result : fixture.getResults()) {
+        assertEquals(numOfSubPopResults, result.getSubPopulationResults()
+            .size());
+      }
+
+      fixture.getDatabase().deleteAllResults(fixture.getProjection(), null);
+      assertEquals(0, countStoredSubPopResults());
+    } finally {
+      fixture.tearDown();
+    }
+  }
+
+  /**
+   * Counts the stored sub-population results.
+   * 
+   * @return the number of sub-population results in the database
+   * @throws Exception
+   *           if the database cannot be accessed
+   */
+  static int countStoredSubPopResults() throws Exception {
+    DBConnectionData connData = DatabaseFactory.getDbConnData();
+    try (Connection connection = DriverManager.getConnection(
+        connData.getURL(), connData.getUser(), connData.getPassword());
+        ResultSet count = connection.createStatement().executeQuery(
+            "select count(*) from results_basic")) {
+      count.next();
+      return count.getInt(1);
+    }
+  }
+
+  /**
+   * Creates assignments with the given IDs.
+   * 
+   * @param ids
+   *          the IDs
+   * @return the assignments
+   */
+  static List<ParameterAssignment> createAssignments(int... ids) {
+    List<ParameterAssignment> assignments = new ArrayList<>();
+    for (int id : ids) {
+      ParameterAssignment assignment = new ParameterAssignment();
+      assignment.setID(id);
+      assignments.add(assignment);
+    }
+    return assignments;
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import junit.framework.TestCase;
+
+import org.jamesii.core.experiments.BaseExperiment;
+import org.jamesii.core.math.random.generators.IRandom;
+import org.jamesii.core.util.misc.Clone;
+
+import p3j.experiment.ExperimentDefinition;
+import p3j.gui.misc.P3JConfigFile;
+import p3j.misc.Misc;
+
+/**
+ * Tests for {@link TrialStreams}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestTrialStreams extends TestCase {
+
+  /** The seed of the experiment. */
+  static final long SEED = 1234567L;
+
+  /** The number of trials to be claimed. */
+  static final int NUM_OF_TRIALS = 4000;
+
+  /** The number of threads claiming trials. */
+  static final int NUM_OF_THREADS = 16;
+
+  /** The number of values drawn per trial. */
+  static final int VALUES_PER_TRIAL = 5;
+
+  /**
+   * Tests that the streams of the trials only depend on the seed and the trial
+   * index.
+   */
+  public void testDeterministicStreams() {
+    TrialStreams first = new TrialStreams(SEED);
+    TrialStreams second = new TrialStreams(SEED);
+    for (int trial = 0; trial < 10; trial++) {
+      assertEquals(TrialStreams.getTrialSeed(SEED, trial),
+          ((Number) first.createRandom(trial).getSeed()).longValue());
+      assertEquals(draw(first.nextRandom()), draw(second.createRandom(trial)));
+    }
+    assertFalse(draw(new TrialStreams(SEED + 1).createRandom(0)).equals(
+        draw(first.createRandom(0))));
+    assertFalse(draw(first.createRandom(0)).equals(draw(first.createRandom(1))));
+  }
+
+  /**
+   * Tests that concurrently claimed trials are the same as those claimed by a
+   * single thread.
+   * 
+   * @throws InterruptedException
+   *           if interrupted
+   */
+  public void testConcurrentClaims() throws InterruptedException {
+    final TrialStreams streams = new TrialStreams(SEED);
+    final ConcurrentMap<Long, List<Long>> values = new ConcurrentHashMap<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < NUM_OF_THREADS; i++) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < NUM_OF_TRIALS / NUM_OF_THREADS; j++) {
+            long trial = streams.nextTrial();
+            assertNull(values.put(trial, draw(streams.createRandom(trial))));
+          }
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(NUM_OF_TRIALS, values.size());
+    assertEquals(NUM_OF_TRIALS, streams.getNumOfClaimedTrials());
+    TrialStreams sequential = new TrialStreams(SEED);
+    for (int i = 0; i < NUM_OF_TRIALS; i++) {
+      assertEquals(draw(sequential.nextRandom()), values.get((long) i));
+    }
+  }
+
+  /**
+   * Tests that the trials of an antithetic pair use mirrored random numbers.
+   */
+  public void testAntitheticPairs() {
+    TrialStreams streams = new TrialStreams(SEED, true);
+    assertFalse(streams.isAntitheticTrial(0));
+    assertTrue(streams.isAntitheticTrial(1));
+    IRandom first = streams.createRandom(2);
+    IRandom second = streams.createRandom(3);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(1, first.nextDouble() + second.nextDouble(), 1e-15);
+      assertEquals(9, first.nextInt(10) + second.nextInt(10));
+    }
+    assertFalse(draw(streams.createRandom(0)).equals(
+        draw(streams.createRandom(2))));
+  }
+
+  /**
+   * Tests the estimation of the variance reduction, for the square of a
+   * uniformly distributed variable (the factor is 8 for antithetic pairs).
+   */
+  public void testPairStatistics() {
+    AntitheticPairStatistics antithetic = new AntitheticPairStatistics("u^2");
+    AntitheticPairStatistics independent = new AntitheticPairStatistics("u^2");
+    TrialStreams streams = new TrialStreams(SEED, true);
+    IRandom random = new TrialStreams(SEED).createRandom(0);
+    for (int trial = NUM_OF_TRIALS * 10 - 1; trial >= 0; trial--) {
+      double u = streams.createRandom(trial).nextDouble();
+      antithetic.addTrial(trial, new double[] { u * u });
+      double v = random.nextDouble();
+      independent.addTrial(trial, new double[] { v * v });
+    }
+    assertEquals(NUM_OF_TRIALS * 5, antithetic.getNumOfPairs());
+    assertEquals(8, antithetic.getVarianceReductionFactor(0), 0.8);
+    assertEquals(1, independent.getVarianceReductionFactor(0), 0.1);
+    assertTrue(Double.isNaN(new AntitheticPairStatistics("x")
+        .getVarianceReductionFactor(0)));
+  }
+
+  /**
+   * Tests that copies of the streams, as created by JAMES II for each run,
+   * resolve to the original instance.
+   * 
+   * @throws Exception
+   *           if copying fails
+   */
+  public void testCopiesAreShared() throws Exception {
+    TrialStreams streams = new TrialStreams(SEED, true);
+    TrialStreams copy = Clone.cloneSerializable(streams);
+    assertSame(streams, copy);
+    copy.nextTrial();
+    assertEquals(1, streams.getNumOfClaimedTrials());
+    assertNotNull(streams.getPairStatistics());
+    assertNotSame(streams, Clone.cloneSerializable(new TrialStreams(SEED)));
+  }
+
+  /**
+   * Tests the bounded values of the generator.
+   */
+  public void testBoundedValues() {
+    IRandom random = new TrialStreams(SEED).createRandom(0);
+    int[] counts = new int[3];
+    for (int i = 0; i < 30000; i++) {
+      counts[random.nextInt(3)]++;
+      double value = random.nextDouble();
+      assertTrue(value >= 0 && value < 1);
+      long bounded = random.nextLong(Long.MAX_VALUE / 3 * 2);
+      assertTrue(bounded >= 0 && bounded < Long.MAX_VALUE / 3 * 2);
+    }
+    for (int count : counts) {
+      assertEquals(10000, count, 500);
+    }
+  }
+
+  /**
+   * Tests that the streams of an experiment are derived from the seed of its
+   * definition, and that a seed that has been drawn is stored in it.
+   * 
+   * @throws Exception
+   *           if the experiment could not be created
+   */
+  public void testSeedOfExperimentDefinition() throws Exception {
+    P3JConfigFile config = ExperimentFixture.createConfig(
+        ExecutionMode.MONTE_CARLO, 1, 1);
+    ExperimentConfigurator configurator = new ExperimentConfigurator(config);
+
+    ExperimentDefinition definition = new ExperimentDefinition();
+    definition.setRandSeed(SEED);
+    assertEquals(SEED, getSeed(configurator, config, definition));
+    assertEquals(SEED, definition.getRandSeed());
+
+    definition.setRandSeed(Misc.DEFAULT_RANDOM_SEED);
+    long drawnSeed = getSeed(configurator, config, definition);
+    assertEquals(drawnSeed, definition.getRandSeed());
+    assertFalse(drawnSeed == Misc.DEFAULT_RANDOM_SEED);
+  }
+
+  /**
+   * Gets the seed of the streams of an experiment with the given definition.
+   * 
+   * @param configurator
+   *          the experiment configurator
+   * @param config
+   *          the configuration
+   * @param definition
+   *          the definition of the experiment
+   * @return the seed of the trial streams
+   * @throws Exception
+   *           if the experiment could not be created
+   */
+  private static long getSeed(ExperimentConfigurator configurator,
+      P3JConfigFile config, ExperimentDefinition definition) throws Exception {
+    BaseExperiment experiment = configurator.createExperiment(
+        config.getDBConnectionData(), 1, definition);
+    TrialStreams streams = ExperimentFixture.getProcessorParameter(experiment,
+        PPPMProcessorFactory.TRIAL_STREAMS);
+    return streams.getSeed();
+  }
+
+  /**
+   * Draws some values from the given generator.
+   * 
+   * @param random
+   *          the random number generator
+   * @return the values
+   */
+  static List<Long> draw(IRandom random) {
+    List<Long> result = new ArrayList<>();
+    for (int i = 0; i < VALUES_PER_TRIAL; i++) {
+      result.add(random.nextLong());
+    }
+    return result;
+  }
+}
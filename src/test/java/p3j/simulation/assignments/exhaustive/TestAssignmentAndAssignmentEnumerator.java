@@ -78,6 +78,26 @@ public class TestAssignmentAndAssignmentEnumerator extends TestCase {
     assertTrue(a1.equals(a1Copy));
   }
 
+  /**
+   * Tests that IDs are compared as their string representations would be.
+   */
+  public void testIDComparison() {
+    int[] values = { 0, 1, 2, 9, 10, 11, 19, 20, 99, 100, 101, 1000, 12345 };
+    for (int v1 : values) {
+      for (int v2 : values) {
+        for (int v3 : values) {
+          Assignment first = new Assignment(new int[] { v1, v2 },
+              SOME_PROBABILITY);
+          Assignment second = new Assignment(new int[] { v1, v3 },
+              SOME_PROBABILITY);
+          assertEquals(Integer.signum(first.getID().compareTo(second.getID())),
+              Integer.signum(first.compareTo(second)));
+          assertEquals(first.getIndexSum(), v1 + v2);
+        }
+      }
+    }
+  }
+
   public void testAssignmentEnumerator() {
     AssignmentEnumerator assignmentEnumerator = new AssignmentEnumerator(a2);
     assertEquals(a2, assignmentEnumerator.getMostProbable());
@@ -102,4 +122,59 @@ public class TestAssignmentAndAssignmentEnumerator extends TestCase {
     assertNotNull(assignmentEnumerator.removeMostProbable());
     assertNull(assignmentEnumerator.removeMostProbable());
   }
+
+  /**
+   * Tests that assignments are enumerated in the order of their probabilities
+   * (and IDs), and that each index tuple is only enumerated once.
+   */
+  public void testEnumerationOrder() {
+    final int size = 30;
+    AssignmentEnumerator assignmentEnumerator = new AssignmentEnumerator();
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < size; i++) {
+        Set<Assignment> assignmentSet = new HashSet<Assignment>();
+        for (int j = 0; j < size; j++) {
+          List<Integer> indices = new ArrayList<Integer>();
+          indices.add(i);
+          indices.add(j);
+          assignmentSet.add(new Assignment(indices, ((i * 7 + j * 13) % 11)
+              / 11.));
+        }
+        assignmentEnumerator.add(assignmentSet);
+      }
+    }
+
+    IndexTupleSet enumerated = new IndexTupleSet(2);
+    Assignment previous = null;
+    while (!assignmentEnumerator.isEmpty()) {
+      Assignment current = assignmentEnumerator.removeMostProbable();
+      assertTrue(enumerated.add(current.getIndices()));
+      if (previous != null) {
+        assertTrue(previous.compareTo(current) < 0);
+      }
+      previous = current;
+    }
+    assertEquals(size * size, enumerated.size());
+  }
+
+  /**
+   * Tests that a bounded enumerator prunes the least probable assignments.
+   */
+  public void testBoundedEnumerator() {
+    final int capacity = 5;
+    AssignmentEnumerator assignmentEnumerator = new AssignmentEnumerator(
+        new Assignment(new int[] { 0 }, 1), capacity);
+    assertEquals(-1., assignmentEnumerator.getMaxPrunedProbability());
+    for (int i = 1; i < 4 * capacity; i++) {
+      Set<Assignment> assignmentSet = new HashSet<Assignment>();
+      assignmentSet.add(new Assignment(new int[] { i }, 1. / (i + 1)));
+      assignmentEnumerator.add(assignmentSet);
+      assertTrue(assignmentEnumerator.size() < 2 * capacity);
+    }
+    assertEquals(1. / (capacity + 1),
+        assignmentEnumerator.getMaxPrunedProbability());
+    for (int i = 0; i < capacity; i++) {
+      assertEquals(i, assignmentEnumerator.removeMostProbable().getIndex(0));
+    }
+  }
 }
@@ -17,6 +17,7 @@ package p3j.simulation.assignments.exhaustive;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
@@ -215,4 +216,97 @@ public class TestExhaustiveAssignmentGenerator extends TestCase {
     }
     assertNull(aag.nextAssignment());
   }
+
+  /**
+   * Tests that generators sharing an enumeration calculate all assignments
+   * together, in the order of a single generator, without duplicates.
+   */
+  public void testSharedEnumeration() {
+    SharedExhaustiveEnumeration sharedEnumeration = new SharedExhaustiveEnumeration(
+        new ExhaustiveSimParameters());
+    List<Map<ParameterInstance, ParameterAssignment>> claimed = claimAll(
+        sharedEnumeration, 3);
+    assertEquals(NUM_COMBINATIONS, claimed.size());
+    assertEquals(NUM_COMBINATIONS, sharedEnumeration.getNumOfClaims());
+    for (Map<ParameterInstance, ParameterAssignment> assignment : claimed) {
+      assertEquals(aag.nextAssignment().getFirstValue(), assignment);
+    }
+
+    ExhaustiveSimParameters parameters = new ExhaustiveSimParameters();
+    parameters.setMaxNumRuns(NUM_COMBINATIONS / 4);
+    assertEquals(NUM_COMBINATIONS / 4,
+        claimAll(new SharedExhaustiveEnumeration(parameters), 3).size());
+  }
+
+  /**
+   * Tests that a bounded frontier still enumerates all assignments that are
+   * more probable than the pruned ones, in the same order.
+   */
+  public void testFrontierCapacity() {
+    ExhaustiveSimParameters parameters = new ExhaustiveSimParameters();
+    parameters.setFrontierCapacity(2);
+    ExhaustiveAssignmentGenerator boundedGenerator = new ExhaustiveAssignmentGenerator();
+    boundedGenerator.setParameters(parameters);
+    boundedGenerator.init(projectionModel);
+
+    List<Double> probabilities = new ArrayList<Double>();
+    for (Pair<Map<ParameterInstance, ParameterAssignment>, Double> assignment = boundedGenerator
+        .nextAssignment(); assignment != null; assignment = boundedGenerator
+        .nextAssignment()) {
+      probabilities.add(assignment.getSecondValue());
+    }
+    double maxPrunedProbability = boundedGenerator.getMaxPrunedProbability();
+    assertTrue(maxPrunedProbability >= 0);
+    assertTrue(probabilities.size() < NUM_COMBINATIONS);
+
+    for (int i = 0;; i++) {
+      Pair<Map<ParameterInstance, ParameterAssignment>, Double> assignment = aag
+          .nextAssignment();
+      if (assignment.getSecondValue() <= maxPrunedProbability) {
+        break;
+      }
+      assertEquals(assignment.getSecondValue(), probabilities.get(i));
+    }
+  }
+
+  /**
+   * Tests that the number of combinations does not overflow.
+   */
+  public void testSaturatedArithmetic() {
+    assertEquals(6, ExhaustiveAssignmentGenerator.saturatedMultiply(2, 3));
+    assertEquals(0,
+        ExhaustiveAssignmentGenerator.saturatedMultiply(0, Long.MAX_VALUE));
+    assertEquals(Long.MAX_VALUE,
+        ExhaustiveAssignmentGenerator.saturatedMultiply(Long.MAX_VALUE / 2, 3));
+    assertEquals(5, ExhaustiveAssignmentGenerator.saturatedAdd(2, 3));
+    assertEquals(Long.MAX_VALUE,
+        ExhaustiveAssignmentGenerator.saturatedAdd(Long.MAX_VALUE - 1, 2));
+  }
+
+  /**
+   * Lets several generators claim assignments from a shared enumeration, in
+   * turns, until none is left.
+   * 
+   * @param sharedEnumeration
+   *          the shared enumeration
+   * @param numOfGenerators
+   *          the number of generators
+   * @return the claimed assignments, in the order of their claims
+   */
+  private List<Map<ParameterInstance, ParameterAssignment>> claimAll(
+      SharedExhaustiveEnumeration sharedEnumeration, int numOfGenerators) {
+    ExhaustiveAssignmentGenerator[] generators = new ExhaustiveAssignmentGenerator[numOfGenerators];
+    for (int i = 0; i < numOfGenerators; i++) {
+      generators[i] = new ExhaustiveAssignmentGenerator();
+      generators[i].setParameters(sharedEnumeration.getParameters());
+      generators[i].setSharedEnumeration(sharedEnumeration);
+      generators[i].init(projectionModel);
+    }
+    List<Map<ParameterInstance, ParameterAssignment>> claimed = new ArrayList<Map<ParameterInstance, ParameterAssignment>>();
+    for (int i = 0; generators[i % numOfGenerators].assignmentsLeft() > 0; i++) {
+      claimed.add(generators[i % numOfGenerators].chooseParamAssignments(null)
+          .getFirstValue());
+    }
+    return claimed;
+  }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.assignments.stratified;
+
+import junit.framework.TestCase;
+
+import org.jamesii.core.math.random.generators.IRandom;
+import org.jamesii.core.parameters.ParameterBlock;
+import org.jamesii.core.util.misc.Clone;
+
+import p3j.misc.math.RandomPermutation;
+import p3j.misc.math.SplitMixRandom;
+import p3j.simulation.assignments.plugintype.ParamAssignmentGenFactory;
+
+/**
+ * Tests for {@link LatinHypercubeParamAssignmentGenerator} and
+ * {@link RandomPermutation}.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public class TestLatinHypercubeParamAssignmentGenerator extends TestCase {
+
+  /** The number of trials (and strata). */
+  static final int NUM_OF_TRIALS = 1000;
+
+  /** The number of dimensions. */
+  static final int NUM_OF_DIMENSIONS = 5;
+
+  /** The seed. */
+  static final long SEED = 4711;
+
+  /**
+   * Tests that permutations are bijective, for various sizes.
+   */
+  public void testPermutation() {
+    for (int size : new int[] { 1, 2, 3, 7, 64, 1000, 4097 }) {
+      RandomPermutation permutation = new RandomPermutation(size, SEED);
+      boolean[] hit = new boolean[size];
+      int fixedPoints = 0;
+      for (int i = 0; i < size; i++) {
+        int image = (int) permutation.get(i);
+        assertFalse(hit[image]);
+        hit[image] = true;
+        fixedPoints += image == i ? 1 : 0;
+      }
+      assertTrue(size < 64 || fixedPoints < 10);
+    }
+  }
+
+  /**
+   * Tests that two workers calculating alternate trials cover each stratum of
+   * each dimension exactly once. As in an experiment, both workers are created
+   * by the factory, from their own copy of the parameters.
+   * 
+   * @throws Exception
+   *           if the parameters cannot be copied
+   */
+  public void testStratificationAcrossWorkers() throws Exception {
+    LatinHypercubeParamAssignmentGenerator[] workers = {
+        createGenerator(), createGenerator() };
+    IRandom random = new SplitMixRandom(SEED);
+    boolean[][] covered = new boolean[NUM_OF_DIMENSIONS][NUM_OF_TRIALS];
+    int[] firstStrata = new int[NUM_OF_DIMENSIONS];
+    for (int trial = 0; trial < NUM_OF_TRIALS; trial++) {
+      double[] point = workers[trial % 2].createPoint(trial, random);
+      for (int dim = 0; dim < NUM_OF_DIMENSIONS; dim++) {
+        int stratum = (int) (point[dim] * NUM_OF_TRIALS);
+        assertFalse(covered[dim][stratum]);
+        covered[dim][stratum] = true;
+        if (trial == 0) {
+          firstStrata[dim] = stratum;
+        }
+      }
+    }
+
+    // The next hypercube uses other permutations
+    double[] point = workers[0].createPoint(NUM_OF_TRIALS, random);
+    int sameStrata = 0;
+    for (int dim = 0; dim < NUM_OF_DIMENSIONS; dim++) {
+      sameStrata += (int) (point[dim] * NUM_OF_TRIALS) == firstStrata[dim] ? 1
+          : 0;
+    }
+    assertTrue(sameStrata < NUM_OF_DIMENSIONS);
+  }
+
+  /**
+   * Creates a generator via the factory, from a copy of the parameters.
+   * 
+   * @return the generator
+   * @throws Exception
+   *           if the parameters cannot be copied
+   */
+  static LatinHypercubeParamAssignmentGenerator createGenerator()
+      throws Exception {
+    ParameterBlock params = new ParameterBlock().addSubBl(
+        ParamAssignmentGenFactory.NUM_OF_TRIALS, NUM_OF_TRIALS).addSubBl(
+        ParamAssignmentGenFactory.SEED, SEED);
+    LatinHypercubeParamAssignmentGenerator generator = (LatinHypercubeParamAssignmentGenerator) new LatinHypercubeParamAssignmentGenFactory()
+        .create(Clone.cloneSerializable(params));
+    generator.initPoints(NUM_OF_DIMENSIONS);
+    return generator;
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.CalculationEngine;
+import p3j.simulation.calculation.deterministic.parameters.BasicParameters;
+import p3j.simulation.calculation.deterministic.parameters.InFlowDescendantParameters;
+import p3j.simulation.calculation.deterministic.parameters.InFlowParameters;
+import p3j.simulation.calculation.deterministic.parameters.JumpOffParameters;
+
+/**
+ * Benchmark for the deterministic calculations of all
+ * {@link CalculationEngine}s. A trial consists of one jump-off population and
+ * one in-flow population with all its descendant generations. Prints the
+ * average time per trial of each round, and the best round per engine. The
+ * batch populations ({@link AbstractBatchPopulation}) are measured as well.
+ * 
+ * Usage: PopulationCalculationBenchmark [years] [trials per round] [rounds]
+ * [trials per batch]
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ * 
+ */
+public final class PopulationCalculationBenchmark {
+
+  /** The default number of years. */
+  static final int DEFAULT_YEARS = 100;
+
+  /** The default number of trials per round. */
+  static final int DEFAULT_TRIALS = 2000;
+
+  /** The default number of rounds. */
+  static final int DEFAULT_ROUNDS = 10;
+
+  /** The default number of trials per batch. */
+  static final int DEFAULT_BATCH_SIZE = 16;
+
+  /** The maximum age. */
+  static final int MAX_AGE = Constants.DEFAULT_MAXIMUM_AGE;
+
+  /** The number of generations of the in-flow population. */
+  static final int GENERATIONS = Constants.DEFAULT_NUM_GENERATIONS;
+
+  /** The sub-population name. */
+  static final String SUB_POP_NAME = "Benchmark";
+
+  /** The number of nanoseconds per microsecond. */
+  static final double NANOS_PER_MICRO = 1000.;
+
+  /** The random number generator to create the input data. */
+  private final Random random = new Random(42);
+
+  /** The number of years. */
+  private final int years;
+
+  /** The jump-off parameters. */
+  private final JumpOffParameters jumpOffParameters;
+
+  /** The in-flow parameters. */
+  private final InFlowParameters inFlowParameters;
+
+  /** The parameters of the descendant generations, starting with the second. */
+  private final InFlowDescendantParameters[] descParameters;
+
+  /** A checksum of the results, so that the calculations are not optimised away. */
+  private double checksum;
+
+  /**
+   * Instantiates a new benchmark.
+   * 
+   * @param numOfYears
+   *          the number of years
+   */
+  PopulationCalculationBenchmark(int numOfYears) {
+    years = numOfYears;
+    jumpOffParameters = new JumpOffParameters(years, MAX_AGE);
+    fillBasicParameters(jumpOffParameters);
+    jumpOffParameters.setPEndSYm(createPopulation(1));
+    jumpOffParameters.setPEndSYf(createPopulation(1));
+
+    inFlowParameters = new InFlowParameters(years, MAX_AGE);
+    fillBasicParameters(inFlowParameters);
+    inFlowParameters.setMigrantsXm(createPopulation(years));
+    inFlowParameters.setMigrantsXf(createPopulation(years));
+
+    descParameters = new InFlowDescendantParameters[GENERATIONS - 1];
+    BasicParameters oldParameters = inFlowParameters;
+    for (int i = 0; i < descParameters.length; i++) {
+      descParameters[i] = new InFlowDescendantParameters(years, MAX_AGE);
+      fillBasicParameters(descParameters[i]);
+      descParameters[i].setOldFertX(oldParameters.getFertX());
+      oldParameters = descParameters[i];
+    }
+  }
+
+  /**
+   * Runs the benchmark.
+   * 
+   * @param args
+   *          the number of years, the number of trials per round, the number
+   *          of rounds, and the number of trials per batch (all optional)
+   */
+  public static void main(String[] args) {
+    int numOfYears = args.length > 0 ? Integer.parseInt(args[0])
+        : DEFAULT_YEARS;
+    int trials = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TRIALS;
+    int rounds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ROUNDS;
+    int batchSize = args.length > 3 ? Integer.parseInt(args[3])
+        : DEFAULT_BATCH_SIZE;
+
+    PopulationCalculationBenchmark benchmark = new PopulationCalculationBenchmark(
+        numOfYears);
+    for (CalculationEngine engine : CalculationEngine.values()) {
+      double best = Double.MAX_VALUE;
+      for (int round = 0; round < rounds; round++) {
+        double time = benchmark.run(engine, trials);
+        System.out.printf("%s, round %d: %.1f us per trial%n", engine, round,
+            time);
+        best = Math.min(best, time);
+      }
+      System.out.printf("%s: %.1f us per trial (best of %d rounds)%n", engine,
+          best, rounds);
+    }
+    double best = Double.MAX_VALUE;
+    for (int round = 0; round < rounds; round++) {
+      double time = benchmark.runBatches(batchSize, trials);
+      System.out.printf("Batch (%d), round %d: %.1f us per trial%n",
+          batchSize, round, time);
+      best = Math.min(best, time);
+    }
+    System.out.printf("Batch (%d): %.1f us per trial (best of %d rounds)%n",
+        batchSize, best, rounds);
+    System.out.println("Checksum: " + benchmark.checksum);
+  }
+
+  /**
+   * Calculates the given number of trials with the given engine.
+   * 
+   * @param engine
+   *          the calculation engine
+   * @param trials
+   *          the number of trials
+   * @return the average time per trial (in microseconds)
+   */
+  double run(CalculationEngine engine, int trials) {
+    AbstractPopulation<JumpOffParameters, BasicResults> jumpOffPopulation = engine
+        .createJumpOffPopulation();
+    AbstractPopulation<InFlowParameters, BasicResults> inFlowPopulation = engine
+        .createInFlowPopulation();
+    AbstractPopulation<InFlowDescendantParameters, BasicResults> descPopulation = engine
+        .createInFlowDescendantPopulation();
+
+    long start = System.nanoTime();
+    for (int trial = 0; trial < trials; trial++) {
+      BasicResults results = jumpOffPopulation.calculatePopulation(
+          SUB_POP_NAME, 0, jumpOffParameters);
+      checksum += results.getEndXf().getQuick(MAX_AGE / 2, years - 1);
+      results = inFlowPopulation.calculatePopulation(SUB_POP_NAME, 0,
+          inFlowParameters);
+      for (int generation = 1; generation < GENERATIONS; generation++) {
+        InFlowDescendantParameters parameters = descParameters[generation - 1];
+        parameters.setOldMeanXf(results.getMeanXf());
+        results = descPopulation.calculatePopulation(SUB_POP_NAME, generation,
+            parameters);
+      }
+      checksum += results.getEndXf().getQuick(1, years - 1);
+    }
+    return (System.nanoTime() - start) / NANOS_PER_MICRO / trials;
+  }
+
+  /**
+   * Calculates the given number of trials with the batch populations.
+   * 
+   * @param batchSize
+   *          the number of trials per batch
+   * @param trials
+   *          the number of trials
+   * @return the average time per trial (in microseconds)
+   */
+  double runBatches(int batchSize, int trials) {
+    BatchJumpOffPopulation jumpOffPopulation = new BatchJumpOffPopulation();
+    BatchInFlowPopulation inFlowPopulation = new BatchInFlowPopulation();
+    BatchInFlowDescendantPopulation descPopulation = new BatchInFlowDescendantPopulation();
+
+    long start = System.nanoTime();
+    for (int calculated = 0; calculated < trials; calculated += batchSize) {
+      int size = Math.min(batchSize, trials - calculated);
+      List<BasicResults> results = jumpOffPopulation.calculatePopulations(
+          SUB_POP_NAME, 0, Collections.nCopies(size, jumpOffParameters));
+      checksum += results.get(size - 1).getEndXf()
+          .getQuick(MAX_AGE / 2, years - 1);
+      results = inFlowPopulation.calculatePopulations(SUB_POP_NAME, 0,
+          Collections.nCopies(size, inFlowParameters));
+      for (int generation = 1; generation < GENERATIONS; generation++) {
+        List<InFlowDescendantParameters> parameters = new ArrayList<>(size);
+        for (BasicResults trialResults : results) {
+          parameters.add(createDescendantParameters(
+              descParameters[generation - 1], trialResults.getMeanXf()));
+        }
+        results = descPopulation.calculatePopulations(SUB_POP_NAME,
+            generation, parameters);
+      }
+      checksum += results.get(size - 1).getEndXf().getQuick(1, years - 1);
+    }
+    return (System.nanoTime() - start) / NANOS_PER_MICRO / trials;
+  }
+
+  /**
+   * Creates the parameters of a descendant generation for a single trial of a
+   * batch.
+   * 
+   * @param template
+   *          the parameters of the generation
+   * @param oldMeanXf
+   *          the old mean population of females of the trial
+   * @return the parameters
+   */
+  private InFlowDescendantParameters createDescendantParameters(
+      InFlowDescendantParameters template, Matrix2D oldMeanXf) {
+    InFlowDescendantParameters parameters = new InFlowDescendantParameters(
+        years, MAX_AGE);
+    parameters.setMortXm(template.getMortXm());
+    parameters.setMortXf(template.getMortXf());
+    parameters.setDeathProbInfant1halfMale(template
+        .getDeathProbInfant1halfMale());
+    parameters.setDeathProbInfant1halfFemale(template
+        .getDeathProbInfant1halfFemale());
+    parameters.setSurviveProbO100m(template.getSurviveProbO100m());
+    parameters.setSurviveProbO100f(template.getSurviveProbO100f());
+    parameters.setMaleRateLiveBirth(template.getMalePropLiveBirth());
+    parameters.setFertX(template.getFertX());
+    parameters.setOldFertX(template.getOldFertX());
+    parameters.setOldMeanXf(oldMeanXf);
+    return parameters;
+  }
+
+  /**
+   * Fills the parameters that are required by all calculations.
+   * 
+   * @param parameters
+   *          the parameters
+   */
+  private void fillBasicParameters(BasicParameters parameters) {
+    parameters.setMortXm(createMortality());
+    parameters.setMortXf(createMortality());
+    parameters.setDeathProbInfant1halfMale(createYearlyValues(0.6, 0.2));
+    parameters.setDeathProbInfant1halfFemale(createYearlyValues(0.6, 0.2));
+    parameters.setSurviveProbO100m(createYearlyValues(0.4, 0.2));
+    parameters.setSurviveProbO100f(createYearlyValues(0.5, 0.2));
+    parameters.setMaleRateLiveBirth(createYearlyValues(0.5, 0.02));
+    Matrix2D fertility = new Matrix2D(years, MAX_AGE + 1);
+    for (int year = 0; year < years; year++) {
+      for (int age = Constants.FERT_AGE_BEGIN; age < Constants.FERT_AGE_END; age++) {
+        fertility.setQuick(year, age, random.nextDouble() * 0.1);
+      }
+    }
+    parameters.setFertX(fertility);
+  }
+
+  /**
+   * Creates a mortality matrix (survivors per age, decreasing).
+   * 
+   * @return the mortality matrix
+   */
+  private Matrix2D createMortality() {
+    Matrix2D mortality = new Matrix2D(years, MAX_AGE + 1);
+    for (int year = 0; year < years; year++) {
+      double survivors = Constants.BASELINE_AMOUNT_MORT_MATRICES;
+      for (int age = 0; age <= MAX_AGE; age++) {
+        mortality.setQuick(year, age, survivors);
+        survivors *= 1 - random.nextDouble() * 0.1;
+      }
+    }
+    return mortality;
+  }
+
+  /**
+   * Creates a matrix with one value per year.
+   * 
+   * @param base
+   *          the minimal value
+   * @param range
+   *          the range of the values
+   * @return the matrix
+   */
+  private Matrix2D createYearlyValues(double base, double range) {
+    Matrix2D values = new Matrix2D(years, 1);
+    for (int year = 0; year < years; year++) {
+      values.setQuick(year, 0, base + random.nextDouble() * range);
+    }
+    return values;
+  }
+
+  /**
+   * Creates a population matrix (year x age).
+   * 
+   * @param numOfYears
+   *          the number of years
+   * @return the population matrix
+   */
+  private Matrix2D createPopulation(int numOfYears) {
+    Matrix2D population = new Matrix2D(numOfYears, MAX_AGE + 1);
+    for (int year = 0; year < numOfYears; year++) {
+      for (int age = 0; age <= MAX_AGE; age++) {
+        population.setQuick(year, age, random.nextDouble() * 10000);
+      }
+    }
+    return population;
+  }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2006 - 2012 Christina Bohk and Roland Ewald
+ *  
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ *  
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *  
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and 
+ * limitations under the License. 
+ */
+package p3j.simulation.calculation.deterministic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import p3j.experiment.results.BasicResults;
+import p3j.misc.math.Matrix2D;
+import p3j.simulation.calculation.deterministic.parameters.BasicParameters;
+import p3j.simulation.calculation.deterministic.parameters.InFlowDescendantParameters;
+import p3j.simulation.calculation.deterministic.parameters.InFlowParameters;
+import p3j.simulation.calculation.deterministic.parameters.JumpOffParameters;
+
+/**
+ * Tests that the array-based population calculations (with and without fused
+ * survival probabilities, single trials and batches of trials) yield exactly
+ * the same results as the matrix-based ones.
+ * 
+ * @author Christina Bohk
+ * @author Roland Ewald
+ */
+public class TestFlatArrayPopulations extends TestCase {
+
+  /** The number of years to be predicted. */
+  static final int YEARS = 30;
+
+  /** The maximum age. */
+  static final int MAX_AGE = Constants.DEFAULT_MAXIMUM_AGE;
+
+  /** The sub-population name. */
+  static final String SUB_POP_NAME = "Test";
+
+  /** The number of trials calculated by a batch. */
+  static final int BATCH_SIZE = 3;
+
+  /** The random number generator to create the input data. */
+  Random random = new Random(42);
+
+  /**
+   * Tests the jump-off population calculation.
+   */
+  public void testJumpOffPopulation() {
+    JumpOffParameters parameters = new JumpOffParameters(YEARS, MAX_AGE);
+    fillBasicParameters(parameters);
+    parameters.setPEndSYm(createPopulation(1));
+    parameters.setPEndSYf(createPopulation(1));
+
+    BasicResults results = new JumpOffPopulation().calculatePopulation(
+        SUB_POP_NAME, 0, parameters);
+    checkResults(results, new FlatArrayJumpOffPopulation()
+        .calculatePopulation(SUB_POP_NAME, 0, parameters));
+    checkPopulations(results, new FusedSweepJumpOffPopulation()
+        .calculatePopulation(SUB_POP_NAME, 0, parameters));
+  }
+
+  /**
+   * Tests the calculation of in-flow populations and their descendants.
+   */
+  public void testInFlowPopulations() {
+    InFlowParameters parameters = new InFlowParameters(YEARS, MAX_AGE);
+    fillBasicParameters(parameters);
+    parameters.setMigrantsXm(createPopulation(YEARS));
+    parameters.setMigrantsXf(createPopulation(YEARS));
+
+    BasicResults results = new InFlowPopulation().calculatePopulation(
+        SUB_POP_NAME, 0, parameters);
+    checkResults(results, new FlatArrayInFlowPopulation().calculatePopulation(
+        SUB_POP_NAME, 0, parameters));
+    checkPopulations(results, new FusedSweepInFlowPopulation()
+        .calculatePopulation(SUB_POP_NAME, 0, parameters));
+
+    BasicParameters oldParameters = parameters;
+    for (int generation = 1; generation < Constants.DEFAULT_NUM_GENERATIONS; generation++) {
+      InFlowDescendantParameters descParameters = new InFlowDescendantParameters(
+          YEARS, MAX_AGE);
+      fillBasicParameters(descParameters);
+      descParameters.setOldFertX(oldParameters.getFertX());
+      descParameters.setOldMeanXf(results.getMeanXf());
+
+      results = new InFlowDescendantPopulation().calculatePopulation(
+          SUB_POP_NAME, generation, descParameters);
+      checkResults(results,
+          new FlatArrayInFlowDescendantPopulation().calculatePopulation(
+              SUB_POP_NAME, generation, descParameters));
+      checkPopulations(results,
+          new FusedSweepInFlowDescendantPopulation().calculatePopulation(
+              SUB_POP_NAME, generation, descParameters));
+      oldParameters = descParameters;
+    }
+  }
+
+  /**
+   * Tests the batch calculation of jump-off populations.
+   */
+  public void testBatchJumpOffPopulation() {
+    List<JumpOffParameters> batch = new ArrayList<>();
+    List<BasicResults> expected = new ArrayList<>();
+    for (int trial = 0; trial < BATCH_SIZE; trial++) {
+      JumpOffParameters parameters = new JumpOffParameters(YEARS, MAX_AGE);
+      fillBasicParameters(parameters);
+      parameters.setPEndSYm(createPopulation(1));
+      parameters.setPEndSYf(createPopulation(1));
+      batch.add(parameters);
+      expected.add(new JumpOffPopulation().calculatePopulation(SUB_POP_NAME,
+          0, parameters));
+    }
+    checkBatchResults(expected, new BatchJumpOffPopulation()
+        .calculatePopulations(SUB_POP_NAME, 0, batch));
+  }
+
+  /**
+   * Tests the batch calculation of in-flow populations and their descendants.
+   */
+  public void testBatchInFlowPopulations() {
+    List<InFlowParameters> batch = new ArrayList<>();
+    List<BasicResults> expected = new ArrayList<>();
+    for (int trial = 0; trial < BATCH_SIZE; trial++) {
+      InFlowParameters parameters = new InFlowParameters(YEARS, MAX_AGE);
+      fillBasicParameters(parameters);
+      parameters.setMigrantsXm(createPopulation(YEARS));
+      parameters.setMigrantsXf(createPopulation(YEARS));
+      batch.add(parameters);
+      expected.add(new InFlowPopulation().calculatePopulation(SUB_POP_NAME, 0,
+          parameters));
+    }
+    checkBatchResults(expected, new BatchInFlowPopulation()
+        .calculatePopulations(SUB_POP_NAME, 0, batch));
+
+    List<? extends BasicParameters> oldBatch = batch;
+    for (int generation = 1; generation < Constants.DEFAULT_NUM_GENERATIONS; generation++) {
+      List<InFlowDescendantParameters> descBatch = new ArrayList<>();
+      for (int trial = 0; trial < BATCH_SIZE; trial++) {
+        InFlowDescendantParameters descParameters = new InFlowDescendantParameters(
+            YEARS, MAX_AGE);
+        fillBasicParameters(descParameters);
+        descParameters.setOldFertX(oldBatch.get(trial).getFertX());
+        descParameters.setOldMeanXf(expected.get(trial).getMeanXf());
+        descBatch.add(descParameters);
+        expected.set(trial, new InFlowDescendantPopulation()
+            .calculatePopulation(SUB_POP_NAME, generation, descParameters));
+      }
+      checkBatchResults(expected, new BatchInFlowDescendantPopulation()
+          .calculatePopulations(SUB_POP_NAME, generation, descBatch));
+      oldBatch = descBatch;
+    }
+  }
+
+  /**
+   * Tests that cached survival probabilities yield the same results, and that
+   * a cached table is not used for other matrices.
+   */
+  public void testCachedSurvivalProbabilities() {
+    SurvivalProbabilityCache.clear();
+    InFlowParameters parameters = new InFlowParameters(YEARS, MAX_AGE);
+    fillBasicParameters(parameters);
+    parameters.setMigrantsXm(createPopulation(YEARS));
+    parameters.setMigrantsXf(createPopulation(YEARS));
+    BasicResults expected = new InFlowPopulation().calculatePopulation(
+        SUB_POP_NAME, 0, parameters);
+
+    parameters.setSurvivalKeyMale(new SurvivalProbabilityCache.Key(1, 2,
+        MAX_AGE, YEARS));
+    parameters.setSurvivalKeyFemale(new SurvivalProbabilityCache.Key(3, 4,
+        MAX_AGE, YEARS));
+    for (int i = 0; i < 2; i++) {
+      checkResults(expected, new InFlowPopulation().calculatePopulation(
+          SUB_POP_NAME, 0, parameters));
+      checkResults(expected, new FlatArrayInFlowPopulation()
+          .calculatePopulation(SUB_POP_NAME, 0, parameters));
+      checkPopulations(expected, new FusedSweepInFlowPopulation()
+          .calculatePopulation(SUB_POP_NAME, 0, parameters));
+      checkPopulations(expected, new BatchInFlowPopulation()
+          .calculatePopulation(SUB_POP_NAME, 0, parameters));
+    }
+    assertEquals(2, SurvivalProbabilityCache.size());
+
+    // Same key, but different matrices
+    parameters.setMortXm(createMortality());
+    SurvivalProbabilityCache.Key key = parameters.getSurvivalKeyMale();
+    parameters.setSurvivalKeyMale(null);
+    expected = new InFlowPopulation().calculatePopulation(SUB_POP_NAME, 0,
+        parameters);
+    parameters.setSurvivalKeyMale(key);
+    checkPopulations(expected, new FusedSweepInFlowPopulation()
+        .calculatePopulation(SUB_POP_NAME, 0, parameters));
+    assertEquals(2, SurvivalProbabilityCache.size());
+    SurvivalProbabilityCache.clear();
+  }
+
+  /**
+   * Tests that recycled calculations and parameters yield the same results as
+   * new ones.
+   */
+  public void testRecycledCalculations() {
+    FusedSweepJumpOffPopulation jumpOffPopulation = new FusedSweepJumpOffPopulation();
+    FusedSweepInFlowPopulation inFlowPopulation = new FusedSweepInFlowPopulation();
+    FusedSweepInFlowDescendantPopulation descPopulation = new FusedSweepInFlowDescendantPopulation();
+    JumpOffParameters jumpOffParameters = new JumpOffParameters(YEARS, MAX_AGE);
+    InFlowParameters inFlowParameters = new InFlowParameters(YEARS, MAX_AGE);
+    InFlowDescendantParameters descParameters = new InFlowDescendantParameters(
+        YEARS, MAX_AGE);
+
+    for (int trial = 0; trial < 2; trial++) {
+      fillBasicParameters(jumpOffParameters);
+      jumpOffParameters.setPEndSYm(createPopulation(1));
+      jumpOffParameters.setPEndSYf(createPopulation(1));
+      checkPopulations(new JumpOffPopulation().calculatePopulation(
+          SUB_POP_NAME, 0, jumpOffParameters),
+          jumpOffPopulation.calculatePopulation(SUB_POP_NAME, 0,
+              jumpOffParameters));
+
+      fillBasicParameters(inFlowParameters);
+      inFlowParameters.setMigrantsXm(createPopulation(YEARS));
+      inFlowParameters.setMigrantsXf(createPopulation(YEARS));
+      BasicResults results = new InFlowPopulation().calculatePopulation(
+          SUB_POP_NAME, 0, inFlowParameters);
+      checkPopulations(results, inFlowPopulation.calculatePopulation(
+          SUB_POP_NAME, 0, inFlowParameters));
+
+      fillBasicParameters(descParameters);
+      descParameters.setOldFertX(inFlowParameters.getFertX());
+      descParameters.setOldMeanXf(results.getMeanXf());
+      checkPopulations(new InFlowDescendantPopulation().calculatePopulation(
+          SUB_POP_NAME, 1, descParameters), descPopulation.calculatePopulation(
+          SUB_POP_NAME, 1, descParameters));
+    }
+  }
+
+  /**
+   * Fills the parameters that are required by all calculations.
+   * 
+   * @param parameters
+   *          the parameters
+   */
+  void fillBasicParameters(BasicParameters parameters) {
+    parameters.setMortXm(createMortality());
+    parameters.setMortXf(createMortality());
+    parameters.setDeathProbInfant1halfMale(createYearlyValues(0.6, 0.2));
+    parameters.setDeathProbInfant1halfFemale(createYearlyValues(0.6, 0.2));
+    parameters.setSurviveProbO100m(createYearlyValues(0.4, 0.2));
+    parameters.setSurviveProbO100f(createYearlyValues(0.5, 0.2));
+    parameters.setMaleRateLiveBirth(createYearlyValues(0.5, 0.02));
+    Matrix2D fertility = new Matrix2D(YEARS, MAX_AGE + 1);
+    for (int year = 0; year < YEARS; year++) {
+      for (int age = 15; age < Constants.FERT_AGE_END; age++) {
+        fertility.setQuick(year, age, random.nextDouble() * 0.1);
+      }
+    }
+    parameters.setFertX(fertility);
+  }
+
+  /**
+   * Creates a mortality matrix (survivors per age, decreasing).
+   * 
+   * @return the mortality matrix
+   */
+  Matrix2D createMortality() {
+    Matrix2D mortality = new Matrix2D(YEARS, MAX_AGE + 1);
+    for (int year = 0; year < YEARS; year++) {
+      double survivors = Constants.BASELINE_AMOUNT_MORT_MATRICES;
+      for (int age = 0; age <= MAX_AGE; age++) {
+        mortality.setQuick(year, age, survivors);
+        survivors *= 1 - random.nextDouble() * 0.1;
+      }
+    }
+    return mortality;
+  }
+
+  /**
+   * Creates a matrix with one value per year.
+   * 
+   * @param base
+   *          the minimal value
+   * @param range
+   *          the range of the values
+   * @return the matrix
+   */
+  Matrix2D createYearlyValues(double base, double range) {
+    Matrix2D values = new Matrix2D(YEARS, 1);
+    for (int year = 0; year < YEARS; year++) {
+      values.setQuick(year, 0, base + random.nextDouble() * range);
+    }
+    return values;
+  }
+
+  /**
+   * Creates a population matrix (year x age).
+   * 
+   * @param years
+   *          the number of years
+   * @return the population matrix
+   */
+  Matrix2D createPopulation(int years) {
+    Matrix2D population = new Matrix2D(years, MAX_AGE + 1);
+    for (int year = 0; year < years; year++) {
+      for (int age = 0; age <= MAX_AGE; age++) {
+        population.setQuick(year, age, random.nextDouble() * 10000);
+      }
+    }
+    return population;
+  }
+
+  /**
+   * Checks that both results are exactly the same.
+   * 
+   * @param expected
+   *          the expected results
+   * @param actual
+   *          the actual results
+   */
+  static void checkResults(BasicResults expected, BasicResults actual) {
+    checkPopulations(expected, actual);
+    checkMatrix(expected.getP1m(), actual.getP1m());
+    checkMatrix(expected.getP1f(), actual.getP1f());
+    checkMatrix(expected.getP2m(), actual.getP2m());
+    checkMatrix(expected.getP2f(), actual.getP2f());
+  }
+
+  /**
+   * Checks that the results of a batch contain exactly the same populations as
+   * the results of the single trials.
+   * 
+   * @param expected
+   *          the expected results, one per trial
+   * @param actual
+   *          the actual results, one per trial
+   */
+  static void checkBatchResults(List<BasicResults> expected,
+      List<BasicResults> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int trial = 0; trial < expected.size(); trial++) {
+      checkPopulations(expected.get(trial), actual.get(trial));
+      assertEquals(expected.get(trial).getGeneration(), actual.get(trial)
+          .getGeneration());
+    }
+  }
+
+  /**
+   * Checks that both results contain exactly the same populations.
+   * 
+   * @param expected
+   *          the expected results
+   * @param actual
+   *          the actual results
+   */
+  static void checkPopulations(BasicResults expected, BasicResults actual) {
+    checkMatrix(expected.getEndXm(), actual.getEndXm());
+    checkMatrix(expected.getEndXf(), actual.getEndXf());
+    checkMatrix(expected.getMeanXm(), actual.getMeanXm());
+    checkMatrix(expected.getMeanXf(), actual.getMeanXf());
+  }
+
+  /**
+   * Checks that both matrices are exactly the same.
+   * 
+   * @param expected
+   *          the expected matrix
+   * @param actual
+   *          the actual matrix
+   */
+  static void checkMatrix(Matrix2D expected, Matrix2D actual) {
+    assertEquals(expected.rows(), actual.rows());
+    assertEquals(expected.columns(), actual.columns());
+    for (int row = 0; row < expected.rows(); row++) {
+      for (int col = 0; col < expected.columns(); col++) {
+        assertEquals(Double.doubleToLongBits(expected.getQuick(row, col)),
+            Double.doubleToLongBits(actual.getQuick(row, col)));
+      }
+    }
+  }
+}